@@ -0,0 +1,24 @@
+package cn.homjie.vertx.tutorial.core;
+
+/**
+ * Processes the uplinks of the devices of one shard, with the state of each device in {@code S}. Every call is made on
+ * the event loop of the shard, so neither the handler nor the states need any locking.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public interface DeviceHandler<S> {
+
+    /**
+     * Makes the state of a device on its first uplink, or on the first one after it was closed for being idle.
+     */
+    S open(String productKey, String deviceName);
+
+    void handle(S state, Uplink uplink);
+
+    /**
+     * The device sent nothing for the idle timeout and its state is dropped.
+     */
+    default void close(S state) {
+    }
+}
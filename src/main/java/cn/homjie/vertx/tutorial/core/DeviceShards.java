@@ -0,0 +1,222 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Uplink processing sharded by device, one verticle instance per core:
+ * <pre>
+ * DeviceShards&lt;Session&gt; shards = DeviceShards.builder(shard -&gt; new SessionHandler()).build();
+ * shards.deploy(vertx).onSuccess(id -&gt; ...);
+ * // in a gateway verticle
+ * UplinkRouter router = shards.router(vertx);
+ * router.send(Uplink.of("/lora/gwmp/uplink/pk/dn", frame));
+ * </pre>
+ * A {@link ShardRing} maps each {@code productKey}/{@code deviceName} to one shard, whose verticle consumes
+ * {@code address.<shard>} and keeps the state of its devices in a plain map. A device is only ever handled on the event
+ * loop of its shard, in the order its gateway sent the uplinks, so per-device state needs no lock and no shared pool.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public final class DeviceShards<S> {
+
+    private final Builder<S> options;
+    private final ShardRing ring;
+
+    private DeviceShards(Builder<S> options) {
+        this.options = options;
+        this.ring = new ShardRing(options.shards, options.virtualNodes);
+    }
+
+    /**
+     * @param handlers called on the event loop of each shard as it starts, with the index of the shard
+     */
+    public static <S> Builder<S> builder(IntFunction<DeviceHandler<S>> handlers) {
+        return new Builder<>(handlers);
+    }
+
+    /**
+     * Deploys one verticle per shard, the event loops of Vert.x being handed out to them in turn.
+     *
+     * @return the deployment id, to undeploy all shards at once
+     */
+    public Future<String> deploy(Vertx vertx) {
+        AtomicInteger next = new AtomicInteger();
+        Promise<String> promise = Promise.promise();
+        vertx.deployVerticle(() -> new ShardVerticle(next.getAndIncrement()),
+            new DeploymentOptions().setInstances(options.shards), promise);
+        return promise.future();
+    }
+
+    /**
+     * A router for the calling verticle, see {@link UplinkRouter}.
+     */
+    public UplinkRouter router(Vertx vertx) {
+        return new UplinkRouter(vertx, this, options.maxBatch, options.lingerMillis);
+    }
+
+    public ShardRing ring() {
+        return ring;
+    }
+
+    public String address(int shard) {
+        return options.address + "." + shard;
+    }
+
+    private static final class Device<S> {
+
+        final S state;
+        long lastSeen;
+
+        Device(S state) {
+            this.state = state;
+        }
+    }
+
+    private final class ShardVerticle extends AbstractVerticle {
+
+        private final int shard;
+        private final Map<String, Device<S>> devices = new HashMap<>();
+        private DeviceHandler<S> handler;
+
+        ShardVerticle(int shard) {
+            this.shard = shard;
+        }
+
+        @Override
+        public void start() {
+            handler = options.handlers.apply(shard);
+            vertx.eventBus().localConsumer(address(shard), this::handle);
+            if (options.idleMillis > 0) {
+                vertx.setPeriodic(Math.max(1, options.idleMillis / 2), id -> sweep());
+            }
+        }
+
+        @Override
+        public void stop() {
+            for (Device<S> device : devices.values()) {
+                handler.close(device.state);
+            }
+            devices.clear();
+        }
+
+        private void handle(Message<Object> message) {
+            Object body = message.body();
+            long now = System.currentTimeMillis();
+            if (body instanceof UplinkBatch) {
+                for (Uplink uplink : (UplinkBatch)body) {
+                    handle(uplink, now);
+                }
+            } else if (body instanceof Uplink) {
+                handle((Uplink)body, now);
+            } else {
+                log.warn("Unexpected {} on shard {}", body == null ? null : body.getClass().getName(), shard);
+            }
+        }
+
+        private void handle(Uplink uplink, long now) {
+            String[] device = UplinkRouter.deviceOf(uplink.topic());
+            String key = device[1] + "&" + device[0];
+            Device<S> current = devices.get(key);
+            if (current == null) {
+                current = new Device<>(handler.open(device[0], device[1]));
+                devices.put(key, current);
+            }
+            current.lastSeen = now;
+            try {
+                handler.handle(current.state, uplink);
+            } catch (RuntimeException e) {
+                log.error("Shard {} failed on {}", shard, uplink, e);
+            }
+        }
+
+        private void sweep() {
+            long idleBefore = System.currentTimeMillis() - options.idleMillis;
+            Iterator<Device<S>> iterator = devices.values().iterator();
+            while (iterator.hasNext()) {
+                Device<S> device = iterator.next();
+                if (device.lastSeen < idleBefore) {
+                    iterator.remove();
+                    handler.close(device.state);
+                }
+            }
+        }
+    }
+
+    public static class Builder<S> {
+
+        final IntFunction<DeviceHandler<S>> handlers;
+        String address = "uplink.device";
+        int shards = Runtime.getRuntime().availableProcessors();
+        int virtualNodes = 160;
+        int maxBatch = 64;
+        long lingerMillis;
+        long idleMillis;
+
+        private Builder(IntFunction<DeviceHandler<S>> handlers) {
+            this.handlers = handlers;
+        }
+
+        /**
+         * Shard {@code i} consumes {@code address.i}, {@code uplink.device} by default.
+         */
+        public Builder<S> address(String address) {
+            this.address = address;
+            return this;
+        }
+
+        /**
+         * One per core by default; the event loop pool of Vert.x must have at least as many threads.
+         */
+        public Builder<S> shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * Points of each shard on the ring, 160 keep the shards within a few percent of each other.
+         */
+        public Builder<S> virtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+            return this;
+        }
+
+        /**
+         * Batching of the routers towards each shard, see {@link UplinkBatcher}.
+         */
+        public Builder<S> batch(int maxBatch, long linger, TimeUnit unit) {
+            this.maxBatch = maxBatch;
+            this.lingerMillis = unit.toMillis(linger);
+            return this;
+        }
+
+        /**
+         * Drops the state of a device that sent nothing for this long, never by default.
+         */
+        public Builder<S> idleTimeout(long time, TimeUnit unit) {
+            this.idleMillis = unit.toMillis(time);
+            return this;
+        }
+
+        public DeviceShards<S> build() {
+            if (shards <= 0) {
+                throw new IllegalStateException("shards: " + shards);
+            }
+            return new DeviceShards<>(this);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+/**
+ * Event bus codec of a class whose instances cannot change: a local consumer receives the very instance that was
+ * sent, where the default codecs copy a {@code JsonObject} or a {@code Buffer} for every delivery, and only a clustered
+ * delivery goes through {@link #encode} and {@link #decode}.
+ * <p>
+ * Handing out a shared instance is only safe if nobody can change it, so the constructor checks the class: it is
+ * final, its fields are final, and each one is a primitive, a {@code String}, a boxed primitive, an enum or a class
+ * that passes the same check. An array or a collection can only pass as a private field marked {@link Owned}: the
+ * class copies it in and hands out nothing but read-only views, as {@link Uplink} does, which no reflection can tell.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public abstract class ImmutableCodec<T> implements MessageCodec<T, T> {
+
+    private static final List<Class<?>> VALUES = Arrays.asList(String.class, Boolean.class, Character.class,
+        Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class);
+
+    private final String name;
+
+    /**
+     * A private field of a mutable type that its class copies in and never hands out writable, exempt from the check.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.FIELD)
+    public @interface Owned {
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code type} is not immutable
+     */
+    protected ImmutableCodec(Class<T> type) {
+        checkImmutable(type, new HashSet<>());
+        this.name = type.getName();
+    }
+
+    /**
+     * Appends {@code value} to {@code buffer}.
+     */
+    protected abstract void encode(Buffer buffer, T value);
+
+    /**
+     * Reads back, from {@code position} of {@code buffer}, what {@link #encode} appended.
+     */
+    protected abstract T decode(Buffer buffer, int position);
+
+    @Override
+    public final void encodeToWire(Buffer buffer, T value) {
+        encode(buffer, value);
+    }
+
+    @Override
+    public final T decodeFromWire(int pos, Buffer buffer) {
+        return decode(buffer, pos);
+    }
+
+    @Override
+    public final T transform(T value) {
+        return value;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+
+    private static void checkImmutable(Class<?> type, Set<Class<?>> checked) {
+        if (!checked.add(type)) {
+            return;
+        }
+        if (!Modifier.isFinal(type.getModifiers())) {
+            throw new IllegalArgumentException(type.getName() + " is not final");
+        }
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                String where = type.getName() + "." + field.getName();
+                if (!Modifier.isFinal(modifiers)) {
+                    throw new IllegalArgumentException(where + " is not final");
+                }
+                Class<?> fieldType = field.getType();
+                if (fieldType.isPrimitive() || fieldType.isEnum() || VALUES.contains(fieldType)) {
+                    continue;
+                }
+                if (field.isAnnotationPresent(Owned.class)) {
+                    // 由类自己复制并只读地交出，反射无从检查
+                    if (!Modifier.isPrivate(modifiers)) {
+                        throw new IllegalArgumentException(where + " is owned but not private");
+                    }
+                    continue;
+                }
+                if (fieldType.isArray()) {
+                    throw new IllegalArgumentException(where + " is an array not marked owned");
+                }
+                checkImmutable(fieldType, checked);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.util.Arrays;
+
+/**
+ * Consistent hashing of devices onto {@code shards}: each shard owns {@code virtualNodes} points of a 64-bit ring, and
+ * a device goes to the owner of the first point at or after its hash. A device always lands on the same shard, and
+ * going from n to n + 1 shards moves about 1/(n + 1) of the devices, all of them to the new shard, where a modulo
+ * would move almost all of them.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class ShardRing {
+
+    private final int shards;
+    private final long[] points;
+    private final int[] owners;
+
+    public ShardRing(int shards, int virtualNodes) {
+        if (shards <= 0 || virtualNodes <= 0) {
+            throw new IllegalArgumentException("shards: " + shards + ", virtualNodes: " + virtualNodes);
+        }
+        this.shards = shards;
+        int size = shards * virtualNodes;
+        long[] hashes = new long[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = hash("shard-" + i / virtualNodes, Integer.toString(i % virtualNodes));
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compareUnsigned(hashes[a], hashes[b]));
+        this.points = new long[size];
+        this.owners = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    public int shards() {
+        return shards;
+    }
+
+    public int shardOf(String productKey, String deviceName) {
+        long hash = hash(productKey, deviceName);
+        int low = 0;
+        int high = points.length - 1;
+        if (Long.compareUnsigned(hash, points[high]) > 0) {
+            // 环上最后一个点之后回到第一个点
+            return owners[0];
+        }
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[mid], hash) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return owners[low];
+    }
+
+    /**
+     * FNV-1a over the chars of both strings with a separator, then the MurmurHash3 finalizer to spread the bits.
+     */
+    static long hash(String productKey, String deviceName) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < productKey.length(); i++) {
+            h = (h ^ productKey.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ '&') * 0x100000001b3L;
+        for (int i = 0; i < deviceName.length(); i++) {
+            h = (h ^ deviceName.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,80 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One uplink frame on its way to the broker. It cannot change once made, so the event bus hands the same instance to
+ * local consumers instead of copying it: the payload is copied in {@link #of} and only handed out read-only.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class Uplink {
+
+    private final String topic;
+    private final long timestamp;
+    @ImmutableCodec.Owned
+    private final byte[] payload;
+
+    Uplink(String topic, long timestamp, byte[] payload) {
+        this.topic = topic;
+        this.timestamp = timestamp;
+        this.payload = payload;
+    }
+
+    public static Uplink of(String topic, byte[] payload) {
+        return new Uplink(topic, System.currentTimeMillis(), payload.clone());
+    }
+
+    public String topic() {
+        return topic;
+    }
+
+    /**
+     * Milliseconds since the epoch when the frame was received.
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /**
+     * A read-only view, each call has its own position.
+     */
+    public ByteBuffer payload() {
+        return ByteBuffer.wrap(payload).asReadOnlyBuffer();
+    }
+
+    public int payloadLength() {
+        return payload.length;
+    }
+
+    /**
+     * The payload array itself, for the codecs and the publish verticle, which only read it.
+     */
+    byte[] payloadArray() {
+        return payload;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Uplink)) {
+            return false;
+        }
+        Uplink other = (Uplink)o;
+        return timestamp == other.timestamp && topic.equals(other.topic) && Arrays.equals(payload, other.payload);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * topic.hashCode() + Arrays.hashCode(payload);
+    }
+
+    @Override
+    public String toString() {
+        return "Uplink(topic=" + topic + ", timestamp=" + timestamp + ", " + payload.length + " bytes)";
+    }
+}
@@ -0,0 +1,43 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Uplinks sent over the event bus as one message, in the order they were added to the {@link UplinkBatcher}.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class UplinkBatch implements Iterable<Uplink> {
+
+    @ImmutableCodec.Owned
+    private final List<Uplink> uplinks;
+
+    /**
+     * Takes {@code uplinks} over, the caller must not keep it.
+     */
+    UplinkBatch(ArrayList<Uplink> uplinks) {
+        this.uplinks = Collections.unmodifiableList(uplinks);
+    }
+
+    public int size() {
+        return uplinks.size();
+    }
+
+    public Uplink get(int index) {
+        return uplinks.get(index);
+    }
+
+    @Override
+    public Iterator<Uplink> iterator() {
+        return uplinks.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "UplinkBatch(" + uplinks.size() + " uplinks)";
+    }
+}
@@ -0,0 +1,114 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.util.ArrayList;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+
+/**
+ * Sends uplinks to an address in batches, one event bus message and one delivery per {@link UplinkBatch}:
+ * <pre>
+ * // in start() of a verticle
+ * batcher = new UplinkBatcher(vertx, "uplink", 64, 0);
+ * // for every frame
+ * batcher.send(Uplink.of(topic, frame));
+ * </pre>
+ * A batch leaves once it holds {@code maxBatch} uplinks, or when the linger time has passed since its first one. With
+ * a linger of 0 it leaves at the end of the current event loop task: the frames read from one socket buffer go
+ * together and none waits for a timer.
+ * <p>
+ * Like a verticle, a batcher belongs to the context it was created on and is only called there.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class UplinkBatcher {
+
+    private final Vertx vertx;
+    private final Context context;
+    private final EventBus eventBus;
+    private final String address;
+    private final int maxBatch;
+    private final long lingerMillis;
+    private ArrayList<Uplink> pending;
+    /**
+     * Number of the batch being filled, a flush scheduled for an earlier one does nothing.
+     */
+    private long batch;
+    private long timer = -1;
+    private long uplinks;
+
+    /**
+     * @throws IllegalStateException if not called on a Vert.x context
+     */
+    public UplinkBatcher(Vertx vertx, String address, int maxBatch, long lingerMillis) {
+        if (maxBatch <= 0 || lingerMillis < 0) {
+            throw new IllegalArgumentException("maxBatch: " + maxBatch + ", lingerMillis: " + lingerMillis);
+        }
+        this.context = Vertx.currentContext();
+        if (context == null) {
+            throw new IllegalStateException("Not on a Vert.x context");
+        }
+        this.vertx = vertx;
+        this.eventBus = vertx.eventBus();
+        this.address = address;
+        this.maxBatch = maxBatch;
+        this.lingerMillis = lingerMillis;
+    }
+
+    public void send(Uplink uplink) {
+        if (Vertx.currentContext() != context) {
+            throw new IllegalStateException("Batcher used off its context");
+        }
+        if (pending == null) {
+            pending = new ArrayList<>(maxBatch);
+            long scheduled = batch;
+            if (lingerMillis == 0) {
+                context.runOnContext(v -> flush(scheduled));
+            } else {
+                timer = vertx.setTimer(lingerMillis, id -> flush(scheduled));
+            }
+        }
+        pending.add(uplink);
+        uplinks++;
+        if (pending.size() == maxBatch) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the uplinks not sent yet now.
+     */
+    public void flush() {
+        if (pending == null) {
+            return;
+        }
+        if (timer >= 0) {
+            vertx.cancelTimer(timer);
+            timer = -1;
+        }
+        UplinkBatch full = new UplinkBatch(pending);
+        pending = null;
+        batch++;
+        eventBus.send(address, full);
+    }
+
+    /**
+     * Batches sent so far.
+     */
+    public long batches() {
+        return batch;
+    }
+
+    public long uplinks() {
+        return uplinks;
+    }
+
+    private void flush(long scheduled) {
+        if (scheduled == batch) {
+            timer = -1;
+            flush();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import cn.homjie.vertx.tutorial.juc.AdaptiveLimiter;
+import cn.homjie.vertx.tutorial.mqtt.MqttPublisher;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The publishing end of the uplink flow: consumes {@link Uplink}s and {@link UplinkBatch}es from an address and
+ * publishes them with a {@link MqttPublisher} of its own.
+ * <pre>
+ * UplinkCodec.register(vertx.eventBus());
+ * vertx.deployVerticle(UplinkPublishVerticle.builder(MqttPublisher.builder("tcp://localhost:1883")
+ *         .credentials(i -&gt; credentials))
+ *     .maxInFlight(256)
+ *     .build());
+ * </pre>
+ * Connecting and closing block, they run on a worker thread. Publishing does not until every window of the publisher
+ * is full, so the verticle keeps at most {@code maxInFlight} messages unacknowledged, no more than the connections
+ * times the window; past that the uplinks wait in the verticle until acks come back. The event bus cannot slow down
+ * its senders, so at most {@code maxBuffered} uplinks wait: beyond that an uplink is discarded, logged and counted in
+ * {@link #discarded()}.
+ * <p>
+ * With an {@link AdaptiveLimiter} the verticle keeps in flight what the limiter allows, within {@code maxInFlight}:
+ * when the broker slows down, fewer messages wait on it and the rest wait here instead of piling up in
+ * the windows.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class UplinkPublishVerticle extends AbstractVerticle {
+
+    private final Builder options;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    /**
+     * Only touched on the context of the verticle.
+     */
+    private final ArrayDeque<Uplink> waiting = new ArrayDeque<>();
+    /**
+     * Uplinks are waiting, each ack schedules a drain.
+     */
+    private volatile boolean backlogged;
+    /**
+     * A timer to drain again is armed, only touched on the context of the verticle.
+     */
+    private boolean retryArmed;
+    private MqttPublisher publisher;
+    private MessageConsumer<Object> consumer;
+
+    private UplinkPublishVerticle(Builder options) {
+        this.options = options;
+    }
+
+    public static Builder builder(MqttPublisher.Builder publisher) {
+        return new Builder(publisher);
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        publisher = options.publisher.build();
+        VertxStages.executeBlocking(() -> {
+            publisher.start();
+            return null;
+        }).whenComplete((v, e) -> {
+            if (e != null) {
+                startPromise.fail(e);
+                return;
+            }
+            consumer = vertx.eventBus().consumer(options.address, this::handle);
+            consumer.completionHandler(startPromise);
+        });
+    }
+
+    @Override
+    public void stop(Promise<Void> stopPromise) {
+        // start 失败时还没有注册
+        if (consumer != null) {
+            consumer.unregister();
+        }
+        if (!waiting.isEmpty()) {
+            log.warn("Stopped with {} uplinks not published", waiting.size());
+        }
+        if (publisher == null) {
+            stopPromise.complete();
+            return;
+        }
+        VertxStages.executeBlocking(() -> {
+            publisher.close();
+            return null;
+        }).whenComplete((v, e) -> stopPromise.complete());
+    }
+
+    /**
+     * Messages acknowledged by the broker.
+     */
+    public long published() {
+        return published.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    /**
+     * Uplinks dropped because {@code maxBuffered} were already waiting.
+     */
+    public long discarded() {
+        return discarded.sum();
+    }
+
+    private void handle(Message<Object> message) {
+        Object body = message.body();
+        if (body instanceof UplinkBatch) {
+            for (Uplink uplink : (UplinkBatch)body) {
+                enqueue(uplink);
+            }
+        } else if (body instanceof Uplink) {
+            enqueue((Uplink)body);
+        } else {
+            log.warn("Unexpected {} on {}", body == null ? null : body.getClass().getName(), options.address);
+            return;
+        }
+        drain();
+    }
+
+    private void enqueue(Uplink uplink) {
+        if (waiting.size() < options.maxBuffered) {
+            waiting.addLast(uplink);
+            return;
+        }
+        discarded.increment();
+        log.warn("Discarded {}, {} uplinks already waiting, {} discarded in all", uplink, waiting.size(),
+            discarded.sum());
+    }
+
+    private void drain() {
+        while (!waiting.isEmpty() && inFlight.get() < options.maxInFlight) {
+            AdaptiveLimiter.Permit permit = null;
+            if (options.limiter != null && (permit = options.limiter.tryAcquire()) == null) {
+                if (inFlight.get() == 0 && !retryArmed) {
+                    // 限流器被其他调用方占满，没有 ack 会来唤醒；同一时刻最多一个定时器
+                    retryArmed = true;
+                    vertx.setTimer(10, id -> {
+                        retryArmed = false;
+                        drain();
+                    });
+                }
+                break;
+            }
+            publish(waiting.pollFirst(), permit);
+        }
+        if (waiting.isEmpty()) {
+            backlogged = false;
+        } else if (!backlogged) {
+            backlogged = true;
+            // 设置 backlogged 之前回来的 ack 没有安排 drain
+            if (inFlight.get() < options.maxInFlight) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            context.runOnContext(v -> {
+                drainScheduled.set(false);
+                drain();
+            });
+        }
+    }
+
+    private void publish(Uplink uplink, AdaptiveLimiter.Permit permit) {
+        inFlight.incrementAndGet();
+        try {
+            // 包装负载数组本身：只读视图不暴露数组，TLS 下大负载只能分段拷贝写出
+            ByteBuffer payload = ByteBuffer.wrap(uplink.payloadArray());
+            publisher.publish(uplink.topic(), payload, options.qos).whenComplete((v, e) -> {
+                if (permit != null) {
+                    permit.release(e != null);
+                }
+                if (e != null) {
+                    failed.increment();
+                } else {
+                    published.increment();
+                }
+                inFlight.decrementAndGet();
+                // 有积压时由 ack 唤醒，同一时刻最多一个排队的 drain
+                if (backlogged) {
+                    scheduleDrain();
+                }
+            });
+        } catch (InterruptedException e) {
+            if (permit != null) {
+                permit.release(true);
+            }
+            inFlight.decrementAndGet();
+            failed.increment();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static class Builder {
+
+        final MqttPublisher.Builder publisher;
+        String address = "uplink";
+        int qos = 1;
+        int maxInFlight = 256;
+        int maxBuffered = 10_000;
+        AdaptiveLimiter limiter;
+
+        private Builder(MqttPublisher.Builder publisher) {
+            this.publisher = publisher;
+        }
+
+        public Builder address(String address) {
+            this.address = address;
+            return this;
+        }
+
+        public Builder qos(int qos) {
+            if (qos < 0 || qos > 2) {
+                throw new IllegalArgumentException("qos: " + qos);
+            }
+            this.qos = qos;
+            return this;
+        }
+
+        /**
+         * At most the connections times the window of the publisher, 256 by default as one connection.
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight <= 0) {
+                throw new IllegalArgumentException("maxInFlight: " + maxInFlight);
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Uplinks waiting for room in flight, 10000 by default; beyond that they are discarded and counted.
+         */
+        public Builder maxBuffered(int maxBuffered) {
+            if (maxBuffered < 0) {
+                throw new IllegalArgumentException("maxBuffered: " + maxBuffered);
+            }
+            this.maxBuffered = maxBuffered;
+            return this;
+        }
+
+        /**
+         * Adapts the messages in flight to the latency of the broker, which then acknowledges sooner.
+         */
+        public Builder limiter(AdaptiveLimiter limiter) {
+            this.limiter = limiter;
+            return this;
+        }
+
+        public UplinkPublishVerticle build() {
+            return new UplinkPublishVerticle(this);
+        }
+    }
+}
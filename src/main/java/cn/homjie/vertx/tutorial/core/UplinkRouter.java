@@ -0,0 +1,56 @@
+package cn.homjie.vertx.tutorial.core;
+
+import io.vertx.core.Vertx;
+
+/**
+ * Sends each uplink to the shard of its device, with an {@link UplinkBatcher} per shard. As a batcher, it belongs to
+ * the verticle that made it with {@link DeviceShards#router}: the uplinks of a device that all go through one router
+ * reach their shard in the order they were sent.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class UplinkRouter {
+
+    private final ShardRing ring;
+    private final UplinkBatcher[] batchers;
+
+    UplinkRouter(Vertx vertx, DeviceShards<?> shards, int maxBatch, long lingerMillis) {
+        this.ring = shards.ring();
+        this.batchers = new UplinkBatcher[ring.shards()];
+        for (int i = 0; i < batchers.length; i++) {
+            batchers[i] = new UplinkBatcher(vertx, shards.address(i), maxBatch, lingerMillis);
+        }
+    }
+
+    public void send(Uplink uplink) {
+        String[] device = deviceOf(uplink.topic());
+        batchers[ring.shardOf(device[0], device[1])].send(uplink);
+    }
+
+    public void flush() {
+        for (UplinkBatcher batcher : batchers) {
+            batcher.flush();
+        }
+    }
+
+    /**
+     * {@code /lora/gwmp/uplink/{pk}/{dn}}: the fourth and fifth levels of the topic, or the whole topic and an empty
+     * device name.
+     */
+    static String[] deviceOf(String topic) {
+        int start = 0;
+        for (int level = 0; level < 4; level++) {
+            start = topic.indexOf('/', start) + 1;
+            if (start == 0) {
+                return new String[] {topic, ""};
+            }
+        }
+        int end = topic.indexOf('/', start);
+        if (end < 0) {
+            return new String[] {topic, ""};
+        }
+        int next = topic.indexOf('/', end + 1);
+        return new String[] {topic.substring(start, end), topic.substring(end + 1, next < 0 ? topic.length() : next)};
+    }
+}
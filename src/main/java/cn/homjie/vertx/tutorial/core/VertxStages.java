@@ -0,0 +1,153 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+
+/**
+ * Bridges {@link CompletionStage} and Vert.x {@link Future} without leaving the event loop:
+ * <pre>
+ * // on the event loop of a verticle
+ * Executor loop = VertxStages.executor(context);
+ * CompletableFuture&lt;Frame&gt; frame = VertxStages.executeBlocking(workers, () -&gt; repository.load(deviceName))
+ *     .thenApplyAsync(this::decode, loop);
+ * VertxStages.toFuture(frame).onComplete(this::reply);
+ * </pre>
+ * {@code thenApplyAsync(fn)} hops to the common pool and its result then hops back through
+ * {@code runOnContext}, two context switches and a cold cache per step for work of a few microseconds. Here the
+ * continuations stay on the context that started them: {@link #executor(Context)} runs a task directly when already
+ * on its event loop and queues it there otherwise, {@link #toFuture} completes the Vert.x future on the caller's
+ * context, and a stage made by {@link #toStage} completes wherever the Vert.x future does, its event loop for the
+ * Vert.x clients. Blocking steps go to the worker pool of the Vert.x instance, or a named {@link WorkerExecutor} to
+ * keep them off the default pool, and their result comes back on the caller's context.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class VertxStages {
+
+    /**
+     * Tasks a context executor runs directly on one stack, beyond that it queues them to unwind.
+     */
+    private static final int MAX_DEPTH = 16;
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private VertxStages() {
+    }
+
+    /**
+     * Runs tasks on the event loop of {@code context}: directly if the caller is already there, through
+     * {@link Context#runOnContext} otherwise.
+     */
+    public static Executor executor(Context context) {
+        return task -> {
+            int[] depth = DEPTH.get();
+            if (Vertx.currentContext() == context && depth[0] < MAX_DEPTH) {
+                depth[0]++;
+                try {
+                    task.run();
+                } finally {
+                    depth[0]--;
+                }
+            } else {
+                context.runOnContext(v -> task.run());
+            }
+        };
+    }
+
+    /**
+     * Completes on the context of the caller, or on the completing thread when called outside of Vert.x.
+     */
+    public static <T> Future<T> toFuture(CompletionStage<T> stage) {
+        return toFuture(stage, Vertx.currentContext());
+    }
+
+    /**
+     * @param context where the handlers of the returned future run, null for the thread that completes the stage
+     */
+    public static <T> Future<T> toFuture(CompletionStage<T> stage, Context context) {
+        Promise<T> promise = Promise.promise();
+        stage.whenComplete((value, failure) -> {
+            if (context == null || Vertx.currentContext() == context) {
+                complete(promise, value, failure);
+            } else {
+                context.runOnContext(v -> complete(promise, value, failure));
+            }
+        });
+        return promise.future();
+    }
+
+    /**
+     * Completes on the thread that completes {@code future}, the dependent stages with no executor run there.
+     */
+    public static <T> CompletableFuture<T> toStage(Future<T> future) {
+        CompletableFuture<T> stage = new CompletableFuture<>();
+        future.onComplete(completer(stage));
+        return stage;
+    }
+
+    /**
+     * Runs {@code task} on the worker pool of the current context's Vert.x instance, in order with the other blocking
+     * tasks of the context, and completes on that context.
+     *
+     * @throws IllegalStateException if not called on a Vert.x context
+     */
+    public static <T> CompletableFuture<T> executeBlocking(Callable<T> task) {
+        Context context = Vertx.currentContext();
+        if (context == null) {
+            throw new IllegalStateException("Not on a Vert.x context");
+        }
+        CompletableFuture<T> stage = new CompletableFuture<>();
+        context.executeBlocking(blocking(task), true, completer(stage));
+        return stage;
+    }
+
+    /**
+     * Runs {@code task} on a named worker pool, {@code vertx.createSharedWorkerExecutor("device-store", 8)}, without
+     * ordering, and completes on the caller's context.
+     */
+    public static <T> CompletableFuture<T> executeBlocking(WorkerExecutor workers, Callable<T> task) {
+        CompletableFuture<T> stage = new CompletableFuture<>();
+        workers.executeBlocking(blocking(task), false, completer(stage));
+        return stage;
+    }
+
+    private static <T> Handler<Promise<T>> blocking(Callable<T> task) {
+        return promise -> {
+            try {
+                promise.complete(task.call());
+            } catch (Exception e) {
+                promise.fail(e);
+            }
+        };
+    }
+
+    private static <T> Handler<AsyncResult<T>> completer(CompletableFuture<T> stage) {
+        return result -> {
+            if (result.succeeded()) {
+                stage.complete(result.result());
+            } else {
+                stage.completeExceptionally(result.cause());
+            }
+        };
+    }
+
+    private static <T> void complete(Promise<T> promise, T value, Throwable failure) {
+        if (failure == null) {
+            promise.complete(value);
+        } else {
+            promise.fail(failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure);
+        }
+    }
+}
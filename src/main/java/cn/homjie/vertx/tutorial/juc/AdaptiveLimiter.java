@@ -0,0 +1,381 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Limits the asynchronous calls in flight to a limit it finds from their round trip times, instead of a pool size
+ * picked once:
+ * <pre>
+ * AdaptiveLimiter limiter = AdaptiveLimiter.builder(AdaptiveLimiter.Algorithm.GRADIENT)
+ *     .limits(10, 1, 500)
+ *     .queue(100, 50, TimeUnit.MILLISECONDS)
+ *     .build();
+ * limiter.submit(() -&gt; client.query(deviceName)).thenApply(...);
+ * limiter.supplyAsync(() -&gt; repository.load(deviceName), executor);
+ * </pre>
+ * {@link Algorithm#AIMD} adds one to the limit for a call that succeeded while the limit was in use and cuts it by
+ * a tenth on a failure or a call slower than the timeout. {@link Algorithm#GRADIENT} compares each round trip with a
+ * slow moving average: while they match it keeps room for about the square root of the limit more, once calls get
+ * slower than the average, the backend queueing, the limit shrinks in proportion, down to half at a time. Failures
+ * count as drops for both.
+ * <p>
+ * Past the limit a call waits in a short queue, or fails at once with a {@link RejectedExecutionException} when the
+ * queue is full or it waited longer than the queue timeout. {@link #tryAcquire} is for callers that track their own
+ * calls, as {@code UplinkPublishVerticle} does for the MQTT publish path.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class AdaptiveLimiter {
+
+    /**
+     * 调整并发上限的算法
+     */
+    public enum Algorithm {
+        /**
+         * 加性增、乘性减
+         */
+        AIMD,
+        /**
+         * 按最新往返时间与长期平均的比值缩放
+         */
+        GRADIENT
+    }
+
+    private static final double BACKOFF = 0.9;
+    private static final double SMOOTHING = 0.2;
+    private static final double TOLERANCE = 1.5;
+    private static final int LONG_WINDOW = 600;
+
+    private final Builder options;
+    private final ArrayDeque<Waiter<?>> queue = new ArrayDeque<>();
+    /**
+     * Guarded by {@code this}, as is {@code queue}.
+     */
+    private double limit;
+    private int inFlight;
+    private double longRttNanos;
+    private volatile int currentLimit;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private AdaptiveLimiter(Builder options) {
+        this.options = options;
+        this.limit = options.initialLimit;
+        this.currentLimit = options.initialLimit;
+    }
+
+    public static Builder builder(Algorithm algorithm) {
+        return new Builder(algorithm);
+    }
+
+    /**
+     * Runs {@code call} now if under the limit, after its turn in the queue otherwise.
+     *
+     * @return the result of the call, or failed with a {@link RejectedExecutionException}
+     */
+    public <T> CompletableFuture<T> submit(Supplier<? extends CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (!offer(new Waiter<>(call, result))) {
+            result.completeExceptionally(new RejectedExecutionException("Over the limit of " + currentLimit));
+        }
+        return result;
+    }
+
+    /**
+     * Runs a blocking {@code task} on {@code executor} under the limit: the round trip includes the time in the
+     * queue of the pool, which makes a saturated pool look slow and lowers the limit.
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task, Executor executor) {
+        return submit(() -> CompletableFuture.supplyAsync(task, executor));
+    }
+
+    /**
+     * An executor running tasks on {@code delegate} under the limit, one thrown from its {@code execute} when the
+     * queue is full. A task that waits longer than the queue timeout runs on {@code delegate} anyway, outside the
+     * limit, and counts as rejected.
+     */
+    public Executor executor(Executor delegate) {
+        return executor(delegate, delegate::execute);
+    }
+
+    /**
+     * As {@link #executor(Executor)}, but a task that waits longer than the queue timeout is handed to
+     * {@code expired}, on the timer thread, instead of running.
+     */
+    public Executor executor(Executor delegate, Consumer<Runnable> expired) {
+        return task -> {
+            Waiter<Void> waiter = new Waiter<>(() -> CompletableFuture.runAsync(task, delegate),
+                new CompletableFuture<>());
+            waiter.expired = () -> expired.accept(task);
+            if (!offer(waiter)) {
+                throw new RejectedExecutionException("Over the limit of " + currentLimit);
+            }
+        };
+    }
+
+    /**
+     * A permit if under the limit, without queueing.
+     *
+     * @return null over the limit
+     */
+    public Permit tryAcquire() {
+        int started;
+        synchronized (this) {
+            if (inFlight >= limit) {
+                rejected.increment();
+                return null;
+            }
+            started = ++inFlight;
+        }
+        accepted.increment();
+        return new Permit(options.ticker.getAsLong(), started);
+    }
+
+    public int limit() {
+        return currentLimit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public long accepted() {
+        return accepted.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Calls that failed or took longer than the timeout.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    private <T> boolean offer(Waiter<T> waiter) {
+        int started;
+        synchronized (this) {
+            if (inFlight < limit) {
+                started = ++inFlight;
+            } else if (queue.size() < options.maxQueue) {
+                queue.addLast(waiter);
+                waiter.timeout = HashedWheelTimer.shared().newTimeout(() -> expire(waiter), options.queueTimeoutNanos,
+                    TimeUnit.NANOSECONDS);
+                return true;
+            } else {
+                rejected.increment();
+                return false;
+            }
+        }
+        start(waiter, started);
+        return true;
+    }
+
+    private void expire(Waiter<?> waiter) {
+        synchronized (this) {
+            if (!queue.remove(waiter)) {
+                return;
+            }
+        }
+        rejected.increment();
+        // execute 早已返回，没有调用方可以通知
+        if (waiter.expired != null) {
+            waiter.expired.run();
+            return;
+        }
+        waiter.result.completeExceptionally(new RejectedExecutionException("Queued for longer than "
+            + TimeUnit.NANOSECONDS.toMillis(options.queueTimeoutNanos) + "ms"));
+    }
+
+    private <T> void start(Waiter<T> waiter, int inFlightAtStart) {
+        if (waiter.timeout != null) {
+            waiter.timeout.cancel();
+        }
+        accepted.increment();
+        Permit permit = new Permit(options.ticker.getAsLong(), inFlightAtStart);
+        CompletableFuture<T> call;
+        try {
+            call = waiter.call.get();
+        } catch (RuntimeException e) {
+            call = new CompletableFuture<>();
+            call.completeExceptionally(e);
+        }
+        call.whenComplete((value, failure) -> {
+            permit.release(failure != null);
+            if (failure != null) {
+                waiter.result.completeExceptionally(failure);
+            } else {
+                waiter.result.complete(value);
+            }
+        });
+    }
+
+    private void release(long rttNanos, int inFlightAtStart, boolean failed) {
+        boolean drop = failed || rttNanos > options.timeoutNanos;
+        if (drop) {
+            dropped.increment();
+        }
+        List<Waiter<?>> next = null;
+        int started = 0;
+        synchronized (this) {
+            inFlight--;
+            limit = options.algorithm == Algorithm.AIMD
+                ? aimd(inFlightAtStart, drop) : gradient(rttNanos, inFlightAtStart, drop);
+            currentLimit = (int)limit;
+            while (inFlight < limit && !queue.isEmpty()) {
+                if (next == null) {
+                    next = new ArrayList<>();
+                }
+                next.add(queue.pollFirst());
+                inFlight++;
+            }
+            started = inFlight;
+        }
+        if (next != null) {
+            for (Waiter<?> waiter : next) {
+                start(waiter, started);
+            }
+        }
+    }
+
+    private double aimd(int inFlightAtStart, boolean drop) {
+        if (drop) {
+            return Math.max(options.minLimit, limit * BACKOFF);
+        }
+        // 只有上限真正被用到时才增加
+        if (inFlightAtStart * 2 >= limit) {
+            return Math.min(options.maxLimit, limit + 1);
+        }
+        return limit;
+    }
+
+    private double gradient(long rttNanos, int inFlightAtStart, boolean drop) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+            if (longRttNanos > 2.0 * rttNanos) {
+                // 后端恢复后，长期平均更快地跟上
+                longRttNanos *= 0.95;
+            }
+        }
+        if (drop) {
+            return Math.max(options.minLimit, limit * BACKOFF);
+        }
+        if (inFlightAtStart * 2 < limit) {
+            return limit;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / Math.max(1, rttNanos)));
+        double target = limit * gradient + Math.sqrt(limit);
+        double smoothed = limit * (1 - SMOOTHING) + target * SMOOTHING;
+        return Math.max(options.minLimit, Math.min(options.maxLimit, smoothed));
+    }
+
+    /**
+     * One call under the limit, to release exactly once when it completes.
+     */
+    public final class Permit {
+
+        private final long startNanos;
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long startNanos, int inFlightAtStart) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * @param failed whether the call failed, which lowers the limit
+         */
+        public void release(boolean failed) {
+            if (released.compareAndSet(false, true)) {
+                AdaptiveLimiter.this.release(options.ticker.getAsLong() - startNanos, inFlightAtStart, failed);
+            }
+        }
+    }
+
+    private static final class Waiter<T> {
+
+        final Supplier<? extends CompletableFuture<T>> call;
+        final CompletableFuture<T> result;
+        HashedWheelTimer.Timeout timeout;
+        /**
+         * For an executor task, which has no caller left to fail.
+         */
+        Runnable expired;
+
+        Waiter(Supplier<? extends CompletableFuture<T>> call, CompletableFuture<T> result) {
+            this.call = call;
+            this.result = result;
+        }
+    }
+
+    public static class Builder {
+
+        final Algorithm algorithm;
+        int initialLimit = 20;
+        int minLimit = 1;
+        int maxLimit = 1000;
+        int maxQueue;
+        long queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(50);
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(5);
+        LongSupplier ticker = System::nanoTime;
+
+        private Builder(Algorithm algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        public Builder limits(int initial, int min, int max) {
+            if (min <= 0 || initial < min || max < initial) {
+                throw new IllegalArgumentException("limits: " + initial + ", " + min + ", " + max);
+            }
+            this.initialLimit = initial;
+            this.minLimit = min;
+            this.maxLimit = max;
+            return this;
+        }
+
+        /**
+         * Calls over the limit that wait, none by default: rejected at once.
+         */
+        public Builder queue(int maxQueue, long timeout, TimeUnit unit) {
+            this.maxQueue = maxQueue;
+            this.queueTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * A call slower than this counts as dropped, 5 seconds by default.
+         */
+        public Builder timeout(long timeout, TimeUnit unit) {
+            this.timeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        Builder ticker(LongSupplier ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        public AdaptiveLimiter build() {
+            return new AdaptiveLimiter(this);
+        }
+    }
+}
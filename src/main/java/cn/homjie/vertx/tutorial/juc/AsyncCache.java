@@ -0,0 +1,383 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A cache of {@link CompletableFuture}s, to chain on as in {@code CompletionStageTest}:
+ * <pre>
+ * AsyncCache&lt;String, Device&gt; devices = AsyncCache.builder()
+ *     .maximumSize(100_000)
+ *     .expireAfterWrite(10, TimeUnit.MINUTES)
+ *     .refreshAfterWrite(5, TimeUnit.MINUTES)
+ *     .build(repository::findAsync);
+ * devices.get(deviceName).thenApply(Device::secret).thenAccept(...);
+ * </pre>
+ * The future of a key is cached as soon as its load starts: when a reconnect storm asks for a device a thousand times
+ * at once, the thousand callers share one load, and none of them waits on a lock while it runs. A failed load, or
+ * one that yields null, is not kept. An entry lives {@code expireAfterWrite} from the end of its load; past
+ * {@code refreshAfterWrite} the next read still gets the cached value and starts one reload in the background, which
+ * replaces the value when it succeeds, so hot keys never miss.
+ * <p>
+ * Beyond {@code maximumSize} entries the segmented LRU evicts: a new key enters the probation segment and moves to the
+ * protected one, 80% of the cache, on its second read, so a scan of one-time keys only flushes probation and not the
+ * keys in use. Reads record their access only if the policy lock is free, as the order need not be exact.
+ * <p>
+ * Callers share the returned future, they must not complete it.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class AsyncCache<K, V> {
+
+    private static final AtomicIntegerFieldUpdater<Node> REFRESHING =
+        AtomicIntegerFieldUpdater.newUpdater(Node.class, "refreshing");
+
+    private final Function<? super K, ? extends CompletableFuture<V>> loader;
+    private final LongSupplier ticker;
+    private final long maximumSize;
+    private final long maxProtected;
+    private final long expireNanos;
+    private final long refreshNanos;
+    private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+    private final ReentrantLock policy = new ReentrantLock();
+    /**
+     * Circular lists with a sentinel, eldest first; guarded by {@code policy}.
+     */
+    private final Node<K, V> probation = Node.sentinel();
+    private final Node<K, V> protect = Node.sentinel();
+    private long probationSize;
+    private long protectedSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private AsyncCache(Builder options, Function<? super K, ? extends CompletableFuture<V>> loader) {
+        this.loader = loader;
+        this.ticker = options.ticker;
+        this.maximumSize = options.maximumSize;
+        this.maxProtected = Math.max(1, options.maximumSize * 4 / 5);
+        this.expireNanos = options.expireNanos;
+        this.refreshNanos = options.refreshNanos;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The cached future of {@code key}, or the one of a load started now and shared with every concurrent caller.
+     */
+    public CompletableFuture<V> get(K key) {
+        while (true) {
+            long now = ticker.getAsLong();
+            Node<K, V> node = map.get(key);
+            if (node != null) {
+                if (!node.expired(now, expireNanos)) {
+                    hits.increment();
+                    afterRead(node);
+                    refreshIfStale(node, now);
+                    return node.future;
+                }
+                remove(node);
+            }
+            Node<K, V> created = new Node<>(key);
+            node = map.putIfAbsent(key, created);
+            if (node == null) {
+                misses.increment();
+                afterWrite(created);
+                load(created);
+                return created.future;
+            }
+            // 别的线程刚开始加载，过期的话再来一次
+            if (!node.expired(now, expireNanos)) {
+                hits.increment();
+                return node.future;
+            }
+        }
+    }
+
+    /**
+     * The value if it is cached and loaded, without loading it.
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = map.get(key);
+        if (node == null || node.expired(ticker.getAsLong(), expireNanos)) {
+            return null;
+        }
+        CompletableFuture<V> future = node.future;
+        return future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    public void invalidate(K key) {
+        Node<K, V> node = map.get(key);
+        if (node != null) {
+            remove(node);
+        }
+    }
+
+    public void invalidateAll() {
+        for (Node<K, V> node : map.values()) {
+            remove(node);
+        }
+    }
+
+    /**
+     * Entries cached, the loading ones included.
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Calls answered from the cache, joining a load in progress included.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Calls that started a load.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long refreshes() {
+        return refreshes.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private void load(Node<K, V> node) {
+        CompletableFuture<V> loading;
+        try {
+            loading = loader.apply(node.key);
+        } catch (RuntimeException e) {
+            loading = new CompletableFuture<>();
+            loading.completeExceptionally(e);
+        }
+        loading.whenComplete((value, failure) -> {
+            if (failure != null || value == null) {
+                remove(node);
+            } else {
+                node.writeNanos = ticker.getAsLong();
+            }
+            // 先记下写入时间再完成，读到完成的 future 就能判断过期
+            if (failure != null) {
+                node.future.completeExceptionally(failure);
+            } else {
+                node.future.complete(value);
+            }
+        });
+    }
+
+    private void refreshIfStale(Node<K, V> node, long now) {
+        if (refreshNanos <= 0 || !node.future.isDone() || now - node.writeNanos < refreshNanos
+            || !REFRESHING.compareAndSet(node, 0, 1)) {
+            return;
+        }
+        refreshes.increment();
+        CompletableFuture<V> reloading;
+        try {
+            reloading = loader.apply(node.key);
+        } catch (RuntimeException e) {
+            reloading = new CompletableFuture<>();
+            reloading.completeExceptionally(e);
+        }
+        reloading.whenComplete((value, failure) -> {
+            if (failure == null && value != null) {
+                node.writeNanos = ticker.getAsLong();
+                node.future = CompletableFuture.completedFuture(value);
+            } else {
+                // 刷新失败时保留旧值，直到它过期
+                log.warn("Refresh of {} failed", node.key, failure);
+            }
+            node.refreshing = 0;
+        });
+    }
+
+    private void remove(Node<K, V> node) {
+        if (map.remove(node.key, node)) {
+            policy.lock();
+            try {
+                unlink(node);
+            } finally {
+                policy.unlock();
+            }
+        }
+    }
+
+    private void afterRead(Node<K, V> node) {
+        if (!policy.tryLock()) {
+            return;
+        }
+        try {
+            if (node.segment == Node.PROBATION) {
+                unlink(node);
+                link(protect, node, Node.PROTECTED);
+                while (protectedSize > maxProtected) {
+                    // 受保护段满了，最久未用的降回试用段
+                    Node<K, V> eldest = protect.next;
+                    unlink(eldest);
+                    link(probation, eldest, Node.PROBATION);
+                }
+            } else if (node.segment == Node.PROTECTED) {
+                unlink(node);
+                link(protect, node, Node.PROTECTED);
+            }
+        } finally {
+            policy.unlock();
+        }
+    }
+
+    private void afterWrite(Node<K, V> node) {
+        policy.lock();
+        try {
+            if (map.get(node.key) != node) {
+                return;
+            }
+            // 先腾出位置再加入，刚写入的节点不会被选作淘汰对象
+            while (probationSize + protectedSize >= maximumSize && probationSize + protectedSize > 0) {
+                Node<K, V> victim = probationSize > 0 ? probation.next : protect.next;
+                unlink(victim);
+                if (map.remove(victim.key, victim)) {
+                    evictions.increment();
+                }
+            }
+            link(probation, node, Node.PROBATION);
+        } finally {
+            policy.unlock();
+        }
+    }
+
+    private void link(Node<K, V> head, Node<K, V> node, int segment) {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        node.segment = segment;
+        if (segment == Node.PROBATION) {
+            probationSize++;
+        } else {
+            protectedSize++;
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.segment == Node.UNLINKED) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        if (node.segment == Node.PROBATION) {
+            probationSize--;
+        } else {
+            protectedSize--;
+        }
+        node.segment = Node.UNLINKED;
+    }
+
+    private static final class Node<K, V> {
+
+        static final int UNLINKED = 0;
+        static final int PROBATION = 1;
+        static final int PROTECTED = 2;
+
+        final K key;
+        volatile CompletableFuture<V> future = new CompletableFuture<>();
+        /**
+         * When the last load or refresh completed, written before its future is.
+         */
+        volatile long writeNanos;
+        volatile int refreshing;
+        Node<K, V> prev;
+        Node<K, V> next;
+        int segment;
+
+        Node(K key) {
+            this.key = key;
+        }
+
+        static <K, V> Node<K, V> sentinel() {
+            Node<K, V> head = new Node<>(null);
+            head.prev = head;
+            head.next = head;
+            return head;
+        }
+
+        boolean expired(long now, long expireNanos) {
+            return expireNanos > 0 && future.isDone() && now - writeNanos >= expireNanos;
+        }
+    }
+
+    public static class Builder {
+
+        long maximumSize = Long.MAX_VALUE;
+        long expireNanos;
+        long refreshNanos;
+        LongSupplier ticker = System::nanoTime;
+
+        private Builder() {
+        }
+
+        public Builder maximumSize(long maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximumSize: " + maximumSize);
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Counted from the end of the load, or of the last refresh.
+         */
+        public Builder expireAfterWrite(long time, TimeUnit unit) {
+            this.expireNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * Reads past this age reload the value in the background, shorter than {@code expireAfterWrite} to be useful.
+         */
+        public Builder refreshAfterWrite(long time, TimeUnit unit) {
+            this.refreshNanos = unit.toNanos(time);
+            return this;
+        }
+
+        Builder ticker(LongSupplier ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        public <K, V> AsyncCache<K, V> build(Function<? super K, ? extends CompletableFuture<V>> loader) {
+            if (refreshNanos > 0 && expireNanos > 0 && refreshNanos >= expireNanos) {
+                throw new IllegalStateException("refreshAfterWrite must be shorter than expireAfterWrite");
+            }
+            return new AsyncCache<>(this, loader);
+        }
+
+        /**
+         * Runs a blocking {@code loader} on {@code executor}, with {@code supplyAsync}.
+         */
+        public <K, V> AsyncCache<K, V> build(Function<? super K, V> loader, Executor executor) {
+            return build(key -> CompletableFuture.supplyAsync(() -> loader.apply(key), executor));
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Bounded-concurrency stages over a stream of inputs.
+ * <p>
+ * {@code thenApplyAsync(fn, executor)} accepts every submission, so a 1M-element input becomes 1M closures in the
+ * executor queue. Here each step runs at most {@code maxInFlight} items at once and the pipeline holds at most
+ * {@code window} items in total (by default the sum of the step limits). {@link #submit} blocks the producer while
+ * the window is full, so memory stays O(window) whatever the input size.
+ * <p>
+ * The sink is called by one thread at a time. In ordered mode it sees items in submission order: a finished item
+ * waits in a reorder buffer, bounded by the window, until all earlier items have been emitted.
+ * <pre>
+ * AsyncPipeline&lt;String, String&gt; pipeline = AsyncPipeline.&lt;String&gt;builder()
+ *     .thenApplyAsync(String::toUpperCase, executor, 16)
+ *     .thenCompose(backend::call, 128)
+ *     .ordered(true)
+ *     .build(result::add);
+ * for (String message : messages) {
+ *     pipeline.submit(message);
+ * }
+ * pipeline.complete().join();
+ * </pre>
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class AsyncPipeline<I, O> {
+
+    private final Step[] steps;
+    private final Consumer<? super O> sink;
+    private final boolean ordered;
+    private final int window;
+    private final Semaphore permits;
+    private final Item[] reorder;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong outstanding = new AtomicLong();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private volatile boolean closed;
+    /**
+     * guarded by reorder
+     */
+    private long nextEmit;
+
+    @SuppressWarnings("unchecked")
+    private AsyncPipeline(Builder<I, O> builder, Consumer<? super O> sink) {
+        this.steps = (Step[])new AsyncPipeline.Step[builder.steps.size()];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = new Step(i, builder.steps.get(i), builder.limits.get(i));
+        }
+        this.sink = sink;
+        this.ordered = builder.ordered;
+        this.window = builder.window > 0 ? builder.window : builder.limits.stream().mapToInt(Integer::intValue).sum();
+        this.permits = new Semaphore(window);
+        this.reorder = ordered ? new Item[window] : null;
+    }
+
+    public static <T> Builder<T, T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Blocks while the window is full.
+     *
+     * @throws IllegalStateException if the pipeline has completed or failed
+     */
+    public void submit(I input) throws InterruptedException {
+        checkOpen();
+        permits.acquire();
+        admit(input);
+    }
+
+    /**
+     * @return false if the window stayed full for the whole timeout
+     */
+    public boolean offer(I input, long timeout, TimeUnit unit) throws InterruptedException {
+        checkOpen();
+        if (!permits.tryAcquire(timeout, unit)) {
+            return false;
+        }
+        admit(input);
+        return true;
+    }
+
+    /**
+     * Stops accepting input. The returned future completes once every submitted item has reached the sink, or fails
+     * with the first failure of any step.
+     */
+    public CompletableFuture<Void> complete() {
+        closed = true;
+        if (outstanding.get() == 0) {
+            done.complete(null);
+        }
+        return done;
+    }
+
+    public int window() {
+        return window;
+    }
+
+    /**
+     * Items submitted but not yet emitted.
+     */
+    public long outstanding() {
+        return outstanding.get();
+    }
+
+    private void checkOpen() {
+        if (done.isCompletedExceptionally()) {
+            throw new IllegalStateException("Pipeline failed", failure());
+        }
+        if (closed) {
+            throw new IllegalStateException("Pipeline completed");
+        }
+    }
+
+    private void admit(I input) {
+        if (done.isCompletedExceptionally()) {
+            permits.release();
+            throw new IllegalStateException("Pipeline failed", failure());
+        }
+        outstanding.incrementAndGet();
+        Item item = new Item(submitted.getAndIncrement(), input);
+        if (steps.length == 0) {
+            emit(item);
+        } else {
+            steps[0].offer(item);
+        }
+    }
+
+    private Throwable failure() {
+        try {
+            done.getNow(null);
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause();
+        }
+    }
+
+    private void fail(Throwable e) {
+        if (done.completeExceptionally(Stages.unwrap(e))) {
+            // 唤醒所有阻塞的生产者，让它们看到失败
+            permits.release(window);
+        }
+    }
+
+    private void drop(Item item) {
+        release();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void emit(Item item) {
+        if (done.isCompletedExceptionally()) {
+            drop(item);
+            return;
+        }
+        if (!ordered) {
+            synchronized (this) {
+                accept((O)item.value);
+            }
+            release();
+            return;
+        }
+        int released = 0;
+        synchronized (reorder) {
+            reorder[(int)(item.seq % window)] = item;
+            int index;
+            Item next;
+            while ((next = reorder[index = (int)(nextEmit % window)]) != null) {
+                reorder[index] = null;
+                nextEmit++;
+                accept((O)next.value);
+                released++;
+            }
+        }
+        for (int i = 0; i < released; i++) {
+            release();
+        }
+    }
+
+    private void accept(O value) {
+        try {
+            sink.accept(value);
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void release() {
+        long left = outstanding.decrementAndGet();
+        permits.release();
+        if (left == 0 && closed) {
+            done.complete(null);
+        }
+    }
+
+    private static final class Item {
+
+        private final long seq;
+        private Object value;
+
+        Item(long seq, Object value) {
+            this.seq = seq;
+            this.value = value;
+        }
+    }
+
+    private final class Step {
+
+        private final int index;
+        private final Function<Object, CompletionStage<?>> fn;
+        private final int maxInFlight;
+        /**
+         * guarded by this
+         */
+        private final ArrayDeque<Item> waiting = new ArrayDeque<>();
+        private int inFlight;
+
+        Step(int index, Function<Object, CompletionStage<?>> fn, int maxInFlight) {
+            this.index = index;
+            this.fn = fn;
+            this.maxInFlight = maxInFlight;
+        }
+
+        void offer(Item item) {
+            synchronized (this) {
+                if (inFlight == maxInFlight) {
+                    waiting.add(item);
+                    return;
+                }
+                inFlight++;
+            }
+            run(item);
+        }
+
+        /**
+         * Loops instead of recursing while stages complete synchronously, so a long waiting queue cannot overflow the
+         * stack.
+         */
+        private void run(Item item) {
+            while (item != null) {
+                if (done.isCompletedExceptionally()) {
+                    item = onComplete(item, null, null);
+                    continue;
+                }
+                CompletionStage<?> stage;
+                try {
+                    stage = fn.apply(item.value);
+                } catch (Throwable e) {
+                    item = onComplete(item, null, e);
+                    continue;
+                }
+                if (Stages.isDone(stage)) {
+                    item = onComplete(item, Stages.joinNow(stage), Stages.failureNow(stage));
+                    continue;
+                }
+                Item current = item;
+                stage.whenComplete((result, e) -> run(onComplete(current, result, e)));
+                return;
+            }
+        }
+
+        /**
+         * Hands the item to the next step and frees its slot.
+         *
+         * @return the next waiting item, which takes over the slot
+         */
+        private Item onComplete(Item item, Object result, Throwable e) {
+            if (e != null) {
+                fail(e);
+            }
+            if (done.isCompletedExceptionally()) {
+                drop(item);
+            } else {
+                item.value = result;
+                if (index + 1 < steps.length) {
+                    steps[index + 1].offer(item);
+                } else {
+                    emit(item);
+                }
+            }
+            synchronized (this) {
+                Item next = waiting.poll();
+                if (next == null) {
+                    inFlight--;
+                }
+                return next;
+            }
+        }
+    }
+
+    public static final class Builder<I, T> {
+
+        private final List<Function<Object, CompletionStage<?>>> steps = new ArrayList<>();
+        private final List<Integer> limits = new ArrayList<>();
+        private boolean ordered;
+        private int window;
+
+        private Builder() {
+        }
+
+        /**
+         * Runs {@code fn} on {@code executor}, at most {@code maxInFlight} items at once.
+         */
+        public <R> Builder<I, R> thenApplyAsync(Function<? super T, ? extends R> fn, Executor executor,
+                                                int maxInFlight) {
+            return thenCompose(t -> CompletableFuture.supplyAsync(() -> fn.apply(t), executor), maxInFlight);
+        }
+
+        /**
+         * Starts at most {@code maxInFlight} stages of {@code fn} at once.
+         */
+        @SuppressWarnings("unchecked")
+        public <R> Builder<I, R> thenCompose(Function<? super T, ? extends CompletionStage<R>> fn, int maxInFlight) {
+            if (maxInFlight <= 0) {
+                throw new IllegalArgumentException("maxInFlight: " + maxInFlight);
+            }
+            steps.add(t -> fn.apply((T)t));
+            limits.add(maxInFlight);
+            return (Builder<I, R>)this;
+        }
+
+        /**
+         * Emits in submission order, default false.
+         */
+        public Builder<I, T> ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * Maximum items inside the pipeline, default the sum of the step limits.
+         */
+        public Builder<I, T> window(int window) {
+            if (window <= 0) {
+                throw new IllegalArgumentException("window: " + window);
+            }
+            this.window = window;
+            return this;
+        }
+
+        public AsyncPipeline<I, T> build(Consumer<? super T> sink) {
+            if (steps.isEmpty() && window == 0) {
+                window = 1;
+            }
+            return new AsyncPipeline<>(this, sink);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package cn.homjie.vertx.tutorial.juc;
+
+/**
+ * The chain of stage names that led to a failure, attached as a suppressed exception by {@link StageTracer}. A thread
+ * stack trace of an async stage only shows the executor; this one shows the stages, innermost first:
+ * <pre>
+ * Suppressed: cn.homjie.vertx.tutorial.juc.AsyncStackTrace: async stack
+ *     at async.combine(Unknown Source)
+ *     at async.upper(Unknown Source)
+ *     at async.load(Unknown Source)
+ * </pre>
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class AsyncStackTrace extends RuntimeException {
+
+    AsyncStackTrace(Node node) {
+        super("async stack", null, false, true);
+        int depth = 0;
+        for (Node n = node; n != null; n = n.parent) {
+            depth++;
+        }
+        StackTraceElement[] elements = new StackTraceElement[depth];
+        int i = 0;
+        for (Node n = node; n != null; n = n.parent) {
+            elements[i++] = new StackTraceElement("async", n.name, null, -1);
+        }
+        setStackTrace(elements);
+    }
+
+    /**
+     * One frame of the async stack, created when the chain is built, not when it runs.
+     */
+    static class Node {
+
+        final String name;
+        final Node parent;
+
+        Node(String name, Node parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A per-request deadline shared by every stage of a {@link DeadlineStage} chain.
+ * <p>
+ * There is a single timeout per request on a {@link HashedWheelTimer}, not one per future. It is armed while some
+ * stage of the chain is still running and cancelled once none is. When it fires, every running stage completes with
+ * {@link DeadlineExceededException}. Functions that have not started yet check the deadline before running, so
+ * downstream work is skipped rather than wasted.
+ * <pre>
+ * Deadline deadline = Deadline.after(200, TimeUnit.MILLISECONDS);
+ * String result = deadline.supplyAsync(() -&gt; load(id), executor)
+ *     .thenCompose(this::enrich)
+ *     .thenApply(String::toUpperCase)
+ *     .join();
+ * </pre>
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class Deadline {
+
+    private final long deadlineNanos;
+    private final HashedWheelTimer timer;
+    /**
+     * guarded by this
+     */
+    private List<CompletableFuture<?>> running = new ArrayList<>(4);
+    private HashedWheelTimer.Timeout timeout;
+    private boolean expired;
+
+    private Deadline(long deadlineNanos, HashedWheelTimer timer) {
+        this.deadlineNanos = deadlineNanos;
+        this.timer = timer;
+    }
+
+    public static Deadline after(long duration, TimeUnit unit) {
+        return after(duration, unit, HashedWheelTimer.shared());
+    }
+
+    public static Deadline after(long duration, TimeUnit unit, HashedWheelTimer timer) {
+        return new Deadline(System.nanoTime() + unit.toNanos(duration), timer);
+    }
+
+    public long remaining(TimeUnit unit) {
+        return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    public <T> DeadlineStage<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        return track(CompletableFuture.supplyAsync(guard(supplier), executor));
+    }
+
+    /**
+     * Puts an existing stage under this deadline.
+     */
+    public <T> DeadlineStage<T> wrap(CompletionStage<T> stage) {
+        return track(stage.toCompletableFuture());
+    }
+
+    <T> DeadlineStage<T> track(CompletableFuture<T> future) {
+        if (!future.isDone()) {
+            boolean exceeded;
+            synchronized (this) {
+                exceeded = expired;
+                if (!exceeded) {
+                    running.add(future);
+                    if (timeout == null) {
+                        timeout = timer.newTimeout(this::expire, deadlineNanos - System.nanoTime(),
+                            TimeUnit.NANOSECONDS);
+                    }
+                }
+            }
+            if (exceeded) {
+                future.completeExceptionally(exception());
+            } else {
+                future.whenComplete((t, e) -> done(future));
+            }
+        }
+        return new DeadlineStage<>(this, future);
+    }
+
+    /**
+     * Fails fast when the deadline has passed, so queued functions do not start.
+     */
+    void check() {
+        if (isExpired()) {
+            throw new CompletionException(exception());
+        }
+    }
+
+    <T> Supplier<T> guard(Supplier<T> supplier) {
+        return () -> {
+            check();
+            return supplier.get();
+        };
+    }
+
+    private synchronized void done(CompletableFuture<?> future) {
+        running.remove(future);
+        if (running.isEmpty() && timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+    }
+
+    private void expire() {
+        List<CompletableFuture<?>> exceeded;
+        synchronized (this) {
+            expired = true;
+            exceeded = running;
+            running = new ArrayList<>(0);
+            timeout = null;
+        }
+        for (CompletableFuture<?> future : exceeded) {
+            future.completeExceptionally(exception());
+        }
+    }
+
+    private DeadlineExceededException exception() {
+        return new DeadlineExceededException("Deadline exceeded by "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - deadlineNanos) + "ms");
+    }
+}
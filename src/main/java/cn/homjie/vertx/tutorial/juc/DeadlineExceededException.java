@@ -0,0 +1,16 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The request deadline passed before the stage completed.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class DeadlineExceededException extends TimeoutException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
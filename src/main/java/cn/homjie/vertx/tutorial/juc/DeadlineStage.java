@@ -0,0 +1,95 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A {@link CompletableFuture} chain that carries its {@link Deadline}. Every derived stage is tracked by the same
+ * deadline, and every function first checks that the deadline has not passed.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class DeadlineStage<T> {
+
+    private final Deadline deadline;
+    private final CompletableFuture<T> future;
+
+    DeadlineStage(Deadline deadline, CompletableFuture<T> future) {
+        this.deadline = deadline;
+        this.future = future;
+    }
+
+    public Deadline deadline() {
+        return deadline;
+    }
+
+    public <U> DeadlineStage<U> thenApply(Function<? super T, ? extends U> fn) {
+        return deadline.track(future.thenApply(guard(fn)));
+    }
+
+    public <U> DeadlineStage<U> thenApplyAsync(Function<? super T, ? extends U> fn, Executor executor) {
+        return deadline.track(future.thenApplyAsync(guard(fn), executor));
+    }
+
+    /**
+     * The stage returned by {@code fn} is tracked as well, so an inner call that hangs is failed at the deadline.
+     */
+    public <U> DeadlineStage<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return deadline.track(future.thenCompose(t -> {
+            deadline.check();
+            return deadline.wrap(fn.apply(t)).toCompletableFuture();
+        }));
+    }
+
+    public <U, V> DeadlineStage<V> thenCombine(CompletionStage<? extends U> other,
+                                               BiFunction<? super T, ? super U, ? extends V> fn) {
+        CompletionStage<? extends U> tracked = other instanceof CompletableFuture
+            ? deadline.wrap(other).toCompletableFuture()
+            : other;
+        return deadline.track(future.thenCombine(tracked, (t, u) -> {
+            deadline.check();
+            return fn.apply(t, u);
+        }));
+    }
+
+    public <U, V> DeadlineStage<V> thenCombine(DeadlineStage<? extends U> other,
+                                               BiFunction<? super T, ? super U, ? extends V> fn) {
+        return thenCombine(other.future, fn);
+    }
+
+    /**
+     * Handlers are not failed by the deadline themselves, so they can turn a {@link DeadlineExceededException} into a
+     * fallback.
+     */
+    public DeadlineStage<T> exceptionally(Function<Throwable, ? extends T> fn) {
+        return new DeadlineStage<>(deadline, future.exceptionally(fn));
+    }
+
+    public <U> DeadlineStage<U> handle(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return new DeadlineStage<>(deadline, future.handle(fn));
+    }
+
+    public DeadlineStage<T> whenComplete(BiConsumer<? super T, ? super Throwable> action) {
+        return new DeadlineStage<>(deadline, future.whenComplete(action));
+    }
+
+    public T join() {
+        return future.join();
+    }
+
+    public CompletableFuture<T> toCompletableFuture() {
+        return future;
+    }
+
+    private <U> Function<T, U> guard(Function<? super T, ? extends U> fn) {
+        return t -> {
+            deadline.check();
+            return fn.apply(t);
+        };
+    }
+}
@@ -0,0 +1,173 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Fan-out / fan-in without {@code CompletableFuture.allOf(list.stream().map(...).toArray(CompletableFuture[]::new))}.
+ * <p>
+ * {@code allOf} costs a stream pipeline, a future array and a tree of relay nodes, and then only yields {@code Void}
+ * so every future has to be joined again. Here the returned future is itself the collector: it owns a pre-sized result
+ * array and an atomic countdown. Beyond the results and the stages produced by {@code call}, the only per-input
+ * allocation is the completion callback registered on each stage.
+ * <pre>
+ * CompletableFuture&lt;List&lt;String&gt;&gt; cf = FanOut.all(messages,
+ *     msg -&gt; CompletableFuture.supplyAsync(msg::toUpperCase, executor));
+ * </pre>
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class FanOut {
+
+    private FanOut() {
+    }
+
+    /**
+     * Results in input order once every stage succeeds. Unlike {@code allOf}, the first failure completes the result
+     * at once, without waiting for the remaining stages.
+     */
+    public static <T, R> CompletableFuture<List<R>> all(
+        List<? extends T> inputs, Function<? super T, ? extends CompletionStage<? extends R>> call) {
+        int n = inputs.size();
+        if (n == 0) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        AllCollector<R> collector = new AllCollector<>(n);
+        for (int i = 0; i < n && !collector.isDone(); i++) {
+            int index = i;
+            CompletionStage<? extends R> stage;
+            try {
+                stage = call.apply(inputs.get(i));
+            } catch (Throwable e) {
+                collector.completeExceptionally(e);
+                break;
+            }
+            if (Stages.isDone(stage)) {
+                collector.onComplete(index, Stages.joinNow(stage), Stages.failureNow(stage));
+            } else {
+                stage.whenComplete((result, e) -> collector.onComplete(index, result, e));
+            }
+        }
+        return collector;
+    }
+
+    /**
+     * The first {@code k} successful results, in completion order. Failures are tolerated until {@code k} successes
+     * are no longer possible, then the result fails with the last failure.
+     */
+    public static <T, R> CompletableFuture<List<R>> firstK(
+        List<? extends T> inputs, int k, Function<? super T, ? extends CompletionStage<? extends R>> call) {
+        int n = inputs.size();
+        if (k < 0 || k > n) {
+            throw new IllegalArgumentException("k: " + k + ", inputs: " + n);
+        }
+        if (k == 0) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        FirstKCollector<R> collector = new FirstKCollector<>(n, k);
+        for (int i = 0; i < n && !collector.isDone(); i++) {
+            CompletionStage<? extends R> stage;
+            try {
+                stage = call.apply(inputs.get(i));
+            } catch (Throwable e) {
+                collector.accept(null, e);
+                continue;
+            }
+            if (Stages.isDone(stage)) {
+                collector.accept(Stages.joinNow(stage), Stages.failureNow(stage));
+            } else {
+                stage.whenComplete(collector);
+            }
+        }
+        return collector;
+    }
+
+    /**
+     * The first successful result, like {@code anyOf} but a failure only wins when every stage fails.
+     */
+    public static <T, R> CompletableFuture<R> first(
+        List<? extends T> inputs, Function<? super T, ? extends CompletionStage<? extends R>> call) {
+        return firstK(inputs, 1, call).thenApply(list -> list.get(0));
+    }
+
+    private static class AllCollector<R> extends CompletableFuture<List<R>> {
+
+        private static final AtomicIntegerFieldUpdater<AllCollector> PENDING =
+            AtomicIntegerFieldUpdater.newUpdater(AllCollector.class, "pending");
+
+        private final Object[] results;
+        private volatile int pending;
+
+        AllCollector(int n) {
+            this.results = new Object[n];
+            this.pending = n;
+        }
+
+        @SuppressWarnings("unchecked")
+        void onComplete(int index, R result, Throwable e) {
+            if (isDone()) {
+                return;
+            }
+            if (e != null) {
+                completeExceptionally(Stages.unwrap(e));
+                return;
+            }
+            results[index] = result;
+            // 最后一个完成者通过 decrementAndGet 看到所有槽位的写入
+            if (PENDING.decrementAndGet(this) == 0) {
+                complete((List<R>)Arrays.asList(results));
+            }
+        }
+    }
+
+    private static class FirstKCollector<R> extends CompletableFuture<List<R>> implements BiConsumer<R, Throwable> {
+
+        private static final AtomicIntegerFieldUpdater<FirstKCollector> CLAIMED =
+            AtomicIntegerFieldUpdater.newUpdater(FirstKCollector.class, "claimed");
+        private static final AtomicIntegerFieldUpdater<FirstKCollector> PENDING =
+            AtomicIntegerFieldUpdater.newUpdater(FirstKCollector.class, "pending");
+        private static final AtomicIntegerFieldUpdater<FirstKCollector> FAILURES =
+            AtomicIntegerFieldUpdater.newUpdater(FirstKCollector.class, "failures");
+
+        private final Object[] results;
+        private final int maxFailures;
+        private volatile int claimed;
+        private volatile int pending;
+        private volatile int failures;
+
+        FirstKCollector(int n, int k) {
+            this.results = new Object[k];
+            this.maxFailures = n - k;
+            this.pending = k;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void accept(R result, Throwable e) {
+            if (isDone()) {
+                return;
+            }
+            if (e != null) {
+                if (FAILURES.incrementAndGet(this) > maxFailures) {
+                    completeExceptionally(Stages.unwrap(e));
+                }
+                return;
+            }
+            int slot = CLAIMED.getAndIncrement(this);
+            if (slot >= results.length) {
+                return;
+            }
+            results[slot] = result;
+            if (PENDING.decrementAndGet(this) == 0) {
+                complete((List<R>)Arrays.asList(results));
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests, the {@code applyToEither} pattern of {@code CompletionStageTest} with a delayed second contender:
+ * if the first attempt has not succeeded within the hedge delay, a second attempt is raced against it and the first
+ * success wins. The delay tracks a percentile (p95 by default) of recent successful latencies, so roughly one call in
+ * twenty pays for a second attempt while the slow tail is cut off. A latency runs from the start of the call, hedged
+ * or not: a slow first attempt that loses still counts as long as the call took.
+ * <p>
+ * A failed first attempt starts the second one at once. Only when both fail does the result fail. The loser is
+ * cancelled, which for a {@link CompletableFuture} only stops its dependents.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class Hedger {
+
+    private static final int SAMPLES = 1024;
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final HashedWheelTimer timer;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLES);
+    private final AtomicInteger recorded = new AtomicInteger();
+    private volatile long delayNanos;
+
+    /**
+     * p95 hedging on the shared timer, starting from {@code initialDelay} until enough samples are recorded.
+     */
+    public Hedger(long initialDelay, TimeUnit unit) {
+        this(HashedWheelTimer.shared(), 0.95, unit.toNanos(initialDelay), 0, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    public Hedger(HashedWheelTimer timer, double percentile, long initialDelay, long minDelay, long maxDelay,
+                  TimeUnit unit) {
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException("percentile: " + percentile);
+        }
+        this.timer = timer;
+        this.percentile = percentile;
+        this.minDelayNanos = unit.toNanos(minDelay);
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.delayNanos = unit.toNanos(initialDelay);
+    }
+
+    public long delay(TimeUnit unit) {
+        return unit.convert(delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> CompletableFuture<T> hedge(Supplier<? extends CompletionStage<T>> attempt) {
+        HedgedCall<T> call = new HedgedCall<>(attempt);
+        call.launch();
+        if (!call.isDone()) {
+            call.timeout = timer.newTimeout(call::hedge, delayNanos, TimeUnit.NANOSECONDS);
+        }
+        return call;
+    }
+
+    private void record(long nanos) {
+        int n = recorded.getAndIncrement();
+        samples.set(n & (SAMPLES - 1), nanos);
+        if ((n + 1) % RECOMPUTE_EVERY == 0) {
+            int size = Math.min(n + 1, SAMPLES);
+            long[] copy = new long[size];
+            for (int i = 0; i < size; i++) {
+                copy[i] = samples.get(i);
+            }
+            Arrays.sort(copy);
+            long value = copy[Math.min(size - 1, (int)Math.ceil(percentile * size) - 1)];
+            delayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, value));
+        }
+    }
+
+    private class HedgedCall<T> extends CompletableFuture<T> implements BiConsumer<T, Throwable> {
+
+        private final Supplier<? extends CompletionStage<T>> attempt;
+        private final long startNanos = System.nanoTime();
+        /**
+         * guarded by this
+         */
+        private final CompletableFuture<?>[] attempts = new CompletableFuture[2];
+        private int launched;
+        private int failed;
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        HedgedCall(Supplier<? extends CompletionStage<T>> attempt) {
+            this.attempt = attempt;
+        }
+
+        void hedge() {
+            if (!isDone()) {
+                launch();
+            }
+        }
+
+        void launch() {
+            int index;
+            synchronized (this) {
+                if (launched == attempts.length) {
+                    return;
+                }
+                index = launched++;
+            }
+            CompletableFuture<T> future;
+            try {
+                future = attempt.get().toCompletableFuture();
+            } catch (Throwable e) {
+                accept(null, e);
+                return;
+            }
+            synchronized (this) {
+                attempts[index] = future;
+            }
+            future.whenComplete(this);
+        }
+
+        @Override
+        public void accept(T result, Throwable e) {
+            if (e == null) {
+                if (complete(result)) {
+                    record(System.nanoTime() - startNanos);
+                    cancelOthers();
+                }
+                return;
+            }
+            boolean hedgeNow;
+            boolean allFailed;
+            synchronized (this) {
+                failed++;
+                hedgeNow = launched < attempts.length;
+                allFailed = failed == attempts.length;
+            }
+            if (hedgeNow) {
+                cancelTimeout();
+                launch();
+            } else if (allFailed) {
+                completeExceptionally(Stages.unwrap(e));
+            }
+        }
+
+        private void cancelOthers() {
+            cancelTimeout();
+            CompletableFuture<?>[] copy;
+            synchronized (this) {
+                copy = attempts.clone();
+            }
+            for (CompletableFuture<?> future : copy) {
+                if (future != null && !future.isDone()) {
+                    future.cancel(false);
+                }
+            }
+        }
+
+        private void cancelTimeout() {
+            HashedWheelTimer.Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+        }
+    }
+}
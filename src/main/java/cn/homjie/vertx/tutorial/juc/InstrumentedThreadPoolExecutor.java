@@ -0,0 +1,129 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ThreadPoolExecutor} that records queue wait time, run time and rejections. Build it with
+ * {@link ThreadPoolBuilder}.
+ * <p>
+ * Tasks are queued as submitted, so {@link #remove}, {@link #purge()} and {@link #getQueue()} see them as they are.
+ * The enqueue time of a task is kept beside the queue until a worker takes it; a task submitted again while still
+ * queued keeps its first one.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final TimeStats waitTime = new TimeStats();
+    private final TimeStats runTime = new TimeStats();
+    private final LongAdder rejected;
+    private final Map<Runnable, Long> enqueued;
+    private final ThreadLocal<long[]> startNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                   BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory,
+                                   RejectedExecutionHandler handler) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler,
+            new LongAdder(), new ConcurrentHashMap<>());
+    }
+
+    private InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime,
+                                           TimeUnit unit, BlockingQueue<Runnable> workQueue,
+                                           ThreadFactory threadFactory, RejectedExecutionHandler handler,
+                                           LongAdder rejected, Map<Runnable, Long> enqueued) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, (r, executor) -> {
+            rejected.increment();
+            enqueued.remove(r);
+            handler.rejectedExecution(r, executor);
+            // DiscardOldestPolicy 丢掉的任务不经过这里，多出来的入队时间清理掉
+            if (enqueued.size() > executor.getQueue().size() + executor.getMaximumPoolSize()) {
+                ((InstrumentedThreadPoolExecutor)executor).sweep();
+            }
+        });
+        this.rejected = rejected;
+        this.enqueued = enqueued;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        enqueued.putIfAbsent(command, System.nanoTime());
+        super.execute(command);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        long now = System.nanoTime();
+        Long enqueueNanos = enqueued.remove(r);
+        if (enqueueNanos != null) {
+            waitTime.record(now - enqueueNanos);
+        }
+        startNanos.get()[0] = now;
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        runTime.record(System.nanoTime() - startNanos.get()[0]);
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        boolean removed = super.remove(task);
+        if (removed) {
+            enqueued.remove(task);
+        }
+        return removed;
+    }
+
+    @Override
+    public void purge() {
+        super.purge();
+        sweep();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = super.shutdownNow();
+        enqueued.clear();
+        return tasks;
+    }
+
+    public ThreadPoolMetrics metrics() {
+        return new ThreadPoolMetrics(
+            getPoolSize(),
+            getActiveCount(),
+            getQueue().size(),
+            getQueue().remainingCapacity(),
+            getCompletedTaskCount(),
+            rejected.sum(),
+            waitTime.count(),
+            waitTime.totalNanos(),
+            waitTime.maxNanos(),
+            runTime.count(),
+            runTime.totalNanos(),
+            runTime.maxNanos());
+    }
+
+    /**
+     * Forgets the enqueue time of tasks no longer queued; one a worker just took loses its wait sample.
+     */
+    private void sweep() {
+        Set<Runnable> queued = Collections.newSetFromMap(new IdentityHashMap<>());
+        queued.addAll(getQueue());
+        enqueued.keySet().removeIf(r -> !queued.contains(r));
+    }
+}
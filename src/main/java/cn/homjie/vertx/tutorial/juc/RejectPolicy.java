@@ -0,0 +1,43 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池饱和（队列满且线程数达到上限）时的拒绝策略
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public enum RejectPolicy {
+
+    /**
+     * 抛出 RejectedExecutionException
+     */
+    ABORT,
+    /**
+     * 由提交任务的线程执行，对生产者形成反压
+     */
+    CALLER_RUNS,
+    /**
+     * 静默丢弃新任务
+     */
+    DISCARD,
+    /**
+     * 丢弃队列头部最老的任务后重试
+     */
+    DISCARD_OLDEST;
+
+    public RejectedExecutionHandler handler() {
+        switch (this) {
+            case CALLER_RUNS:
+                return new ThreadPoolExecutor.CallerRunsPolicy();
+            case DISCARD:
+                return new ThreadPoolExecutor.DiscardPolicy();
+            case DISCARD_OLDEST:
+                return new ThreadPoolExecutor.DiscardOldestPolicy();
+            default:
+                return new ThreadPoolExecutor.AbortPolicy();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author jiehong.jh
+ * @date 2018/7/20
+ */
+public class SimpleThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadNumber = new AtomicInteger(0);
+    private String name;
+    /**
+     * null 表示继承创建线程的 daemon 属性
+     */
+    private Boolean daemon;
+    private int priority;
+
+    public SimpleThreadFactory(String threadName) {
+        this(threadName, null, Thread.NORM_PRIORITY);
+    }
+
+    public SimpleThreadFactory(String threadName, Boolean daemon, int priority) {
+        if (priority < Thread.MIN_PRIORITY || priority > Thread.MAX_PRIORITY) {
+            throw new IllegalArgumentException("priority: " + priority);
+        }
+        this.name = threadName;
+        this.daemon = daemon;
+        this.priority = priority;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, name + "-" + threadNumber.getAndIncrement());
+        if (daemon != null) {
+            thread.setDaemon(daemon);
+        }
+        if (thread.getPriority() != priority) {
+            thread.setPriority(priority);
+        }
+        return thread;
+    }
+}
@@ -0,0 +1,44 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * What {@link StageTracer} records for one named stage.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Getter
+public class StageStats {
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    /**
+     * From the moment an async stage is handed to its executor until it starts running, empty for synchronous stages.
+     * Like the execution time, only sampled calls are recorded.
+     */
+    private final LatencyHistogram queueTime = new LatencyHistogram();
+    private final LatencyHistogram executionTime = new LatencyHistogram();
+    private final LongAdder threadHops = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    StageStats(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        TimeUnit us = TimeUnit.MICROSECONDS;
+        return name
+            + " calls=" + calls.sum()
+            + " hops=" + threadHops.sum()
+            + " failures=" + failures.sum()
+            + " queue(us) p50=" + queueTime.percentile(50, us) + " p99=" + queueTime.percentile(99, us)
+            + " max=" + queueTime.max(us)
+            + " exec(us) p50=" + executionTime.percentile(50, us) + " p99=" + executionTime.percentile(99, us)
+            + " max=" + executionTime.max(us);
+    }
+}
@@ -0,0 +1,47 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Helpers for reading stages that are already complete without registering a callback.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+final class Stages {
+
+    private Stages() {
+    }
+
+    /**
+     * A stage that is already done (e.g. run on the caller thread) can be read directly: {@code whenComplete} would
+     * allocate a dependent future even then.
+     */
+    static boolean isDone(CompletionStage<?> stage) {
+        return stage instanceof CompletableFuture && ((CompletableFuture<?>)stage).isDone();
+    }
+
+    static <R> R joinNow(CompletionStage<? extends R> stage) {
+        CompletableFuture<? extends R> future = (CompletableFuture<? extends R>)stage;
+        return future.isCompletedExceptionally() ? null : future.join();
+    }
+
+    static Throwable failureNow(CompletionStage<?> stage) {
+        CompletableFuture<?> future = (CompletableFuture<?>)stage;
+        if (!future.isCompletedExceptionally()) {
+            return null;
+        }
+        try {
+            future.join();
+            return null;
+        } catch (Throwable e) {
+            return e;
+        }
+    }
+
+    static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
@@ -0,0 +1,153 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds {@link InstrumentedThreadPoolExecutor} instances on top of {@link SimpleThreadFactory}. Unlike
+ * {@code Executors.newFixedThreadPool} the queue is bounded by default, so an overload surfaces as rejections instead
+ * of an ever-growing heap.
+ * <pre>
+ * InstrumentedThreadPoolExecutor executor = ThreadPoolBuilder.newBuilder("custom-executor")
+ *     .ioBound(0.9)
+ *     .queueCapacity(256)
+ *     .rejectPolicy(RejectPolicy.CALLER_RUNS)
+ *     .build();
+ * </pre>
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class ThreadPoolBuilder {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private final String threadName;
+    private int corePoolSize = availableProcessors();
+    private int maximumPoolSize = corePoolSize;
+    private long keepAliveTime = 60;
+    private TimeUnit keepAliveUnit = TimeUnit.SECONDS;
+    private boolean allowCoreThreadTimeOut;
+    private boolean prestart;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private RejectedExecutionHandler handler = RejectPolicy.ABORT.handler();
+    private Boolean daemon;
+    private int priority = Thread.NORM_PRIORITY;
+
+    private ThreadPoolBuilder(String threadName) {
+        this.threadName = threadName;
+    }
+
+    public static ThreadPoolBuilder newBuilder(String threadName) {
+        return new ThreadPoolBuilder(threadName);
+    }
+
+    /**
+     * The processors this JVM may run on. On Linux it honours the affinity mask ({@code taskset}) and, since 8u191,
+     * the container cpu quota.
+     */
+    public static int availableProcessors() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Size for computation: one thread per available processor.
+     */
+    public ThreadPoolBuilder cpuBound() {
+        return fixed(availableProcessors());
+    }
+
+    /**
+     * Size for tasks that block: {@code processors / (1 - blockingCoefficient)}, so a coefficient of 0.9 (90% of the
+     * time waiting on I/O) gives ten threads per processor.
+     *
+     * @param blockingCoefficient in [0, 1)
+     */
+    public ThreadPoolBuilder ioBound(double blockingCoefficient) {
+        if (blockingCoefficient < 0 || blockingCoefficient >= 1) {
+            throw new IllegalArgumentException("blockingCoefficient: " + blockingCoefficient);
+        }
+        return fixed((int)Math.max(1, Math.round(availableProcessors() / (1 - blockingCoefficient))));
+    }
+
+    public ThreadPoolBuilder fixed(int poolSize) {
+        return poolSize(poolSize, poolSize);
+    }
+
+    public ThreadPoolBuilder poolSize(int corePoolSize, int maximumPoolSize) {
+        if (corePoolSize < 0 || maximumPoolSize <= 0 || maximumPoolSize < corePoolSize) {
+            throw new IllegalArgumentException("corePoolSize: " + corePoolSize + ", maximumPoolSize: "
+                + maximumPoolSize);
+        }
+        this.corePoolSize = corePoolSize;
+        this.maximumPoolSize = maximumPoolSize;
+        return this;
+    }
+
+    public ThreadPoolBuilder keepAlive(long time, TimeUnit unit) {
+        this.keepAliveTime = time;
+        this.keepAliveUnit = unit;
+        return this;
+    }
+
+    public ThreadPoolBuilder allowCoreThreadTimeOut(boolean allowCoreThreadTimeOut) {
+        this.allowCoreThreadTimeOut = allowCoreThreadTimeOut;
+        return this;
+    }
+
+    public ThreadPoolBuilder prestart(boolean prestart) {
+        this.prestart = prestart;
+        return this;
+    }
+
+    /**
+     * 0 means direct hand-off: a task is rejected unless a thread can take it at once.
+     */
+    public ThreadPoolBuilder queueCapacity(int queueCapacity) {
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("queueCapacity: " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    public ThreadPoolBuilder rejectPolicy(RejectPolicy rejectPolicy) {
+        return rejectHandler(rejectPolicy.handler());
+    }
+
+    public ThreadPoolBuilder rejectHandler(RejectedExecutionHandler handler) {
+        if (handler == null) {
+            throw new NullPointerException("handler");
+        }
+        this.handler = handler;
+        return this;
+    }
+
+    public ThreadPoolBuilder daemon(boolean daemon) {
+        this.daemon = daemon;
+        return this;
+    }
+
+    public ThreadPoolBuilder priority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    public InstrumentedThreadPoolExecutor build() {
+        BlockingQueue<Runnable> queue = queueCapacity == 0
+            ? new SynchronousQueue<>()
+            : new ArrayBlockingQueue<>(queueCapacity);
+        InstrumentedThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor(corePoolSize, maximumPoolSize,
+            keepAliveTime, keepAliveUnit, queue, new SimpleThreadFactory(threadName, daemon, priority), handler);
+        if (allowCoreThreadTimeOut) {
+            executor.allowCoreThreadTimeOut(true);
+        }
+        if (prestart) {
+            executor.prestartAllCoreThreads();
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,42 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.Value;
+
+/**
+ * Point-in-time snapshot of an {@link InstrumentedThreadPoolExecutor}.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Value
+public class ThreadPoolMetrics {
+
+    private final int poolSize;
+    private final int activeThreads;
+    private final int queueDepth;
+    private final int queueRemainingCapacity;
+    private final long completedTasks;
+    private final long rejectedTasks;
+    /**
+     * 任务在队列中的等待时间
+     */
+    private final long waitCount;
+    private final long waitTotalNanos;
+    private final long waitMaxNanos;
+    /**
+     * 任务的执行时间
+     */
+    private final long runCount;
+    private final long runTotalNanos;
+    private final long runMaxNanos;
+
+    public long meanWait(TimeUnit unit) {
+        return waitCount == 0 ? 0 : unit.convert(waitTotalNanos / waitCount, TimeUnit.NANOSECONDS);
+    }
+
+    public long meanRun(TimeUnit unit) {
+        return runCount == 0 ? 0 : unit.convert(runTotalNanos / runCount, TimeUnit.NANOSECONDS);
+    }
+}
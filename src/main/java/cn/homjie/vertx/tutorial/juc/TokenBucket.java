@@ -0,0 +1,61 @@
+package cn.homjie.vertx.tutorial.juc;
+
+/**
+ * Lets through {@code permitsPerSecond} on average and up to {@code burst} at once. The bucket refills from
+ * {@link System#nanoTime()} when it is asked, there is no timer thread.
+ * <p>
+ * Not thread safe: it is meant for the one thread that paces the sends, which waits {@link #nanosToWait} instead of
+ * spinning on {@link #tryAcquire}.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class TokenBucket {
+
+    private final double permitsPerNano;
+    private final int burst;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * Starts full.
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond: " + permitsPerSecond + ", burst: " + burst);
+        }
+        this.permitsPerNano = permitsPerSecond / 1e9;
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    public boolean tryAcquire(long nanoTime) {
+        refill(nanoTime);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 0 if a permit is available now.
+     */
+    public long nanosToWait(long nanoTime) {
+        refill(nanoTime);
+        return tokens >= 1 ? 0 : (long)Math.ceil((1 - tokens) / permitsPerNano);
+    }
+
+    private void refill(long nanoTime) {
+        long elapsed = nanoTime - refilledAt;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed * permitsPerNano);
+            refilledAt = nanoTime;
+        }
+    }
+}
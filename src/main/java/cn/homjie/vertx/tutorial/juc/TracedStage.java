@@ -0,0 +1,157 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A {@link CompletableFuture} chain whose named steps are recorded by a {@link StageTracer}.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class TracedStage<T> {
+
+    private final StageTracer tracer;
+    private final AsyncStackTrace.Node node;
+    private final CompletableFuture<T> future;
+
+    TracedStage(StageTracer tracer, AsyncStackTrace.Node node, CompletableFuture<T> future) {
+        this.tracer = tracer;
+        this.node = node;
+        this.future = future;
+    }
+
+    public <U> TracedStage<U> thenApply(String name, Function<? super T, ? extends U> fn) {
+        Probe probe = new Probe(tracer, name, node, null);
+        return new TracedStage<>(tracer, probe, future.thenApply(apply(probe, fn)));
+    }
+
+    public <U> TracedStage<U> thenApplyAsync(String name, Function<? super T, ? extends U> fn, Executor executor) {
+        Probe probe = new Probe(tracer, name, node, executor);
+        return new TracedStage<>(tracer, probe, future.thenApplyAsync(apply(probe, fn), probe));
+    }
+
+    /**
+     * Only the call of {@code fn} is measured, not the stage it returns.
+     */
+    public <U> TracedStage<U> thenCompose(String name, Function<? super T, ? extends CompletionStage<U>> fn) {
+        Probe probe = new Probe(tracer, name, node, null);
+        return new TracedStage<>(tracer, probe, future.thenCompose(apply(probe, fn)));
+    }
+
+    public <U, V> TracedStage<V> thenCombine(String name, CompletionStage<? extends U> other,
+                                             BiFunction<? super T, ? super U, ? extends V> fn) {
+        Probe probe = new Probe(tracer, name, node, null);
+        return new TracedStage<>(tracer, probe, future.thenCombine(other, (t, u) -> {
+            long start = probe.begin();
+            try {
+                return fn.apply(t, u);
+            } catch (Throwable e) {
+                probe.fail(e);
+                throw e;
+            } finally {
+                probe.end(start);
+            }
+        }));
+    }
+
+    public <U, V> TracedStage<V> thenCombine(String name, TracedStage<? extends U> other,
+                                             BiFunction<? super T, ? super U, ? extends V> fn) {
+        return thenCombine(name, other.future, fn);
+    }
+
+    public TracedStage<T> exceptionally(Function<Throwable, ? extends T> fn) {
+        return new TracedStage<>(tracer, node, future.exceptionally(fn));
+    }
+
+    public <U> TracedStage<U> handle(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return new TracedStage<>(tracer, node, future.handle(fn));
+    }
+
+    public TracedStage<T> whenComplete(BiConsumer<? super T, ? super Throwable> action) {
+        return new TracedStage<>(tracer, node, future.whenComplete(action));
+    }
+
+    public T join() {
+        return future.join();
+    }
+
+    public CompletableFuture<T> toCompletableFuture() {
+        return future;
+    }
+
+    private static <T, U> Function<T, U> apply(Probe probe, Function<? super T, ? extends U> fn) {
+        return t -> {
+            long start = probe.begin();
+            try {
+                return fn.apply(t);
+            } catch (Throwable e) {
+                probe.fail(e);
+                throw e;
+            } finally {
+                probe.end(start);
+            }
+        };
+    }
+
+    /**
+     * Measures one run of one step and is its frame in the async stack. As the executor of an async step it sees the
+     * hand-off, which is where the queue time starts; a step runs at most once, so plain fields are enough, the
+     * executor publishes them.
+     */
+    static final class Probe extends AsyncStackTrace.Node implements Executor {
+
+        private final StageStats stats;
+        private final boolean timed;
+        private final Executor executor;
+        private long queuedAt;
+        private Thread submitter;
+
+        Probe(StageTracer tracer, String name, AsyncStackTrace.Node parent, Executor executor) {
+            super(name, parent);
+            this.stats = tracer.stage(name);
+            this.timed = tracer.sample();
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (timed) {
+                queuedAt = System.nanoTime();
+            }
+            submitter = Thread.currentThread();
+            executor.execute(command);
+        }
+
+        long begin() {
+            stats.getCalls().increment();
+            Thread submitter = this.submitter;
+            if (submitter != null && submitter != Thread.currentThread()) {
+                stats.getThreadHops().increment();
+            }
+            if (!timed) {
+                return 0;
+            }
+            long start = System.nanoTime();
+            if (submitter != null) {
+                stats.getQueueTime().record(start - queuedAt);
+            }
+            return start;
+        }
+
+        void end(long start) {
+            if (timed) {
+                stats.getExecutionTime().record(System.nanoTime() - start);
+            }
+        }
+
+        void fail(Throwable e) {
+            stats.getFailures().increment();
+            e.addSuppressed(new AsyncStackTrace(this));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package cn.homjie.vertx.tutorial.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded lock-free ring buffer for many producers and one consumer, after the LMAX Disruptor: the slots are
+ * preallocated, producers claim a sequence with one CAS on the tail and publish by writing the slot, and the consumer
+ * drains every published slot in one batch before moving its head once.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class MpscRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    /**
+     * Next sequence to claim, written by producers.
+     */
+    private final Sequence tail = new Sequence();
+    /**
+     * Next sequence to consume, written only by the consumer.
+     */
+    private final Sequence head = new Sequence();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public int size() {
+        return (int)Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        // 写入槽位即发布，消费者见到非空才会读取
+        slots.lazySet((int)sequence & mask, e);
+        return true;
+    }
+
+    /**
+     * Hands every published element, up to {@code limit}, to {@code consumer}. Must only be called from the consumer
+     * thread.
+     *
+     * @return the number of elements drained
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        long sequence = head.get();
+        int count = 0;
+        while (count < limit) {
+            int index = (int)sequence & mask;
+            E e = slots.get(index);
+            if (e == null) {
+                // 空槽，或者生产者已占位还没写入
+                break;
+            }
+            slots.lazySet(index, null);
+            sequence++;
+            count++;
+            consumer.accept(e);
+        }
+        if (count > 0) {
+            head.lazySet(sequence);
+        }
+        return count;
+    }
+
+    /**
+     * The padding after the value keeps head and tail on different cache lines.
+     */
+    @SuppressWarnings("unused")
+    private static final class Sequence extends AtomicLong {
+
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
@@ -0,0 +1,18 @@
+package cn.homjie.vertx.tutorial.log;
+
+/**
+ * What {@link RingBufferAppender} does with an event when its ring buffer is full.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public enum OverflowPolicy {
+    /**
+     * Discard the event and count it; the logging thread never waits.
+     */
+    DROP,
+    /**
+     * Park the logging thread until the writer frees a slot; no event is lost.
+     */
+    BLOCK
+}
@@ -0,0 +1,308 @@
+package cn.homjie.vertx.tutorial.log;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import cn.homjie.vertx.tutorial.juc.SimpleThreadFactory;
+
+/**
+ * An asynchronous appender: logging threads only publish the event into a {@link MpscRingBuffer}, one writer thread
+ * encodes whole batches into a direct {@link ByteBuffer} and writes it to a {@link FileChannel} once per batch, to
+ * {@code file} or, without one, to standard output.
+ * <pre>
+ * &lt;appender name="ASYNC" class="cn.homjie.vertx.tutorial.log.RingBufferAppender"&gt;
+ *     &lt;bufferSize&gt;8192&lt;/bufferSize&gt;
+ *     &lt;policy&gt;DROP&lt;/policy&gt;
+ *     &lt;encoder class="ch.qos.logback.classic.encoder.PatternLayoutEncoder"&gt;
+ *         &lt;pattern&gt;%d [%thread] %-5level %logger{36} - %msg%n&lt;/pattern&gt;
+ *     &lt;/encoder&gt;
+ * &lt;/appender&gt;
+ * </pre>
+ * When the ring is full the {@link OverflowPolicy} decides; {@link #getDroppedCount()} and {@link #getBlockedCount()}
+ * tell how often that happened.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class RingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private static final long WRITER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private Encoder<ILoggingEvent> encoder;
+    private String file;
+    private boolean append = true;
+    private int bufferSize = 8192;
+    private int batchBytes = 64 * 1024;
+    private OverflowPolicy policy = OverflowPolicy.BLOCK;
+    private boolean includeCallerData;
+    private int maxFlushTime = 1000;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private MpscRingBuffer<ILoggingEvent> ring;
+    private ByteBuffer batch;
+    private FileChannel channel;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile boolean writerParked;
+    private int writeErrors;
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (encoder == null) {
+            addError("No encoder set for the appender named [" + name + "].");
+            return;
+        }
+        try {
+            channel = openChannel();
+        } catch (IOException e) {
+            addError("Failed to open [" + file + "]", e);
+            return;
+        }
+        ring = new MpscRingBuffer<>(bufferSize);
+        batch = ByteBuffer.allocateDirect(batchBytes);
+        write(encoder.headerBytes());
+        running = true;
+        writer = new SimpleThreadFactory("ring-buffer-appender-" + name, true, Thread.NORM_PRIORITY)
+            .newThread(this::writeLoop);
+        writer.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(maxFlushTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            addWarn("Writer of [" + name + "] did not finish in " + maxFlushTime + " ms, "
+                + ring.size() + " events left.");
+        }
+        long count = dropped.sum();
+        if (count > 0) {
+            addWarn("Appender [" + name + "] dropped " + count + " events.");
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (!running) {
+            return;
+        }
+        // 线程名、MDC 和格式化后的消息在当前线程取出，写线程只负责编码
+        event.prepareForDeferredProcessing();
+        if (includeCallerData) {
+            event.getCallerData();
+        }
+        if (!ring.offer(event) && !overflow(event)) {
+            return;
+        }
+        if (writerParked) {
+            writerParked = false;
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private boolean overflow(ILoggingEvent event) {
+        if (policy == OverflowPolicy.DROP) {
+            dropped.increment();
+            return false;
+        }
+        blocked.increment();
+        do {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+            if (!running) {
+                dropped.increment();
+                return false;
+            }
+        } while (!ring.offer(event));
+        return true;
+    }
+
+    private void writeLoop() {
+        while (running) {
+            if (ring.drain(this::encode, bufferSize) > 0) {
+                flush();
+                continue;
+            }
+            writerParked = true;
+            if (ring.size() == 0 && running) {
+                LockSupport.parkNanos(this, WRITER_PARK_NANOS);
+            }
+            writerParked = false;
+        }
+        while (ring.drain(this::encode, bufferSize) > 0) {
+            flush();
+        }
+        write(encoder.footerBytes());
+        flush();
+        if (file != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                addError("Failed to close [" + file + "]", e);
+            }
+        }
+    }
+
+    private void encode(ILoggingEvent event) {
+        try {
+            write(encoder.encode(event));
+        } catch (RuntimeException e) {
+            addError("Failed to encode event", e);
+        }
+    }
+
+    private void write(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return;
+        }
+        if (bytes.length > batch.remaining()) {
+            flush();
+        }
+        if (bytes.length > batch.capacity()) {
+            writeFully(ByteBuffer.wrap(bytes));
+        } else {
+            batch.put(bytes);
+        }
+    }
+
+    private void flush() {
+        batch.flip();
+        writeFully(batch);
+        batch.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            // 丢弃这一批，避免每条日志都报错
+            buffer.position(buffer.limit());
+            if (writeErrors++ < 3) {
+                addError("Failed to write log events", e);
+            }
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (file == null) {
+            // 标准输出不归本 appender 所有，停止时不关闭
+            return new FileOutputStream(FileDescriptor.out).getChannel();
+        }
+        Path path = Paths.get(file);
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * How many events found the ring full and made their thread wait under {@link OverflowPolicy#BLOCK}.
+     */
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    public int getPendingCount() {
+        return ring == null ? 0 : ring.size();
+    }
+
+    public Encoder<ILoggingEvent> getEncoder() {
+        return encoder;
+    }
+
+    public void setEncoder(Encoder<ILoggingEvent> encoder) {
+        this.encoder = encoder;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public boolean isAppend() {
+        return append;
+    }
+
+    public void setAppend(boolean append) {
+        this.append = append;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBatchBytes() {
+        return batchBytes;
+    }
+
+    public void setBatchBytes(int batchBytes) {
+        this.batchBytes = batchBytes;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(OverflowPolicy policy) {
+        this.policy = policy;
+    }
+
+    public boolean isIncludeCallerData() {
+        return includeCallerData;
+    }
+
+    public void setIncludeCallerData(boolean includeCallerData) {
+        this.includeCallerData = includeCallerData;
+    }
+
+    public int getMaxFlushTime() {
+        return maxFlushTime;
+    }
+
+    public void setMaxFlushTime(int maxFlushTime) {
+        this.maxFlushTime = maxFlushTime;
+    }
+}
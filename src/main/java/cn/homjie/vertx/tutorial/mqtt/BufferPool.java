@@ -0,0 +1,83 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size payload buffers for {@link MqttPublisher#publish(String, ByteBuffer, int, BufferPool)}, which returns
+ * each buffer once its message completes:
+ * <pre>
+ * BufferPool pool = new BufferPool(256, 4096, true);
+ * ByteBuffer payload = pool.acquire();
+ * payload.put(frame, 0, length).flip();
+ * publisher.publish(topic, payload, 1, pool);
+ * </pre>
+ * Direct buffers reach the socket without being copied on plain TCP connections. The pool never blocks: it allocates
+ * when empty and drops what is released beyond {@code capacity}.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class BufferPool {
+
+    private final int bufferSize;
+    private final boolean direct;
+    private final BlockingQueue<ByteBuffer> free;
+    private final LongAdder allocated = new LongAdder();
+
+    /**
+     * @param bufferSize size of every buffer
+     * @param capacity buffers kept for reuse at most
+     * @param direct off-heap buffers, allocated slowly but written to sockets as they are
+     */
+    public BufferPool(int bufferSize, int capacity, boolean direct) {
+        if (bufferSize <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("bufferSize: " + bufferSize + ", capacity: " + capacity);
+        }
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.free = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * A cleared buffer of {@code bufferSize} bytes, owned by the caller until {@link #release}.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        allocated.increment();
+        return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Gives the buffer back, it must not be touched afterwards. Buffers of another size are ignored.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize && buffer.isDirect() == direct) {
+            buffer.clear();
+            free.offer(buffer);
+        }
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Buffers waiting in the pool.
+     */
+    public int available() {
+        return free.size();
+    }
+
+    /**
+     * Buffers allocated since the pool was created.
+     */
+    public long allocated() {
+        return allocated.sum();
+    }
+}
@@ -0,0 +1,266 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Signs the device password of the {@code securemode=2} connect scheme:
+ * <pre>
+ * clientId = client + "|securemode=2,signmethod=hmacmd5,timestamp=" + millis + "|"
+ * username = deviceName + "&amp;" + productKey
+ * password = hex(hmac(deviceSecret, "clientId" + client + "deviceName" + deviceName
+ *                                   + "productKey" + productKey + "timestamp" + millis))
+ * </pre>
+ * Keying a {@link Mac} hashes the padded secret, so the keyed state is kept per secret: a shared prototype, cloned
+ * once into each thread that signs with it, and reused since {@code doFinal} resets a {@code Mac} to its keyed state.
+ * The signed text is encoded into a per-thread byte buffer and the digest hex-encoded into a per-thread char buffer,
+ * only the returned password is allocated. Thread-safe; get the instances through {@link #of(String)}.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class DeviceSigner {
+
+    public static final DeviceSigner HMAC_MD5 = new DeviceSigner("hmacmd5", "HmacMD5", 16);
+    public static final DeviceSigner HMAC_SHA256 = new DeviceSigner("hmacsha256", "HmacSHA256", 32);
+
+    /**
+     * Keyed prototypes kept per signer, beyond that new secrets are keyed without being cached.
+     */
+    private static final int MAX_PROTOTYPES = 65536;
+    /**
+     * Keyed clones kept per thread and signer, least recently used first out.
+     */
+    private static final int MAX_THREAD_MACS = 64;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final byte[] CLIENT_ID = ascii("clientId");
+    private static final byte[] DEVICE_NAME = ascii("deviceName");
+    private static final byte[] PRODUCT_KEY = ascii("productKey");
+    private static final byte[] TIMESTAMP = ascii("timestamp");
+
+    private final String signMethod;
+    private final String algorithm;
+    private final int macLength;
+    private final Map<String, Mac> prototypes = new ConcurrentHashMap<>();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private DeviceSigner(String signMethod, String algorithm, int macLength) {
+        this.signMethod = signMethod;
+        this.algorithm = algorithm;
+        this.macLength = macLength;
+    }
+
+    /**
+     * @param signMethod {@code hmacmd5} or {@code hmacsha256}, case insensitive
+     * @return null if the method is not supported
+     */
+    public static DeviceSigner of(String signMethod) {
+        if (HMAC_MD5.signMethod.equalsIgnoreCase(signMethod)) {
+            return HMAC_MD5;
+        }
+        if (HMAC_SHA256.signMethod.equalsIgnoreCase(signMethod)) {
+            return HMAC_SHA256;
+        }
+        return null;
+    }
+
+    public String signMethod() {
+        return signMethod;
+    }
+
+    /**
+     * The length of the hex password.
+     */
+    public int passwordLength() {
+        return macLength * 2;
+    }
+
+    public String clientId(String client, long timestamp) {
+        return client + "|securemode=2,signmethod=" + signMethod + ",timestamp=" + timestamp + "|";
+    }
+
+    public MqttCredentials credentials(String client, String productKey, String deviceName, String deviceSecret,
+                                       long timestamp) {
+        return new MqttCredentials(clientId(client, timestamp), deviceName + "&" + productKey,
+            sign(deviceSecret, client, deviceName, productKey, timestamp));
+    }
+
+    public String sign(String deviceSecret, String client, String deviceName, String productKey, long timestamp) {
+        Scratch s = scratch.get();
+        return new String(s.hex, 0, sign(s, deviceSecret, client, deviceName, productKey, null, timestamp));
+    }
+
+    /**
+     * Signs into {@code password}, for clients that take the password as {@code char[]}.
+     *
+     * @return the number of chars written, {@link #passwordLength()}
+     */
+    public int sign(String deviceSecret, String client, String deviceName, String productKey, long timestamp,
+                    char[] password) {
+        Scratch s = scratch.get();
+        int length = sign(s, deviceSecret, client, deviceName, productKey, null, timestamp);
+        System.arraycopy(s.hex, 0, password, 0, length);
+        return length;
+    }
+
+    /**
+     * Checks a password in constant time, the timestamp as it appears in the {@code clientId}.
+     */
+    public boolean verify(String deviceSecret, String client, String deviceName, String productKey, String timestamp,
+                          byte[] password) {
+        if (password == null || password.length != passwordLength()) {
+            return false;
+        }
+        Scratch s = scratch.get();
+        int length = sign(s, deviceSecret, client, deviceName, productKey, timestamp, 0);
+        int diff = 0;
+        for (int i = 0; i < length; i++) {
+            diff |= s.hex[i] ^ password[i];
+        }
+        return diff == 0;
+    }
+
+    /**
+     * @param text the timestamp as text, or null to use {@code millis}
+     */
+    private int sign(Scratch s, String secret, String client, String deviceName, String productKey, String text,
+                     long millis) {
+        Mac mac = s.mac(this, secret);
+        s.length = 0;
+        s.put(CLIENT_ID);
+        s.put(client);
+        s.put(DEVICE_NAME);
+        s.put(deviceName);
+        s.put(PRODUCT_KEY);
+        s.put(productKey);
+        s.put(TIMESTAMP);
+        if (text != null) {
+            s.put(text);
+        } else {
+            s.put(millis);
+        }
+        mac.update(s.text, 0, s.length);
+        try {
+            mac.doFinal(s.digest, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        for (int i = 0; i < macLength; i++) {
+            s.hex[2 * i] = HEX[(s.digest[i] >> 4) & 0xF];
+            s.hex[2 * i + 1] = HEX[s.digest[i] & 0xF];
+        }
+        return macLength * 2;
+    }
+
+    private Mac newMac(String secret) {
+        Mac prototype = prototypes.get(secret);
+        try {
+            if (prototype == null) {
+                prototype = Mac.getInstance(algorithm);
+                prototype.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), algorithm));
+                if (prototypes.size() >= MAX_PROTOTYPES) {
+                    return prototype;
+                }
+                Mac raced = prototypes.putIfAbsent(secret, prototype);
+                if (raced != null) {
+                    prototype = raced;
+                }
+            }
+            // 原型只用于克隆，不会被 update，多个线程同时克隆是安全的
+            return (Mac)prototype.clone();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(algorithm + " unavailable", e);
+        } catch (CloneNotSupportedException e) {
+            try {
+                Mac mac = Mac.getInstance(algorithm);
+                mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), algorithm));
+                return mac;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException(algorithm + " unavailable", ex);
+            }
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Per thread buffers and keyed {@code Mac}s of one signer.
+     */
+    private static class Scratch {
+
+        final byte[] digest = new byte[32];
+        final char[] hex = new char[64];
+        final Map<String, Mac> macs = new LinkedHashMap<String, Mac>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Mac> eldest) {
+                return size() > MAX_THREAD_MACS;
+            }
+        };
+        byte[] text = new byte[256];
+        int length;
+
+        Mac mac(DeviceSigner signer, String secret) {
+            Mac mac = macs.get(secret);
+            if (mac == null) {
+                mac = signer.newMac(secret);
+                macs.put(secret, mac);
+            }
+            return mac;
+        }
+
+        void put(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, text, length, bytes.length);
+            length += bytes.length;
+        }
+
+        void put(String s) {
+            int n = s.length();
+            ensure(n);
+            for (int i = 0; i < n; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    // 非 ASCII 的名字少见，退回到 UTF-8 编码
+                    put(s.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                text[length + i] = (byte)c;
+            }
+            length += n;
+        }
+
+        void put(long value) {
+            if (value < 0) {
+                put(Long.toString(value));
+                return;
+            }
+            int digits = 1;
+            for (long v = value / 10; v > 0; v /= 10) {
+                digits++;
+            }
+            ensure(digits);
+            for (int i = length + digits - 1; i >= length; i--) {
+                text[i] = (byte)('0' + value % 10);
+                value /= 10;
+            }
+            length += digits;
+        }
+
+        private void ensure(int more) {
+            if (length + more > text.length) {
+                byte[] larger = new byte[Math.max(text.length * 2, length + more)];
+                System.arraycopy(text, 0, larger, 0, length);
+                text = larger;
+            }
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads keys out of JKS or PKCS12 keystores, decrypting each at most once while it stays cached:
+ * <pre>
+ * KeyStoreCache keys = KeyStoreCache.builder(keyStores)
+ *     .password(password)
+ *     .maximumSize(100_000)
+ *     .expireAfterWrite(30, TimeUnit.MINUTES)
+ *     .build();
+ * Key deviceKey = keys.getKey(deviceName);
+ * </pre>
+ * {@link KeyStore#getKey} runs the password based key derivation of the entry on every call, tens of milliseconds
+ * with the 10000 iterations of PKCS12, which is what made per request lookups slow. Here a keystore is loaded once, on
+ * first use and from a read-only mapping of the file, then an entry is decrypted the first time it is asked for and
+ * the {@link Key} kept in a bounded LRU: the cache is split in 16 stripes by alias, each evicting its least recently
+ * used key, and a key older than {@code expireAfterWrite} is decrypted again. Concurrent misses on one alias decrypt
+ * it once, misses on different aliases decrypt in parallel.
+ * <p>
+ * Several keystores are read as the shards of {@link KeyProvisioner}, an alias looked up in shard
+ * {@link KeyProvisioner#shardOf}.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class KeyStoreCache {
+
+    private static final int STRIPES = 16;
+
+    private final Builder options;
+    private final List<Path> paths;
+    private final AtomicReferenceArray<KeyStore> keyStores;
+    private final Stripe[] stripes;
+    private final Map<String, CompletableFuture<Key>> loading = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private KeyStoreCache(Builder options) {
+        this.options = options;
+        this.paths = options.paths;
+        this.keyStores = new AtomicReferenceArray<>(paths.size());
+        int stripes = options.maximumSize < STRIPES ? 1 : STRIPES;
+        int capacity = (options.maximumSize + stripes - 1) / stripes;
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    public static Builder builder(Path keyStore) {
+        return new Builder(Collections.singletonList(keyStore));
+    }
+
+    /**
+     * @param shards the keystores {@link KeyProvisioner#provision} returned, in the same order
+     */
+    public static Builder builder(List<Path> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("No keystore");
+        }
+        return new Builder(new ArrayList<>(shards));
+    }
+
+    /**
+     * @return null if there is no key under this alias
+     */
+    public Key getKey(String alias) throws GeneralSecurityException, IOException {
+        Stripe stripe = stripes[stripes.length == 1 ? 0 : spread(alias.hashCode()) & (stripes.length - 1)];
+        Key key = cached(stripe, alias);
+        if (key != null) {
+            hits.increment();
+            return key;
+        }
+        CompletableFuture<Key> future = new CompletableFuture<>();
+        CompletableFuture<Key> existing = loading.putIfAbsent(alias, future);
+        if (existing != null) {
+            hits.increment();
+            return await(existing);
+        }
+        try {
+            // 另一个线程可能刚解密完并移除了它的 future
+            key = cached(stripe, alias);
+            if (key == null) {
+                misses.increment();
+                key = decrypt(alias);
+                if (key != null) {
+                    synchronized (stripe) {
+                        stripe.put(alias, new Cached(key, System.nanoTime()));
+                    }
+                }
+            }
+            future.complete(key);
+            return key;
+        } catch (GeneralSecurityException | IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(alias, future);
+        }
+    }
+
+    /**
+     * Certificates are not encrypted, this only loads the keystore.
+     */
+    public Certificate getCertificate(String alias) throws GeneralSecurityException, IOException {
+        return keyStore(alias).getCertificate(alias);
+    }
+
+    /**
+     * Drops every decrypted key, for instance after the keystores were provisioned again. The keystores already loaded
+     * are kept.
+     */
+    public void invalidateAll() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Lookups answered without decrypting, including those that waited for another thread's decryption.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Entries decrypted.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Keys dropped for room, not counting the expired ones.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private Key cached(Stripe stripe, String alias) {
+        synchronized (stripe) {
+            Cached cached = stripe.get(alias);
+            if (cached == null) {
+                return null;
+            }
+            if (System.nanoTime() - cached.decryptedAt < options.expireAfterWriteNanos) {
+                return cached.key;
+            }
+            stripe.remove(alias);
+            return null;
+        }
+    }
+
+    private Key decrypt(String alias) throws GeneralSecurityException, IOException {
+        KeyStore keyStore = keyStore(alias);
+        if (!keyStore.isKeyEntry(alias)) {
+            return null;
+        }
+        return keyStore.getKey(alias, options.keyPassword);
+    }
+
+    private KeyStore keyStore(String alias) throws GeneralSecurityException, IOException {
+        int shard = keyStores.length() == 1 ? 0 : KeyProvisioner.shardOf(alias, keyStores.length());
+        KeyStore keyStore = keyStores.get(shard);
+        if (keyStore != null) {
+            return keyStore;
+        }
+        synchronized (keyStores) {
+            keyStore = keyStores.get(shard);
+            if (keyStore == null) {
+                // load 完成后才发布
+                keyStore = load(paths.get(shard));
+                keyStores.set(shard, keyStore);
+            }
+            return keyStore;
+        }
+    }
+
+    /**
+     * The keystore parses the whole file into its entries, still encrypted; the mapping spares reading it through a
+     * heap buffer and is released with the stream.
+     */
+    private KeyStore load(Path path) throws GeneralSecurityException, IOException {
+        long start = System.nanoTime();
+        String type = options.type != null ? options.type
+            : path.getFileName().toString().endsWith(".jks") ? "JKS" : "PKCS12";
+        KeyStore keyStore = KeyStore.getInstance(type);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try (InputStream in = new BufferInputStream(mapped)) {
+                keyStore.load(in, options.password);
+            }
+        }
+        log.info("Loaded {} entries of {} in {}ms", keyStore.size(), path,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return keyStore;
+    }
+
+    private static Key await(CompletableFuture<Key> future) throws GeneralSecurityException, IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException)cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            throw e;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Cached {
+
+        final Key key;
+        final long decryptedAt;
+
+        Cached(Key key, long decryptedAt) {
+            this.key = key;
+            this.decryptedAt = decryptedAt;
+        }
+    }
+
+    /**
+     * In access order, guarded by itself.
+     */
+    private final class Stripe extends LinkedHashMap<String, Cached> {
+
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    public static class Builder {
+
+        final List<Path> paths;
+        String type;
+        char[] password;
+        char[] keyPassword;
+        int maximumSize = 10_000;
+        long expireAfterWriteNanos = Long.MAX_VALUE;
+
+        private Builder(List<Path> paths) {
+            this.paths = paths;
+        }
+
+        /**
+         * {@code JKS} or {@code PKCS12}, by default {@code JKS} for a {@code .jks} file and {@code PKCS12} otherwise.
+         */
+        public Builder type(String type) {
+            this.type = type;
+            return this;
+        }
+
+        /**
+         * Of the keystores, and of their entries unless {@link #keyPassword} is set.
+         */
+        public Builder password(char[] password) {
+            this.password = password.clone();
+            return this;
+        }
+
+        public Builder keyPassword(char[] keyPassword) {
+            this.keyPassword = keyPassword.clone();
+            return this;
+        }
+
+        /**
+         * Decrypted keys kept, 10000 by default.
+         */
+        public Builder maximumSize(int maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximumSize: " + maximumSize);
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * How long a decrypted key is used before it is decrypted again, forever by default.
+         */
+        public Builder expireAfterWrite(long duration, TimeUnit unit) {
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public KeyStoreCache build() {
+            if (password == null) {
+                throw new IllegalStateException("password is required");
+            }
+            if (keyPassword == null) {
+                keyPassword = password;
+            }
+            return new KeyStoreCache(this);
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import cn.homjie.vertx.tutorial.juc.SimpleThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+
+/**
+ * Paho persistence in an append-only log of memory-mapped segments, instead of a file per message as in
+ * {@code MqttDefaultFilePersistence}:
+ * <pre>
+ * MqttClient client = new MqttClient(broker, clientId, new MappedLogPersistence(Paths.get("mqtt-persistence")));
+ * </pre>
+ * {@code put} and {@code remove} append a record to the mapped segment and update an in-memory index of the keys in
+ * flight, so they cost a copy into the page cache: once they return, the record survives a crash of the process.
+ * Surviving a crash of the machine needs the pages on disk, which a background task forces for all records appended
+ * in the last {@code flushInterval} at once (group commit); a {@code flushInterval} of 0 forces on every call instead.
+ * <p>
+ * Segments are only dropped from the head of the log, so a removal record is never dropped while the record it removes
+ * is still on disk. The same task deletes the oldest segment once none of its records is in flight, or, if less than a
+ * quarter of it is, copies those records to the end of the log first. On {@link #open} the segments are replayed into
+ * the index; the replay stops at the first record whose CRC does not match, a write torn by the crash.
+ * <p>
+ * Record layout: {@code int length, int crc32, byte op, short keyLength, key, [int headerLength, header, int
+ * payloadLength, payload]}, a length of 0 ends the segment.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class MappedLogPersistence implements MqttClientPersistence {
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int PREFIX = 8;
+    private static final String SUFFIX = ".log";
+
+    private static volatile ScheduledExecutorService flusher;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long flushIntervalMillis;
+    private final CRC32 crc = new CRC32();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<String, Location> index = new HashMap<>();
+    private Path clientDirectory;
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private ScheduledFuture<?> flushTask;
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+
+    /**
+     * 8 MB segments, forced every 10 ms.
+     */
+    public MappedLogPersistence(Path directory) {
+        this(directory, 8 * 1024 * 1024, 10);
+    }
+
+    /**
+     * @param segmentSize         bytes per segment file; a larger record gets a segment of its own size
+     * @param flushIntervalMillis 0 to force the segment on every {@code put} and {@code remove}
+     */
+    public MappedLogPersistence(Path directory, int segmentSize, long flushIntervalMillis) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @Override
+    public synchronized void open(String clientId, String serverURI) throws MqttPersistenceException {
+        // 与 MqttDefaultFilePersistence 相同，每个客户端一个目录
+        clientDirectory = directory.resolve((clientId + "-" + serverURI).replaceAll("[^a-zA-Z0-9_.-]", ""));
+        try {
+            Files.createDirectories(clientDirectory);
+            lockChannel = FileChannel.open(clientDirectory.resolve(".lck"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+            try {
+                lock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                lockChannel.close();
+                throw new MqttPersistenceException(MqttPersistenceException.REASON_CODE_PERSISTENCE_IN_USE);
+            }
+            replay();
+        } catch (IOException e) {
+            throw new MqttPersistenceException(e);
+        }
+        if (flushIntervalMillis > 0) {
+            flushTask = flusher().scheduleWithFixedDelay(this::maintain, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        }
+        log.info("Opened {} with {} keys in {} segments", clientDirectory, index.size(), segments.size());
+    }
+
+    @Override
+    public void close() throws MqttPersistenceException {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        synchronized (this) {
+            force();
+            segments.clear();
+            index.clear();
+            try {
+                if (lock != null) {
+                    lock.release();
+                    lockChannel.close();
+                    lock = null;
+                }
+            } catch (IOException e) {
+                throw new MqttPersistenceException(e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void put(String key, MqttPersistable persistable) throws MqttPersistenceException {
+        byte[] header = persistable.getHeaderBytes();
+        byte[] payload = persistable.getPayloadBytes();
+        int headerLength = header == null ? 0 : persistable.getHeaderLength();
+        int payloadLength = payload == null ? 0 : persistable.getPayloadLength();
+        ByteBuffer record = begin(PUT, key, 8 + headerLength + payloadLength);
+        record.putInt(headerLength);
+        if (headerLength > 0) {
+            record.put(header, persistable.getHeaderOffset(), headerLength);
+        }
+        record.putInt(payloadLength);
+        if (payloadLength > 0) {
+            record.put(payload, persistable.getPayloadOffset(), payloadLength);
+        }
+        Location location = append(record);
+        Location previous = index.put(key, location);
+        if (previous != null) {
+            previous.segment.release(previous.length);
+        }
+    }
+
+    @Override
+    public synchronized MqttPersistable get(String key) throws MqttPersistenceException {
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        ByteBuffer record = location.segment.buffer.duplicate();
+        record.position(location.offset + PREFIX + 1);
+        int keyLength = record.getShort();
+        record.position(record.position() + keyLength);
+        byte[] header = new byte[record.getInt()];
+        record.get(header);
+        byte[] payload = new byte[record.getInt()];
+        record.get(payload);
+        return new Persisted(header, payload);
+    }
+
+    @Override
+    public synchronized void remove(String key) throws MqttPersistenceException {
+        Location location = index.remove(key);
+        if (location == null) {
+            return;
+        }
+        // 删除记录本身不在索引中，只需保留到它之前的段都被删除为止
+        Location removal = append(begin(REMOVE, key, 0));
+        removal.segment.release(removal.length);
+        location.segment.release(location.length);
+    }
+
+    @Override
+    public synchronized java.util.Enumeration<String> keys() {
+        return Collections.enumeration(new ArrayList<>(index.keySet()));
+    }
+
+    @Override
+    public synchronized void clear() throws MqttPersistenceException {
+        index.clear();
+        try {
+            for (Segment segment : segments) {
+                Files.deleteIfExists(segment.file);
+            }
+            segments.clear();
+        } catch (IOException e) {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    @Override
+    public synchronized boolean containsKey(String key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Segment files, for tests and monitoring.
+     */
+    public synchronized int segments() {
+        return segments.size();
+    }
+
+    /**
+     * Forces every segment with unforced records to disk.
+     */
+    public void force() {
+        List<Segment> dirty = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : segments) {
+                if (segment.dirty) {
+                    segment.dirty = false;
+                    dirty.add(segment);
+                }
+            }
+        }
+        // 在锁外刷盘，刷盘期间 put 不被阻塞
+        for (Segment segment : dirty) {
+            segment.buffer.force();
+        }
+    }
+
+    private static ScheduledExecutorService flusher() {
+        if (flusher == null) {
+            synchronized (MappedLogPersistence.class) {
+                if (flusher == null) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                        new SimpleThreadFactory("mqtt-persistence", true, Thread.NORM_PRIORITY));
+                    executor.setRemoveOnCancelPolicy(true);
+                    flusher = executor;
+                }
+            }
+        }
+        return flusher;
+    }
+
+    private void maintain() {
+        try {
+            force();
+            compact();
+        } catch (MqttPersistenceException | RuntimeException e) {
+            log.warn("Maintain {} failed", clientDirectory, e);
+        }
+    }
+
+    /**
+     * Drops the oldest segments while they hold nothing or little in flight.
+     */
+    synchronized void compact() throws MqttPersistenceException {
+        while (segments.size() > 1) {
+            Segment head = segments.peekFirst();
+            if (head.liveBytes > 0 && head.liveBytes * 4 > head.position) {
+                return;
+            }
+            if (head.liveBytes > 0) {
+                relocate(head);
+                // 复制到尾部的记录落盘之后才能删除原来的段，否则机器崩溃会丢失已经持久化的消息
+                force();
+            }
+            segments.pollFirst();
+            try {
+                Files.deleteIfExists(head.file);
+            } catch (IOException e) {
+                throw new MqttPersistenceException(e);
+            }
+            log.debug("Dropped segment {}", head.file.getFileName());
+        }
+    }
+
+    /**
+     * Copies the records of {@code segment} still in the index to the end of the log.
+     */
+    private void relocate(Segment segment) throws MqttPersistenceException {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int offset = 0;
+        while (offset < segment.position) {
+            int length = buffer.getInt(offset);
+            buffer.position(offset + PREFIX + 1);
+            byte[] key = new byte[buffer.getShort()];
+            buffer.get(key);
+            String k = new String(key, StandardCharsets.UTF_8);
+            Location location = index.get(k);
+            if (location != null && location.segment == segment && location.offset == offset) {
+                ByteBuffer body = buffer.duplicate();
+                body.limit(offset + PREFIX + length).position(offset + PREFIX);
+                ByteBuffer copy = ensure(PREFIX + length);
+                copy.position(PREFIX);
+                copy.put(body);
+                index.put(k, append(copy));
+                segment.release(location.length);
+            }
+            offset += PREFIX + length;
+        }
+    }
+
+    /**
+     * Starts a record in the scratch buffer, leaving room for the prefix.
+     */
+    private ByteBuffer begin(byte op, String key, int bodyLength) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ensure(PREFIX + 1 + 2 + k.length + bodyLength);
+        record.position(PREFIX);
+        record.put(op).putShort((short)k.length).put(k);
+        return record;
+    }
+
+    private ByteBuffer ensure(int size) {
+        if (scratch.capacity() < size) {
+            scratch = ByteBuffer.allocate(Math.max(size, scratch.capacity() * 2));
+        }
+        scratch.clear();
+        return scratch;
+    }
+
+    /**
+     * Fills in the prefix of the record in the scratch buffer and appends it.
+     */
+    private Location append(ByteBuffer record) throws MqttPersistenceException {
+        int size = record.position();
+        crc.reset();
+        crc.update(record.array(), PREFIX, size - PREFIX);
+        record.putInt(0, size - PREFIX);
+        record.putInt(4, (int)crc.getValue());
+        Segment segment = segments.peekLast();
+        try {
+            if (segment == null || segment.buffer.capacity() - segment.position < size) {
+                segment = roll(size);
+            }
+        } catch (IOException e) {
+            throw new MqttPersistenceException(e);
+        }
+        int offset = segment.position;
+        record.flip();
+        ByteBuffer target = segment.buffer.duplicate();
+        target.position(offset);
+        target.put(record);
+        segment.position += size;
+        segment.liveBytes += size;
+        segment.dirty = true;
+        if (flushIntervalMillis == 0) {
+            segment.buffer.force();
+            segment.dirty = false;
+        }
+        return new Location(segment, offset, size);
+    }
+
+    private Segment roll(int size) throws IOException {
+        Segment last = segments.peekLast();
+        long id = last == null ? 0 : last.id + 1;
+        Path file = clientDirectory.resolve(String.format("%020d%s", id, SUFFIX));
+        Segment segment = new Segment(id, file, map(file, Math.max(segmentSize, size)));
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void replay() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(clientDirectory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long id = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            Segment segment = new Segment(id, file, map(file, (int)Files.size(file)));
+            segments.addLast(segment);
+            replay(segment);
+        }
+    }
+
+    private void replay(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        CRC32 check = new CRC32();
+        while (offset + PREFIX + 3 <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + PREFIX + length > buffer.capacity()) {
+                break;
+            }
+            ByteBuffer body = buffer.duplicate();
+            body.limit(offset + PREFIX + length).position(offset + PREFIX);
+            check.reset();
+            check.update(body);
+            if ((int)check.getValue() != buffer.getInt(offset + 4)) {
+                log.warn("Torn record at {} of {}, dropped with the rest of the segment", offset,
+                    segment.file.getFileName());
+                break;
+            }
+            body.position(offset + PREFIX);
+            byte op = body.get();
+            byte[] key = new byte[body.getShort()];
+            body.get(key);
+            String k = new String(key, StandardCharsets.UTF_8);
+            Location previous = index.remove(k);
+            if (previous != null) {
+                previous.segment.release(previous.length);
+            }
+            int size = PREFIX + length;
+            segment.liveBytes += size;
+            if (op == PUT) {
+                index.put(k, new Location(segment, offset, size));
+            } else {
+                segment.release(size);
+            }
+            offset += size;
+        }
+        // 清零尾部，残留的旧记录不会在下次重放时被当作有效记录；只写非零处，不把文件的空洞变成实际的块
+        for (int i = offset; i < buffer.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte)0);
+            }
+        }
+        segment.position = offset;
+    }
+
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+            // 映射在 channel 关闭后依然有效
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static final class Segment {
+
+        final long id;
+        final Path file;
+        final MappedByteBuffer buffer;
+        int position;
+        /**
+         * Bytes of the records still in the index.
+         */
+        int liveBytes;
+        boolean dirty;
+
+        Segment(long id, Path file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        void release(int size) {
+            liveBytes -= size;
+        }
+    }
+
+    private static final class Location {
+
+        final Segment segment;
+        final int offset;
+        final int length;
+
+        Location(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class Persisted implements MqttPersistable {
+
+        private final byte[] header;
+        private final byte[] payload;
+
+        Persisted(byte[] header, byte[] payload) {
+            this.header = header;
+            this.payload = payload;
+        }
+
+        @Override
+        public byte[] getHeaderBytes() {
+            return header;
+        }
+
+        @Override
+        public int getHeaderLength() {
+            return header.length;
+        }
+
+        @Override
+        public int getHeaderOffset() {
+            return 0;
+        }
+
+        @Override
+        public byte[] getPayloadBytes() {
+            return payload;
+        }
+
+        @Override
+        public int getPayloadLength() {
+            return payload.length;
+        }
+
+        @Override
+        public int getPayloadOffset() {
+            return 0;
+        }
+    }
+}
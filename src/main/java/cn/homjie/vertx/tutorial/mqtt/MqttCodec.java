@@ -0,0 +1,241 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The few MQTT 3.1.1 frames the tutorial needs, written into and read from {@link ByteBuffer}s. Nothing is allocated
+ * on the write path for ASCII topics; strings are length-prefixed UTF-8 as the specification requires.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class MqttCodec {
+
+    public static final int CONNECT = 1;
+    public static final int CONNACK = 2;
+    public static final int PUBLISH = 3;
+    public static final int PUBACK = 4;
+    public static final int PUBREC = 5;
+    public static final int PUBREL = 6;
+    public static final int PUBCOMP = 7;
+    public static final int SUBSCRIBE = 8;
+    public static final int SUBACK = 9;
+    public static final int PINGREQ = 12;
+    public static final int PINGRESP = 13;
+    public static final int DISCONNECT = 14;
+
+    public static final int MAX_PACKET_ID = 0xFFFF;
+    public static final int MAX_REMAINING_LENGTH = 268_435_455;
+    public static final int MAX_STRING_LENGTH = 0xFFFF;
+
+    private static final byte[] PROTOCOL_NAME = {'M', 'Q', 'T', 'T'};
+    private static final int PROTOCOL_LEVEL = 4;
+
+    private MqttCodec() {
+    }
+
+    public static int type(int firstByte) {
+        return (firstByte & 0xFF) >>> 4;
+    }
+
+    public static int remainingLengthSize(int remainingLength) {
+        return remainingLength < 128 ? 1 : remainingLength < 16_384 ? 2 : remainingLength < 2_097_152 ? 3 : 4;
+    }
+
+    public static void putFixedHeader(ByteBuffer buffer, int type, int flags, int remainingLength) {
+        if (remainingLength > MAX_REMAINING_LENGTH) {
+            throw new IllegalArgumentException("Packet too large: " + remainingLength);
+        }
+        buffer.put((byte)(type << 4 | flags));
+        int length = remainingLength;
+        do {
+            int digit = length & 0x7F;
+            length >>>= 7;
+            buffer.put((byte)(length > 0 ? digit | 0x80 : digit));
+        } while (length > 0);
+    }
+
+    /**
+     * Looks at the frame starting at the buffer's position without consuming it.
+     *
+     * @return the length of the whole frame, or -1 while its fixed header is incomplete
+     * @throws MqttProtocolException if the remaining length is malformed
+     */
+    public static int frameLength(ByteBuffer buffer) throws MqttProtocolException {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        int value = 0;
+        int shift = 0;
+        for (int i = 1; i <= 4; i++) {
+            if (position + i >= limit) {
+                return -1;
+            }
+            int digit = buffer.get(position + i);
+            value |= (digit & 0x7F) << shift;
+            if ((digit & 0x80) == 0) {
+                return 1 + i + value;
+            }
+            shift += 7;
+        }
+        throw new MqttProtocolException("Malformed remaining length");
+    }
+
+    /**
+     * Skips the fixed header of a complete frame.
+     *
+     * @return the remaining length
+     */
+    public static int skipFixedHeader(ByteBuffer buffer) {
+        buffer.get();
+        int value = 0;
+        int shift = 0;
+        int digit;
+        do {
+            digit = buffer.get();
+            value |= (digit & 0x7F) << shift;
+            shift += 7;
+        } while ((digit & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Number of bytes of {@code s} in UTF-8, without encoding it. An unpaired surrogate counts as the one byte
+     * {@code '?'} that {@link String#getBytes} replaces it with.
+     *
+     * @throws IllegalArgumentException over {@link #MAX_STRING_LENGTH} bytes, too long for the 2 byte prefix
+     */
+    public static int utf8Length(String s) {
+        int length = s.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes++;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                // 代理对共 4 个字节，两个 char 已计 2 个
+                bytes += 2;
+                i++;
+            }
+        }
+        if (bytes > MAX_STRING_LENGTH) {
+            throw new IllegalArgumentException("String of " + bytes + " bytes");
+        }
+        return bytes;
+    }
+
+    public static void putString(ByteBuffer buffer, String s) {
+        putString(buffer, s, utf8Length(s));
+    }
+
+    private static void putString(ByteBuffer buffer, String s, int length) {
+        buffer.putShort((short)length);
+        if (length == s.length()) {
+            // 除 ASCII 外只可能有落单的代理项，编码为 '?'
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                buffer.put(c < 0x80 ? (byte)c : (byte)'?');
+            }
+        } else {
+            buffer.put(s.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes.length > MAX_STRING_LENGTH) {
+            throw new IllegalArgumentException("Binary data of " + bytes.length + " bytes");
+        }
+        buffer.putShort((short)bytes.length);
+        buffer.put(bytes);
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    public static int connectSize(String clientId, String username, byte[] password) {
+        int remaining = connectRemaining(clientId, username, password);
+        return 1 + remainingLengthSize(remaining) + remaining;
+    }
+
+    private static int connectRemaining(String clientId, String username, byte[] password) {
+        int remaining = 2 + PROTOCOL_NAME.length + 1 + 1 + 2 + 2 + utf8Length(clientId);
+        if (username != null) {
+            remaining += 2 + utf8Length(username);
+        }
+        if (password != null) {
+            remaining += 2 + password.length;
+        }
+        return remaining;
+    }
+
+    public static void putConnect(ByteBuffer buffer, String clientId, String username, byte[] password,
+                                  int keepAliveSeconds, boolean cleanSession) {
+        putFixedHeader(buffer, CONNECT, 0, connectRemaining(clientId, username, password));
+        buffer.putShort((short)PROTOCOL_NAME.length).put(PROTOCOL_NAME).put((byte)PROTOCOL_LEVEL);
+        int flags = (username != null ? 0x80 : 0) | (password != null ? 0x40 : 0) | (cleanSession ? 0x02 : 0);
+        buffer.put((byte)flags).putShort((short)keepAliveSeconds);
+        putString(buffer, clientId);
+        if (username != null) {
+            putString(buffer, username);
+        }
+        if (password != null) {
+            putBytes(buffer, password);
+        }
+    }
+
+    public static void putConnack(ByteBuffer buffer, boolean sessionPresent, int returnCode) {
+        putFixedHeader(buffer, CONNACK, 0, 2);
+        buffer.put((byte)(sessionPresent ? 1 : 0)).put((byte)returnCode);
+    }
+
+    public static int publishSize(int topicLength, int qos, int payloadLength) {
+        int remaining = 2 + topicLength + (qos > 0 ? 2 : 0) + payloadLength;
+        return 1 + remainingLengthSize(remaining) + remaining;
+    }
+
+    /**
+     * Writes everything of a PUBLISH frame but the payload.
+     *
+     * @param topicLength {@link #utf8Length(String)} of the topic
+     */
+    public static void putPublishHeader(ByteBuffer buffer, String topic, int topicLength, int qos, boolean dup,
+                                        boolean retain, int packetId, int payloadLength) {
+        int remaining = 2 + topicLength + (qos > 0 ? 2 : 0) + payloadLength;
+        int flags = (dup ? 0x08 : 0) | qos << 1 | (retain ? 0x01 : 0);
+        putFixedHeader(buffer, PUBLISH, flags, remaining);
+        putString(buffer, topic, topicLength);
+        if (qos > 0) {
+            buffer.putShort((short)packetId);
+        }
+    }
+
+    /**
+     * PUBACK, PUBREC, PUBREL or PUBCOMP.
+     */
+    public static void putAck(ByteBuffer buffer, int type, int packetId) {
+        putFixedHeader(buffer, type, type == PUBREL ? 0x02 : 0, 2);
+        buffer.putShort((short)packetId);
+    }
+
+    /**
+     * PINGREQ, PINGRESP or DISCONNECT.
+     */
+    public static void putEmpty(ByteBuffer buffer, int type) {
+        putFixedHeader(buffer, type, 0, 0);
+    }
+}
@@ -0,0 +1,560 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import cn.homjie.vertx.tutorial.juc.SimpleThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One MQTT connection of a {@link MqttPublisher}. Callers only enqueue; a writer thread encodes everything queued into
+ * one buffer and flushes the socket once, a reader thread completes the messages on PUBACK or PUBCOMP. At most
+ * {@code window} QoS 1/2 messages are unacknowledged at a time.
+ * <p>
+ * Over a {@link SocketChannel} the batch is off-heap and direct payloads are not copied into it: the writer hands the
+ * headers and the payloads to one gathering write.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+final class MqttConnection {
+
+    private static final Message CLOSE = new Message(null, null, 0, null, null);
+    /**
+     * Smaller direct payloads are cheaper to copy into the batch than to gather.
+     */
+    private static final int GATHER_THRESHOLD = 256;
+    /**
+     * Linux writes at most 1024 buffers per call.
+     */
+    private static final int MAX_GATHER = 1024;
+
+    private final String name;
+    private final Socket socket;
+    /**
+     * Null unless the socket was opened from a channel, which a TLS socket never is.
+     */
+    private final SocketChannel channel;
+    private final int windowSize;
+    private final Semaphore window;
+    private final BlockingQueue<Message> outbound = new LinkedBlockingQueue<>();
+    /**
+     * Unacknowledged QoS 1/2 messages by packet id.
+     */
+    private final AtomicReferenceArray<Message> inFlight = new AtomicReferenceArray<>(MqttCodec.MAX_PACKET_ID + 1);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final CompletableFuture<Void> closed = new CompletableFuture<>();
+    private final long pingIntervalNanos;
+    private final ByteBuffer batch;
+    private final OutputStream out;
+    private final InputStream in;
+    /**
+     * Views of the batch between gathered payloads, and what the next write gathers.
+     */
+    private final ByteBuffer[] views;
+    private final ByteBuffer[] gather;
+    /**
+     * Only touched by the writer thread.
+     */
+    private int nextPacketId;
+    private int gathered;
+    private int batchMark;
+
+    private MqttConnection(String name, Socket socket, MqttPublisher.Builder options) throws IOException {
+        this.name = name;
+        this.socket = socket;
+        this.channel = socket.getChannel();
+        this.windowSize = options.window;
+        this.window = new Semaphore(windowSize);
+        this.pingIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, options.keepAliveSeconds)) / 2;
+        if (channel != null) {
+            this.batch = ByteBuffer.allocateDirect(options.maxBatchBytes);
+            this.gather = new ByteBuffer[MAX_GATHER];
+            this.views = new ByteBuffer[MAX_GATHER / 2 + 1];
+            for (int i = 0; i < views.length; i++) {
+                views[i] = batch.duplicate();
+            }
+        } else {
+            this.batch = ByteBuffer.allocate(options.maxBatchBytes);
+            this.gather = null;
+            this.views = null;
+        }
+        this.out = socket.getOutputStream();
+        this.in = socket.getInputStream();
+    }
+
+    /**
+     * Opens the socket, sends CONNECT and waits for the CONNACK.
+     */
+    static MqttConnection connect(MqttPublisher.Builder options, int index) throws IOException {
+        MqttCredentials credentials = options.credentials.apply(index);
+        Socket socket = options.socketFactory != null
+            ? options.socketFactory.createSocket() : SocketChannel.open().socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(options.host, options.port), options.connectTimeoutMillis);
+            socket.setSoTimeout(options.connectTimeoutMillis);
+            MqttConnection connection = new MqttConnection(options.threadName + "-" + index, socket, options);
+            connection.handshake(credentials, options.keepAliveSeconds, options.cleanSession);
+            socket.setSoTimeout(0);
+            connection.start();
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private void handshake(MqttCredentials credentials, int keepAliveSeconds, boolean cleanSession)
+        throws IOException {
+        byte[] password = credentials.getPassword() == null
+            ? null : credentials.getPassword().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer connect = ByteBuffer.allocate(
+            MqttCodec.connectSize(credentials.getClientId(), credentials.getUsername(), password));
+        MqttCodec.putConnect(connect, credentials.getClientId(), credentials.getUsername(), password,
+            keepAliveSeconds, cleanSession);
+        out.write(connect.array(), 0, connect.position());
+        out.flush();
+        byte[] connack = new byte[4];
+        int read = 0;
+        try {
+            while (read < connack.length) {
+                int n = in.read(connack, read, connack.length - read);
+                if (n < 0) {
+                    throw new MqttProtocolException("Connection closed before CONNACK");
+                }
+                read += n;
+            }
+        } catch (SocketTimeoutException e) {
+            throw new MqttProtocolException("No CONNACK in time");
+        }
+        if (MqttCodec.type(connack[0]) != MqttCodec.CONNACK || connack[1] != 2) {
+            throw new MqttProtocolException("Expected CONNACK");
+        }
+        if (connack[3] != 0) {
+            throw new MqttProtocolException("Connection refused, return code " + connack[3], connack[3]);
+        }
+    }
+
+    private void start() {
+        SimpleThreadFactory threadFactory = new SimpleThreadFactory(name, true, Thread.NORM_PRIORITY);
+        threadFactory.newThread(this::writeLoop).start();
+        threadFactory.newThread(this::readLoop).start();
+    }
+
+    boolean isAlive() {
+        return failure.get() == null && !closed.isDone();
+    }
+
+    int availableWindow() {
+        return window.availablePermits();
+    }
+
+    int inFlight() {
+        return windowSize - window.availablePermits();
+    }
+
+    boolean tryAcquire() {
+        return window.tryAcquire();
+    }
+
+    void acquire() throws InterruptedException {
+        window.acquire();
+    }
+
+    /**
+     * For QoS 1/2 the caller must hold a permit of the window. The payload is written from its position to its limit
+     * without being copied, {@code pool} gets it back once the message completes.
+     */
+    CompletableFuture<Void> publish(String topic, ByteBuffer payload, int qos, BufferPool pool) {
+        Message message = new Message(topic, payload.duplicate(), qos, pool, payload);
+        if (failure.get() != null || closed.isDone()) {
+            failMessage(message);
+            return message;
+        }
+        outbound.add(message);
+        if (failure.get() != null) {
+            // 与 fail 竞争时重新清空队列，保证消息不会留在死连接上
+            drainOutbound();
+        }
+        return message;
+    }
+
+    /**
+     * Waits up to {@code timeout} for the in-flight messages, then sends DISCONNECT.
+     */
+    CompletableFuture<Void> close(long timeout, TimeUnit unit) {
+        try {
+            if (!window.tryAcquire(windowSize, timeout, unit)) {
+                log.warn("{} closed with {} messages in flight", name, inFlight());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        outbound.add(CLOSE);
+        return closed;
+    }
+
+    private void writeLoop() {
+        List<Message> written = new ArrayList<>();
+        long lastWrite = System.nanoTime();
+        try {
+            while (true) {
+                Message message = outbound.poll(pingIntervalNanos, TimeUnit.NANOSECONDS);
+                if (message == null) {
+                    if (System.nanoTime() - lastWrite >= pingIntervalNanos) {
+                        MqttCodec.putEmpty(batch, MqttCodec.PINGREQ);
+                        flush(written);
+                        lastWrite = System.nanoTime();
+                    }
+                    continue;
+                }
+                // 一次取出队列中所有消息，编码进同一个缓冲区，只刷新一次
+                do {
+                    if (message == CLOSE) {
+                        MqttCodec.putEmpty(ensure(2, written), MqttCodec.DISCONNECT);
+                        flush(written);
+                        closed.complete(null);
+                        socket.close();
+                        return;
+                    }
+                    encode(message, written);
+                } while ((message = outbound.poll()) != null);
+                flush(written);
+                lastWrite = System.nanoTime();
+            }
+        } catch (IOException e) {
+            fail(e, written);
+        } catch (InterruptedException e) {
+            fail(e, written);
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            fail(e, written);
+        }
+    }
+
+    private void encode(Message message, List<Message> written) throws IOException {
+        if (message.released) {
+            MqttCodec.putAck(ensure(4, written), MqttCodec.PUBREL, message.packetId);
+            return;
+        }
+        int topicLength = MqttCodec.utf8Length(message.topic);
+        ByteBuffer payload = message.payload;
+        int payloadLength = payload.remaining();
+        int size = MqttCodec.publishSize(topicLength, message.qos, payloadLength);
+        if (message.qos > 0) {
+            message.packetId = nextPacketId();
+            inFlight.set(message.packetId, message);
+        }
+        if (channel != null && payload.isDirect() && payloadLength >= GATHER_THRESHOLD) {
+            // 头部进缓冲区，负载留在原处，由同一次 gathering write 写出
+            ByteBuffer buffer = ensure(size - payloadLength, 2, written);
+            MqttCodec.putPublishHeader(buffer, message.topic, topicLength, message.qos, false, false,
+                message.packetId, payloadLength);
+            markBatch();
+            gather[gathered++] = payload;
+        } else if (size <= batch.capacity()) {
+            ByteBuffer buffer = ensure(size, 0, written);
+            MqttCodec.putPublishHeader(buffer, message.topic, topicLength, message.qos, false, false,
+                message.packetId, payloadLength);
+            buffer.put(payload);
+        } else {
+            // 大报文：头部进缓冲区，负载直接写出
+            ByteBuffer buffer = ensure(size - payloadLength, 0, written);
+            MqttCodec.putPublishHeader(buffer, message.topic, topicLength, message.qos, false, false,
+                message.packetId, payloadLength);
+            flush(written);
+            writeFully(payload);
+        }
+        if (message.qos == 0) {
+            written.add(message);
+        }
+    }
+
+    private ByteBuffer ensure(int size, List<Message> written) throws IOException {
+        return ensure(size, 0, written);
+    }
+
+    /**
+     * @param slots gathered buffers the caller adds, one slot always stays free for the rest of the batch
+     */
+    private ByteBuffer ensure(int size, int slots, List<Message> written) throws IOException {
+        if (batch.remaining() < size || slots > 0 && gathered + slots >= gather.length) {
+            flush(written);
+        }
+        return batch;
+    }
+
+    /**
+     * Ends the current run of the batch, the next gathered buffer goes after it.
+     */
+    private void markBatch() {
+        if (batch.position() > batchMark) {
+            ByteBuffer view = views[gathered / 2];
+            view.limit(batch.position()).position(batchMark);
+            gather[gathered++] = view;
+            batchMark = batch.position();
+        }
+    }
+
+    /**
+     * Writes the batch and completes the QoS 0 messages in it.
+     */
+    private void flush(List<Message> written) throws IOException {
+        if (channel != null) {
+            markBatch();
+            if (gathered > 0) {
+                // 阻塞模式下一次调用也可能只写出一部分，直到最后一个缓冲区写完
+                ByteBuffer last = gather[gathered - 1];
+                while (last.hasRemaining()) {
+                    channel.write(gather, 0, gathered);
+                }
+                Arrays.fill(gather, 0, gathered, null);
+                gathered = 0;
+            }
+            batch.clear();
+            batchMark = 0;
+        } else {
+            if (batch.position() > 0) {
+                out.write(batch.array(), 0, batch.position());
+                batch.clear();
+            }
+            out.flush();
+        }
+        for (Message message : written) {
+            message.succeed();
+        }
+        written.clear();
+    }
+
+    /**
+     * Writes a payload that does not fit the batch, the batch is empty.
+     */
+    private void writeFully(ByteBuffer payload) throws IOException {
+        if (channel != null) {
+            while (payload.hasRemaining()) {
+                channel.write(payload);
+            }
+        } else if (payload.hasArray()) {
+            out.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+            payload.position(payload.limit());
+        } else {
+            // TLS 只接受 byte[]，堆外负载分段经缓冲区写出
+            while (payload.hasRemaining()) {
+                int n = Math.min(payload.remaining(), batch.capacity());
+                ByteBuffer chunk = payload.duplicate();
+                chunk.limit(chunk.position() + n);
+                batch.put(chunk);
+                payload.position(payload.position() + n);
+                out.write(batch.array(), 0, n);
+                batch.clear();
+            }
+        }
+    }
+
+    private int nextPacketId() {
+        // 窗口不超过 65535，总能找到空闲的 id
+        do {
+            nextPacketId = nextPacketId == MqttCodec.MAX_PACKET_ID ? 1 : nextPacketId + 1;
+        } while (inFlight.get(nextPacketId) != null);
+        return nextPacketId;
+    }
+
+    private void readLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        try {
+            while (true) {
+                if (channel != null) {
+                    // 不经过 socket 的输入流，它读时持有的锁会挡住 channel 上的写
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("Connection closed by broker");
+                    }
+                } else {
+                    int n = in.read(buffer.array(), buffer.position(), buffer.remaining());
+                    if (n < 0) {
+                        throw new IOException("Connection closed by broker");
+                    }
+                    buffer.position(buffer.position() + n);
+                }
+                buffer.flip();
+                int length;
+                while ((length = MqttCodec.frameLength(buffer)) >= 0 && buffer.remaining() >= length) {
+                    int end = buffer.position() + length;
+                    int type = MqttCodec.type(buffer.get(buffer.position()));
+                    MqttCodec.skipFixedHeader(buffer);
+                    onFrame(type, buffer);
+                    buffer.position(end);
+                }
+                if (length > buffer.capacity()) {
+                    throw new MqttProtocolException("Frame of " + length + " bytes from broker");
+                }
+                buffer.compact();
+            }
+        } catch (IOException e) {
+            if (!closed.isDone()) {
+                fail(e);
+            }
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void onFrame(int type, ByteBuffer body) {
+        switch (type) {
+            case MqttCodec.PUBACK:
+            case MqttCodec.PUBCOMP:
+                Message message = inFlight.getAndSet(body.getShort() & 0xFFFF, null);
+                if (message != null) {
+                    window.release();
+                    message.succeed();
+                }
+                break;
+            case MqttCodec.PUBREC:
+                Message received = inFlight.get(body.getShort() & 0xFFFF);
+                if (received != null && !received.released) {
+                    received.released = true;
+                    outbound.add(received);
+                }
+                break;
+            case MqttCodec.PINGRESP:
+                break;
+            default:
+                // 只发布不订阅，其余报文忽略
+                log.debug("{} ignored packet type {}", name, type);
+        }
+    }
+
+    /**
+     * Also fails the QoS 0 messages the writer had not flushed yet.
+     */
+    private void fail(Throwable cause, List<Message> written) {
+        fail(cause);
+        for (Message message : written) {
+            message.fail(cause);
+        }
+        written.clear();
+    }
+
+    private void fail(Throwable cause) {
+        boolean first = failure.compareAndSet(null, cause);
+        if (first) {
+            log.error("{} failed", name, cause);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Close socket error", e);
+            }
+        }
+        // 读线程失败时写线程可能正在登记在途消息，写线程随后写已关闭的 socket 失败，会再清理一遍
+        Throwable failed = failure.get();
+        for (int i = 1; i <= MqttCodec.MAX_PACKET_ID; i++) {
+            Message message = inFlight.getAndSet(i, null);
+            if (message != null) {
+                message.fail(failed);
+            }
+        }
+        drainOutbound();
+        if (first) {
+            // 唤醒等待窗口的调用方，它们会看到连接已失败
+            window.release(windowSize);
+            closed.complete(null);
+        }
+    }
+
+    private void drainOutbound() {
+        Message message;
+        while ((message = outbound.poll()) != null) {
+            if (message != CLOSE) {
+                failMessage(message);
+            }
+        }
+    }
+
+    private void failMessage(Message message) {
+        Throwable cause = failure.get();
+        message.fail(cause != null ? cause : new IOException(name + " closed"));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * A queued or in-flight PUBLISH, and the future the caller gets for it.
+     */
+    private static final class Message extends CompletableFuture<Void> {
+
+        private static final AtomicIntegerFieldUpdater<Message> SETTLED =
+            AtomicIntegerFieldUpdater.newUpdater(Message.class, "settled");
+
+        final String topic;
+        final ByteBuffer payload;
+        final int qos;
+        /**
+         * Where the caller's buffer goes back to, if anywhere.
+         */
+        final BufferPool pool;
+        final ByteBuffer pooled;
+        int packetId;
+        /**
+         * PUBREC received, the next write is the PUBREL.
+         */
+        volatile boolean released;
+        /**
+         * 1 once succeed or fail won: QoS 2 messages sit in both inFlight and outbound after the PUBREC, so the
+         * reader and the writer can both fail the same message.
+         */
+        volatile int settled;
+
+        Message(String topic, ByteBuffer payload, int qos, BufferPool pool, ByteBuffer pooled) {
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.pool = pool;
+            this.pooled = pooled;
+        }
+
+        /**
+         * The buffer is back in the pool before the caller's callbacks run.
+         */
+        void succeed() {
+            if (SETTLED.compareAndSet(this, 0, 1)) {
+                recycle();
+                complete(null);
+            }
+        }
+
+        void fail(Throwable cause) {
+            if (SETTLED.compareAndSet(this, 0, 1)) {
+                recycle();
+                completeExceptionally(cause);
+            }
+        }
+
+        private void recycle() {
+            if (pool != null) {
+                pool.release(pooled);
+            }
+        }
+    }
+}
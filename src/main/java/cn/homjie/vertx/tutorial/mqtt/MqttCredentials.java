@@ -0,0 +1,17 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import lombok.Value;
+
+/**
+ * What a CONNECT carries to authenticate: {@code clientId}, user name and password.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Value
+public class MqttCredentials {
+
+    private String clientId;
+    private String username;
+    private String password;
+}
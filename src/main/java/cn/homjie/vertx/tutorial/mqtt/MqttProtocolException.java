@@ -0,0 +1,30 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+
+/**
+ * The peer sent something MQTT does not allow, or refused the connection.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class MqttProtocolException extends IOException {
+
+    private final int returnCode;
+
+    public MqttProtocolException(String message) {
+        this(message, 0);
+    }
+
+    /**
+     * @param returnCode the CONNACK return code, 0 if not a refused connection
+     */
+    public MqttProtocolException(String message, int returnCode) {
+        super(message);
+        this.returnCode = returnCode;
+    }
+
+    public int getReturnCode() {
+        return returnCode;
+    }
+}
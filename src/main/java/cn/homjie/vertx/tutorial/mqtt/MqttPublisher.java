@@ -0,0 +1,305 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.SSLSocketFactory;
+
+import io.vertx.core.buffer.Buffer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes over a pool of MQTT connections without waiting for each message:
+ * <pre>
+ * MqttPublisher publisher = MqttPublisher.builder("tcp://localhost:1883")
+ *     .credentials(i -&gt; new MqttCredentials("gateway-" + i, "dn&amp;pk", sign(i)))
+ *     .connections(4)
+ *     .window(1024)
+ *     .build();
+ * publisher.start();
+ * publisher.publish("/lora/gwmp/uplink/pk/dn", payload, 1).thenRun(...);
+ * </pre>
+ * Each connection keeps up to {@code window} QoS 1/2 messages unacknowledged; the future of a message completes on
+ * its PUBACK (QoS 1), PUBCOMP (QoS 2) or once it is written (QoS 0). Messages queued while the socket is busy are
+ * encoded into one buffer and flushed together. A message goes to the live connection with the most free window,
+ * out of two picked at random; when every window is full, {@link #publish} blocks.
+ * <p>
+ * Binary payloads need not become a {@code byte[]}: {@link #publish(String, ByteBuffer, int, BufferPool)} writes a
+ * pooled buffer as it is and returns it to the pool when the message completes, and
+ * {@link #publish(String, Buffer, int)} writes the bytes of a Vert.x buffer where they are.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class MqttPublisher implements AutoCloseable {
+
+    private final Builder options;
+    private volatile MqttConnection[] connections = new MqttConnection[0];
+
+    private MqttPublisher(Builder options) {
+        this.options = options;
+    }
+
+    public static Builder builder(String serverUri) {
+        return new Builder(serverUri);
+    }
+
+    /**
+     * Connects the whole pool; if one connection fails, the others are closed again.
+     */
+    public void start() throws IOException {
+        List<MqttConnection> opened = new ArrayList<>(options.connections);
+        try {
+            for (int i = 0; i < options.connections; i++) {
+                opened.add(MqttConnection.connect(options, i));
+            }
+        } catch (IOException e) {
+            for (MqttConnection connection : opened) {
+                connection.close(0, TimeUnit.MILLISECONDS);
+            }
+            throw e;
+        }
+        connections = opened.toArray(new MqttConnection[0]);
+        log.info("Connected {} connections to {}:{}", opened.size(), options.host, options.port);
+    }
+
+    /**
+     * @param qos 0, 1 or 2
+     * @throws InterruptedException while waiting for a free slot in the in-flight windows
+     */
+    public CompletableFuture<Void> publish(String topic, byte[] payload, int qos) throws InterruptedException {
+        return publish(topic, ByteBuffer.wrap(payload), qos, null);
+    }
+
+    /**
+     * Publishes the bytes between position and limit of {@code payload} without copying them, so the buffer must
+     * not change until the future completes. Direct buffers are written to plain TCP sockets as they are.
+     */
+    public CompletableFuture<Void> publish(String topic, ByteBuffer payload, int qos) throws InterruptedException {
+        return publish(topic, payload, qos, null);
+    }
+
+    /**
+     * Publishes the readable bytes of {@code payload} through a view of its memory, so the buffer must not change
+     * until the future completes. Only a composite buffer is copied, to make it one.
+     */
+    public CompletableFuture<Void> publish(String topic, Buffer payload, int qos) throws InterruptedException {
+        return publish(topic, payload.getByteBuf().nioBuffer(), qos, null);
+    }
+
+    /**
+     * Like {@link #publish(String, ByteBuffer, int)}, then gives {@code payload} back to {@code pool} when the message
+     * is acknowledged (QoS 1/2), written (QoS 0) or failed. If this throws, the buffer still belongs to the caller.
+     */
+    public CompletableFuture<Void> publish(String topic, ByteBuffer payload, int qos, BufferPool pool)
+        throws InterruptedException {
+        if (qos < 0 || qos > 2) {
+            throw new IllegalArgumentException("qos: " + qos);
+        }
+        if (topic.length() > MqttCodec.MAX_STRING_LENGTH / 3) {
+            // 每个 char 至多 3 个字节，短主题不用数；写线程里再抛出会断开整个连接
+            MqttCodec.utf8Length(topic);
+        }
+        MqttConnection connection = pick();
+        if (connection == null) {
+            if (pool != null) {
+                pool.release(payload);
+            }
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new IOException("No live connection"));
+            return future;
+        }
+        if (qos > 0 && !connection.tryAcquire()) {
+            MqttConnection other = acquireAny(connection);
+            if (other != null) {
+                connection = other;
+            } else {
+                connection.acquire();
+            }
+        }
+        return connection.publish(topic, payload, qos, pool);
+    }
+
+    /**
+     * QoS 1/2 messages not yet acknowledged, over all connections.
+     */
+    public int inFlight() {
+        int inFlight = 0;
+        for (MqttConnection connection : connections) {
+            inFlight += connection.inFlight();
+        }
+        return inFlight;
+    }
+
+    public int liveConnections() {
+        int live = 0;
+        for (MqttConnection connection : connections) {
+            if (connection.isAlive()) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Waits for the in-flight messages of every connection, then disconnects.
+     */
+    @Override
+    public void close() {
+        List<CompletableFuture<Void>> closed = new ArrayList<>();
+        for (MqttConnection connection : connections) {
+            closed.add(connection.close(options.closeTimeoutMillis, TimeUnit.MILLISECONDS));
+        }
+        CompletableFuture.allOf(closed.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * Power of two choices: the live one of two random connections with more free window.
+     */
+    private MqttConnection pick() {
+        MqttConnection[] pool = connections;
+        int n = pool.length;
+        if (n == 0) {
+            throw new IllegalStateException("Publisher not started");
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        MqttConnection a = pool[random.nextInt(n)];
+        MqttConnection b = pool[random.nextInt(n)];
+        if (a.isAlive() && b.isAlive()) {
+            return a.availableWindow() >= b.availableWindow() ? a : b;
+        }
+        if (a.isAlive() || b.isAlive()) {
+            return a.isAlive() ? a : b;
+        }
+        for (MqttConnection connection : pool) {
+            if (connection.isAlive()) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    private MqttConnection acquireAny(MqttConnection skip) {
+        for (MqttConnection connection : connections) {
+            if (connection != skip && connection.isAlive() && connection.tryAcquire()) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    public static class Builder {
+
+        final String host;
+        final int port;
+        SocketFactory socketFactory;
+        IntFunction<MqttCredentials> credentials;
+        String threadName = "mqtt-publisher";
+        int connections = 1;
+        int window = 256;
+        int maxBatchBytes = 64 * 1024;
+        int keepAliveSeconds = 60;
+        int connectTimeoutMillis = 10_000;
+        long closeTimeoutMillis = 10_000;
+        boolean cleanSession = true;
+
+        /**
+         * @param serverUri {@code tcp://host:port} or {@code ssl://host:port}
+         */
+        private Builder(String serverUri) {
+            URI uri = URI.create(serverUri);
+            boolean ssl = "ssl".equals(uri.getScheme());
+            if (!ssl && !"tcp".equals(uri.getScheme())) {
+                throw new IllegalArgumentException("Unsupported scheme: " + serverUri);
+            }
+            this.host = uri.getHost();
+            this.port = uri.getPort() > 0 ? uri.getPort() : ssl ? 8883 : 1883;
+            // 明文连接默认走 SocketChannel，堆外负载可以直接写出
+            this.socketFactory = ssl ? SSLSocketFactory.getDefault() : null;
+        }
+
+        /**
+         * @param credentials by index of the connection, each needs its own {@code clientId}
+         */
+        public Builder credentials(IntFunction<MqttCredentials> credentials) {
+            this.credentials = credentials;
+            return this;
+        }
+
+        public Builder socketFactory(SocketFactory socketFactory) {
+            this.socketFactory = socketFactory;
+            return this;
+        }
+
+        public Builder threadName(String threadName) {
+            this.threadName = threadName;
+            return this;
+        }
+
+        public Builder connections(int connections) {
+            if (connections <= 0) {
+                throw new IllegalArgumentException("connections: " + connections);
+            }
+            this.connections = connections;
+            return this;
+        }
+
+        /**
+         * Unacknowledged QoS 1/2 messages per connection, at most 65535 as packet ids are 16 bits.
+         */
+        public Builder window(int window) {
+            if (window <= 0 || window > MqttCodec.MAX_PACKET_ID) {
+                throw new IllegalArgumentException("window: " + window);
+            }
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * Size of the buffer that queued messages are encoded into before one socket write.
+         */
+        public Builder maxBatchBytes(int maxBatchBytes) {
+            if (maxBatchBytes < 64) {
+                throw new IllegalArgumentException("maxBatchBytes: " + maxBatchBytes);
+            }
+            this.maxBatchBytes = maxBatchBytes;
+            return this;
+        }
+
+        public Builder keepAlive(int seconds) {
+            this.keepAliveSeconds = seconds;
+            return this;
+        }
+
+        public Builder connectTimeout(long time, TimeUnit unit) {
+            this.connectTimeoutMillis = (int)unit.toMillis(time);
+            return this;
+        }
+
+        public Builder closeTimeout(long time, TimeUnit unit) {
+            this.closeTimeoutMillis = unit.toMillis(time);
+            return this;
+        }
+
+        public Builder cleanSession(boolean cleanSession) {
+            this.cleanSession = cleanSession;
+            return this;
+        }
+
+        public MqttPublisher build() {
+            if (credentials == null) {
+                throw new IllegalStateException("credentials not set");
+            }
+            return new MqttPublisher(this);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * A self-signed X.509 v3 certificate {@code CN=name} over a key pair, DER encoded by hand: a PKCS12 keystore only
+ * holds a private key next to a certificate, and the JDK has no public API to make one. Signed with SHA-256 and the
+ * key's algorithm, RSA, EC or DSA.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+final class SelfSignedCertificate {
+
+    private static final byte[] NULL = {0x05, 0x00};
+    private static final String COMMON_NAME = "2.5.4.3";
+
+    private SelfSignedCertificate() {
+    }
+
+    /**
+     * @param random for the serial number
+     */
+    static X509Certificate create(String name, KeyPair keyPair, long validMillis, SecureRandom random)
+        throws GeneralSecurityException {
+        String keyAlgorithm = keyPair.getPrivate().getAlgorithm();
+        byte[] algorithm;
+        String signatureAlgorithm;
+        switch (keyAlgorithm) {
+            case "RSA":
+                signatureAlgorithm = "SHA256withRSA";
+                algorithm = sequence(oid("1.2.840.113549.1.1.11"), NULL);
+                break;
+            case "EC":
+                signatureAlgorithm = "SHA256withECDSA";
+                algorithm = sequence(oid("1.2.840.10045.4.3.2"));
+                break;
+            case "DSA":
+                signatureAlgorithm = "SHA256withDSA";
+                algorithm = sequence(oid("2.16.840.1.101.3.4.3.2"));
+                break;
+            default:
+                throw new IllegalArgumentException("No certificate signature for " + keyAlgorithm + " keys");
+        }
+        byte[] subject = sequence(tlv(0x31, sequence(oid(COMMON_NAME), tlv(0x0C, utf8(name)))));
+        long now = System.currentTimeMillis();
+        byte[] tbs = sequence(
+            tlv(0xA0, integer(BigInteger.valueOf(2))),
+            integer(BigInteger.valueOf(random.nextLong() & Long.MAX_VALUE | 1)),
+            algorithm,
+            subject,
+            sequence(time(now), time(now + validMillis)),
+            subject,
+            keyPair.getPublic().getEncoded());
+        Signature signature = Signature.getInstance(signatureAlgorithm);
+        signature.initSign(keyPair.getPrivate());
+        signature.update(tbs);
+        byte[] certificate = sequence(tbs, algorithm, bitString(signature.sign()));
+        return (X509Certificate)CertificateFactory.getInstance("X.509")
+            .generateCertificate(new ByteArrayInputStream(certificate));
+    }
+
+    static byte[] sequence(byte[]... elements) {
+        return tlv(0x30, elements);
+    }
+
+    static byte[] oid(String dotted) {
+        String[] arcs = dotted.split("\\.");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(Integer.parseInt(arcs[0]) * 40 + Integer.parseInt(arcs[1]));
+        for (int i = 2; i < arcs.length; i++) {
+            long arc = Long.parseLong(arcs[i]);
+            // base 128，除最后一个字节外最高位置 1
+            int shift = (63 - Long.numberOfLeadingZeros(arc | 1)) / 7 * 7;
+            for (; shift > 0; shift -= 7) {
+                out.write((int)(arc >>> shift) & 0x7F | 0x80);
+            }
+            out.write((int)arc & 0x7F);
+        }
+        return tlv(0x06, out.toByteArray());
+    }
+
+    static byte[] octetString(byte[] value) {
+        return tlv(0x04, value);
+    }
+
+    private static byte[] integer(BigInteger value) {
+        return tlv(0x02, value.toByteArray());
+    }
+
+    private static byte[] bitString(byte[] value) {
+        byte[] content = new byte[value.length + 1];
+        System.arraycopy(value, 0, content, 1, value.length);
+        return tlv(0x03, content);
+    }
+
+    /**
+     * UTCTime up to 2049, GeneralizedTime from 2050 on.
+     */
+    private static byte[] time(long millis) {
+        Date date = new Date(millis);
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String text = format.format(date);
+        if (text.compareTo("2050") < 0) {
+            return tlv(0x17, text.substring(2).getBytes(StandardCharsets.US_ASCII));
+        }
+        return tlv(0x18, text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] tlv(int tag, byte[]... contents) {
+        int length = 0;
+        for (byte[] content : contents) {
+            length += content.length;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length + 6);
+        out.write(tag);
+        if (length < 0x80) {
+            out.write(length);
+        } else {
+            int bytes = (39 - Integer.numberOfLeadingZeros(length)) / 8;
+            out.write(0x80 | bytes);
+            for (int i = bytes - 1; i >= 0; i--) {
+                out.write(length >>> (i * 8));
+            }
+        }
+        for (byte[] content : contents) {
+            out.write(content, 0, content.length);
+        }
+        return out.toByteArray();
+    }
+}
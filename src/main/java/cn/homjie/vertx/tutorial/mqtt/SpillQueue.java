@@ -0,0 +1,430 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The FIFO behind {@link UplinkForwarder}: records go to an off-heap ring of {@code capacity} bytes, and once more
+ * than {@code spillThreshold} bytes are queued, to segment files on disk until those are read back. Everything in the
+ * ring is therefore older than everything on disk, and reading the ring first keeps the order.
+ * <p>
+ * The segments are not forced, they hold what does not fit in memory rather than make it durable. A queue opened on a
+ * directory with segments left by a previous process reads them first, each segment up to the first record whose CRC
+ * does not match, a write torn by a crash; the rest of the segment is truncated.
+ * <p>
+ * Record layout, in the ring and on disk: {@code int payloadLength, int crc32, short topicLength, topic, payload},
+ * the CRC covering what follows it. The ring holds records as they are on disk, so {@link #close(List)} writes it out
+ * as is.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+final class SpillQueue implements Closeable {
+
+    private static final int HEADER = 10;
+    private static final String PREFIX = "spill-";
+    private static final String SUFFIX = ".log";
+
+    private final ByteBuffer ring;
+    private final int spillThreshold;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxRecordBytes;
+    /**
+     * Header and topic of one record, on their way in or out.
+     */
+    private final ByteBuffer scratch = ByteBuffer.allocate(HEADER + 0xFFFF);
+    private final CRC32 crc = new CRC32();
+    private long head;
+    private long tail;
+    private int ringRecords;
+
+    private final Deque<Long> segments = new ArrayDeque<>();
+    private long diskRecords;
+    private FileChannel writer;
+    private long writerSize;
+    private FileChannel reader;
+    private ByteBuffer writeBuffer;
+    private ByteBuffer readBuffer;
+
+    /**
+     * @param directory      null to never spill, records beyond {@code capacity} are refused
+     * @param maxRecordBytes the largest payload plus its topic, for the disk read buffer
+     */
+    SpillQueue(int capacity, int spillThreshold, Path directory, int segmentBytes, int maxRecordBytes)
+        throws IOException {
+        this.ring = ByteBuffer.allocateDirect(capacity);
+        this.spillThreshold = Math.min(spillThreshold, capacity);
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxRecordBytes = HEADER + maxRecordBytes;
+        if (directory != null) {
+            Files.createDirectories(directory);
+            recover();
+        }
+    }
+
+    /**
+     * Copies the record in.
+     *
+     * @return records queued after this one, or -1 if it did not fit
+     */
+    synchronized int offer(String topic, ByteBuffer payload) throws IOException {
+        int topicLength = MqttCodec.utf8Length(topic);
+        int length = HEADER + topicLength + payload.remaining();
+        if (length > maxRecordBytes) {
+            throw new IllegalArgumentException("Record of " + length + " bytes");
+        }
+        encode(topic, payload);
+        if (directory != null && (diskRecords > 0 || used() + length > spillThreshold)) {
+            append(scratch);
+            append(payload.duplicate());
+            writerSize += length;
+            diskRecords++;
+        } else if (used() + length <= ring.capacity()) {
+            copyIn(scratch);
+            copyIn(payload.duplicate());
+            ringRecords++;
+        } else {
+            return -1;
+        }
+        return size();
+    }
+
+    /**
+     * Moves the payload of the oldest record into {@code payload}, which must have room for it.
+     *
+     * @return its topic, or null if the queue is empty
+     */
+    synchronized String poll(ByteBuffer payload) throws IOException {
+        if (ringRecords > 0) {
+            scratch.clear().limit(HEADER);
+            copyOut(scratch);
+            int payloadLength = scratch.getInt(0);
+            scratch.limit(HEADER + (scratch.getShort(8) & 0xFFFF));
+            copyOut(scratch);
+            copyOut(payload, payloadLength);
+            ringRecords--;
+            return topic();
+        }
+        if (diskRecords > 0) {
+            fill(HEADER);
+            int payloadLength = readBuffer.getInt(readBuffer.position());
+            int topicLength = readBuffer.getShort(readBuffer.position() + 8) & 0xFFFF;
+            fill(HEADER + topicLength + payloadLength);
+            scratch.clear();
+            ByteBuffer record = readBuffer.duplicate();
+            record.limit(record.position() + HEADER + topicLength);
+            scratch.put(record);
+            record.limit(record.position() + payloadLength);
+            payload.put(record);
+            readBuffer.position(record.position());
+            if (--diskRecords == 0) {
+                // 磁盘读空，之后的记录回到内存
+                reset();
+            }
+            return topic();
+        }
+        return null;
+    }
+
+    synchronized int size() {
+        return (int)Math.min(Integer.MAX_VALUE, ringRecords + diskRecords);
+    }
+
+    synchronized long spilled() {
+        return diskRecords;
+    }
+
+    /**
+     * Writes out what is buffered for disk; the ring is lost.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closeFiles();
+    }
+
+    /**
+     * Writes {@code unsent}, taken off the queue but not delivered, then the ring and what is left of the segment
+     * being read, to a segment read before every other one, and closes.
+     *
+     * @return records that were in memory, written out
+     */
+    synchronized int close(List<Map.Entry<String, ByteBuffer>> unsent) throws IOException {
+        if (directory == null) {
+            throw new IllegalStateException("No spill directory");
+        }
+        int records = unsent.size() + ringRecords;
+        // 读了一半的段：已经取走的记录不再写出
+        boolean partlyRead = reader != null;
+        if (records == 0 && !partlyRead) {
+            closeFiles();
+            return 0;
+        }
+        if (writer != null) {
+            flushWriter();
+            writer.close();
+            writer = null;
+        }
+        long sequence = segments.isEmpty() ? 0 : segments.peekFirst() - 1;
+        try (FileChannel channel = FileChannel.open(segment(sequence), StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, ByteBuffer> message : unsent) {
+                ByteBuffer payload = message.getValue().duplicate();
+                encode(message.getKey(), payload);
+                write(channel, scratch);
+                write(channel, payload);
+            }
+            int index = (int)(head % ring.capacity());
+            int first = Math.min(used(), ring.capacity() - index);
+            ring.limit(index + first).position(index);
+            write(channel, ring);
+            ring.limit(used() - first).position(0);
+            write(channel, ring);
+            head = tail;
+            ringRecords = 0;
+            if (partlyRead) {
+                write(channel, readBuffer);
+                long position = reader.position();
+                long size = reader.size();
+                while (position < size) {
+                    position += reader.transferTo(position, size - position, channel);
+                }
+                reader.close();
+                reader = null;
+                Files.delete(segment(segments.pollFirst()));
+            }
+        }
+        segments.addFirst(sequence);
+        diskRecords += records;
+        return records;
+    }
+
+    private void closeFiles() throws IOException {
+        if (writer != null) {
+            flushWriter();
+            writer.close();
+            writer = null;
+        }
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+
+    private String topic() {
+        scratch.flip().position(8);
+        return MqttCodec.getString(scratch);
+    }
+
+    /**
+     * Leaves the header and topic of the record in {@code scratch}.
+     */
+    private void encode(String topic, ByteBuffer payload) {
+        scratch.clear();
+        scratch.putInt(payload.remaining()).putInt(0);
+        MqttCodec.putString(scratch, topic);
+        scratch.flip();
+        crc.reset();
+        crc.update((ByteBuffer)scratch.duplicate().position(8));
+        crc.update(payload.duplicate());
+        scratch.putInt(4, (int)crc.getValue());
+    }
+
+    private static void write(FileChannel channel, ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+
+    private int used() {
+        return (int)(tail - head);
+    }
+
+    private void copyIn(ByteBuffer src) {
+        while (src.hasRemaining()) {
+            int index = (int)(tail % ring.capacity());
+            int n = Math.min(src.remaining(), ring.capacity() - index);
+            ring.clear().position(index);
+            int limit = src.limit();
+            src.limit(src.position() + n);
+            ring.put(src);
+            src.limit(limit);
+            tail += n;
+        }
+    }
+
+    private void copyOut(ByteBuffer dst) {
+        copyOut(dst, dst.remaining());
+    }
+
+    private void copyOut(ByteBuffer dst, int length) {
+        while (length > 0) {
+            int index = (int)(head % ring.capacity());
+            int n = Math.min(length, ring.capacity() - index);
+            ring.limit(index + n).position(index);
+            dst.put(ring);
+            head += n;
+            length -= n;
+        }
+    }
+
+    private void append(ByteBuffer src) throws IOException {
+        if (writer == null || writerSize >= segmentBytes) {
+            rotate();
+        }
+        if (src.remaining() > writeBuffer.remaining()) {
+            flushWriter();
+        }
+        if (src.remaining() > writeBuffer.capacity()) {
+            while (src.hasRemaining()) {
+                writer.write(src);
+            }
+        } else {
+            writeBuffer.put(src);
+        }
+    }
+
+    private void flushWriter() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            writer.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    private void rotate() throws IOException {
+        if (writer != null) {
+            flushWriter();
+            writer.close();
+        } else if (writeBuffer == null) {
+            writeBuffer = ByteBuffer.allocateDirect(64 * 1024);
+            readBuffer = ByteBuffer.allocateDirect(Math.max(64 * 1024, maxRecordBytes));
+            readBuffer.limit(0);
+        }
+        long sequence = segments.isEmpty() ? 0 : segments.peekLast() + 1;
+        writer = FileChannel.open(segment(sequence), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        writerSize = 0;
+        segments.addLast(sequence);
+    }
+
+    /**
+     * Makes {@code length} bytes of the head segment readable; a record never spans segments.
+     */
+    private void fill(int length) throws IOException {
+        while (readBuffer.remaining() < length) {
+            if (reader == null) {
+                reader = FileChannel.open(segment(segments.peekFirst()), StandardOpenOption.READ);
+            }
+            if (segments.size() == 1 && writer != null) {
+                flushWriter();
+            }
+            readBuffer.compact();
+            int n = reader.read(readBuffer);
+            readBuffer.flip();
+            if (n < 0) {
+                if (readBuffer.hasRemaining() || segments.size() == 1) {
+                    throw new IOException("Truncated spill segment " + segment(segments.peekFirst()));
+                }
+                reader.close();
+                reader = null;
+                Files.delete(segment(segments.pollFirst()));
+            }
+        }
+    }
+
+    private void reset() throws IOException {
+        close();
+        for (Long sequence : segments) {
+            Files.deleteIfExists(segment(sequence));
+        }
+        segments.clear();
+        readBuffer.clear().limit(0);
+        writeBuffer.clear();
+    }
+
+    private Path segment(long sequence) {
+        return directory.resolve(String.format("%s%016d%s", PREFIX, sequence, SUFFIX));
+    }
+
+    /**
+     * Counts the records left by a previous process and truncates a torn tail.
+     */
+    private void recover() throws IOException {
+        List<Long> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                found.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+            }
+        }
+        Collections.sort(found);
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        ByteBuffer body = null;
+        CRC32 check = new CRC32();
+        for (Long sequence : found) {
+            try (FileChannel channel = FileChannel.open(segment(sequence), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                long position = 0;
+                long records = 0;
+                while (position + HEADER <= size) {
+                    header.clear();
+                    channel.read(header, position);
+                    int length = HEADER + (header.getShort(8) & 0xFFFF) + header.getInt(0);
+                    if (header.getInt(0) < 0 || length > maxRecordBytes || position + length > size) {
+                        break;
+                    }
+                    if (body == null) {
+                        body = ByteBuffer.allocate(maxRecordBytes);
+                    }
+                    body.clear().limit(length - 8);
+                    while (body.hasRemaining() && channel.read(body, position + 8 + body.position()) > 0) {
+                        // 读满为止
+                    }
+                    body.flip();
+                    check.reset();
+                    check.update(body);
+                    if ((int)check.getValue() != header.getInt(4)) {
+                        break;
+                    }
+                    position += length;
+                    records++;
+                }
+                if (position < size) {
+                    log.warn("Truncated {} at {} of {} bytes", segment(sequence), position, size);
+                    channel.truncate(position);
+                }
+                if (records == 0) {
+                    channel.close();
+                    Files.delete(segment(sequence));
+                } else {
+                    segments.addLast(sequence);
+                    diskRecords += records;
+                }
+            }
+        }
+        if (diskRecords > 0) {
+            log.info("Recovered {} spilled records in {} segments of {}", diskRecords, segments.size(), directory);
+            writeBuffer = ByteBuffer.allocateDirect(64 * 1024);
+            readBuffer = ByteBuffer.allocateDirect(Math.max(64 * 1024, maxRecordBytes));
+            readBuffer.limit(0);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+
+import cn.homjie.vertx.tutorial.juc.SimpleThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds an {@link SSLContext} once and shares it, so reconnects resume TLS sessions instead of running a full
+ * handshake:
+ * <pre>
+ * TlsContextProvider tls = TlsContextProvider.builder()
+ *     .trustCertificates(Paths.get("ca.crt"))
+ *     .watch(true)
+ *     .build();
+ * connOpts.setSocketFactory(tls.socketFactory());
+ * </pre>
+ * The client session cache lives in the context, keyed by host and port: a new context per connection, as
+ * {@code MqttPublishSample} used to create, never hits it. {@link #socketFactory()} always returns the same factory,
+ * which creates sockets from the current context; when the watched files change, a new context is built and swapped
+ * in, sockets already open keep the old one. Each file is read once per reload, and the bytes compared with the last
+ * load are the ones parsed. A file caught half written fails to parse and the current context stays until the next
+ * change.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class TlsContextProvider implements AutoCloseable {
+
+    private final Builder options;
+    private final SSLSocketFactory socketFactory = new ReloadingSocketFactory();
+    private final AtomicLong reloads = new AtomicLong();
+    private volatile Loaded current;
+    private WatchService watchService;
+
+    private TlsContextProvider(Builder options) {
+        this.options = options;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The current context; do not cache it, it is replaced when the certificates rotate.
+     */
+    public SSLContext context() {
+        return current.context;
+    }
+
+    /**
+     * A factory that stays valid across reloads, hand it to clients once.
+     */
+    public SSLSocketFactory socketFactory() {
+        return socketFactory;
+    }
+
+    /**
+     * Times a new context was swapped in after the first one.
+     */
+    public long reloads() {
+        return reloads.get();
+    }
+
+    /**
+     * Reads the files again and swaps the context if their content changed.
+     *
+     * @return whether a new context was swapped in
+     */
+    public synchronized boolean reload() throws GeneralSecurityException, IOException {
+        // 只读一次，摘要和解析用同一份内容
+        List<byte[]> contents = new ArrayList<>();
+        for (Path file : options.files()) {
+            contents.add(Files.readAllBytes(file));
+        }
+        byte[] digest = digest(contents);
+        if (current != null && Arrays.equals(digest, current.digest)) {
+            return false;
+        }
+        Loaded loaded = new Loaded(load(contents), digest);
+        boolean replaced = current != null;
+        current = loaded;
+        if (replaced) {
+            reloads.incrementAndGet();
+            log.info("Reloaded TLS context from {}", options.files());
+            if (options.onReload != null) {
+                options.onReload.accept(loaded.context);
+            }
+        }
+        return replaced;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watch() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new HashSet<>();
+        for (Path file : options.files()) {
+            Path directory = file.toAbsolutePath().getParent();
+            // 证书常以软链接替换整个目录内容（如 Kubernetes secret），因此监听目录下的全部变化
+            if (directories.add(directory)) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+        Thread thread = new SimpleThreadFactory("tls-watcher", true, Thread.NORM_PRIORITY).newThread(this::poll);
+        thread.start();
+    }
+
+    private void poll() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // 证书和私钥往往先后写入，稍等片刻再合并处理这一批事件
+                TimeUnit.MILLISECONDS.sleep(options.settleMillis);
+                key.pollEvents();
+                key.reset();
+                WatchKey more;
+                while ((more = watchService.poll()) != null) {
+                    more.pollEvents();
+                    more.reset();
+                }
+                try {
+                    reload();
+                } catch (GeneralSecurityException | IOException e) {
+                    log.warn("Keep the current TLS context, reload failed: {}", e.toString());
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            log.debug("TLS watcher closed");
+        } catch (InterruptedException e) {
+            log.info("TLS watcher interrupt");
+        }
+    }
+
+    private static byte[] digest(List<byte[]> contents) throws GeneralSecurityException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (byte[] content : contents) {
+            digest.update(content);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * @param contents of {@link Builder#files()}, the trusted certificates then the key store
+     */
+    private SSLContext load(List<byte[]> contents) throws GeneralSecurityException, IOException {
+        TrustManager[] trustManagers = null;
+        if (!options.trustCertificates.isEmpty()) {
+            KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            trustStore.load(null, null);
+            CertificateFactory factory = CertificateFactory.getInstance("X509");
+            int n = 0;
+            for (int i = 0; i < options.trustCertificates.size(); i++) {
+                try (InputStream in = new ByteArrayInputStream(contents.get(i))) {
+                    // 一个 PEM 文件可以包含整条证书链
+                    for (Certificate certificate : factory.generateCertificates(in)) {
+                        trustStore.setCertificateEntry("ca-certificate-" + n++, certificate);
+                    }
+                }
+            }
+            if (n == 0) {
+                throw new GeneralSecurityException("No certificate in " + options.trustCertificates);
+            }
+            TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            tmf.init(trustStore);
+            trustManagers = tmf.getTrustManagers();
+        }
+        KeyManager[] keyManagers = null;
+        if (options.keyStore != null) {
+            KeyStore keyStore = KeyStore.getInstance(options.keyStoreType);
+            try (InputStream in = new ByteArrayInputStream(contents.get(contents.size() - 1))) {
+                keyStore.load(in, options.keyStorePassword);
+            }
+            KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            kmf.init(keyStore, options.keyStorePassword);
+            keyManagers = kmf.getKeyManagers();
+        }
+        SSLContext context = SSLContext.getInstance(options.protocol);
+        context.init(keyManagers, trustManagers, null);
+        context.getClientSessionContext().setSessionCacheSize(options.sessionCacheSize);
+        context.getClientSessionContext().setSessionTimeout(options.sessionTimeoutSeconds);
+        return context;
+    }
+
+    private static class Loaded {
+
+        final SSLContext context;
+        final SSLSocketFactory factory;
+        final byte[] digest;
+
+        Loaded(SSLContext context, byte[] digest) {
+            this.context = context;
+            this.factory = context.getSocketFactory();
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * Delegates every call to the factory of the context current at that moment.
+     */
+    private class ReloadingSocketFactory extends SSLSocketFactory {
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return current.factory.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return current.factory.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return current.factory.createSocket();
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            return current.factory.createSocket(s, host, port, autoClose);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return current.factory.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return current.factory.createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return current.factory.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+            return current.factory.createSocket(address, port, localAddress, localPort);
+        }
+    }
+
+    public static class Builder {
+
+        private final List<Path> trustCertificates = new ArrayList<>();
+        private Path keyStore;
+        private String keyStoreType = "PKCS12";
+        private char[] keyStorePassword;
+        private String protocol = "TLS";
+        private int sessionCacheSize = 1024;
+        private int sessionTimeoutSeconds = (int)TimeUnit.HOURS.toSeconds(24);
+        private boolean watch;
+        private long settleMillis = 100;
+        private Consumer<SSLContext> onReload;
+
+        private Builder() {
+        }
+
+        /**
+         * X.509 certificates in PEM or DER to trust, instead of the JDK's {@code cacerts}.
+         */
+        public Builder trustCertificates(Path... files) {
+            trustCertificates.addAll(Arrays.asList(files));
+            return this;
+        }
+
+        /**
+         * The client key and certificate, for brokers that require mutual TLS.
+         */
+        public Builder keyStore(Path file, String type, char[] password) {
+            this.keyStore = file;
+            this.keyStoreType = type;
+            this.keyStorePassword = password;
+            return this;
+        }
+
+        /**
+         * @param protocol for {@link SSLContext#getInstance(String)}, e.g. {@code TLS} or {@code TLSv1.2}
+         */
+        public Builder protocol(String protocol) {
+            this.protocol = protocol;
+            return this;
+        }
+
+        /**
+         * @param size 0 for no limit
+         */
+        public Builder sessionCacheSize(int size) {
+            this.sessionCacheSize = size;
+            return this;
+        }
+
+        public Builder sessionTimeout(long timeout, TimeUnit unit) {
+            this.sessionTimeoutSeconds = (int)unit.toSeconds(timeout);
+            return this;
+        }
+
+        /**
+         * Watches the directories of the files and reloads when they change.
+         */
+        public Builder watch(boolean watch) {
+            this.watch = watch;
+            return this;
+        }
+
+        /**
+         * How long to wait after a change for the other files of the same rotation.
+         */
+        public Builder settle(long timeout, TimeUnit unit) {
+            this.settleMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder onReload(Consumer<SSLContext> onReload) {
+            this.onReload = onReload;
+            return this;
+        }
+
+        /**
+         * Loads the first context, failing fast on bad files.
+         */
+        public TlsContextProvider build() throws GeneralSecurityException, IOException {
+            TlsContextProvider provider = new TlsContextProvider(this);
+            provider.reload();
+            if (watch) {
+                provider.watch();
+            }
+            return provider;
+        }
+
+        private List<Path> files() {
+            List<Path> files = new ArrayList<>(trustCertificates);
+            if (keyStore != null) {
+                files.add(keyStore);
+            }
+            return files;
+        }
+    }
+}
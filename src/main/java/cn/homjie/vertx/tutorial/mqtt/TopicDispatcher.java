@@ -0,0 +1,337 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import cn.homjie.vertx.tutorial.juc.RejectPolicy;
+import cn.homjie.vertx.tutorial.juc.ThreadPoolBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+/**
+ * Routes inbound messages to handlers by topic filter, the subscribe side of a client:
+ * <pre>
+ * TopicDispatcher dispatcher = TopicDispatcher.create("downlink", 4);
+ * dispatcher.subscribe("/lora/gwmp/downlink/+/+", (topic, payload) -&gt; send(topic, payload));
+ * client.setCallback(dispatcher.callback());
+ * client.subscribe("/lora/gwmp/downlink/#");
+ * </pre>
+ * {@link #dispatch} finds the subscriptions in a {@link TopicTrie} and only queues the message to each, so the
+ * thread that reads the socket never runs a handler. The handlers run on the executor; one subscription handles its
+ * messages one at a time, in the order they were dispatched, while different subscriptions run in parallel.
+ * <p>
+ * {@link #close} stops the dispatching first, messages dispatched afterwards are dropped and counted as rejected, then
+ * waits for those already queued.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class TopicDispatcher implements AutoCloseable {
+
+    private final TopicTrie<Subscription> trie = new TopicTrie<>();
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder unmatched = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    /**
+     * Messages queued to a subscription and not handled yet.
+     */
+    private final AtomicLong queued = new AtomicLong();
+    /**
+     * Notified by the handler that empties {@code queued} once closed.
+     */
+    private final Object drained = new Object();
+    private volatile boolean closed;
+
+    /**
+     * @param executor runs the handlers, left open by {@link #close}
+     */
+    public TopicDispatcher(Executor executor) {
+        this(executor, false);
+    }
+
+    private TopicDispatcher(Executor executor, boolean ownsExecutor) {
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * With its own pool of {@code threads} daemon threads named {@code threadName-n}. A full queue makes the
+     * dispatching thread run the handlers itself, which slows down the reads rather than dropping messages.
+     */
+    public static TopicDispatcher create(String threadName, int threads) {
+        ExecutorService executor = ThreadPoolBuilder.newBuilder(threadName)
+            .fixed(threads)
+            .rejectPolicy(RejectPolicy.CALLER_RUNS)
+            .daemon(true)
+            .build();
+        return new TopicDispatcher(executor, true);
+    }
+
+    /**
+     * @param filter may contain {@code +} and {@code #}
+     * @return unsubscribes when closed
+     */
+    public Subscription subscribe(String filter, MessageHandler handler) {
+        Subscription subscription = new Subscription(filter, handler);
+        trie.add(filter, subscription);
+        return subscription;
+    }
+
+    public int subscriptions() {
+        return trie.size();
+    }
+
+    /**
+     * @return the number of subscriptions the message was queued to
+     */
+    public int dispatch(String topic, byte[] payload) {
+        if (closed) {
+            rejected.increment();
+            return 0;
+        }
+        Matches matches = MATCHES.get();
+        if (matches.topic != null) {
+            // 调用方执行的 handler 里再次 dispatch
+            matches = new Matches();
+        }
+        matches.topic = topic;
+        matches.payload = payload;
+        matches.count = 0;
+        try {
+            trie.match(topic, matches);
+        } finally {
+            matches.topic = null;
+            matches.payload = null;
+        }
+        if (matches.count == 0) {
+            if (closed) {
+                rejected.increment();
+            } else {
+                unmatched.increment();
+            }
+        } else {
+            dispatched.increment();
+        }
+        return matches.count;
+    }
+
+    /**
+     * For {@code MqttClient.setCallback}, hands every arriving message to {@link #dispatch}.
+     */
+    public MqttCallback callback() {
+        return new MqttCallback() {
+            @Override
+            public void connectionLost(Throwable cause) {
+                log.error("Connection lost", cause);
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) {
+                dispatch(topic, message.getPayload());
+            }
+
+            @Override
+            public void deliveryComplete(IMqttDeliveryToken token) {
+            }
+        };
+    }
+
+    /**
+     * Messages that matched at least one subscription.
+     */
+    public long dispatched() {
+        return dispatched.sum();
+    }
+
+    public long unmatched() {
+        return unmatched.sum();
+    }
+
+    /**
+     * Handler invocations that threw.
+     */
+    public long failed() {
+        return failed.sum();
+    }
+
+    /**
+     * Messages dispatched after {@link #close}, dropped.
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Rejects new messages, waits up to 10s for the queued ones to be handled, then shuts down the executor if
+     * {@link #create} made it.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        // 先等队列清空再关闭：关闭后 CALLER_RUNS 会静默丢弃重新提交的 drain
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        synchronized (drained) {
+            long remaining;
+            while (queued.get() > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(drained, remaining);
+            }
+        }
+        if (queued.get() > 0) {
+            log.warn("Closing with {} messages still queued", queued.get());
+        }
+        if (ownsExecutor) {
+            ExecutorService service = (ExecutorService)executor;
+            service.shutdown();
+            if (!service.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Dispatcher executor still running after 10s");
+            }
+        }
+    }
+
+    private void handled() {
+        if (queued.decrementAndGet() == 0 && closed) {
+            synchronized (drained) {
+                drained.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Reused per dispatching thread, so that matching itself allocates nothing.
+     */
+    private static final ThreadLocal<Matches> MATCHES = ThreadLocal.withInitial(Matches::new);
+
+    private static final class Matches implements Consumer<Subscription> {
+
+        String topic;
+        byte[] payload;
+        int count;
+
+        @Override
+        public void accept(Subscription subscription) {
+            if (subscription.offer(topic, payload)) {
+                count++;
+            }
+        }
+    }
+
+    private static final class Delivery {
+
+        final String topic;
+        final byte[] payload;
+
+        Delivery(String topic, byte[] payload) {
+            this.topic = topic;
+            this.payload = payload;
+        }
+    }
+
+    @FunctionalInterface
+    public interface MessageHandler {
+
+        void onMessage(String topic, byte[] payload) throws Exception;
+    }
+
+    /**
+     * A handler under one filter, and its own queue so that it handles one message at a time.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final String filter;
+        private final MessageHandler handler;
+        private final Queue<Delivery> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Runnable drain = this::drain;
+        private volatile boolean closed;
+
+        private Subscription(String filter, MessageHandler handler) {
+            this.filter = filter;
+            this.handler = handler;
+        }
+
+        public String filter() {
+            return filter;
+        }
+
+        /**
+         * Stops new messages, those queued are still handled.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                trie.remove(filter, this);
+            }
+        }
+
+        boolean offer(String topic, byte[] payload) {
+            if (closed) {
+                return false;
+            }
+            queued.incrementAndGet();
+            // 先计数再检查：close 要么看到这条消息并等待，要么这里看到已关闭
+            if (TopicDispatcher.this.closed) {
+                handled();
+                return false;
+            }
+            queue.add(new Delivery(topic, payload));
+            schedule();
+            return true;
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    log.error("Subscription {} rejected by the executor, {} messages queued", filter, queue.size());
+                }
+            }
+        }
+
+        /**
+         * Handles a bounded batch, then yields the thread to the other subscriptions.
+         */
+        private void drain() {
+            for (int i = 0; i < 64; i++) {
+                Delivery delivery = queue.poll();
+                if (delivery == null) {
+                    break;
+                }
+                try {
+                    handler.onMessage(delivery.topic, delivery.payload);
+                } catch (Exception e) {
+                    failed.increment();
+                    log.error("Handler of {} failed on {}", filter, delivery.topic, e);
+                } finally {
+                    handled();
+                }
+            }
+            scheduled.set(false);
+            // 释放标记后再检查一次，避免与 offer 竞争时消息滞留
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return filter;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * MQTT topic filters with {@code +} and {@code #} in a trie of topic levels, so matching a topic costs one lookup per
+ * level and wildcard branch instead of one comparison per filter:
+ * <pre>
+ * TopicTrie&lt;Handler&gt; trie = new TopicTrie&lt;&gt;();
+ * trie.add("/lora/gwmp/downlink/+/dn", handler);
+ * trie.match("/lora/gwmp/downlink/pk/dn", h -&gt; h.handle(...));
+ * </pre>
+ * {@link #match} allocates nothing: children are found by hashing the level in place and comparing it with
+ * {@link String#regionMatches}, no substring is cut. Writers are serialized and copy on write the child tables and
+ * value arrays they change, readers go lock-free over whatever version they see. The levels of the filters are
+ * interned, 10k filters below {@code /lora/gwmp/downlink/{pk}} keep one copy of each level, and a level is dropped
+ * with the last node that uses it.
+ * <p>
+ * As the specification asks, {@code #} also matches its parent level ({@code a/#} matches {@code a}), and
+ * wildcards in the first level do not match topics that start with {@code $}. A value added under several filters
+ * that match the same topic is passed once per filter.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class TopicTrie<V> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Node root = new Node(null, 0);
+    /**
+     * guarded by this
+     */
+    private final Map<String, Segment> segments = new HashMap<>();
+    private int size;
+
+    /**
+     * @throws IllegalArgumentException if the filter is not valid, a wildcard must take a whole level and {@code #}
+     *                                  the last
+     */
+    public synchronized void add(String filter, V value) {
+        validate(filter);
+        Node node = root;
+        int start = 0;
+        while (start <= filter.length()) {
+            int end = end(filter, start);
+            node = node.getOrCreate(filter, start, end, segments);
+            start = end + 1;
+        }
+        node.values = append(node.values, value);
+        size++;
+    }
+
+    /**
+     * @return false if the value was not added under this filter
+     */
+    public synchronized boolean remove(String filter, V value) {
+        validate(filter);
+        return remove(root, filter, 0, value);
+    }
+
+    /**
+     * (filter, value) pairs added and not removed.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Distinct levels interned.
+     */
+    synchronized int segments() {
+        return segments.size();
+    }
+
+    /**
+     * Passes {@code action} every value whose filter matches {@code topic}.
+     */
+    @SuppressWarnings("unchecked")
+    public void match(String topic, Consumer<? super V> action) {
+        match(root, topic, 0, !topic.isEmpty() && topic.charAt(0) == '$', (Consumer<Object>)action);
+    }
+
+    /**
+     * @param start where the next level of {@code topic} begins, past its end once every level is consumed
+     */
+    private static void match(Node node, String topic, int start, boolean system, Consumer<Object> action) {
+        Node multi = node.multi;
+        if (multi != null && !system) {
+            emit(multi.values, action);
+        }
+        if (start > topic.length()) {
+            emit(node.values, action);
+            return;
+        }
+        int end = end(topic, start);
+        Node child = node.child(topic, start, end, hash(topic, start, end));
+        if (child != null) {
+            match(child, topic, end + 1, false, action);
+        }
+        Node plus = node.plus;
+        if (plus != null && !system) {
+            match(plus, topic, end + 1, false, action);
+        }
+    }
+
+    private static void emit(Object[] values, Consumer<Object> action) {
+        for (Object value : values) {
+            action.accept(value);
+        }
+    }
+
+    private boolean remove(Node node, String filter, int start, V value) {
+        if (start > filter.length()) {
+            int index = indexOf(node.values, value);
+            if (index < 0) {
+                return false;
+            }
+            node.values = removeAt(node.values, index);
+            size--;
+            return true;
+        }
+        int end = end(filter, start);
+        Node child = node.find(filter, start, end);
+        if (child == null || !remove(child, filter, end + 1, value)) {
+            return false;
+        }
+        if (child.isEmpty()) {
+            // 剪掉空分支，避免取消订阅后留下越来越多的空节点
+            node.unlink(child);
+            Segment segment = segments.get(child.segment);
+            if (--segment.nodes == 0) {
+                segments.remove(child.segment);
+            }
+        }
+        return true;
+    }
+
+    private static void validate(String filter) {
+        if (filter.isEmpty()) {
+            throw new IllegalArgumentException("Empty topic filter");
+        }
+        for (int i = 0; i < filter.length(); i++) {
+            char c = filter.charAt(i);
+            if (c != '+' && c != '#') {
+                continue;
+            }
+            boolean whole = (i == 0 || filter.charAt(i - 1) == '/')
+                && (i == filter.length() - 1 || filter.charAt(i + 1) == '/');
+            if (!whole || c == '#' && i != filter.length() - 1) {
+                throw new IllegalArgumentException("Invalid topic filter: " + filter);
+            }
+        }
+    }
+
+    private static int end(String topic, int start) {
+        int end = topic.indexOf('/', start);
+        return end < 0 ? topic.length() : end;
+    }
+
+    /**
+     * Same as {@link String#hashCode} of the level, which a level string caches.
+     */
+    private static int hash(String topic, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + topic.charAt(i);
+        }
+        return h;
+    }
+
+    private static Object[] append(Object[] values, Object value) {
+        Object[] copy = Arrays.copyOf(values, values.length + 1);
+        copy[values.length] = value;
+        return copy;
+    }
+
+    private static int indexOf(Object[] values, Object value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Object[] removeAt(Object[] values, int index) {
+        if (values.length == 1) {
+            return EMPTY;
+        }
+        Object[] copy = new Object[values.length - 1];
+        System.arraycopy(values, 0, copy, 0, index);
+        System.arraycopy(values, index + 1, copy, index, copy.length - index);
+        return copy;
+    }
+
+    /**
+     * An interned level and the nodes that use it.
+     */
+    private static final class Segment {
+
+        final String value;
+        int nodes;
+
+        Segment(String value) {
+            this.value = value;
+        }
+    }
+
+    private static final class Node {
+
+        final String segment;
+        final int hash;
+        /**
+         * Open addressing by {@link #hash}, at most half full; replaced as a whole on every change.
+         */
+        volatile Node[] children;
+        volatile Node plus;
+        volatile Node multi;
+        volatile Object[] values = EMPTY;
+
+        Node(String segment, int hash) {
+            this.segment = segment;
+            this.hash = hash;
+        }
+
+        Node child(String topic, int start, int end, int hash) {
+            Node[] table = children;
+            if (table == null) {
+                return null;
+            }
+            int length = end - start;
+            int mask = table.length - 1;
+            for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+                Node node = table[i];
+                if (node == null) {
+                    return null;
+                }
+                if (node.hash == hash && node.segment.length() == length
+                    && topic.regionMatches(start, node.segment, 0, length)) {
+                    return node;
+                }
+            }
+        }
+
+        /**
+         * A child for a level of a filter, the wildcard ones included.
+         */
+        Node find(String filter, int start, int end) {
+            if (end - start == 1 && filter.charAt(start) == '+') {
+                return plus;
+            }
+            if (end - start == 1 && filter.charAt(start) == '#') {
+                return multi;
+            }
+            return child(filter, start, end, hash(filter, start, end));
+        }
+
+        Node getOrCreate(String filter, int start, int end, Map<String, Segment> segments) {
+            Node node = find(filter, start, end);
+            if (node != null) {
+                return node;
+            }
+            Segment interned = segments.computeIfAbsent(filter.substring(start, end), Segment::new);
+            interned.nodes++;
+            String segment = interned.value;
+            node = new Node(segment, segment.hashCode());
+            if ("+".equals(segment)) {
+                plus = node;
+            } else if ("#".equals(segment)) {
+                multi = node;
+            } else {
+                Node[] table = children;
+                int count = table == null ? 0 : count(table);
+                Node[] copy = new Node[Math.max(4, Integer.highestOneBit(Math.max(1, count + 1) * 4 - 1))];
+                if (table != null) {
+                    for (Node child : table) {
+                        if (child != null) {
+                            put(copy, child);
+                        }
+                    }
+                }
+                put(copy, node);
+                children = copy;
+            }
+            return node;
+        }
+
+        void unlink(Node child) {
+            if (child == plus) {
+                plus = null;
+            } else if (child == multi) {
+                multi = null;
+            } else {
+                Node[] table = children;
+                int count = count(table) - 1;
+                if (count == 0) {
+                    children = null;
+                    return;
+                }
+                Node[] copy = new Node[Math.max(4, Integer.highestOneBit(count * 4 - 1))];
+                for (Node node : table) {
+                    if (node != null && node != child) {
+                        put(copy, node);
+                    }
+                }
+                children = copy;
+            }
+        }
+
+        boolean isEmpty() {
+            return values.length == 0 && children == null && plus == null && multi == null;
+        }
+
+        private static int count(Node[] table) {
+            int count = 0;
+            for (Node node : table) {
+                if (node != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private static void put(Node[] table, Node node) {
+            int mask = table.length - 1;
+            int i = spread(node.hash) & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = node;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
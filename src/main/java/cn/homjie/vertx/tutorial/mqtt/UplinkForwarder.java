@@ -0,0 +1,587 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import cn.homjie.vertx.tutorial.juc.SimpleThreadFactory;
+import cn.homjie.vertx.tutorial.juc.TokenBucket;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Store and forward in front of a {@link MqttPublisher}, for gateways that must not lose uplinks while the broker is
+ * unreachable:
+ * <pre>
+ * UplinkForwarder forwarder = UplinkForwarder.builder(MqttPublisher.builder("tcp://localhost:1883")
+ *         .credentials(i -&gt; credentials))
+ *     .spillDirectory(Paths.get("uplink-spill"))
+ *     .rate(200, 50)
+ *     .build();
+ * forwarder.start();
+ * forwarder.offer("/lora/gwmp/uplink/pk/dn", frame);
+ * </pre>
+ * {@link #offer} only copies the message into an off-heap ring and returns; past {@code spillThreshold} bytes the
+ * messages go to segment files instead. One thread drains them in order, through a token bucket per product key: a
+ * throttled product key waits aside, off-heap as well, while the others pass, so each device keeps its order. A
+ * message leaves the queue when the broker acknowledges it.
+ * <p>
+ * When the connection drops, the forwarder keeps buffering, reconnects with exponential backoff, and sends again the
+ * messages that were not acknowledged before anything newer. With the default single connection the broker receives
+ * the messages in the order of {@link #offer}; one whose ack was lost is received twice.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class UplinkForwarder implements AutoCloseable {
+
+    private static final int SENDING = 0;
+    private static final int ACKED = 1;
+    private static final int FAILED = 2;
+
+    private final Builder options;
+    private final SpillQueue queue;
+    private final BufferPool buffers;
+    private final Map<String, TokenBucket> buckets = new HashMap<>();
+    /**
+     * Only touched by the drainer: sent and not completed in order of sending, failed ones to send again first, and
+     * throttled ones by product key.
+     */
+    private final ArrayDeque<Outgoing> pending = new ArrayDeque<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final ArrayDeque<Outgoing> retry = new ArrayDeque<>();
+    private final Map<String, ArrayDeque<Outgoing>> deferred = new LinkedHashMap<>();
+    private int deferredCount;
+    private MqttPublisher publisher;
+    private long backoffMillis;
+
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile long reconnects;
+    private volatile boolean connected;
+    private volatile boolean closing;
+    private volatile long closeDeadline;
+    private Thread drainer;
+
+    private UplinkForwarder(Builder options) throws IOException {
+        this.options = options;
+        int maxRecord = 2 + 0xFFFF + options.maxPayloadBytes;
+        this.queue = new SpillQueue(options.capacity, options.spillThreshold, options.spillDirectory,
+            options.segmentBytes, maxRecord);
+        this.buffers = new BufferPool(options.maxPayloadBytes, options.maxInFlight + options.maxDeferred, true);
+    }
+
+    /**
+     * @param publisher built again on every reconnect
+     */
+    public static Builder builder(MqttPublisher.Builder publisher) {
+        return new Builder(publisher);
+    }
+
+    /**
+     * Starts draining, the broker need not be reachable yet.
+     */
+    public UplinkForwarder start() {
+        drainer = new SimpleThreadFactory(options.threadName, true, Thread.NORM_PRIORITY).newThread(this::drainLoop);
+        drainer.start();
+        return this;
+    }
+
+    public boolean offer(String topic, byte[] payload) throws IOException {
+        return offer(topic, ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Copies the bytes between position and limit of {@code payload}.
+     *
+     * @return false if the ring is full and there is no spill directory, the message is dropped
+     */
+    public boolean offer(String topic, ByteBuffer payload) throws IOException {
+        if (closing) {
+            throw new IllegalStateException("Forwarder closed");
+        }
+        if (payload.remaining() > options.maxPayloadBytes) {
+            throw new IllegalArgumentException("Payload of " + payload.remaining() + " bytes");
+        }
+        int size = queue.offer(topic, payload);
+        if (size < 0) {
+            rejected.increment();
+            return false;
+        }
+        if (size == 1) {
+            // 队列从空变为非空时才需要唤醒
+            LockSupport.unpark(drainer);
+        }
+        return true;
+    }
+
+    /**
+     * Messages waiting in memory or on disk, not counting those sent or set aside by the rate limit.
+     */
+    public int buffered() {
+        return queue.size();
+    }
+
+    public long spilled() {
+        return queue.spilled();
+    }
+
+    /**
+     * Messages acknowledged by the broker.
+     */
+    public long forwarded() {
+        return forwarded.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long reconnects() {
+        return reconnects;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Waits up to {@code closeTimeout} for everything buffered to be forwarded. With a spill directory what is left,
+     * in memory as well, is written there for the next forwarder over the same directory, ahead of what was already
+     * spilled; without one what is still in memory is lost.
+     */
+    @Override
+    public void close() throws IOException {
+        closeDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.closeTimeoutMillis);
+        closing = true;
+        if (drainer != null) {
+            LockSupport.unpark(drainer);
+            try {
+                drainer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else if (options.spillDirectory != null) {
+            queue.close(Collections.emptyList());
+        }
+        queue.close();
+    }
+
+    private void drainLoop() {
+        while (true) {
+            try {
+                if (closing && (idle() || System.nanoTime() - closeDeadline >= 0)) {
+                    break;
+                }
+                if (publisher == null && !connect()) {
+                    continue;
+                }
+                if (reap()) {
+                    disconnect();
+                    continue;
+                }
+                if (pending.size() >= options.maxInFlight) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                    continue;
+                }
+                long now = System.nanoTime();
+                Outgoing next = retry.pollFirst();
+                if (next == null) {
+                    next = nextDeferred(now);
+                }
+                if (next == null) {
+                    next = nextFromQueue(now);
+                }
+                if (next != null) {
+                    send(next);
+                } else {
+                    // 没有可发的消息：等新消息、ack 或令牌
+                    long waitNanos = nanosToToken(now);
+                    LockSupport.parkNanos(this, waitNanos > 0 ? waitNanos : TimeUnit.MILLISECONDS.toNanos(100));
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException | RuntimeException e) {
+                log.error("{} drain error", options.threadName, e);
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+            }
+        }
+        if (publisher != null) {
+            publisher.close();
+            publisher = null;
+        }
+        connected = false;
+        if (options.spillDirectory != null) {
+            try {
+                int saved = queue.close(unsent());
+                if (saved > 0) {
+                    log.info("{} closed, {} messages in memory spilled", options.threadName, saved);
+                }
+            } catch (IOException e) {
+                log.error("{} closed, messages in memory lost", options.threadName, e);
+            }
+            return;
+        }
+        int lost = pending.size() + retry.size() + deferredCount + queue.size() - (int)queue.spilled();
+        if (lost > 0) {
+            log.warn("{} closed with {} messages in memory", options.threadName, lost);
+        }
+    }
+
+    /**
+     * Messages taken off the queue and not acknowledged, oldest first: those to send again, those sent, those set
+     * aside.
+     */
+    private List<Map.Entry<String, ByteBuffer>> unsent() {
+        List<Map.Entry<String, ByteBuffer>> unsent = new ArrayList<>();
+        for (Outgoing outgoing : retry) {
+            unsent.add(new AbstractMap.SimpleImmutableEntry<>(outgoing.topic, outgoing.payload));
+        }
+        for (Outgoing outgoing : pending) {
+            // 发出未确认的也写出，宁可重复
+            if (outgoing.state != ACKED) {
+                unsent.add(new AbstractMap.SimpleImmutableEntry<>(outgoing.topic, outgoing.payload));
+            }
+        }
+        for (ArrayDeque<Outgoing> waiting : deferred.values()) {
+            for (Outgoing outgoing : waiting) {
+                unsent.add(new AbstractMap.SimpleImmutableEntry<>(outgoing.topic, outgoing.payload));
+            }
+        }
+        return unsent;
+    }
+
+    private boolean idle() {
+        return queue.size() == 0 && pending.isEmpty() && retry.isEmpty() && deferredCount == 0;
+    }
+
+    private boolean connect() {
+        MqttPublisher candidate = options.publisher.build();
+        try {
+            candidate.start();
+            publisher = candidate;
+            connected = true;
+            backoffMillis = 0;
+            return true;
+        } catch (IOException e) {
+            backoffMillis = backoffMillis == 0
+                ? options.minBackoffMillis : Math.min(backoffMillis * 2, options.maxBackoffMillis);
+            log.warn("{} connect failed, retry in {}ms: {}", options.threadName, backoffMillis, e.toString());
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoffMillis));
+            return false;
+        }
+    }
+
+    /**
+     * Releases the acknowledged head of {@code pending}.
+     *
+     * @return true once the connection is to be replaced: a message failed and every other one sent is completed, or
+     * the publisher has no live connection left
+     */
+    private boolean reap() {
+        Outgoing first;
+        while ((first = pending.peekFirst()) != null && first.state == ACKED) {
+            pending.pollFirst();
+            buffers.release(first.payload);
+            forwarded.increment();
+        }
+        if (failures.get() == 0) {
+            return pending.isEmpty() && publisher.liveConnections() == 0;
+        }
+        for (Outgoing outgoing : pending) {
+            if (outgoing.state == SENDING) {
+                // 连接断开时在途消息很快全部失败，等它们都有结果
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Requeues the failed messages, in the order they were sent, ahead of everything else.
+     */
+    private void disconnect() {
+        connected = false;
+        reconnects++;
+        Iterator<Outgoing> descending = pending.descendingIterator();
+        while (descending.hasNext()) {
+            Outgoing outgoing = descending.next();
+            if (outgoing.state == FAILED) {
+                retry.addFirst(outgoing);
+            } else {
+                buffers.release(outgoing.payload);
+                forwarded.increment();
+            }
+        }
+        log.warn("{} lost the broker, {} messages to send again", options.threadName, retry.size());
+        pending.clear();
+        failures.set(0);
+        publisher.close();
+        publisher = null;
+    }
+
+    private Outgoing nextDeferred(long now) {
+        Iterator<ArrayDeque<Outgoing>> queues = deferred.values().iterator();
+        while (queues.hasNext()) {
+            ArrayDeque<Outgoing> queue = queues.next();
+            if (permit(queue.peekFirst().productKey, now)) {
+                Outgoing next = queue.pollFirst();
+                if (queue.isEmpty()) {
+                    queues.remove();
+                }
+                deferredCount--;
+                return next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Takes messages off the queue until one may be sent now, setting aside those of throttled product keys.
+     */
+    private Outgoing nextFromQueue(long now) throws IOException {
+        while (deferredCount < options.maxDeferred) {
+            ByteBuffer payload = buffers.acquire();
+            String topic = queue.poll(payload);
+            if (topic == null) {
+                buffers.release(payload);
+                break;
+            }
+            payload.flip();
+            Outgoing outgoing = new Outgoing(topic, options.productKey.apply(topic), payload);
+            ArrayDeque<Outgoing> waiting = deferred.get(outgoing.productKey);
+            if (waiting == null && permit(outgoing.productKey, now)) {
+                return outgoing;
+            }
+            if (waiting == null) {
+                waiting = new ArrayDeque<>();
+                deferred.put(outgoing.productKey, waiting);
+            }
+            waiting.addLast(outgoing);
+            deferredCount++;
+        }
+        return null;
+    }
+
+    /**
+     * Until the first set aside message may be sent, 0 if none is set aside.
+     */
+    private long nanosToToken(long now) {
+        long waitNanos = Long.MAX_VALUE;
+        for (ArrayDeque<Outgoing> waiting : deferred.values()) {
+            waitNanos = Math.min(waitNanos, buckets.get(waiting.peekFirst().productKey).nanosToWait(now));
+        }
+        return waitNanos == Long.MAX_VALUE ? 0 : Math.max(waitNanos, 1);
+    }
+
+    private boolean permit(String productKey, long now) {
+        TokenBucket bucket = buckets.get(productKey);
+        if (bucket == null) {
+            Rate rate = options.rates.getOrDefault(productKey, options.rate);
+            if (rate == null) {
+                return true;
+            }
+            bucket = new TokenBucket(rate.permitsPerSecond, rate.burst);
+            buckets.put(productKey, bucket);
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    private void send(Outgoing outgoing) throws InterruptedException {
+        outgoing.state = SENDING;
+        pending.addLast(outgoing);
+        Thread thread = Thread.currentThread();
+        publisher.publish(outgoing.topic, outgoing.payload, options.qos).whenComplete((v, e) -> {
+            if (e != null) {
+                outgoing.state = FAILED;
+                failures.incrementAndGet();
+            } else {
+                outgoing.state = ACKED;
+            }
+            LockSupport.unpark(thread);
+        });
+    }
+
+    /**
+     * {@code /lora/gwmp/uplink/{pk}/{dn}}: the fourth level of the topic, or the whole topic.
+     */
+    static String productKeyOf(String topic) {
+        int start = 0;
+        for (int level = 0; level < 4; level++) {
+            start = topic.indexOf('/', start) + 1;
+            if (start == 0) {
+                return topic;
+            }
+        }
+        int end = topic.indexOf('/', start);
+        return end < 0 ? topic.substring(start) : topic.substring(start, end);
+    }
+
+    private static final class Outgoing {
+
+        final String topic;
+        final String productKey;
+        final ByteBuffer payload;
+        volatile int state;
+
+        Outgoing(String topic, String productKey, ByteBuffer payload) {
+            this.topic = topic;
+            this.productKey = productKey;
+            this.payload = payload;
+        }
+    }
+
+    private static final class Rate {
+
+        final double permitsPerSecond;
+        final int burst;
+
+        Rate(double permitsPerSecond, int burst) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+        }
+    }
+
+    public static class Builder {
+
+        final MqttPublisher.Builder publisher;
+        String threadName = "uplink-forwarder";
+        int capacity = 8 * 1024 * 1024;
+        int spillThreshold = Integer.MAX_VALUE;
+        Path spillDirectory;
+        int segmentBytes = 64 * 1024 * 1024;
+        int maxPayloadBytes = 4096;
+        int maxInFlight = 256;
+        int maxDeferred = 1024;
+        int qos = 1;
+        Rate rate;
+        final Map<String, Rate> rates = new HashMap<>();
+        Function<String, String> productKey = UplinkForwarder::productKeyOf;
+        long minBackoffMillis = 100;
+        long maxBackoffMillis = 30_000;
+        long closeTimeoutMillis = 10_000;
+
+        private Builder(MqttPublisher.Builder publisher) {
+            this.publisher = publisher;
+        }
+
+        public Builder threadName(String threadName) {
+            this.threadName = threadName;
+            return this;
+        }
+
+        /**
+         * Bytes of the off-heap ring, 8 MB by default.
+         */
+        public Builder capacity(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("capacity: " + capacity);
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Without it a full ring refuses new messages.
+         */
+        public Builder spillDirectory(Path spillDirectory) {
+            this.spillDirectory = spillDirectory;
+            return this;
+        }
+
+        /**
+         * Bytes queued in the ring beyond which messages go to disk, the whole ring by default.
+         */
+        public Builder spillThreshold(int spillThreshold) {
+            this.spillThreshold = spillThreshold;
+            return this;
+        }
+
+        public Builder segmentBytes(int segmentBytes) {
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        public Builder maxPayloadBytes(int maxPayloadBytes) {
+            this.maxPayloadBytes = maxPayloadBytes;
+            return this;
+        }
+
+        /**
+         * Messages sent and not yet acknowledged, at most the window of the publisher.
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Messages of throttled product keys set aside; when full, the whole queue waits for their tokens.
+         */
+        public Builder maxDeferred(int maxDeferred) {
+            this.maxDeferred = maxDeferred;
+            return this;
+        }
+
+        /**
+         * 1 or 2, a QoS 0 message would count as forwarded once written.
+         */
+        public Builder qos(int qos) {
+            if (qos < 1 || qos > 2) {
+                throw new IllegalArgumentException("qos: " + qos);
+            }
+            this.qos = qos;
+            return this;
+        }
+
+        /**
+         * Rate of every product key without a rate of its own; unlimited by default.
+         */
+        public Builder rate(double permitsPerSecond, int burst) {
+            this.rate = new Rate(permitsPerSecond, burst);
+            return this;
+        }
+
+        public Builder rate(String productKey, double permitsPerSecond, int burst) {
+            this.rates.put(productKey, new Rate(permitsPerSecond, burst));
+            return this;
+        }
+
+        /**
+         * Product key of a topic, the fourth level by default as in {@code /lora/gwmp/uplink/{pk}/{dn}}.
+         */
+        public Builder productKey(Function<String, String> productKey) {
+            this.productKey = productKey;
+            return this;
+        }
+
+        public Builder backoff(long min, long max, TimeUnit unit) {
+            this.minBackoffMillis = Math.max(1, unit.toMillis(min));
+            this.maxBackoffMillis = Math.max(minBackoffMillis, unit.toMillis(max));
+            return this;
+        }
+
+        public Builder closeTimeout(long time, TimeUnit unit) {
+            this.closeTimeoutMillis = unit.toMillis(time);
+            return this;
+        }
+
+        public UplinkForwarder build() throws IOException {
+            return new UplinkForwarder(this);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The virtual thread counterpart of {@link SimpleThreadFactory}: every {@code supplyAsync}/{@code thenApplyAsync}
+ * task gets its own virtual thread, so a stage that blocks on I/O parks instead of pinning a pool thread. Only
+ * compiled by the {@code jdk21} profile.
+ * <pre>
+ * ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("virtual-executor");
+ * CompletableFuture.supplyAsync(() -> blockingCall(), executor)
+ *     .thenApplyAsync(s -> anotherBlockingCall(s), executor);
+ * </pre>
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Virtual threads named {@code threadName-0}, {@code threadName-1}, ... like {@link SimpleThreadFactory}.
+     */
+    public static ThreadFactory factory(String threadName) {
+        return Thread.ofVirtual().name(threadName + "-", 0).factory();
+    }
+
+    /**
+     * Starts a new virtual thread per task; there is no pool and no queue to size.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String threadName) {
+        return Executors.newThreadPerTaskExecutor(factory(threadName));
+    }
+}
@@ -0,0 +1,152 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class DeviceShardsTest {
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(4));
+        UplinkCodec.register(vertx.eventBus());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        vertx.close(ar -> closed.complete(null));
+        closed.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void ringExample() {
+        int devices = 10_000;
+        ShardRing four = new ShardRing(4, 160);
+        ShardRing five = new ShardRing(5, 160);
+        int[] counts = new int[4];
+        int moved = 0;
+        for (int i = 0; i < devices; i++) {
+            int before = four.shardOf("pk", "dn-" + i);
+            int after = five.shardOf("pk", "dn-" + i);
+            counts[before]++;
+            if (before != after) {
+                moved++;
+                // 只会移到新增的分片
+                assertEquals(4, after);
+            }
+            assertEquals(before, four.shardOf("pk", "dn-" + i));
+        }
+        log.info("Devices per shard {}, {} moved to a fifth shard", counts, moved);
+        for (int count : counts) {
+            assertTrue(count > devices / 4 * 0.8 && count < devices / 4 * 1.2);
+        }
+        assertTrue(moved > devices / 5 * 0.7 && moved < devices / 5 * 1.3);
+
+        assertArrayEquals(new String[] {"pk", "dn"}, UplinkRouter.deviceOf("/lora/gwmp/uplink/pk/dn"));
+        assertArrayEquals(new String[] {"pk", "dn"}, UplinkRouter.deviceOf("/lora/gwmp/uplink/pk/dn/extra"));
+        assertArrayEquals(new String[] {"/short", ""}, UplinkRouter.deviceOf("/short"));
+    }
+
+    @Test
+    public void shardingExample() throws Exception {
+        Map<String, Set<String>> threads = new ConcurrentHashMap<>();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        AtomicInteger handled = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        DeviceShards<int[]> shards = DeviceShards.<int[]>builder(shard -> new DeviceHandler<int[]>() {
+            @Override
+            public int[] open(String productKey, String deviceName) {
+                return new int[] {-1};
+            }
+
+            @Override
+            public void handle(int[] last, Uplink uplink) {
+                threads.computeIfAbsent(uplink.topic(), k -> ConcurrentHashMap.newKeySet())
+                    .add(Thread.currentThread().getName());
+                int sequence = uplink.payload().getInt();
+                // 单线程处理同一设备，状态无需加锁
+                if (sequence != last[0] + 1) {
+                    outOfOrder.incrementAndGet();
+                }
+                last[0] = sequence;
+                handled.incrementAndGet();
+            }
+
+            @Override
+            public void close(int[] last) {
+                closed.incrementAndGet();
+            }
+        })
+            .shards(4)
+            .idleTimeout(200, TimeUnit.MILLISECONDS)
+            .build();
+        VertxStages.toStage(shards.deploy(vertx)).get(10, TimeUnit.SECONDS);
+
+        int devices = 40;
+        int frames = 500;
+        CompletableFuture<String> deployed = new CompletableFuture<>();
+        vertx.deployVerticle(new AbstractVerticle() {
+            @Override
+            public void start() {
+                UplinkRouter router = shards.router(vertx);
+                for (int i = 0; i < frames; i++) {
+                    for (int d = 0; d < devices; d++) {
+                        byte[] frame = ByteBuffer.allocate(4).putInt(i).array();
+                        router.send(Uplink.of("/lora/gwmp/uplink/pk/dn-" + d, frame));
+                    }
+                }
+            }
+        }, ar -> deployed.complete(ar.result()));
+        deployed.get(10, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        while (handled.get() < devices * frames && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)) {
+            sleep(10);
+        }
+        assertEquals(devices * frames, handled.get());
+        assertEquals(0, outOfOrder.get());
+        assertEquals(devices, threads.size());
+        Set<String> loops = ConcurrentHashMap.newKeySet();
+        for (Set<String> names : threads.values()) {
+            assertEquals(1, names.size());
+            loops.addAll(names);
+        }
+        log.info("{} devices handled on {}", devices, loops);
+        assertEquals(4, loops.size());
+
+        // 空闲的设备状态被回收
+        sleep(500);
+        assertEquals(devices, closed.get());
+    }
+
+    private void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
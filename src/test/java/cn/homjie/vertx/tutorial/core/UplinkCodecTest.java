@@ -0,0 +1,222 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class UplinkCodecTest {
+
+    private Vertx vertx;
+    private Context context;
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+        UplinkCodec.register(vertx.eventBus());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        vertx.close(ar -> closed.complete(null));
+        closed.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void localExample() throws Exception {
+        Uplink uplink = Uplink.of("/lora/gwmp/uplink/pk/dn", "frame".getBytes(StandardCharsets.UTF_8));
+        CompletableFuture<Object> received = new CompletableFuture<>();
+        vertx.eventBus().consumer("uplink", message -> received.complete(message.body()));
+        vertx.eventBus().send("uplink", uplink);
+        // 本地投递不拷贝
+        assertSame(uplink, received.get(5, TimeUnit.SECONDS));
+
+        ByteBuffer payload = uplink.payload();
+        assertTrue(payload.isReadOnly());
+        payload.get(new byte[3]);
+        assertEquals(5, uplink.payload().remaining());
+    }
+
+    @Test
+    public void wireExample() {
+        UplinkCodec codec = new UplinkCodec();
+        Uplink uplink = Uplink.of("/lora/gwmp/uplink/pk/dn", new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        Buffer buffer = Buffer.buffer().appendString("header");
+        codec.encodeToWire(buffer, uplink);
+        assertEquals(uplink, codec.decodeFromWire(6, buffer));
+        int binary = buffer.length() - 6;
+
+        JsonObject json = new JsonObject()
+            .put("topic", uplink.topic())
+            .put("timestamp", uplink.timestamp())
+            .put("payload", Base64.getEncoder().encodeToString(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+        int text = json.toBuffer().length();
+        log.info("An uplink is {} bytes on the wire, {} as JSON", binary, text);
+        assertTrue(binary < text);
+    }
+
+    @Test
+    public void batchWireExample() {
+        ArrayList<Uplink> uplinks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            byte[] frame = ("frame-" + i).getBytes(StandardCharsets.UTF_8);
+            uplinks.add(Uplink.of("/lora/gwmp/uplink/pk/dn-" + i % 10, frame));
+        }
+        UplinkCodec.BatchCodec codec = new UplinkCodec.BatchCodec();
+        Buffer buffer = Buffer.buffer();
+        codec.encodeToWire(buffer, new UplinkBatch(new ArrayList<>(uplinks)));
+        UplinkBatch decoded = codec.decodeFromWire(0, buffer);
+        assertEquals(100, decoded.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(uplinks.get(i), decoded.get(i));
+        }
+        // 每个 topic 只写一次
+        int separate = 0;
+        for (Uplink uplink : uplinks) {
+            Buffer one = Buffer.buffer();
+            new UplinkCodec().encodeToWire(one, uplink);
+            separate += one.length();
+        }
+        log.info("100 uplinks are {} bytes in a batch, {} one by one", buffer.length(), separate);
+        assertTrue(buffer.length() < separate);
+    }
+
+    @Test
+    public void immutableExample() {
+        expectMutable(MutableField.class);
+        expectMutable(NotFinal.class);
+        expectMutable(ExposedArray.class);
+        expectMutable(MutableMember.class);
+        // 私有字段同样检查，除非标记为 Owned
+        expectMutable(PrivateMember.class);
+        expectMutable(ExposedOwned.class);
+        new ImmutableCodecImpl<>(Value.class);
+    }
+
+    @Test
+    public void batcherExample() throws Exception {
+        List<UplinkBatch> batches = new ArrayList<>();
+        CompletableFuture<Void> all = new CompletableFuture<>();
+        vertx.eventBus().<UplinkBatch>consumer("uplink", message -> {
+            batches.add(message.body());
+            if (batches.stream().mapToInt(UplinkBatch::size).sum() == 1000) {
+                all.complete(null);
+            }
+        });
+        context.runOnContext(v -> {
+            UplinkBatcher batcher = new UplinkBatcher(vertx, "uplink", 64, 0);
+            for (int i = 0; i < 1000; i++) {
+                byte[] frame = Integer.toString(i).getBytes(StandardCharsets.UTF_8);
+                batcher.send(Uplink.of("/lora/gwmp/uplink/pk/dn", frame));
+            }
+        });
+        all.get(5, TimeUnit.SECONDS);
+        // 15 个满批，剩下的 40 条在本次任务结束时发出
+        assertEquals(16, batches.size());
+        int i = 0;
+        for (UplinkBatch batch : batches) {
+            for (Uplink uplink : batch) {
+                assertEquals(Integer.toString(i++), StandardCharsets.UTF_8.decode(uplink.payload()).toString());
+            }
+        }
+
+        CompletableFuture<Long> lingered = new CompletableFuture<>();
+        vertx.eventBus().<UplinkBatch>consumer("linger", message -> lingered.complete(System.nanoTime()));
+        long start = System.nanoTime();
+        context.runOnContext(v -> {
+            UplinkBatcher batcher = new UplinkBatcher(vertx, "linger", 64, 50);
+            batcher.send(Uplink.of("/lora/gwmp/uplink/pk/dn", new byte[0]));
+        });
+        long millis = TimeUnit.NANOSECONDS.toMillis(lingered.get(5, TimeUnit.SECONDS) - start);
+        log.info("A lone uplink left after {}ms", millis);
+        assertTrue(millis >= 45);
+
+        try {
+            new UplinkBatcher(vertx, "uplink", 64, 0);
+            fail();
+        } catch (IllegalStateException e) {
+            log.info("Expected: {}", e.getMessage());
+        }
+    }
+
+    private static void expectMutable(Class<?> type) {
+        try {
+            new ImmutableCodecImpl<>(type);
+            fail();
+        } catch (IllegalArgumentException e) {
+            log.info("Expected: {}", e.getMessage());
+        }
+    }
+
+    private static final class ImmutableCodecImpl<T> extends ImmutableCodec<T> {
+
+        @SuppressWarnings("unchecked")
+        ImmutableCodecImpl(Class<?> type) {
+            super((Class<T>)type);
+        }
+
+        @Override
+        protected void encode(Buffer buffer, T value) {
+        }
+
+        @Override
+        protected T decode(Buffer buffer, int position) {
+            return null;
+        }
+    }
+
+    private static final class MutableField {
+        private int count;
+    }
+
+    private static class NotFinal {
+    }
+
+    private static final class ExposedArray {
+        final byte[] bytes = new byte[0];
+    }
+
+    private static final class MutableMember {
+        final StringBuilder text = new StringBuilder();
+    }
+
+    private static final class PrivateMember {
+        private final StringBuilder text = new StringBuilder();
+    }
+
+    private static final class ExposedOwned {
+        @ImmutableCodec.Owned
+        final byte[] bytes = new byte[0];
+    }
+
+    private static final class Value {
+        final String name = "value";
+        final Uplink uplink = null;
+        @ImmutableCodec.Owned
+        private final List<String> names = new ArrayList<>();
+    }
+}
@@ -0,0 +1,172 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import cn.homjie.vertx.tutorial.juc.AdaptiveLimiter;
+import cn.homjie.vertx.tutorial.mqtt.EmbeddedMqttBroker;
+import cn.homjie.vertx.tutorial.mqtt.MqttCredentials;
+import cn.homjie.vertx.tutorial.mqtt.MqttPublisher;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Vertx;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class UplinkPublishVerticleTest {
+
+    private EmbeddedMqttBroker broker;
+    private Vertx vertx;
+
+    @Before
+    public void setUp() throws IOException {
+        broker = EmbeddedMqttBroker.builder().build().start();
+        vertx = Vertx.vertx();
+        UplinkCodec.register(vertx.eventBus());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        vertx.close(ar -> closed.complete(null));
+        closed.get(10, TimeUnit.SECONDS);
+        broker.close();
+    }
+
+    @Test
+    public void publishExample() throws Exception {
+        UplinkPublishVerticle publisher = UplinkPublishVerticle.builder(MqttPublisher.builder(broker.uri())
+                .credentials(i -> new MqttCredentials("gateway-" + i, "dn&pk", "secret"))
+                .connections(2)
+                .window(32))
+            .maxInFlight(64)
+            .build();
+        deploy(publisher);
+        int count = 10_000;
+        Gateway gateway = new Gateway(count);
+        deploy(gateway);
+        long start = System.nanoTime();
+        while (publisher.published() < count && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30)) {
+            sleep(10);
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("{} uplinks in {} batches published in {}ms", publisher.published(), gateway.batcher.batches(),
+            millis);
+        assertEquals(count, publisher.published());
+        assertEquals(count, broker.published());
+        assertEquals(0, publisher.failed());
+        assertTrue(gateway.batcher.batches() < count / 10);
+    }
+
+    @Test
+    public void limitedExample() throws Exception {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder(AdaptiveLimiter.Algorithm.AIMD)
+            .limits(4, 1, 256)
+            .build();
+        UplinkPublishVerticle publisher = UplinkPublishVerticle.builder(MqttPublisher.builder(broker.uri())
+                .credentials(i -> new MqttCredentials("gateway-" + i, "dn&pk", "secret"))
+                .window(256))
+            .limiter(limiter)
+            .build();
+        deploy(publisher);
+        int count = 10_000;
+        deploy(new Gateway(count));
+        long start = System.nanoTime();
+        while (publisher.published() < count && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30)) {
+            sleep(10);
+        }
+        log.info("{} uplinks published, the limit went from 4 to {}", publisher.published(), limiter.limit());
+        assertEquals(count, publisher.published());
+        assertEquals(count, limiter.accepted());
+        // broker 没有变慢，上限一直在增加
+        assertTrue(limiter.limit() > 4);
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void discardExample() throws Exception {
+        broker.pauseAcks();
+        UplinkPublishVerticle publisher = UplinkPublishVerticle.builder(MqttPublisher.builder(broker.uri())
+                .credentials(i -> new MqttCredentials("gateway-" + i, "dn&pk", "secret"))
+                .window(8))
+            .maxInFlight(8)
+            .maxBuffered(100)
+            .build();
+        deploy(publisher);
+        int count = 1000;
+        deploy(new Gateway(count));
+        // 8 条在途，100 条等待，其余丢弃且都计数
+        long start = System.nanoTime();
+        while (publisher.discarded() < count - 108 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)) {
+            sleep(10);
+        }
+        assertEquals(count - 108, publisher.discarded());
+        broker.resumeAcks();
+        start = System.nanoTime();
+        while (publisher.published() < 108 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)) {
+            sleep(10);
+        }
+        log.info("{} uplinks published, {} discarded", publisher.published(), publisher.discarded());
+        assertEquals(108, publisher.published());
+        assertEquals(count - 108, publisher.discarded());
+    }
+
+    private void deploy(AbstractVerticle verticle) throws Exception {
+        CompletableFuture<String> deployed = new CompletableFuture<>();
+        vertx.deployVerticle(verticle, ar -> {
+            if (ar.succeeded()) {
+                deployed.complete(ar.result());
+            } else {
+                deployed.completeExceptionally(ar.cause());
+            }
+        });
+        deployed.get(10, TimeUnit.SECONDS);
+    }
+
+    private void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+
+    /**
+     * Receives frames from 100 devices, 100 at a time as from one socket read.
+     */
+    private static class Gateway extends AbstractVerticle {
+
+        private final int count;
+        private UplinkBatcher batcher;
+        private int sent;
+
+        Gateway(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void start() {
+            batcher = new UplinkBatcher(vertx, "uplink", 64, 0);
+            vertx.setPeriodic(1, id -> {
+                for (int i = 0; i < 100 && sent < count; i++, sent++) {
+                    byte[] frame = ("frame-" + sent).getBytes(StandardCharsets.UTF_8);
+                    batcher.send(Uplink.of("/lora/gwmp/uplink/pk/dn-" + sent % 100, frame));
+                }
+                if (sent == count) {
+                    vertx.cancelTimer(id);
+                }
+            });
+        }
+    }
+}
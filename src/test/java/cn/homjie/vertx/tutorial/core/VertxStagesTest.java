@@ -0,0 +1,154 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class VertxStagesTest {
+
+    private Vertx vertx;
+    private Context context;
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        vertx.close(ar -> closed.complete(null));
+        closed.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void executorExample() throws Exception {
+        Executor loop = VertxStages.executor(context);
+        List<String> threads = new ArrayList<>();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        context.runOnContext(v -> {
+            threads.add(Thread.currentThread().getName());
+            CompletableFuture.supplyAsync(() -> "message", loop)
+                .thenApplyAsync(s -> step(threads, s.toUpperCase()), loop)
+                .thenApplyAsync(s -> step(threads, s + "!"), loop)
+                // 在 common pool 完成后，下一步回到 event loop
+                .thenApplyAsync(s -> step(threads, s), ForkJoinPool.commonPool())
+                .thenApplyAsync(s -> step(threads, s.toLowerCase()), loop)
+                .whenComplete((s, e) -> result.complete(s));
+        });
+        assertEquals("message!", result.get(5, TimeUnit.SECONDS));
+        log.info("Steps ran on {}", threads);
+        String eventLoop = threads.get(0);
+        assertTrue(eventLoop.startsWith("vert.x-eventloop-thread"));
+        assertEquals(eventLoop, threads.get(1));
+        assertEquals(eventLoop, threads.get(2));
+        assertNotEquals(eventLoop, threads.get(3));
+        assertEquals(eventLoop, threads.get(4));
+    }
+
+    @Test
+    public void toFutureExample() throws Exception {
+        CompletableFuture<Context> completedOn = new CompletableFuture<>();
+        context.runOnContext(v -> {
+            CompletableFuture<String> stage = CompletableFuture.supplyAsync(() -> {
+                sleep(50);
+                return "done";
+            });
+            VertxStages.toFuture(stage).onComplete(ar -> completedOn.complete(Vertx.currentContext()));
+        });
+        assertSame(context, completedOn.get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("Expected"));
+        VertxStages.toFuture(failed.thenApply(String::trim), null).onComplete(ar -> failure.complete(ar.cause()));
+        // 不带 CompletionException 的包装
+        assertEquals(IllegalStateException.class, failure.get(5, TimeUnit.SECONDS).getClass());
+    }
+
+    @Test
+    public void toStageExample() throws Exception {
+        CompletableFuture<String> thread = new CompletableFuture<>();
+        CompletableFuture<String> continuation = new CompletableFuture<>();
+        context.runOnContext(v -> {
+            thread.complete(Thread.currentThread().getName());
+            Promise<String> promise = Promise.promise();
+            vertx.setTimer(20, id -> promise.complete("fired"));
+            VertxStages.toStage(promise.future())
+                .thenApply(String::toUpperCase)
+                .thenAccept(s -> continuation.complete(s + " on " + Thread.currentThread().getName()));
+        });
+        assertEquals("FIRED on " + thread.get(), continuation.get(5, TimeUnit.SECONDS));
+
+        Future<String> failed = Future.failedFuture(new IllegalStateException("Expected"));
+        assertTrue(VertxStages.toStage(failed).isCompletedExceptionally());
+    }
+
+    @Test
+    public void blockingExample() throws Exception {
+        WorkerExecutor workers = vertx.createSharedWorkerExecutor("device-store", 2);
+        CompletableFuture<List<String>> threads = new CompletableFuture<>();
+        context.runOnContext(v -> {
+            List<String> names = new ArrayList<>();
+            names.add(Thread.currentThread().getName());
+            VertxStages.executeBlocking(() -> {
+                sleep(20);
+                return Thread.currentThread().getName();
+            }).thenCompose(worker -> {
+                names.add(worker);
+                names.add(Thread.currentThread().getName());
+                return VertxStages.executeBlocking(workers, () -> Thread.currentThread().getName());
+            }).whenComplete((worker, e) -> {
+                names.add(worker);
+                names.add(Thread.currentThread().getName());
+                threads.complete(names);
+            });
+        });
+        List<String> names = threads.get(5, TimeUnit.SECONDS);
+        workers.close();
+        log.info("Blocking steps: {}", names);
+        String eventLoop = names.get(0);
+        assertTrue(names.get(1).startsWith("vert.x-worker-thread"));
+        assertEquals(eventLoop, names.get(2));
+        assertTrue(names.get(3).startsWith("device-store"));
+        // 阻塞步骤的结果回到调用方的 event loop
+        assertEquals(eventLoop, names.get(4));
+    }
+
+    private static String step(List<String> threads, String value) {
+        threads.add(Thread.currentThread().getName());
+        return value;
+    }
+
+    private void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class AdaptiveLimiterTest {
+
+    private final AtomicLong ticker = new AtomicLong();
+
+    @Test
+    public void aimdExample() {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder(AdaptiveLimiter.Algorithm.AIMD)
+            .limits(10, 2, 100)
+            .timeout(100, TimeUnit.MILLISECONDS)
+            .ticker(ticker::get)
+            .build();
+        // 开始时已用到上限一半以上的成功调用各加一，这里是第 5 到第 10 个
+        round(limiter, 10, 5, false);
+        assertEquals(16, limiter.limit());
+        // 只用到一小部分时不增加
+        round(limiter, 3, 5, false);
+        assertEquals(16, limiter.limit());
+        // 失败或超时：乘以 0.9
+        round(limiter, 1, 5, true);
+        assertEquals(14, limiter.limit());
+        round(limiter, 1, 200, false);
+        assertEquals(12, limiter.limit());
+        assertEquals(2, limiter.dropped());
+        for (int i = 0; i < 50; i++) {
+            round(limiter, 1, 5, true);
+        }
+        assertEquals(2, limiter.limit());
+    }
+
+    @Test
+    public void gradientExample() {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder(AdaptiveLimiter.Algorithm.GRADIENT)
+            .limits(10, 2, 200)
+            .ticker(ticker::get)
+            .build();
+        for (int i = 0; i < 20; i++) {
+            round(limiter, limiter.limit(), 10, false);
+        }
+        int grown = limiter.limit();
+        log.info("Limit {} while round trips stay at 10ms", grown);
+        assertTrue(grown > 50);
+        // 后端开始排队，往返时间变为 4 倍
+        for (int i = 0; i < 5; i++) {
+            round(limiter, limiter.limit(), 40, false);
+        }
+        int shrunk = limiter.limit();
+        log.info("Limit {} once round trips reach 40ms", shrunk);
+        assertTrue(shrunk < grown / 2);
+    }
+
+    @Test
+    public void rejectExample() throws Exception {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder(AdaptiveLimiter.Algorithm.AIMD)
+            .limits(2, 1, 10)
+            .build();
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        CompletableFuture<String> a = limiter.submit(() -> first);
+        CompletableFuture<String> b = limiter.submit(() -> second);
+        CompletableFuture<String> c = limiter.submit(() -> CompletableFuture.completedFuture("third"));
+        // 超过上限立即失败
+        assertTrue(c.isCompletedExceptionally());
+        try {
+            c.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(RejectedExecutionException.class, e.getCause().getClass());
+        }
+        assertNull(limiter.tryAcquire());
+        first.complete("first");
+        assertEquals("first", a.get());
+        AdaptiveLimiter.Permit permit = limiter.tryAcquire();
+        assertNotNull(permit);
+        permit.release(false);
+        second.complete("second");
+        assertEquals("second", b.get());
+        assertEquals(0, limiter.inFlight());
+        assertEquals(2, limiter.rejected());
+    }
+
+    @Test
+    public void queueExample() throws Exception {
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder(AdaptiveLimiter.Algorithm.AIMD)
+            .limits(1, 1, 1)
+            .queue(1, 100, TimeUnit.MILLISECONDS)
+            .build();
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> a = limiter.submit(() -> first);
+        CompletableFuture<String> queued = limiter.submit(() -> CompletableFuture.completedFuture("queued"));
+        CompletableFuture<String> full = limiter.submit(() -> CompletableFuture.completedFuture("full"));
+        assertTrue(full.isCompletedExceptionally());
+        assertTrue(!queued.isDone());
+        // 前一个完成后排队的开始执行
+        first.complete("first");
+        assertEquals("first", a.get());
+        assertEquals("queued", queued.get(1, TimeUnit.SECONDS));
+
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        limiter.submit(() -> slow);
+        long start = System.nanoTime();
+        CompletableFuture<String> expired = limiter.submit(() -> CompletableFuture.completedFuture("expired"));
+        try {
+            expired.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            log.info("Rejected after {}ms: {}", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                e.getCause().getMessage());
+            assertEquals(RejectedExecutionException.class, e.getCause().getClass());
+        }
+        slow.complete("slow");
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void executorExample() throws Exception {
+        ExecutorService pool = ThreadPoolBuilder.newBuilder("limited").fixed(4).build();
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder(AdaptiveLimiter.Algorithm.GRADIENT)
+            .limits(4, 1, 64)
+            .queue(1000, 5, TimeUnit.SECONDS)
+            .build();
+        Executor executor = limiter.executor(pool);
+        AtomicInteger done = new AtomicInteger();
+        for (int i = 0; i < 200; i++) {
+            executor.execute(() -> {
+                sleep(2);
+                done.incrementAndGet();
+            });
+        }
+        List<CompletableFuture<String>> names = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            names.add(limiter.supplyAsync(() -> Thread.currentThread().getName(), pool));
+        }
+        for (CompletableFuture<String> name : names) {
+            assertTrue(name.get(10, TimeUnit.SECONDS).startsWith("limited"));
+        }
+        long start = System.nanoTime();
+        while (done.get() < 200 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)) {
+            sleep(10);
+        }
+        log.info("Limit {} over a pool of 4 threads, {} accepted", limiter.limit(), limiter.accepted());
+        assertEquals(200, done.get());
+        assertEquals(220, limiter.accepted());
+        pool.shutdown();
+    }
+
+    @Test
+    public void executorExpiredExample() throws Exception {
+        ExecutorService pool = ThreadPoolBuilder.newBuilder("limited").fixed(2).build();
+        AdaptiveLimiter limiter = AdaptiveLimiter.builder(AdaptiveLimiter.Algorithm.AIMD)
+            .limits(1, 1, 1)
+            .queue(10, 20, TimeUnit.MILLISECONDS)
+            .build();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(1);
+        List<Runnable> expired = new CopyOnWriteArrayList<>();
+        limiter.executor(pool).execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                log.error("Await interrupt", e);
+            }
+        });
+        // 排队超时的任务照样运行，或者交给调用方给的处理
+        limiter.executor(pool).execute(ran::countDown);
+        Runnable task = () -> log.info("Unreachable");
+        limiter.executor(pool, expired::add).execute(task);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        while (expired.isEmpty() && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+            sleep(1);
+        }
+        assertEquals(Collections.singletonList(task), expired);
+        assertEquals(2, limiter.rejected());
+        assertEquals(1, limiter.inFlight());
+        blocked.countDown();
+        pool.shutdown();
+    }
+
+    /**
+     * {@code calls} calls started together that all take {@code millis}.
+     */
+    private void round(AdaptiveLimiter limiter, int calls, long millis, boolean failed) {
+        List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            AdaptiveLimiter.Permit permit = limiter.tryAcquire();
+            if (permit != null) {
+                permits.add(permit);
+            }
+        }
+        ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        for (AdaptiveLimiter.Permit permit : permits) {
+            permit.release(failed);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class AsyncCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicLong ticker = new AtomicLong();
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = ThreadPoolBuilder.newBuilder("cache-loader").fixed(4).build();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void singleFlightExample() throws Exception {
+        AsyncCache<String, String> cache = AsyncCache.builder().build(this::secretOf, executor);
+        int callers = 100;
+        CountDownLatch ready = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> lengths = new ArrayList<>();
+        ExecutorService storm = ThreadPoolBuilder.newBuilder("reconnect-storm").fixed(8).build();
+        for (int i = 0; i < callers; i++) {
+            CompletableFuture<Integer> length = new CompletableFuture<>();
+            lengths.add(length);
+            storm.execute(() -> {
+                try {
+                    ready.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // 重连风暴：同一设备同时查询
+                cache.get("dn").thenApply(String::length).whenComplete((n, e) -> length.complete(n));
+            });
+        }
+        ready.countDown();
+        for (CompletableFuture<Integer> length : lengths) {
+            assertEquals(Integer.valueOf("secret-dn".length()), length.get(5, TimeUnit.SECONDS));
+        }
+        storm.shutdown();
+        log.info("{} callers, {} loads, {} hits", callers, loads.get(), cache.hits());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.misses());
+        assertEquals(callers - 1, cache.hits());
+    }
+
+    @Test
+    public void failureExample() throws Exception {
+        AsyncCache<String, String> cache = AsyncCache.builder().build(key -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            if (loads.incrementAndGet() == 1) {
+                future.completeExceptionally(new IllegalStateException("Expected"));
+            } else {
+                future.complete("secret-" + key);
+            }
+            return future;
+        });
+        try {
+            cache.get("dn").join();
+            fail();
+        } catch (Exception e) {
+            log.info("Expected: {}", e.getMessage());
+        }
+        // 失败不缓存，下一次重新加载
+        assertEquals(0, cache.size());
+        assertEquals("secret-dn", cache.get("dn").get());
+        assertEquals("secret-dn", cache.get("dn").get());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void evictionExample() throws Exception {
+        AsyncCache<Integer, String> cache = AsyncCache.builder()
+            .maximumSize(100)
+            .build(key -> CompletableFuture.completedFuture("value-" + key));
+        for (int hot = 0; hot < 10; hot++) {
+            cache.get(hot).get();
+            cache.get(hot).get();
+        }
+        // 一次性扫描大量冷数据
+        for (int cold = 1000; cold < 3000; cold++) {
+            cache.get(cold).get();
+        }
+        log.info("{} cached, {} evictions", cache.size(), cache.evictions());
+        assertEquals(100, cache.size());
+        assertEquals(1910, cache.evictions());
+        for (int hot = 0; hot < 10; hot++) {
+            assertNotNull(cache.getIfPresent(hot));
+        }
+        assertNull(cache.getIfPresent(1000));
+        assertNotNull(cache.getIfPresent(2999));
+    }
+
+    @Test
+    public void singleEntryExample() throws Exception {
+        AsyncCache<Integer, String> cache = AsyncCache.builder()
+            .maximumSize(1)
+            .build(key -> CompletableFuture.completedFuture("value-" + key));
+        // 再读一次进入受保护段，试用段只剩新写入的条目，淘汰的仍是原来的
+        for (int key = 0; key < 3; key++) {
+            assertEquals("value-" + key, cache.get(key).get());
+            assertEquals("value-" + key, cache.getIfPresent(key));
+            cache.get(key).get();
+        }
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.evictions());
+        assertNull(cache.getIfPresent(1));
+    }
+
+    @Test
+    public void expiryExample() throws Exception {
+        AsyncCache<String, String> cache = AsyncCache.builder()
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .ticker(ticker::get)
+            .build(this::loadNow);
+        assertEquals("secret-dn-1", cache.get("dn").get());
+        ticker.addAndGet(TimeUnit.MINUTES.toNanos(9));
+        assertEquals("secret-dn-1", cache.get("dn").get());
+        ticker.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertNull(cache.getIfPresent("dn"));
+        assertEquals("secret-dn-2", cache.get("dn").get());
+        assertEquals(2, cache.misses());
+
+        cache.invalidate("dn");
+        assertEquals(0, cache.size());
+        assertEquals("secret-dn-3", cache.get("dn").get());
+    }
+
+    @Test
+    public void refreshExample() throws Exception {
+        AsyncCache<String, String> cache = AsyncCache.builder()
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .refreshAfterWrite(5, TimeUnit.MINUTES)
+            .ticker(ticker::get)
+            .build(this::secretOf, executor);
+        assertEquals("secret-dn", cache.get("dn").get());
+        ticker.addAndGet(TimeUnit.MINUTES.toNanos(6));
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            // 过了刷新时间仍直接返回旧值，后台只刷新一次
+            CompletableFuture<String> stale = cache.get("dn");
+            assertTrue(stale.isDone());
+        }
+        log.info("10 stale reads in {}us", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        while (loads.get() < 2 || cache.refreshes() == 0) {
+            sleep(10);
+        }
+        sleep(100);
+        assertEquals(1, cache.refreshes());
+        assertEquals(2, loads.get());
+        // 刷新后重新计时，原来的过期时间已过也不会过期
+        ticker.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        assertEquals("secret-dn", cache.getIfPresent("dn"));
+        assertEquals(1, cache.misses());
+
+        try {
+            AsyncCache.builder()
+                .expireAfterWrite(1, TimeUnit.MINUTES)
+                .refreshAfterWrite(1, TimeUnit.MINUTES)
+                .build(this::loadNow);
+            fail();
+        } catch (IllegalStateException e) {
+            log.info("Expected: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A slow lookup, as of device metadata in a database.
+     */
+    private String secretOf(String deviceName) {
+        loads.incrementAndGet();
+        sleep(50);
+        return "secret-" + deviceName;
+    }
+
+    private CompletableFuture<String> loadNow(String deviceName) {
+        return CompletableFuture.completedFuture("secret-" + deviceName + "-" + loads.incrementAndGet());
+    }
+
+    private void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class AsyncPipelineTest {
+
+    private final ExecutorService executor = ThreadPoolBuilder.newBuilder("pipeline-executor").fixed(8).build();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void orderedExample() throws InterruptedException {
+        List<String> result = new ArrayList<>();
+        AsyncPipeline<Integer, String> pipeline = AsyncPipeline.<Integer>builder()
+            .thenApplyAsync(i -> {
+                // 随机耗时，完成顺序被打乱
+                sleep(ThreadLocalRandom.current().nextInt(5));
+                return i;
+            }, executor, 4)
+            .thenCompose(i -> CompletableFuture.supplyAsync(() -> "m" + i, executor), 4)
+            .ordered(true)
+            .build(result::add);
+        for (int i = 0; i < 100; i++) {
+            pipeline.submit(i);
+        }
+        pipeline.complete().join();
+        assertEquals(100, result.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("m" + i, result.get(i));
+        }
+    }
+
+    @Test
+    public void backpressureExample() throws InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger count = new AtomicInteger();
+        AsyncPipeline<Integer, Integer> pipeline = AsyncPipeline.<Integer>builder()
+            .thenApplyAsync(i -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                sleep(2);
+                inFlight.decrementAndGet();
+                return i;
+            }, executor, 3)
+            .window(6)
+            .build(i -> count.incrementAndGet());
+        for (int i = 0; i < 200; i++) {
+            pipeline.submit(i);
+            // 生产者被阻塞，管道中最多 window 个元素
+            assertTrue(pipeline.outstanding() <= pipeline.window());
+        }
+        pipeline.complete().join();
+        log.info("max in flight: {}", maxInFlight.get());
+        assertTrue(maxInFlight.get() <= 3);
+        assertEquals(200, count.get());
+    }
+
+    @Test
+    public void offerExample() throws InterruptedException {
+        CompletableFuture<String> never = new CompletableFuture<>();
+        AsyncPipeline<String, String> pipeline = AsyncPipeline.<String>builder()
+            .thenCompose(s -> never, 1)
+            .build(s -> fail("Unreachable"));
+        assertTrue(pipeline.offer("a", 10, TimeUnit.MILLISECONDS));
+        assertFalse(pipeline.offer("b", 10, TimeUnit.MILLISECONDS));
+        never.complete("done");
+    }
+
+    @Test
+    public void failureExample() throws InterruptedException {
+        AsyncPipeline<Integer, Integer> pipeline = AsyncPipeline.<Integer>builder()
+            .thenApplyAsync(i -> {
+                if (i == 10) {
+                    throw new ArithmeticException("/ by zero");
+                }
+                return i;
+            }, executor, 2)
+            .build(i -> { });
+        try {
+            for (int i = 0; i < 1000; i++) {
+                pipeline.submit(i);
+            }
+            fail("Unreachable");
+        } catch (IllegalStateException e) {
+            log.info("submit rejected: {}", e.getMessage());
+            assertTrue(e.getCause() instanceof ArithmeticException);
+        }
+        try {
+            pipeline.complete().join();
+            fail("Unreachable");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof ArithmeticException);
+        }
+    }
+
+    @Test
+    public void synchronousStagesExample() throws InterruptedException {
+        AtomicInteger count = new AtomicInteger();
+        CompletableFuture<Integer> gate = new CompletableFuture<>();
+        // 第一个元素阻塞，其余元素排队；放行后同步完成的阶段不会因递归而栈溢出
+        AsyncPipeline<Integer, Integer> pipeline = AsyncPipeline.<Integer>builder()
+            .thenCompose(i -> i == 0 ? gate : CompletableFuture.completedFuture(i), 1)
+            .window(100_000)
+            .build(i -> count.incrementAndGet());
+        for (int i = 0; i < 100_000; i++) {
+            pipeline.submit(i);
+        }
+        gate.complete(0);
+        pipeline.complete().join();
+        assertEquals(100_000, count.get());
+    }
+
+    private void sleep(long time) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(time);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
@@ -9,7 +9,6 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
@@ -32,7 +31,7 @@ public class CompletionStageTest {
     @Test
     public void futureExample() throws ExecutionException, InterruptedException {
         String threadNamePrefix = "future-executor-";
-        ExecutorService executor = Executors.newFixedThreadPool(3, new SimpleThreadFactory(threadNamePrefix));
+        ExecutorService executor = ThreadPoolBuilder.newBuilder(threadNamePrefix).fixed(3).build();
         int i = 0;
         log.info("{}", ++i);
         Future<String> future = executor.submit(() -> {
@@ -52,12 +51,13 @@ public class CompletionStageTest {
         log.info("{}", ++i);
         executor.submit(futureTask);
         log.info("futureTask result: {}", futureTask.get());
+        executor.shutdown();
     }
 
     @Test(expected = CancellationException.class)
     public void futureCancleExample() throws ExecutionException, InterruptedException {
         String threadNamePrefix = "future-executor-";
-        ExecutorService executor = Executors.newFixedThreadPool(3, new SimpleThreadFactory(threadNamePrefix));
+        ExecutorService executor = ThreadPoolBuilder.newBuilder(threadNamePrefix).fixed(3).build();
         int i = 0;
         log.info("{}", ++i);
         Future<String> future = executor.submit(() -> {
@@ -76,6 +76,7 @@ public class CompletionStageTest {
         log.info("{}", ++i);
         sleep(200);
         log.info("{}", ++i);
+        executor.shutdown();
         // throw CancellationException
         System.out.println(future.get());
     }
@@ -196,7 +197,7 @@ public class CompletionStageTest {
         int i = 0;
         log.info("{}", ++i);
         String threadNamePrefix = "custom-executor-";
-        ExecutorService executor = Executors.newFixedThreadPool(3, new SimpleThreadFactory(threadNamePrefix));
+        ExecutorService executor = ThreadPoolBuilder.newBuilder(threadNamePrefix).fixed(3).build();
         CompletableFuture<String> cf = CompletableFuture
             .completedFuture("message")
             .thenApplyAsync(s -> {
@@ -211,6 +212,7 @@ public class CompletionStageTest {
         log.info("{}", ++i);
         assertEquals("MESSAGE", cf.join());
         log.info("{}", ++i);
+        executor.shutdown();
     }
 
     @Test
@@ -0,0 +1,120 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class DeadlineTest {
+
+    private final ExecutorService executor = ThreadPoolBuilder.newBuilder("deadline-executor").fixed(3).build();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void timerExample() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+        CountDownLatch latch = new CountDownLatch(2);
+        long start = System.nanoTime();
+        // 超过一圈 (8 * 10ms) 的超时依赖 remainingRounds
+        timer.newTimeout(latch::countDown, 50, TimeUnit.MILLISECONDS);
+        timer.newTimeout(latch::countDown, 200, TimeUnit.MILLISECONDS);
+        HashedWheelTimer.Timeout cancelled = timer.newTimeout(() -> fail("Unreachable"), 100,
+            TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.cancel());
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("fired after {} ms", millis);
+        assertTrue(millis >= 200);
+        assertTrue(cancelled.isCancelled());
+        timer.close();
+    }
+
+    @Test
+    public void withinDeadlineExample() {
+        Deadline deadline = Deadline.after(1, TimeUnit.SECONDS);
+        String result = deadline
+            .supplyAsync(() -> "Message", executor)
+            .thenApply(String::toUpperCase)
+            .thenCompose(upper -> CompletableFuture.supplyAsync(() -> upper + "message", executor))
+            .thenCombine(CompletableFuture.completedFuture("!"), (s1, s2) -> s1 + s2)
+            .join();
+        assertEquals("MESSAGEmessage!", result);
+    }
+
+    @Test
+    public void deadlineExceededExample() throws InterruptedException {
+        AtomicBoolean downstream = new AtomicBoolean();
+        CountDownLatch backend = new CountDownLatch(1);
+        CountDownLatch returned = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Deadline deadline = Deadline.after(100, TimeUnit.MILLISECONDS);
+        DeadlineStage<String> cf = deadline
+            .supplyAsync(() -> {
+                log.info("slow backend");
+                try {
+                    // 一直阻塞到调用方已经失败
+                    backend.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    log.error("Backend interrupt", e);
+                }
+                returned.countDown();
+                return "Message";
+            }, executor)
+            .thenApplyAsync(s -> {
+                downstream.set(true);
+                return s.toUpperCase();
+            }, executor);
+        try {
+            cf.join();
+            fail("Unreachable");
+        } catch (CompletionException e) {
+            log.info("exceeded: {}", e.getCause().getMessage());
+            assertTrue(e.getCause() instanceof DeadlineExceededException);
+        }
+        log.info("failed after {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        // 截止时间到了就失败，不等后端返回
+        assertEquals(1, returned.getCount());
+        backend.countDown();
+        assertTrue(returned.await(5, TimeUnit.SECONDS));
+        sleep(100);
+        // 下游阶段不再执行
+        assertFalse(downstream.get());
+    }
+
+    @Test
+    public void fallbackExample() {
+        String result = Deadline.after(50, TimeUnit.MILLISECONDS)
+            .wrap(new CompletableFuture<String>())
+            .exceptionally(th -> "fallback")
+            .join();
+        assertEquals("fallback", result);
+    }
+
+    private void sleep(long time) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(time);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
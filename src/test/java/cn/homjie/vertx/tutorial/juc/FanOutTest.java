@@ -0,0 +1,114 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class FanOutTest {
+
+    private final List<String> messages = Arrays.asList("a", "b", "c");
+    private final Map<String, Integer> sleepMap = new HashMap<>();
+    private final ExecutorService executor = ThreadPoolBuilder.newBuilder("fan-out-executor").fixed(3).build();
+
+    {
+        sleepMap.put("a", 200);
+        sleepMap.put("b", 300);
+        sleepMap.put("c", 100);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void allExample() {
+        // 与 allOf 不同，直接得到按输入顺序排列的结果
+        List<String> result = FanOut.all(messages, this::toUpperCase).join();
+        log.info("result: {}", result);
+        assertEquals(Arrays.asList("A", "B", "C"), result);
+    }
+
+    @Test
+    public void allEarlyFailExample() {
+        long start = System.nanoTime();
+        CompletableFuture<List<String>> cf = FanOut.all(messages, msg -> "c".equals(msg)
+            ? CompletableFuture.<String>supplyAsync(() -> {
+                throw new ArithmeticException("/ by zero");
+            }, executor)
+            : toUpperCase(msg));
+        try {
+            cf.join();
+            fail("Unreachable");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof ArithmeticException);
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("failed after {} ms", millis);
+        // 不必等待最慢的 b (300ms)
+        assertTrue(millis < 300);
+    }
+
+    @Test
+    public void firstKExample() {
+        // 按完成顺序取最快的两个：c (100ms), a (200ms)
+        List<String> result = FanOut.firstK(messages, 2, this::toUpperCase).join();
+        log.info("result: {}", result);
+        assertEquals(Arrays.asList("C", "A"), result);
+    }
+
+    @Test
+    public void firstExample() {
+        // 与 anyOf 不同，失败的阶段不会抢先完成
+        String result = FanOut.first(messages, msg -> "c".equals(msg)
+            ? CompletableFuture.<String>supplyAsync(() -> {
+                throw new ArithmeticException("/ by zero");
+            }, executor)
+            : toUpperCase(msg)).join();
+        log.info("result: {}", result);
+        assertEquals("A", result);
+    }
+
+    @Test(expected = CompletionException.class)
+    public void firstKUnreachableExample() {
+        FanOut.firstK(messages, 3, msg -> "b".equals(msg)
+            ? CompletableFuture.<String>supplyAsync(() -> {
+                throw new ArithmeticException("/ by zero");
+            }, executor)
+            : toUpperCase(msg)).join();
+    }
+
+    private CompletableFuture<String> toUpperCase(String msg) {
+        return CompletableFuture.supplyAsync(() -> {
+            log.info("{} to upper case", msg);
+            sleep(sleepMap.get(msg));
+            return msg.toUpperCase();
+        }, executor);
+    }
+
+    private void sleep(long time) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(time);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class HedgerTest {
+
+    private final ExecutorService executor = ThreadPoolBuilder.newBuilder("hedge-executor").fixed(3).build();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void hedgeExample() {
+        Hedger hedger = new Hedger(50, TimeUnit.MILLISECONDS);
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+        // 第一次请求落在慢节点上，50ms 后发起第二次请求
+        String result = hedger.hedge(() -> {
+            int attempt = attempts.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> {
+                log.info("attempt {}", attempt);
+                sleep(attempt == 1 ? 500 : 50);
+                return "attempt " + attempt;
+            }, executor);
+        }).join();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("{} after {} ms", result, millis);
+        assertEquals("attempt 2", result);
+        assertTrue(millis < 500);
+    }
+
+    @Test
+    public void noHedgeExample() {
+        Hedger hedger = new Hedger(200, TimeUnit.MILLISECONDS);
+        AtomicInteger attempts = new AtomicInteger();
+        String result = hedger.hedge(() -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> "fast", executor);
+        }).join();
+        sleep(300);
+        assertEquals("fast", result);
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void failoverExample() {
+        Hedger hedger = new Hedger(1, TimeUnit.SECONDS);
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+        // 第一次失败时立即发起第二次，不等待对冲延迟
+        String result = hedger.hedge(() -> attempts.incrementAndGet() == 1
+            ? CompletableFuture.<String>supplyAsync(() -> {
+                throw new ArithmeticException("/ by zero");
+            }, executor)
+            : CompletableFuture.supplyAsync(() -> "second", executor)).join();
+        assertEquals("second", result);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+    }
+
+    @Test(expected = CompletionException.class)
+    public void allFailedExample() {
+        new Hedger(10, TimeUnit.MILLISECONDS).hedge(() -> CompletableFuture.<String>supplyAsync(() -> {
+            throw new ArithmeticException("/ by zero");
+        }, executor)).join();
+    }
+
+    @Test
+    public void percentileExample() {
+        Hedger hedger = new Hedger(HashedWheelTimer.shared(), 0.95, 1, 0, 1, TimeUnit.SECONDS);
+        for (int i = 0; i < 64; i++) {
+            hedger.hedge(() -> CompletableFuture.completedFuture("done")).join();
+        }
+        // 64 个样本后按 p95 重新计算，同步完成的调用延迟远小于 1s
+        log.info("delay: {} us", hedger.delay(TimeUnit.MICROSECONDS));
+        assertTrue(hedger.delay(TimeUnit.MILLISECONDS) < 1000);
+    }
+
+    @Test
+    public void hedgedSampleExample() throws Exception {
+        Hedger hedger = new Hedger(HashedWheelTimer.shared(), 0.95, 5, 0, 1000, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 64; i++) {
+            AtomicInteger attempts = new AtomicInteger();
+            // 第一次请求不返回，5ms 后发起的第二次请求 20ms 后胜出
+            String result = hedger.hedge(() -> attempts.incrementAndGet() == 1 ? new CompletableFuture<String>()
+                : CompletableFuture.supplyAsync(() -> {
+                    sleep(20);
+                    return "hedged";
+                }, executor)).get(5, TimeUnit.SECONDS);
+            assertEquals("hedged", result);
+        }
+        // 第 64 个样本在调用完成之后才重新计算延迟
+        long start = System.nanoTime();
+        while (hedger.delay(TimeUnit.MILLISECONDS) < 25 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1)) {
+            sleep(1);
+        }
+        // 样本从调用开始计，含对冲延迟：至少 5 + 20ms，而不是第二次请求自身的 20ms
+        log.info("delay: {} us", hedger.delay(TimeUnit.MICROSECONDS));
+        assertTrue(hedger.delay(TimeUnit.MILLISECONDS) >= 25);
+    }
+
+    private void sleep(long time) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(time);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
@@ -21,12 +21,18 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.DESKeySpec;
 
+import cn.homjie.vertx.tutorial.mqtt.KeyProvisioner;
+import cn.homjie.vertx.tutorial.mqtt.KeyStoreCache;
+
 /**
  * @author jiehong.jh
  * @date 2018/12/3
@@ -42,6 +48,20 @@ public class KeyStoreMain {
         //generateKey();
 
         keyPairSave();
+        //bulkProvision();
+    }
+
+    private static void bulkProvision() throws Exception {
+        List<String> deviceNames = IntStream.range(0, 10_000).mapToObj(i -> "dn-" + i).collect(Collectors.toList());
+        // 分片数不少于 CPU 核数，每个分片一个 keystore，各自并行加密条目
+        List<Path> keyStores = KeyProvisioner.keyPairs("RSA", 2048)
+            .directory(Paths.get("provisioned"))
+            .password("pwd123!".toCharArray())
+            .shards(Runtime.getRuntime().availableProcessors())
+            .export(true)
+            .build()
+            .provision(deviceNames);
+        System.out.println(keyStores);
     }
 
     private static void keyPairSave() throws Exception {
@@ -100,9 +120,12 @@ public class KeyStoreMain {
             ks.store(fos, pwdArray);
         }
 
-        ks.load(new FileInputStream(fileName), pwdArray);
-
-        Key key = ks.getKey("db-encryption-secret", protect);
+        // 只加载一次，条目第一次用到时解密，之后从缓存取
+        KeyStoreCache cache = KeyStoreCache.builder(Paths.get(fileName))
+            .password(pwdArray)
+            .keyPassword(protect)
+            .build();
+        Key key = cache.getKey("db-encryption-secret");
         System.out.println(key.equals(secretKey));
     }
 
@@ -157,7 +180,10 @@ public class KeyStoreMain {
             keytool -import -trustcacerts -file ca.crt -keystore truststore.jks
          */
         CertificateFactory cf = CertificateFactory.getInstance("X509");
-        Certificate certificate = cf.generateCertificate(new FileInputStream("mqtt.crt"));
+        Certificate certificate;
+        try (FileInputStream in = new FileInputStream("mqtt.crt")) {
+            certificate = cf.generateCertificate(in);
+        }
 
         ks.setKeyEntry("sso-signing-key", privateKey, protect, new Certificate[] {certificate});
 
@@ -166,7 +192,9 @@ public class KeyStoreMain {
             ks.store(fos, pwdArray);
         }
 
-        ks.load(new FileInputStream(fileName), pwdArray);
+        try (FileInputStream in = new FileInputStream(fileName)) {
+            ks.load(in, pwdArray);
+        }
 
         Key ssoSigningKey = ks.getKey("sso-signing-key", protect);
         System.out.println(ssoSigningKey.equals(privateKey));
@@ -182,7 +210,10 @@ public class KeyStoreMain {
         ks.load(null, pwdArray);
 
         CertificateFactory cf = CertificateFactory.getInstance("X509");
-        Certificate certificate = cf.generateCertificate(new FileInputStream("mqtt.crt"));
+        Certificate certificate;
+        try (FileInputStream in = new FileInputStream("mqtt.crt")) {
+            certificate = cf.generateCertificate(in);
+        }
 
         ks.setCertificateEntry("mqtt.iot", certificate);
 
@@ -191,7 +222,9 @@ public class KeyStoreMain {
             ks.store(fos, pwdArray);
         }
 
-        ks.load(new FileInputStream(fileName), pwdArray);
+        try (FileInputStream in = new FileInputStream(fileName)) {
+            ks.load(in, pwdArray);
+        }
         Certificate cert = ks.getCertificate("mqtt.iot");
         System.out.println(cert);
     }
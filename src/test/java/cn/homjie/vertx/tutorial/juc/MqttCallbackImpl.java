@@ -0,0 +1,30 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+/**
+ * @author jiehong.jh
+ * @date 2018/11/29
+ */
+@Slf4j
+public class MqttCallbackImpl implements MqttCallback {
+
+    @Override
+    public void connectionLost(Throwable cause) {
+        log.error("Connection lost", cause);
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) {
+        log.info("Message arrived, topic: {}, qos: {}, payload: {}", topic, message.getQos(),
+            new String(message.getPayload()));
+    }
+
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+        log.info("Delivery complete: {}", token.getMessageId());
+    }
+}
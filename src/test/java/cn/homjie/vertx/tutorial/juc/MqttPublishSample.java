@@ -1,20 +1,15 @@
 package cn.homjie.vertx.tutorial.juc;
 
-import java.io.FileInputStream;
-import java.security.KeyStore;
-import java.security.cert.CertificateFactory;
-import java.security.cert.X509Certificate;
+import java.nio.file.Paths;
 
-import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManagerFactory;
 
-import org.apache.commons.codec.digest.HmacAlgorithms;
-import org.apache.commons.codec.digest.HmacUtils;
+import cn.homjie.vertx.tutorial.mqtt.DeviceSigner;
+import cn.homjie.vertx.tutorial.mqtt.MappedLogPersistence;
+import cn.homjie.vertx.tutorial.mqtt.TlsContextProvider;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
-import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
 /**
  * @author jiehong.jh
@@ -22,32 +17,33 @@ import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
  */
 public class MqttPublishSample {
 
+    private static TlsContextProvider tls;
+
     public static void main(String[] args) throws InterruptedException {
 
         String topic = "/lora/gwmp/uplink/pk/dn";
         String content = "Message from MqttPublishSample";
         int qos = 2;
         String broker = "ssl://30.43.89.203:1883";
-        MemoryPersistence persistence = new MemoryPersistence();
+        // 在途的 QoS 1/2 消息写入本地日志，重启后重发
+        MappedLogPersistence persistence = new MappedLogPersistence(Paths.get("mqtt-persistence"));
 
         long millis = System.currentTimeMillis();
         String client = "Publish";
-        String clientId = client + "|securemode=2,signmethod=hmacmd5,timestamp=" + millis + "|";
+        DeviceSigner signer = DeviceSigner.HMAC_MD5;
+        String clientId = signer.clientId(client, millis);
         String deviceName = "dn";
         String productKey = "pk";
         String deviceSecret = "secret";
-        String value = "clientId" + client
-            + "deviceName" + deviceName
-            + "productKey" + productKey
-            + "timestamp" + millis;
-        String hmac = new HmacUtils(HmacAlgorithms.HMAC_MD5, deviceSecret).hmacHex(value);
+        char[] hmac = new char[signer.passwordLength()];
+        signer.sign(deviceSecret, client, deviceName, productKey, millis, hmac);
 
         try {
             MqttClient sampleClient = new MqttClient(broker, clientId, persistence);
             MqttConnectOptions connOpts = new MqttConnectOptions();
             connOpts.setUserName(deviceName + "&" + productKey);
-            connOpts.setPassword(hmac.toCharArray());
-            connOpts.setCleanSession(true);
+            connOpts.setPassword(hmac);
+            connOpts.setCleanSession(false);
             connOpts.setSocketFactory(socketFactory());
             System.out.println("Connecting to broker: " + broker);
             sampleClient.connect(connOpts);
@@ -76,20 +72,13 @@ public class MqttPublishSample {
         }
     }
 
+    /**
+     * 整个进程共用一个 SSLContext，重连时可以恢复 TLS 会话；ca.crt 轮转后自动重新加载
+     */
     private static SSLSocketFactory socketFactory() throws Exception {
-        SSLContext ctx = SSLContext.getInstance("TLS");
-
-        CertificateFactory cf = CertificateFactory.getInstance("X509");
-        X509Certificate caCert = (X509Certificate)cf.generateCertificate(new FileInputStream("ca.crt"));
-
-        KeyStore caKs = KeyStore.getInstance(KeyStore.getDefaultType());
-        caKs.load(null, null);
-        caKs.setCertificateEntry("ca-certificate", caCert);
-        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
-        tmf.init(caKs);
-
-        ctx.init(null, tmf.getTrustManagers(), null);
-
-        return ctx.getSocketFactory();
+        if (tls == null) {
+            tls = TlsContextProvider.builder().trustCertificates(Paths.get("ca.crt")).watch(true).build();
+        }
+        return tls.socketFactory();
     }
 }
@@ -0,0 +1,127 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class StageTracerTest {
+
+    private final ExecutorService executor = ThreadPoolBuilder.newBuilder("tracer-executor").fixed(2).build();
+    /**
+     * 每一步都计时
+     */
+    private final StageTracer tracer = new StageTracer(1);
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void statsExample() {
+        for (int i = 0; i < 20; i++) {
+            String result = tracer.supplyAsync("load", () -> {
+                sleep(1);
+                return "message";
+            }, executor)
+                .thenApplyAsync("upper", String::toUpperCase, executor)
+                .thenApply("length", s -> s + s.length())
+                .join();
+            assertEquals("MESSAGE7", result);
+        }
+        for (StageStats stats : tracer.stages()) {
+            log.info("{}", stats);
+        }
+        StageStats load = tracer.stage("load");
+        assertEquals(20, load.getExecutionTime().count());
+        assertEquals(20, load.getQueueTime().count());
+        // 从调用线程提交到线程池，每次都是一次线程切换
+        assertEquals(20, load.getThreadHops().sum());
+        assertTrue(load.getExecutionTime().percentile(50, TimeUnit.MICROSECONDS) >= 1000);
+        // 同步阶段没有排队
+        assertEquals(0, tracer.stage("length").getQueueTime().count());
+        assertEquals(20, tracer.stage("length").getExecutionTime().count());
+    }
+
+    @Test
+    public void asyncStackExample() {
+        TracedStage<String> request = tracer.trace("request", CompletableFuture.completedFuture("7"));
+        try {
+            request.thenApplyAsync("parse", Integer::parseInt, executor)
+                .thenApply("divide", i -> i / 0)
+                .thenApply("format", i -> "n" + i)
+                .join();
+            fail("Unreachable");
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            assertTrue(cause instanceof ArithmeticException);
+            log.info("failure with async stack", cause);
+            Throwable[] suppressed = cause.getSuppressed();
+            assertEquals(1, suppressed.length);
+            StackTraceElement[] frames = suppressed[0].getStackTrace();
+            String[] names = new String[frames.length];
+            for (int i = 0; i < frames.length; i++) {
+                names[i] = frames[i].getMethodName();
+            }
+            // 失败阶段在最上面，未执行的 format 不出现
+            assertArrayEquals(new String[] {"divide", "parse", "request"}, names);
+        }
+        assertEquals(1, tracer.stage("divide").getFailures().sum());
+        assertEquals(0, tracer.stage("format").getExecutionTime().count());
+    }
+
+    @Test
+    public void samplingExample() {
+        StageTracer sampled = new StageTracer();
+        int steps = 4096;
+        for (int i = 0; i < steps; i++) {
+            sampled.supplyAsync("step", () -> 1, Runnable::run).join();
+        }
+        StageStats step = sampled.stage("step");
+        long timed = step.getExecutionTime().count();
+        log.info("{} of {} steps timed", timed, steps);
+        // 调用次数每一步都计，耗时只抽样约 1/16
+        assertEquals(steps, step.getCalls().sum());
+        assertTrue(timed > steps / StageTracer.DEFAULT_SAMPLE_RATE / 2);
+        assertTrue(timed < steps / StageTracer.DEFAULT_SAMPLE_RATE * 2);
+    }
+
+    @Test
+    public void histogramExample() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        long p50 = histogram.percentile(50, TimeUnit.MICROSECONDS);
+        long p99 = histogram.percentile(99, TimeUnit.MICROSECONDS);
+        log.info("p50: {}us, p99: {}us, max: {}us", p50, p99, histogram.max(TimeUnit.MICROSECONDS));
+        // 每个 2 的幂被分成 16 份，误差不超过 1/16
+        assertTrue(Math.abs(p50 - 5000) <= 5000 / 16);
+        assertTrue(Math.abs(p99 - 9900) <= 9900 / 16);
+        assertEquals(10_000, histogram.max(TimeUnit.MICROSECONDS));
+        assertEquals(10_000, histogram.count());
+    }
+
+    private void sleep(long time) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(time);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
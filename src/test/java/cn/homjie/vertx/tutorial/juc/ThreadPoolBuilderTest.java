@@ -0,0 +1,140 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class ThreadPoolBuilderTest {
+
+    @Test
+    public void threadFactoryExample() throws InterruptedException {
+        InstrumentedThreadPoolExecutor executor = ThreadPoolBuilder.newBuilder("daemon-executor")
+            .fixed(1)
+            .daemon(true)
+            .priority(Thread.MAX_PRIORITY)
+            .build();
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(() -> {
+            Thread thread = Thread.currentThread();
+            log.info("run in {}", thread.getName());
+            assertTrue(thread.getName().startsWith("daemon-executor"));
+            assertTrue(thread.isDaemon());
+            assertEquals(Thread.MAX_PRIORITY, thread.getPriority());
+            latch.countDown();
+        });
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void boundedQueueExample() throws InterruptedException {
+        InstrumentedThreadPoolExecutor executor = ThreadPoolBuilder.newBuilder("bounded-executor")
+            .fixed(1)
+            .queueCapacity(2)
+            .build();
+        CountDownLatch block = new CountDownLatch(1);
+        // 1 个执行中，2 个排队，第 4 个被拒绝
+        for (int i = 0; i < 3; i++) {
+            executor.execute(() -> await(block));
+        }
+        try {
+            executor.execute(() -> await(block));
+            fail("Unreachable");
+        } catch (RejectedExecutionException e) {
+            log.info("rejected: {}", e.getMessage());
+        }
+        ThreadPoolMetrics metrics = executor.metrics();
+        log.info("metrics: {}", metrics);
+        assertEquals(2, metrics.getQueueDepth());
+        assertEquals(0, metrics.getQueueRemainingCapacity());
+        assertEquals(1, metrics.getActiveThreads());
+        assertEquals(1, metrics.getRejectedTasks());
+
+        block.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        metrics = executor.metrics();
+        log.info("metrics: {}", metrics);
+        assertEquals(3, metrics.getRunCount());
+        assertEquals(3, metrics.getWaitCount());
+        assertEquals(3, metrics.getCompletedTasks());
+    }
+
+    @Test
+    public void callerRunsExample() throws InterruptedException {
+        InstrumentedThreadPoolExecutor executor = ThreadPoolBuilder.newBuilder("caller-runs-executor")
+            .fixed(1)
+            .queueCapacity(0)
+            .rejectPolicy(RejectPolicy.CALLER_RUNS)
+            .build();
+        CountDownLatch block = new CountDownLatch(1);
+        executor.execute(() -> await(block));
+        Thread caller = Thread.currentThread();
+        StringBuilder result = new StringBuilder();
+        // 线程池饱和，由提交线程自己执行
+        executor.execute(() -> result.append(Thread.currentThread() == caller));
+        assertEquals("true", result.toString());
+        assertEquals(1, executor.metrics().getRejectedTasks());
+        block.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void removeExample() throws InterruptedException {
+        InstrumentedThreadPoolExecutor executor = ThreadPoolBuilder.newBuilder("remove-executor")
+            .fixed(1)
+            .build();
+        CountDownLatch block = new CountDownLatch(1);
+        executor.execute(() -> await(block));
+        Runnable queued = () -> log.info("Unreachable");
+        executor.execute(queued);
+        Future<?> cancelled = executor.submit(() -> log.info("Unreachable"));
+        // 队列里是提交的任务本身，remove 和 purge 都能找到
+        assertTrue(executor.getQueue().contains(queued));
+        assertTrue(executor.remove(queued));
+        assertTrue(cancelled.cancel(false));
+        executor.purge();
+        assertEquals(0, executor.getQueue().size());
+
+        block.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        ThreadPoolMetrics metrics = executor.metrics();
+        log.info("metrics: {}", metrics);
+        assertEquals(1, metrics.getRunCount());
+        assertEquals(1, metrics.getWaitCount());
+    }
+
+    @Test
+    public void sizingExample() {
+        int processors = ThreadPoolBuilder.availableProcessors();
+        InstrumentedThreadPoolExecutor executor = ThreadPoolBuilder.newBuilder("io-executor")
+            .ioBound(0.9)
+            .build();
+        log.info("processors: {}, io pool size: {}", processors, executor.getMaximumPoolSize());
+        assertEquals(processors * 10, executor.getMaximumPoolSize());
+        executor.shutdown();
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            log.error("Await interrupt", e);
+        }
+    }
+}
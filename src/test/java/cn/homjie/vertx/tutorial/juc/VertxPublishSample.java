@@ -0,0 +1,94 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.nio.charset.StandardCharsets;
+
+import cn.homjie.vertx.tutorial.core.DeviceHandler;
+import cn.homjie.vertx.tutorial.core.DeviceShards;
+import cn.homjie.vertx.tutorial.core.Uplink;
+import cn.homjie.vertx.tutorial.core.UplinkBatcher;
+import cn.homjie.vertx.tutorial.core.UplinkCodec;
+import cn.homjie.vertx.tutorial.core.UplinkPublishVerticle;
+import cn.homjie.vertx.tutorial.core.UplinkRouter;
+import cn.homjie.vertx.tutorial.mqtt.DeviceSigner;
+import cn.homjie.vertx.tutorial.mqtt.MqttPublisher;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Vertx;
+
+/**
+ * {@link MqttPublishSample} as verticles: a gateway verticle routes the frames of its devices to one shard per core,
+ * each shard keeps the state of its devices and forwards their frames in batches to the publish verticle, which sends
+ * them to the broker.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class VertxPublishSample {
+
+    public static void main(String[] args) {
+        String broker = "tcp://30.43.89.203:1883";
+        String client = "Publish";
+        String deviceName = "dn";
+        String productKey = "pk";
+        String deviceSecret = "secret";
+        DeviceSigner signer = DeviceSigner.HMAC_MD5;
+
+        Vertx vertx = Vertx.vertx();
+        UplinkCodec.register(vertx.eventBus());
+        MqttPublisher.Builder publisher = MqttPublisher.builder(broker)
+            // 每次重连重新签名
+            .credentials(i -> signer.credentials(client + i, productKey, deviceName, deviceSecret,
+                System.currentTimeMillis()))
+            .connections(2);
+        vertx.deployVerticle(UplinkPublishVerticle.builder(publisher).qos(1).maxInFlight(512).build(), ar -> {
+            if (ar.failed()) {
+                System.out.println("Publish verticle failed: " + ar.cause());
+                vertx.close();
+                return;
+            }
+            // 处理器在各自分片的 event loop 上创建，批量发送器属于该分片
+            DeviceShards<long[]> shards = DeviceShards.builder(shard -> new Forwarder(vertx)).build();
+            shards.deploy(vertx).onSuccess(id -> vertx.deployVerticle(new Gateway(shards)));
+        });
+    }
+
+    /**
+     * Counts the frames of each device, without a lock, and forwards them.
+     */
+    private static class Forwarder implements DeviceHandler<long[]> {
+
+        private final UplinkBatcher batcher;
+
+        Forwarder(Vertx vertx) {
+            this.batcher = new UplinkBatcher(vertx, "uplink", 64, 0);
+        }
+
+        @Override
+        public long[] open(String productKey, String deviceName) {
+            return new long[1];
+        }
+
+        @Override
+        public void handle(long[] frames, Uplink uplink) {
+            frames[0]++;
+            batcher.send(uplink);
+        }
+    }
+
+    private static class Gateway extends AbstractVerticle {
+
+        private final DeviceShards<?> shards;
+
+        Gateway(DeviceShards<?> shards) {
+            this.shards = shards;
+        }
+
+        @Override
+        public void start() {
+            UplinkRouter router = shards.router(vertx);
+            vertx.setPeriodic(1000, id -> {
+                byte[] content = ("Message from VertxPublishSample " + id).getBytes(StandardCharsets.UTF_8);
+                router.send(Uplink.of("/lora/gwmp/uplink/pk/dn", content));
+            });
+        }
+    }
+}
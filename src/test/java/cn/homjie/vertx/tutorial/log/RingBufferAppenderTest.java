@@ -0,0 +1,172 @@
+package cn.homjie.vertx.tutorial.log;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.encoder.EncoderBase;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class RingBufferAppenderTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final List<Path> files = new ArrayList<>();
+
+    @After
+    public void tearDown() throws IOException {
+        context.stop();
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void multiThreadExample() throws Exception {
+        Path file = tempFile();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("[%thread] %msg%n");
+        encoder.start();
+        RingBufferAppender appender = appender(file, encoder, OverflowPolicy.BLOCK, 64);
+        Logger logger = logger(appender);
+
+        int threads = 8;
+        int perThread = 1000;
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    logger.info("message {}-{}", id, i);
+                }
+                latch.countDown();
+            }, "producer-" + t).start();
+        }
+        latch.await();
+        appender.stop();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        log.info("lines: {}, blocked: {}", lines.size(), appender.getBlockedCount());
+        // BLOCK 策略不丢日志，环形缓冲只有 64 个槽位，生产者会被阻塞
+        assertEquals(threads * perThread, lines.size());
+        assertEquals(0, appender.getDroppedCount());
+        assertEquals("[producer-3] message 3-0", first(lines, "[producer-3]"));
+    }
+
+    @Test
+    public void dropExample() throws Exception {
+        Path file = tempFile();
+        StalledEncoder encoder = new StalledEncoder();
+        encoder.setContext(context);
+        encoder.start();
+        RingBufferAppender appender = appender(file, encoder, OverflowPolicy.DROP, 4);
+        Logger logger = logger(appender);
+
+        logger.info("message 0");
+        assertTrue(encoder.stalled.await(5, TimeUnit.SECONDS));
+        // 写线程卡住期间，调用方不等待，写不下的被丢弃并计数
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i < 100; i++) {
+                logger.info("message {}", i);
+            }
+        }, "producer");
+        producer.start();
+        producer.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(producer.isAlive());
+        assertEquals(1, encoder.gate.getCount());
+        encoder.gate.countDown();
+        appender.stop();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        log.info("written: {}, dropped: {}", lines.size(), appender.getDroppedCount());
+        assertTrue(appender.getDroppedCount() > 0);
+        assertEquals(100, lines.size() + appender.getDroppedCount());
+    }
+
+    private RingBufferAppender appender(Path file, Encoder<ILoggingEvent> encoder, OverflowPolicy policy,
+                                        int bufferSize) {
+        RingBufferAppender appender = new RingBufferAppender();
+        appender.setContext(context);
+        appender.setName("ring");
+        appender.setFile(file.toString());
+        appender.setAppend(false);
+        appender.setEncoder(encoder);
+        appender.setPolicy(policy);
+        appender.setBufferSize(bufferSize);
+        appender.start();
+        return appender;
+    }
+
+    private Logger logger(RingBufferAppender appender) {
+        Logger logger = context.getLogger("ring");
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+        return logger;
+    }
+
+    private Path tempFile() throws IOException {
+        Path file = Files.createTempFile("ring-buffer-appender", ".log");
+        files.add(file);
+        return file;
+    }
+
+    private String first(List<String> lines, String prefix) {
+        for (String line : lines) {
+            if (line.startsWith(prefix)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stalls on the first event until the gate opens.
+     */
+    private static class StalledEncoder extends EncoderBase<ILoggingEvent> {
+
+        final CountDownLatch stalled = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+
+        @Override
+        public byte[] headerBytes() {
+            return null;
+        }
+
+        @Override
+        public byte[] encode(ILoggingEvent event) {
+            stalled.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                log.error("Await interrupt", e);
+            }
+            return (event.getFormattedMessage() + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public byte[] footerBytes() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import cn.homjie.vertx.tutorial.juc.ThreadPoolBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class DeviceSignerTest {
+
+    @Test
+    public void signExample() {
+        long millis = 1543478400000L;
+        for (DeviceSigner signer : new DeviceSigner[] {DeviceSigner.HMAC_MD5, DeviceSigner.HMAC_SHA256}) {
+            String password = signer.sign("secret", "Publish", "dn", "pk", millis);
+            log.info("{}: {}", signer.signMethod(), password);
+            assertEquals(expected(signer, "secret", "Publish", "dn", "pk", millis), password);
+            assertEquals(signer.passwordLength(), password.length());
+
+            char[] chars = new char[signer.passwordLength()];
+            signer.sign("secret", "Publish", "dn", "pk", millis, chars);
+            assertEquals(password, new String(chars));
+            // 非 ASCII 的名字按 UTF-8 签名
+            assertEquals(expected(signer, "密钥", "网关", "设备", "pk", millis), signer.sign("密钥", "网关", "设备", "pk", millis));
+        }
+        assertSame(DeviceSigner.HMAC_SHA256, DeviceSigner.of("HmacSHA256"));
+        assertNull(DeviceSigner.of("hmacsha1"));
+        assertEquals("Publish|securemode=2,signmethod=hmacmd5,timestamp=1543478400000|",
+            DeviceSigner.HMAC_MD5.clientId("Publish", millis));
+    }
+
+    @Test
+    public void verifyExample() {
+        DeviceSigner signer = DeviceSigner.HMAC_MD5;
+        byte[] password = signer.sign("secret", "c", "dn", "pk", 42).getBytes(StandardCharsets.US_ASCII);
+        assertTrue(signer.verify("secret", "c", "dn", "pk", "42", password));
+        assertFalse(signer.verify("secret", "c", "dn", "pk", "43", password));
+        assertFalse(signer.verify("guess", "c", "dn", "pk", "42", password));
+        assertFalse(signer.verify("secret", "c", "dn", "pk", "42", new byte[3]));
+    }
+
+    @Test
+    public void concurrentExample() throws Exception {
+        ExecutorService executor = ThreadPoolBuilder.newBuilder("device-signer").fixed(4).build();
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                int signed = 0;
+                // 设备数超过每个线程缓存的 Mac 数，覆盖淘汰后再次克隆
+                for (int i = 0; i < 500; i++) {
+                    DeviceSigner signer = i % 2 == 0 ? DeviceSigner.HMAC_MD5 : DeviceSigner.HMAC_SHA256;
+                    String secret = "secret-" + i % 100;
+                    String password = signer.sign(secret, "client-" + i, "dn-" + i, "pk", i);
+                    assertEquals(expected(signer, secret, "client-" + i, "dn-" + i, "pk", i), password);
+                    signed++;
+                }
+                return signed;
+            }));
+        }
+        int signed = 0;
+        for (Future<Integer> future : futures) {
+            signed += future.get();
+        }
+        executor.shutdown();
+        assertEquals(2000, signed);
+    }
+
+    private static String expected(DeviceSigner signer, String secret, String client, String deviceName,
+                                   String productKey, long millis) {
+        HmacAlgorithms algorithm = signer == DeviceSigner.HMAC_MD5 ? HmacAlgorithms.HMAC_MD5
+            : HmacAlgorithms.HMAC_SHA_256;
+        String value = "clientId" + client
+            + "deviceName" + deviceName
+            + "productKey" + productKey
+            + "timestamp" + millis;
+        return new HmacUtils(algorithm, secret).hmacHex(value);
+    }
+}
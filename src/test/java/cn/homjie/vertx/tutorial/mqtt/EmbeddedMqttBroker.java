@@ -0,0 +1,544 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import cn.homjie.vertx.tutorial.juc.SimpleThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An in-process MQTT 3.1.1 broker to publish against in tests and benchmarks. It accepts CONNECT through an
+ * {@link Authenticator}, acknowledges PUBLISH at QoS 0, 1 and 2 (with the QoS 2 exactly-once bookkeeping), answers
+ * PINGREQ and optionally speaks TLS. Messages are not routed to subscribers, a {@link PublishListener} sees them.
+ * <p>
+ * Connections are spread over a few NIO event loops; every read is processed as a whole and all replies to it leave
+ * in one write, which keeps up with well over 100k messages a second.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class EmbeddedMqttBroker implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FRAME = 16 * 1024 * 1024;
+
+    private final Builder options;
+    private final EventLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private ServerSocketChannel server;
+    private volatile boolean acksPaused;
+    private volatile boolean closed;
+
+    private EmbeddedMqttBroker(Builder options) {
+        this.options = options;
+        this.loops = new EventLoop[options.eventLoops];
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public EmbeddedMqttBroker start() throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", options.port), 1024);
+        server.configureBlocking(false);
+        SimpleThreadFactory threadFactory = new SimpleThreadFactory("mqtt-broker", true, Thread.NORM_PRIORITY);
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop();
+            threadFactory.newThread(loops[i]).start();
+        }
+        loops[0].execute(() -> server.register(loops[0].selector, SelectionKey.OP_ACCEPT));
+        log.info("Broker listening on {}{}", port(), options.sslContext != null ? " (TLS)" : "");
+        return this;
+    }
+
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    public String uri() {
+        return (options.sslContext != null ? "ssl" : "tcp") + "://127.0.0.1:" + port();
+    }
+
+    /**
+     * Open connections.
+     */
+    public long connections() {
+        return connections.sum();
+    }
+
+    /**
+     * PUBLISH frames received; a QoS 2 message sent again before its PUBREL counts once.
+     */
+    public long published() {
+        return published.sum();
+    }
+
+    /**
+     * Socket reads, to see how well clients batch.
+     */
+    public long reads() {
+        return reads.sum();
+    }
+
+    /**
+     * Holds back every PUBACK, PUBREC and PUBCOMP until {@link #resumeAcks()}, as an overloaded broker would.
+     */
+    public void pauseAcks() {
+        acksPaused = true;
+    }
+
+    public void resumeAcks() {
+        acksPaused = false;
+        for (EventLoop loop : loops) {
+            loop.execute(() -> {
+                for (Connection connection : loop.connections) {
+                    connection.releaseAcks();
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops every connection without a DISCONNECT, as a crashed broker would.
+     */
+    public void disconnectAll() {
+        for (EventLoop loop : loops) {
+            loop.execute(() -> {
+                for (Connection connection : loop.connections.toArray(new Connection[0])) {
+                    connection.close();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                loop.selector.wakeup();
+            }
+        }
+        server.close();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            EventLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+            SocketChannel accepted = channel;
+            loop.execute(() -> loop.register(accepted));
+        }
+    }
+
+    /**
+     * Decides on a CONNECT.
+     */
+    public interface Authenticator {
+
+        Authenticator ACCEPT_ALL = (clientId, username, password) -> 0;
+
+        /**
+         * @return the CONNACK return code, 0 to accept
+         */
+        int authenticate(String clientId, String username, byte[] password);
+    }
+
+    public interface PublishListener {
+
+        /**
+         * Called on the event loop; {@code payload} is only valid during the call.
+         */
+        void onPublish(String clientId, String topic, int qos, ByteBuffer payload);
+    }
+
+    private interface Task {
+
+        void run() throws IOException;
+    }
+
+    private final class EventLoop implements Runnable {
+
+        final Selector selector;
+        final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+        /**
+         * Only touched by the loop thread.
+         */
+        final Set<Connection> connections = new HashSet<>();
+        final NioTls.Scratch tlsScratch;
+
+        EventLoop() throws IOException {
+            this.selector = Selector.open();
+            this.tlsScratch = options.sslContext != null ? new NioTls.Scratch(options.sslContext) : null;
+        }
+
+        void execute(Task task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void register(SocketChannel channel) throws IOException {
+            Connection connection = new Connection(this, channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+            EmbeddedMqttBroker.this.connections.increment();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    Task task;
+                    while ((task = tasks.poll()) != null) {
+                        try {
+                            task.run();
+                        } catch (IOException | RuntimeException e) {
+                            log.warn("Event loop task failed", e);
+                        }
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                            continue;
+                        }
+                        Connection connection = (Connection)key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.onReadable();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.onWritable();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            log.debug("Connection {} failed: {}", connection.clientId, e.toString());
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Event loop failed", e);
+            } finally {
+                for (Connection connection : connections.toArray(new Connection[0])) {
+                    connection.close();
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    log.debug("Close selector error", e);
+                }
+            }
+        }
+    }
+
+    private final class Connection {
+
+        final EventLoop loop;
+        final SocketChannel channel;
+        final NioTls tls;
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        /**
+         * Acks held back while paused, encoded.
+         */
+        ByteBuffer heldAcks;
+        String clientId;
+        /**
+         * QoS 2 packet ids received and not yet released.
+         */
+        final BitSet awaitingRelease = new BitSet();
+
+        Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+            this.tls = options.sslContext != null ? new NioTls(serverEngine(), loop.tlsScratch) : null;
+        }
+
+        private SSLEngine serverEngine() {
+            SSLEngine engine = options.sslContext.createSSLEngine();
+            engine.setUseClientMode(false);
+            return engine;
+        }
+
+        void onReadable() throws IOException {
+            if (tls != null) {
+                in = tls.read(channel, in);
+            } else if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            reads.increment();
+            process();
+            flush();
+        }
+
+        void onWritable() throws IOException {
+            flush();
+        }
+
+        private void process() throws IOException {
+            in.flip();
+            int length;
+            while ((length = MqttCodec.frameLength(in)) >= 0 && in.remaining() >= length) {
+                int end = in.position() + length;
+                int first = in.get(in.position());
+                MqttCodec.skipFixedHeader(in);
+                handle(MqttCodec.type(first), first & 0x0F, end);
+                in.position(end);
+                if (key == null || !key.isValid()) {
+                    return;
+                }
+            }
+            in.compact();
+            if (length > in.capacity()) {
+                if (length > MAX_FRAME) {
+                    throw new MqttProtocolException("Frame of " + length + " bytes");
+                }
+                ByteBuffer larger = ByteBuffer.allocate(length);
+                in.flip();
+                larger.put(in);
+                in = larger;
+            }
+        }
+
+        private void handle(int type, int flags, int end) throws IOException {
+            if (clientId == null && type != MqttCodec.CONNECT) {
+                throw new MqttProtocolException("Expected CONNECT, got " + type);
+            }
+            switch (type) {
+                case MqttCodec.CONNECT:
+                    onConnect();
+                    break;
+                case MqttCodec.PUBLISH:
+                    onPublish(flags, end);
+                    break;
+                case MqttCodec.PUBREL:
+                    int packetId = in.getShort() & 0xFFFF;
+                    awaitingRelease.clear(packetId);
+                    ack(MqttCodec.PUBCOMP, packetId);
+                    break;
+                case MqttCodec.SUBSCRIBE:
+                    // 不做路由，每个订阅都回复失败
+                    int subscribeId = in.getShort() & 0xFFFF;
+                    int count = 0;
+                    while (in.position() < end) {
+                        MqttCodec.getString(in);
+                        in.get();
+                        count++;
+                    }
+                    MqttCodec.putFixedHeader(reserve(4 + count), MqttCodec.SUBACK, 0, 2 + count);
+                    out.putShort((short)subscribeId);
+                    for (int i = 0; i < count; i++) {
+                        out.put((byte)0x80);
+                    }
+                    break;
+                case MqttCodec.PINGREQ:
+                    MqttCodec.putEmpty(reserve(2), MqttCodec.PINGRESP);
+                    break;
+                case MqttCodec.DISCONNECT:
+                    flush();
+                    close();
+                    break;
+                default:
+                    throw new MqttProtocolException("Unexpected packet type " + type);
+            }
+        }
+
+        private void onConnect() throws IOException {
+            if (clientId != null) {
+                throw new MqttProtocolException("Second CONNECT");
+            }
+            String protocol = MqttCodec.getString(in);
+            int level = in.get();
+            int flags = in.get();
+            in.getShort();
+            String id = MqttCodec.getString(in);
+            if ((flags & 0x04) != 0) {
+                // 遗嘱主题和消息
+                MqttCodec.getString(in);
+                MqttCodec.getBytes(in);
+            }
+            String username = (flags & 0x80) != 0 ? MqttCodec.getString(in) : null;
+            byte[] password = (flags & 0x40) != 0 ? MqttCodec.getBytes(in) : null;
+            // 3.1.1，以及 Paho 被拒绝后会回退的 3.1
+            boolean supported = "MQTT".equals(protocol) && level == 4 || "MQIsdp".equals(protocol) && level == 3;
+            int returnCode = supported ? options.authenticator.authenticate(id, username, password) : 1;
+            MqttCodec.putConnack(reserve(4), false, returnCode);
+            if (returnCode != 0) {
+                log.info("Refused {} with return code {}", id, returnCode);
+                flush();
+                close();
+                return;
+            }
+            clientId = id;
+        }
+
+        private void onPublish(int flags, int end) throws IOException {
+            int qos = flags >> 1 & 3;
+            String topic = MqttCodec.getString(in);
+            int packetId = qos > 0 ? in.getShort() & 0xFFFF : 0;
+            if (qos == 2 && awaitingRelease.get(packetId)) {
+                // 重发的 QoS 2 消息只确认不重复投递
+                ack(MqttCodec.PUBREC, packetId);
+                return;
+            }
+            published.increment();
+            if (options.listener != null) {
+                ByteBuffer payload = in.duplicate();
+                payload.limit(end);
+                options.listener.onPublish(clientId, topic, qos, payload);
+            }
+            if (qos == 1) {
+                ack(MqttCodec.PUBACK, packetId);
+            } else if (qos == 2) {
+                awaitingRelease.set(packetId);
+                ack(MqttCodec.PUBREC, packetId);
+            }
+        }
+
+        private void ack(int type, int packetId) {
+            if (!acksPaused) {
+                MqttCodec.putAck(reserve(4), type, packetId);
+                return;
+            }
+            if (heldAcks == null) {
+                heldAcks = ByteBuffer.allocate(1024);
+            }
+            if (heldAcks.remaining() < 4) {
+                ByteBuffer larger = ByteBuffer.allocate(heldAcks.capacity() * 2);
+                heldAcks.flip();
+                heldAcks = larger.put(heldAcks);
+            }
+            MqttCodec.putAck(heldAcks, type, packetId);
+        }
+
+        void releaseAcks() throws IOException {
+            if (heldAcks != null && key.isValid()) {
+                heldAcks.flip();
+                reserve(heldAcks.remaining()).put(heldAcks);
+                heldAcks = null;
+                flush();
+            }
+        }
+
+        /**
+         * Makes room for {@code size} more bytes in {@code out}.
+         */
+        private ByteBuffer reserve(int size) {
+            if (out.remaining() < size) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + size));
+                out.flip();
+                out = larger.put(out);
+            }
+            return out;
+        }
+
+        /**
+         * Writes what it can; while bytes are left the connection stops reading, so a slow client cannot make the
+         * broker buffer without bound.
+         */
+        private void flush() throws IOException {
+            if (!key.isValid()) {
+                return;
+            }
+            out.flip();
+            if (tls == null) {
+                channel.write(out);
+            } else {
+                tls.write(channel, out);
+            }
+            out.compact();
+            boolean pending = out.position() > 0 || tls != null && tls.pending();
+            key.interestOps(pending ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        void close() {
+            if (key != null && !key.isValid()) {
+                return;
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Close channel error", e);
+            }
+            if (loop.connections.remove(this)) {
+                connections.decrement();
+            }
+        }
+    }
+
+    public static class Builder {
+
+        int port;
+        int eventLoops = 2;
+        SSLContext sslContext;
+        Authenticator authenticator = Authenticator.ACCEPT_ALL;
+        PublishListener listener;
+
+        /**
+         * 0, the default, picks a free port.
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder eventLoops(int eventLoops) {
+            this.eventLoops = eventLoops;
+            return this;
+        }
+
+        public Builder tls(SSLContext sslContext) {
+            this.sslContext = sslContext;
+            return this;
+        }
+
+        public Builder authenticator(Authenticator authenticator) {
+            this.authenticator = authenticator;
+            return this;
+        }
+
+        public Builder listener(PublishListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public EmbeddedMqttBroker build() {
+            return new EmbeddedMqttBroker(this);
+        }
+    }
+}
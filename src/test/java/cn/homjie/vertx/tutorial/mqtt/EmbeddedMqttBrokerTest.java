@@ -0,0 +1,174 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class EmbeddedMqttBrokerTest {
+
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private EmbeddedMqttBroker broker;
+
+    @After
+    public void tearDown() throws IOException {
+        broker.close();
+    }
+
+    @Test
+    public void pahoOverTlsExample() throws Exception {
+        broker = EmbeddedMqttBroker.builder()
+            .tls(TestCertificates.serverContext())
+            .authenticator(new HmacAuthenticator((pk, dn) -> "pk".equals(pk) ? "secret" : null))
+            .listener((clientId, topic, qos, payload) ->
+                received.add(topic + ":" + qos + ":" + StandardCharsets.UTF_8.decode(payload)))
+            .build()
+            .start();
+        MqttCredentials credentials = HmacAuthenticator.credentials("Publish", "pk", "dn", "secret", "hmacmd5",
+            System.currentTimeMillis());
+        MqttClient client = new MqttClient(broker.uri(), credentials.getClientId(), new MemoryPersistence());
+        client.connect(options(credentials));
+        for (int qos = 0; qos <= 2; qos++) {
+            client.publish("/lora/gwmp/uplink/pk/dn", ("qos" + qos).getBytes(StandardCharsets.UTF_8), qos, false);
+        }
+        client.disconnect();
+        client.close();
+        log.info("received: {}", received);
+        assertEquals(3, received.size());
+        assertTrue(received.contains("/lora/gwmp/uplink/pk/dn:2:qos2"));
+    }
+
+    /**
+     * The broker closes the socket right after a refusing CONNACK; a client stuck on that must fail the test, not hang
+     * the build.
+     */
+    @Test(timeout = 30_000)
+    public void authenticationExample() throws Exception {
+        broker = EmbeddedMqttBroker.builder()
+            .authenticator(new HmacAuthenticator((pk, dn) -> "pk".equals(pk) ? "secret" : null))
+            .build()
+            .start();
+        long now = System.currentTimeMillis();
+        MqttCredentials sha256 = HmacAuthenticator.credentials("c1", "pk", "dn", "secret", "hmacsha256", now);
+        MqttClient client = new MqttClient(broker.uri(), sha256.getClientId(), new MemoryPersistence());
+        client.connect(options(sha256));
+        client.disconnect();
+        client.close();
+
+        MqttCredentials wrongSecret = HmacAuthenticator.credentials("c2", "pk", "dn", "guess", "hmacmd5", now);
+        MqttClient rejected = new MqttClient(broker.uri(), wrongSecret.getClientId(), new MemoryPersistence());
+        // 不设置时 Paho 无限等待 CONNACK
+        rejected.setTimeToWait(TimeUnit.SECONDS.toMillis(10));
+        MqttConnectOptions refusedOptions = options(wrongSecret);
+        refusedOptions.setConnectionTimeout(10);
+        try {
+            rejected.connect(refusedOptions);
+            fail("Unreachable");
+        } catch (MqttException e) {
+            log.info("refused: {}", e.getMessage());
+            assertEquals(MqttException.REASON_CODE_FAILED_AUTHENTICATION, e.getReasonCode());
+        } finally {
+            // 连接可能还停在 connecting 状态，强制关闭
+            rejected.close(true);
+        }
+    }
+
+    @Test
+    public void exactlyOnceExample() throws Exception {
+        broker = EmbeddedMqttBroker.builder().build().start();
+        try (Socket socket = new Socket("127.0.0.1", broker.port())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            ByteBuffer frames = ByteBuffer.allocate(256);
+            MqttCodec.putConnect(frames, "raw", null, null, 60, true);
+            byte[] payload = {1, 2, 3};
+            // 同一条 QoS 2 消息发送两次，第二次是未收到 PUBREC 时的重发
+            for (int i = 0; i < 2; i++) {
+                MqttCodec.putPublishHeader(frames, "/t", 2, 2, i > 0, false, 7, payload.length);
+                frames.put(payload);
+            }
+            MqttCodec.putAck(frames, MqttCodec.PUBREL, 7);
+            out.write(frames.array(), 0, frames.position());
+            out.flush();
+            // CONNACK, PUBREC, PUBREC, PUBCOMP
+            byte[] replies = new byte[16];
+            int read = 0;
+            while (read < replies.length) {
+                read += in.read(replies, read, replies.length - read);
+            }
+            assertEquals(MqttCodec.CONNACK, MqttCodec.type(replies[0]));
+            assertEquals(MqttCodec.PUBREC, MqttCodec.type(replies[4]));
+            assertEquals(MqttCodec.PUBREC, MqttCodec.type(replies[8]));
+            assertEquals(MqttCodec.PUBCOMP, MqttCodec.type(replies[12]));
+        }
+        assertEquals(1, broker.published());
+    }
+
+    @Test
+    public void throughputExample() throws Exception {
+        broker = EmbeddedMqttBroker.builder().build().start();
+        for (boolean tls : new boolean[] {false, true}) {
+            if (tls) {
+                broker.close();
+                broker = EmbeddedMqttBroker.builder().tls(TestCertificates.serverContext()).build().start();
+            }
+            MqttPublisher.Builder builder = MqttPublisher.builder(broker.uri())
+                .credentials(i -> new MqttCredentials("load-" + i, null, null))
+                .connections(4)
+                .window(1024);
+            if (tls) {
+                builder.socketFactory(TestCertificates.clientContext().getSocketFactory());
+            }
+            int count = 100_000;
+            byte[] payload = new byte[64];
+            try (MqttPublisher publisher = builder.build()) {
+                publisher.start();
+                List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    futures.add(publisher.publish("/lora/gwmp/uplink/pk/dn", payload, 1));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+                long nanos = System.nanoTime() - start;
+                log.info("{}: {} QoS 1 messages in {}ms, {} msg/s", broker.uri(), count,
+                    TimeUnit.NANOSECONDS.toMillis(nanos), count * TimeUnit.SECONDS.toNanos(1) / nanos);
+            }
+            assertEquals(count, broker.published());
+        }
+    }
+
+    private MqttConnectOptions options(MqttCredentials credentials) throws Exception {
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setUserName(credentials.getUsername());
+        options.setPassword(credentials.getPassword().toCharArray());
+        options.setCleanSession(true);
+        if (broker.uri().startsWith("ssl")) {
+            options.setSocketFactory(TestCertificates.clientContext().getSocketFactory());
+        }
+        return options;
+    }
+}
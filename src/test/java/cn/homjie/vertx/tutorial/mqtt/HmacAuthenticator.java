@@ -0,0 +1,82 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.util.function.BiFunction;
+
+/**
+ * The device authentication of {@link cn.homjie.vertx.tutorial.juc.MqttPublishSample}, broker side:
+ * <pre>
+ * clientId = client + "|securemode=2,signmethod=hmacmd5,timestamp=" + millis + "|"
+ * username = deviceName + "&amp;" + productKey
+ * password = hex(hmac(deviceSecret, "clientId" + client + "deviceName" + deviceName
+ *                                   + "productKey" + productKey + "timestamp" + millis))
+ * </pre>
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class HmacAuthenticator implements EmbeddedMqttBroker.Authenticator {
+
+    private static final int ACCEPTED = 0;
+    private static final int IDENTIFIER_REJECTED = 2;
+    private static final int BAD_USERNAME_OR_PASSWORD = 4;
+    private static final int NOT_AUTHORIZED = 5;
+
+    /**
+     * Secret by product key and device name, null for unknown devices.
+     */
+    private final BiFunction<String, String, String> deviceSecrets;
+
+    public HmacAuthenticator(BiFunction<String, String, String> deviceSecrets) {
+        this.deviceSecrets = deviceSecrets;
+    }
+
+    @Override
+    public int authenticate(String clientId, String username, byte[] password) {
+        int open = clientId.indexOf('|');
+        int close = clientId.lastIndexOf('|');
+        if (open < 0 || close <= open) {
+            return IDENTIFIER_REJECTED;
+        }
+        String client = clientId.substring(0, open);
+        String signMethod = null;
+        String timestamp = null;
+        for (String param : clientId.substring(open + 1, close).split(",")) {
+            int eq = param.indexOf('=');
+            if (eq < 0) {
+                continue;
+            }
+            String key = param.substring(0, eq);
+            if ("signmethod".equals(key)) {
+                signMethod = param.substring(eq + 1);
+            } else if ("timestamp".equals(key)) {
+                timestamp = param.substring(eq + 1);
+            }
+        }
+        DeviceSigner signer = DeviceSigner.of(signMethod);
+        if (signer == null || timestamp == null) {
+            return IDENTIFIER_REJECTED;
+        }
+        int amp = username == null ? -1 : username.indexOf('&');
+        if (amp < 0 || password == null) {
+            return BAD_USERNAME_OR_PASSWORD;
+        }
+        String deviceName = username.substring(0, amp);
+        String productKey = username.substring(amp + 1);
+        String secret = deviceSecrets.apply(productKey, deviceName);
+        if (secret == null) {
+            return NOT_AUTHORIZED;
+        }
+        return signer.verify(secret, client, deviceName, productKey, timestamp, password)
+            ? ACCEPTED : BAD_USERNAME_OR_PASSWORD;
+    }
+
+    /**
+     * What a device sends, for tests that connect to the broker.
+     *
+     * @param signMethod {@code hmacmd5} or {@code hmacsha256}
+     */
+    public static MqttCredentials credentials(String client, String productKey, String deviceName,
+                                              String deviceSecret, String signMethod, long timestamp) {
+        return DeviceSigner.of(signMethod).credentials(client, productKey, deviceName, deviceSecret, timestamp);
+    }
+}
@@ -0,0 +1,197 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import cn.homjie.vertx.tutorial.juc.ThreadPoolBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class KeyStoreCacheTest {
+
+    private static final char[] PASSWORD = "pwd123!".toCharArray();
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("keystore-cache");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void lookupExample() throws Exception {
+        List<Path> keyStores = provision(3, 60);
+        KeyStoreCache cache = KeyStoreCache.builder(keyStores)
+            .password(PASSWORD)
+            .maximumSize(40)
+            .build();
+        long start = System.nanoTime();
+        Key first = cache.getKey("dn-0");
+        long decrypt = System.nanoTime() - start;
+        start = System.nanoTime();
+        assertSame(first, cache.getKey("dn-0"));
+        long hit = System.nanoTime() - start;
+        log.info("decrypted in {}us, then cached in {}us", TimeUnit.NANOSECONDS.toMicros(decrypt),
+            TimeUnit.NANOSECONDS.toMicros(hit));
+        assertEquals(direct(keyStores, "dn-0"), first);
+
+        for (int i = 1; i < 60; i++) {
+            Key key = cache.getKey("dn-" + i);
+            if (i % 10 == 0) {
+                assertEquals(direct(keyStores, "dn-" + i), key);
+            }
+        }
+        assertNull(cache.getKey("unknown"));
+        log.info("{} hits, {} misses, {} evictions, {} cached", cache.hits(), cache.misses(), cache.evictions(),
+            cache.size());
+        assertEquals(1, cache.hits());
+        // unknown 也要查一次 keystore
+        assertEquals(61, cache.misses());
+        // 每个分条最多 3 个，共 16 个分条
+        assertTrue(cache.size() <= 48);
+        assertTrue(cache.evictions() >= 60 - 48);
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        cache.getKey("dn-1");
+        assertEquals(62, cache.misses());
+    }
+
+    @Test
+    public void expiryExample() throws Exception {
+        List<Path> keyStores = provision(1, 4);
+        KeyStoreCache cache = KeyStoreCache.builder(keyStores.get(0))
+            .password(PASSWORD)
+            .expireAfterWrite(200, TimeUnit.MILLISECONDS)
+            .build();
+        Key key = cache.getKey("dn-2");
+        assertSame(key, cache.getKey("dn-2"));
+        sleep(300);
+        Key decrypted = cache.getKey("dn-2");
+        assertEquals(key, decrypted);
+        assertEquals(2, cache.misses());
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    public void singleFlightExample() throws Exception {
+        List<Path> keyStores = provision(1, 4);
+        KeyStoreCache cache = KeyStoreCache.builder(keyStores)
+            .password(PASSWORD)
+            .build();
+        int threads = 8;
+        ExecutorService executor = ThreadPoolBuilder.newBuilder("keystore-reader").fixed(threads).build();
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<Key>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                ready.await();
+                return cache.getKey("dn-3");
+            }));
+        }
+        ready.countDown();
+        Key key = futures.get(0).get();
+        for (Future<Key> future : futures) {
+            assertSame(key, future.get());
+        }
+        executor.shutdown();
+        // 同时未命中的线程等同一次解密
+        assertEquals(1, cache.misses());
+        assertEquals(threads - 1, cache.hits());
+    }
+
+    @Test
+    public void jksExample() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        KeyPair keyPair = generator.generateKeyPair();
+        Certificate certificate = SelfSignedCertificate.create("gateway", keyPair, TimeUnit.DAYS.toMillis(1),
+            new SecureRandom());
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        keyStore.load(null, null);
+        char[] protect = "kspp543@".toCharArray();
+        keyStore.setKeyEntry("gateway", keyPair.getPrivate(), protect, new Certificate[] {certificate});
+        Path path = directory.resolve("gateway.jks");
+        try (OutputStream out = Files.newOutputStream(path)) {
+            keyStore.store(out, PASSWORD);
+        }
+
+        KeyStoreCache cache = KeyStoreCache.builder(path)
+            .password(PASSWORD)
+            .keyPassword(protect)
+            .build();
+        assertEquals(keyPair.getPrivate(), cache.getKey("gateway"));
+        assertEquals(certificate, cache.getCertificate("gateway"));
+        assertNotNull(cache.getKey("gateway"));
+        assertEquals(1, cache.misses());
+    }
+
+    private List<Path> provision(int shards, int devices) throws Exception {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < devices; i++) {
+            names.add("dn-" + i);
+        }
+        return KeyProvisioner.secrets("AES", 256)
+            .directory(directory)
+            .password(PASSWORD)
+            .shards(shards)
+            .build()
+            .provision(names);
+    }
+
+    private static Key direct(List<Path> keyStores, String alias) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStores.get(KeyProvisioner.shardOf(alias, keyStores.size())))) {
+            keyStore.load(in, PASSWORD);
+        }
+        return keyStore.getKey(alias, PASSWORD);
+    }
+
+    private void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
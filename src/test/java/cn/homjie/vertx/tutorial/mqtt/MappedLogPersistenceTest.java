@@ -0,0 +1,232 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class MappedLogPersistenceTest {
+
+    private Path directory;
+    private EmbeddedMqttBroker broker;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("persistence");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (broker != null) {
+            broker.close();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void reopenExample() throws Exception {
+        MappedLogPersistence persistence = new MappedLogPersistence(directory);
+        persistence.open("client", "tcp://localhost:1883");
+        for (int i = 0; i < 100; i++) {
+            persistence.put("s-" + i, persistable("header-" + i, "payload-" + i));
+        }
+        for (int i = 0; i < 100; i += 2) {
+            persistence.remove("s-" + i);
+        }
+        // 同一个 key 再次写入，以最后一次为准
+        persistence.put("s-1", persistable("header-1", "again"));
+        try {
+            new MappedLogPersistence(directory).open("client", "tcp://localhost:1883");
+            fail("Unreachable");
+        } catch (MqttPersistenceException e) {
+            assertEquals(MqttPersistenceException.REASON_CODE_PERSISTENCE_IN_USE, e.getReasonCode());
+        }
+        persistence.close();
+
+        MappedLogPersistence reopened = new MappedLogPersistence(directory);
+        reopened.open("client", "tcp://localhost:1883");
+        List<String> keys = Collections.list(reopened.keys());
+        log.info("{} keys after reopen", keys.size());
+        assertEquals(50, keys.size());
+        assertFalse(reopened.containsKey("s-0"));
+        assertNull(reopened.get("s-0"));
+        MqttPersistable message = reopened.get("s-3");
+        assertEquals("header-3", new String(message.getHeaderBytes(), StandardCharsets.UTF_8));
+        assertEquals("payload-3", new String(message.getPayloadBytes(), StandardCharsets.UTF_8));
+        assertEquals("again", new String(reopened.get("s-1").getPayloadBytes(), StandardCharsets.UTF_8));
+        reopened.close();
+    }
+
+    @Test
+    public void compactExample() throws Exception {
+        MappedLogPersistence persistence = new MappedLogPersistence(directory, 4096, 0);
+        persistence.open("client", "tcp://localhost:1883");
+        byte[] payload = new byte[100];
+        // 一条消息始终在途，其余写入后马上确认
+        persistence.put("s-long", persistable("long", "lived"));
+        for (int i = 0; i < 2000; i++) {
+            payload[0] = (byte)i;
+            persistence.put("s-" + i, persistable("h", payload));
+            persistence.remove("s-" + i);
+            if (i % 100 == 0) {
+                persistence.compact();
+            }
+        }
+        persistence.compact();
+        log.info("{} segments after compaction", persistence.segments());
+        assertTrue(persistence.segments() <= 2);
+        persistence.close();
+
+        persistence = new MappedLogPersistence(directory, 4096, 0);
+        persistence.open("client", "tcp://localhost:1883");
+        assertEquals(Collections.singletonList("s-long"), Collections.list(persistence.keys()));
+        assertArrayEquals("lived".getBytes(StandardCharsets.UTF_8), persistence.get("s-long").getPayloadBytes());
+        persistence.close();
+    }
+
+    @Test
+    public void tornWriteExample() throws Exception {
+        MappedLogPersistence persistence = new MappedLogPersistence(directory, 4096, 0);
+        persistence.open("client", "tcp://localhost:1883");
+        persistence.put("s-1", persistable("h", "first"));
+        persistence.put("s-2", persistable("h", "second"));
+        persistence.close();
+        // 模拟崩溃时只写了一半的第二条记录：改坏它的一个字节
+        Path segment;
+        try (Stream<Path> files = Files.list(directory.resolve("client-tcplocalhost1883"))) {
+            segment = files.filter(p -> p.toString().endsWith(".log"))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        int second = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("second");
+        bytes[second] = 'x';
+        Files.write(segment, bytes);
+
+        persistence = new MappedLogPersistence(directory, 4096, 0);
+        persistence.open("client", "tcp://localhost:1883");
+        assertEquals(Collections.singletonList("s-1"), Collections.list(persistence.keys()));
+        persistence.put("s-3", persistable("h", "third"));
+        persistence.close();
+        persistence = new MappedLogPersistence(directory, 4096, 0);
+        persistence.open("client", "tcp://localhost:1883");
+        assertEquals(2, Collections.list(persistence.keys()).size());
+        assertTrue(persistence.containsKey("s-3"));
+        persistence.close();
+    }
+
+    @Test
+    public void pahoRestartExample() throws Exception {
+        broker = EmbeddedMqttBroker.builder().build().start();
+        broker.pauseAcks();
+        MqttClient client = new MqttClient(broker.uri(), "durable", new MappedLogPersistence(directory));
+        client.connect(options());
+        for (int i = 0; i < 10; i++) {
+            client.getTopic("/lora/gwmp/uplink/pk/dn").publish(new byte[] {(byte)i}, 1 + i % 2, false);
+        }
+        while (broker.published() < 10) {
+            sleep();
+        }
+        // 进程崩溃前消息都没有被确认
+        client.disconnectForcibly(0, 0);
+        client.close();
+
+        broker.resumeAcks();
+        MappedLogPersistence persistence = new MappedLogPersistence(directory);
+        MqttClient restarted = new MqttClient(broker.uri(), "durable", persistence);
+        restarted.connect(options());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (persistence.keys().hasMoreElements() && System.currentTimeMillis() < deadline) {
+            sleep();
+        }
+        log.info("broker received {} publishes", broker.published());
+        // 重启后在途的消息全部重发并确认
+        assertEquals(20, broker.published());
+        assertFalse(persistence.keys().hasMoreElements());
+        restarted.disconnect();
+        restarted.close();
+    }
+
+    private MqttConnectOptions options() {
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(false);
+        return options;
+    }
+
+    private static MqttPersistable persistable(String header, String payload) {
+        return persistable(header, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MqttPersistable persistable(String header, byte[] payload) {
+        byte[] h = header.getBytes(StandardCharsets.UTF_8);
+        return new MqttPersistable() {
+            @Override
+            public byte[] getHeaderBytes() {
+                return h;
+            }
+
+            @Override
+            public int getHeaderLength() {
+                return h.length;
+            }
+
+            @Override
+            public int getHeaderOffset() {
+                return 0;
+            }
+
+            @Override
+            public byte[] getPayloadBytes() {
+                return payload;
+            }
+
+            @Override
+            public int getPayloadLength() {
+                return payload.length;
+            }
+
+            @Override
+            public int getPayloadOffset() {
+                return 0;
+            }
+        };
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class MqttCodecTest {
+
+    @Test
+    public void stringExample() {
+        String[] strings = {
+            "/lora/gwmp/uplink/pk/dn",
+            "/设备/温度",
+            "/emoji/😀",
+            // 落单的高位代理项，后面跟着普通字符
+            "/broken/\uD83Dx",
+            // 落单的低位代理项，以及结尾的高位代理项
+            "/broken/\uDE00/\uD83D",
+            "/mixed/\uD83Dé"
+        };
+        for (String s : strings) {
+            byte[] expected = s.getBytes(StandardCharsets.UTF_8);
+            assertEquals(s, expected.length, MqttCodec.utf8Length(s));
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            MqttCodec.putString(buffer, s);
+            // 长度前缀与写出的字节数一致，后面的字段不会错位
+            assertEquals(s, 2 + expected.length, buffer.position());
+            buffer.flip();
+            assertEquals(expected.length, buffer.getShort(0) & 0xFFFF);
+            byte[] written = new byte[expected.length];
+            ((ByteBuffer)buffer.position(2)).get(written);
+            assertArrayEquals(s, expected, written);
+        }
+    }
+
+    @Test
+    public void tooLongExample() {
+        char[] chars = new char[MqttCodec.MAX_STRING_LENGTH];
+        Arrays.fill(chars, 'a');
+        assertEquals(MqttCodec.MAX_STRING_LENGTH, MqttCodec.utf8Length(new String(chars)));
+        chars[0] = 'é';
+        try {
+            MqttCodec.utf8Length(new String(chars));
+            fail("Unreachable");
+        } catch (IllegalArgumentException e) {
+            log.info("Expected: {}", e.getMessage());
+        }
+        try {
+            MqttCodec.putBytes(ByteBuffer.allocate(70_000), new byte[MqttCodec.MAX_STRING_LENGTH + 1]);
+            fail("Unreachable");
+        } catch (IllegalArgumentException e) {
+            log.info("Expected: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,727 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import cn.homjie.vertx.tutorial.juc.LatencyHistogram;
+import cn.homjie.vertx.tutorial.juc.SimpleThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link cn.homjie.vertx.tutorial.juc.MqttPublishSample} for many devices: each device signs its own
+ * {@code clientId|securemode=2,signmethod=...,timestamp=...|} credentials with {@link DeviceSigner}, connects and
+ * publishes to {@code /lora/gwmp/uplink/pk/dn} at a fixed interval. Instead of a Paho client with its own threads per
+ * device, all devices are multiplexed over a few NIO event loops, a device costs a socket and a few hundred bytes
+ * (plus its {@link SSLEngine} over TLS), so 100k devices fit in one process given enough file descriptors.
+ * <pre>
+ * MqttDeviceSimulator simulator = MqttDeviceSimulator.builder("ssl://gateway:1883")
+ *     .devices(100_000)
+ *     .connectRate(2000)
+ *     .deviceSecrets((pk, dn) -&gt; "secret")
+ *     .tls(sslContext)
+ *     .build()
+ *     .start();
+ * simulator.awaitConnected(5, TimeUnit.MINUTES);
+ * log.info("{}", simulator.report());
+ * </pre>
+ * Connects are paced at {@code connectRate} by a ramp thread; the connect latency runs from opening the socket to the
+ * CONNACK, TLS handshake included, the publish latency from writing a PUBLISH to its PUBACK (QoS 1) or PUBCOMP
+ * (QoS 2). A device keeps at most {@value #WINDOW} messages in flight and skips its turn when they are all unacked.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class MqttDeviceSimulator implements Closeable {
+
+    private static final int WINDOW = 16;
+
+    private final Builder options;
+    private final Loop[] loops;
+    private final CountDownLatch settled;
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+    private final LatencyHistogram publishLatency = new LatencyHistogram();
+    private final LongAdder connected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final byte[] payload;
+    private Thread ramp;
+    private volatile long startNanos;
+    private volatile long lastConnackNanos;
+    private volatile boolean closed;
+
+    private MqttDeviceSimulator(Builder options) {
+        this.options = options;
+        this.loops = new Loop[options.eventLoops];
+        this.settled = new CountDownLatch(options.devices);
+        this.payload = new byte[options.payloadSize];
+    }
+
+    public static Builder builder(String serverUri) {
+        return new Builder(serverUri);
+    }
+
+    /**
+     * Usage: {@code MqttDeviceSimulator tcp://host:1883 [devices] [connectRate] [seconds]}, all devices of product
+     * {@code pk} named {@code dn-<i>} with secret {@code secret}. Over {@code ssl://} the certificate in
+     * {@code ca.crt} is trusted.
+     */
+    public static void main(String[] args) throws Exception {
+        String uri = args.length > 0 ? args[0] : "tcp://127.0.0.1:1883";
+        Builder builder = builder(uri)
+            .devices(args.length > 1 ? Integer.parseInt(args[1]) : 10_000)
+            .connectRate(args.length > 2 ? Integer.parseInt(args[2]) : 1000);
+        long seconds = args.length > 3 ? Long.parseLong(args[3]) : 60;
+        if (uri.startsWith("ssl")) {
+            builder.tls(TlsContextProvider.builder().trustCertificates(Paths.get("ca.crt")).build().context());
+        }
+        try (MqttDeviceSimulator simulator = builder.build().start()) {
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            while (System.nanoTime() < end) {
+                TimeUnit.SECONDS.sleep(5);
+                log.info("{}", simulator.report());
+            }
+        }
+    }
+
+    public MqttDeviceSimulator start() {
+        SimpleThreadFactory threadFactory = new SimpleThreadFactory("mqtt-simulator", true, Thread.NORM_PRIORITY);
+        for (int i = 0; i < loops.length; i++) {
+            try {
+                loops[i] = new Loop();
+            } catch (IOException e) {
+                throw new IllegalStateException("Open selector error", e);
+            }
+            threadFactory.newThread(loops[i]).start();
+        }
+        startNanos = System.nanoTime();
+        ramp = new SimpleThreadFactory("mqtt-simulator-ramp", true, Thread.NORM_PRIORITY).newThread(this::ramp);
+        ramp.start();
+        return this;
+    }
+
+    /**
+     * Waits until every device is connected or has failed to.
+     *
+     * @return false on timeout
+     */
+    public boolean awaitConnected(long timeout, TimeUnit unit) throws InterruptedException {
+        return settled.await(timeout, unit);
+    }
+
+    public long connected() {
+        return connected.sum();
+    }
+
+    /**
+     * Devices that could not connect: refused, unreachable or a failed handshake.
+     */
+    public long failed() {
+        return failed.sum();
+    }
+
+    /**
+     * Devices disconnected after their CONNACK.
+     */
+    public long lost() {
+        return lost.sum();
+    }
+
+    public long published() {
+        return published.sum();
+    }
+
+    /**
+     * QoS 1/2 messages acknowledged.
+     */
+    public long acked() {
+        return acked.sum();
+    }
+
+    public LatencyHistogram connectLatency() {
+        return connectLatency;
+    }
+
+    public LatencyHistogram publishLatency() {
+        return publishLatency;
+    }
+
+    public String report() {
+        long now = System.nanoTime();
+        long connectNanos = Math.max(1, (settled.getCount() == 0 ? lastConnackNanos : now) - startNanos);
+        long runNanos = Math.max(1, now - startNanos);
+        TimeUnit us = TimeUnit.MICROSECONDS;
+        return "devices=" + options.devices
+            + " connected=" + connected.sum()
+            + " failed=" + failed.sum()
+            + " lost=" + lost.sum()
+            + " connects/s=" + connected.sum() * TimeUnit.SECONDS.toNanos(1) / connectNanos
+            + " connect(us) p50=" + connectLatency.percentile(50, us)
+            + " p99=" + connectLatency.percentile(99, us)
+            + " max=" + connectLatency.max(us)
+            + " published=" + published.sum()
+            + " publish/s=" + published.sum() * TimeUnit.SECONDS.toNanos(1) / runNanos
+            + " acked=" + acked.sum()
+            + " skipped=" + skipped.sum()
+            + " publish(us) p50=" + publishLatency.percentile(50, us)
+            + " p99=" + publishLatency.percentile(99, us)
+            + " p999=" + publishLatency.percentile(99.9, us)
+            + " max=" + publishLatency.max(us);
+    }
+
+    /**
+     * Sends DISCONNECT from every connected device and stops the event loops.
+     */
+    @Override
+    public void close() {
+        if (ramp != null) {
+            ramp.interrupt();
+        }
+        CountDownLatch disconnected = new CountDownLatch(loops.length);
+        for (Loop loop : loops) {
+            if (loop == null) {
+                disconnected.countDown();
+                continue;
+            }
+            loop.execute(() -> {
+                loop.disconnectAll();
+                disconnected.countDown();
+            });
+        }
+        try {
+            if (!disconnected.await(10, TimeUnit.SECONDS)) {
+                log.warn("Disconnect timeout");
+            }
+        } catch (InterruptedException e) {
+            log.warn("Disconnect interrupt");
+        }
+        closed = true;
+        for (Loop loop : loops) {
+            if (loop != null) {
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    private void ramp() {
+        long interval = options.connectRate > 0 ? TimeUnit.SECONDS.toNanos(1) / options.connectRate : 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < options.devices && !closed; i++) {
+            long wait = start + i * interval - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                if (Thread.interrupted()) {
+                    return;
+                }
+            }
+            Loop loop = loops[i % loops.length];
+            Device device = new Device(loop, i);
+            loop.execute(device::connect);
+        }
+    }
+
+    private interface Task {
+
+        void run() throws IOException;
+    }
+
+    private final class Loop implements Runnable {
+
+        final Selector selector;
+        final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+        final NioTls.Scratch tlsScratch;
+        /**
+         * Devices by the time of their next publish or PINGREQ, only touched by the loop thread.
+         */
+        final PriorityQueue<Device> timers = new PriorityQueue<>((a, b) -> Long.compare(a.due, b.due));
+        final List<Device> devices = new ArrayList<>();
+
+        Loop() throws IOException {
+            this.selector = Selector.open();
+            this.tlsScratch = options.sslContext != null ? new NioTls.Scratch(options.sslContext) : null;
+        }
+
+        void execute(Task task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    Device next = timers.peek();
+                    if (next == null) {
+                        selector.select();
+                    } else {
+                        long millis = TimeUnit.NANOSECONDS.toMillis(next.due - System.nanoTime());
+                        if (millis > 0) {
+                            selector.select(millis);
+                        } else {
+                            selector.selectNow();
+                        }
+                    }
+                    Task task;
+                    while ((task = tasks.poll()) != null) {
+                        try {
+                            task.run();
+                        } catch (IOException | RuntimeException e) {
+                            log.warn("Event loop task failed", e);
+                        }
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Device device = (Device)key.attachment();
+                        try {
+                            if (key.isValid() && key.isConnectable()) {
+                                device.onConnectable();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                device.onReadable();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                device.flush();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            log.debug("Device {} failed: {}", device.index, e.toString());
+                            device.close();
+                        }
+                    }
+                    fireTimers();
+                }
+            } catch (IOException e) {
+                log.error("Event loop failed", e);
+            } finally {
+                for (Device device : devices.toArray(new Device[0])) {
+                    device.close();
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    log.debug("Close selector error", e);
+                }
+            }
+        }
+
+        private void fireTimers() {
+            long now = System.nanoTime();
+            Device device;
+            while ((device = timers.peek()) != null && device.due <= now) {
+                timers.poll();
+                if (device.closed) {
+                    continue;
+                }
+                try {
+                    device.onTimer(now);
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Device {} failed: {}", device.index, e.toString());
+                    device.close();
+                }
+            }
+        }
+
+        void disconnectAll() {
+            for (Device device : devices.toArray(new Device[0])) {
+                if (device.online) {
+                    try {
+                        MqttCodec.putEmpty(device.reserve(2), MqttCodec.DISCONNECT);
+                        device.flush();
+                    } catch (IOException e) {
+                        log.debug("Disconnect device {} error: {}", device.index, e.toString());
+                    }
+                }
+                device.online = false;
+                device.close();
+            }
+        }
+    }
+
+    private final class Device {
+
+        final Loop loop;
+        final int index;
+        final String clientId;
+        final String username;
+        final byte[] password;
+        final String topic;
+        final int topicLength;
+        SocketChannel channel;
+        SelectionKey key;
+        NioTls tls;
+        ByteBuffer in = ByteBuffer.allocate(64);
+        ByteBuffer out = ByteBuffer.allocate(128);
+        long connectStart;
+        boolean online;
+        boolean closed;
+        int packetId;
+        final int[] inFlightIds = new int[WINDOW];
+        final long[] sentAt = new long[WINDOW];
+        int inFlight;
+        long nextPublish;
+        long lastWrite;
+        /**
+         * When the loop should call {@link #onTimer}.
+         */
+        long due;
+
+        Device(Loop loop, int index) {
+            this.loop = loop;
+            this.index = index;
+            String deviceName = options.deviceNames.apply(index);
+            String secret = options.deviceSecrets.apply(options.productKey, deviceName);
+            MqttCredentials credentials = options.signer.credentials("device-" + index, options.productKey,
+                deviceName, secret, System.currentTimeMillis());
+            this.clientId = credentials.getClientId();
+            this.username = credentials.getUsername();
+            this.password = credentials.getPassword().getBytes(StandardCharsets.US_ASCII);
+            this.topic = "/lora/gwmp/uplink/" + options.productKey + "/" + deviceName;
+            this.topicLength = MqttCodec.utf8Length(topic);
+        }
+
+        void connect() {
+            connectStart = System.nanoTime();
+            loop.devices.add(this);
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                key = channel.register(loop.selector, 0, this);
+                if (channel.connect(options.address)) {
+                    onConnected();
+                } else {
+                    key.interestOps(SelectionKey.OP_CONNECT);
+                }
+            } catch (IOException e) {
+                log.debug("Device {} connect failed: {}", index, e.toString());
+                close();
+            }
+        }
+
+        void onConnectable() throws IOException {
+            channel.finishConnect();
+            onConnected();
+        }
+
+        private void onConnected() throws IOException {
+            key.interestOps(SelectionKey.OP_READ);
+            MqttCodec.putConnect(reserve(MqttCodec.connectSize(clientId, username, password)), clientId, username,
+                password, options.keepAliveSeconds, true);
+            if (options.sslContext != null) {
+                SSLEngine engine = options.sslContext.createSSLEngine(options.host, options.address.getPort());
+                engine.setUseClientMode(true);
+                tls = new NioTls(engine, loop.tlsScratch);
+                tls.begin(channel);
+            }
+            // TLS 握手期间 CONNECT 留在 out 中，握手完成后随下一次 flush 发出
+            flush();
+        }
+
+        void onReadable() throws IOException {
+            if (tls != null) {
+                in = tls.read(channel, in);
+            } else if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            in.flip();
+            int length;
+            while ((length = MqttCodec.frameLength(in)) >= 0 && in.remaining() >= length) {
+                int end = in.position() + length;
+                int first = in.get(in.position());
+                MqttCodec.skipFixedHeader(in);
+                handle(MqttCodec.type(first));
+                in.position(end);
+                if (closed) {
+                    return;
+                }
+            }
+            in.compact();
+            if (length > in.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(length);
+                in.flip();
+                in = larger.put(in);
+            }
+            flush();
+        }
+
+        private void handle(int type) throws IOException {
+            switch (type) {
+                case MqttCodec.CONNACK:
+                    in.get();
+                    int returnCode = in.get();
+                    if (returnCode != 0) {
+                        log.debug("Device {} refused with return code {}", index, returnCode);
+                        close();
+                        return;
+                    }
+                    long now = System.nanoTime();
+                    connectLatency.record(now - connectStart);
+                    online = true;
+                    connected.increment();
+                    settled.countDown();
+                    lastConnackNanos = now;
+                    lastWrite = now;
+                    // 首次发布在一个周期内随机错开，避免所有设备同时发布
+                    nextPublish = options.publishIntervalNanos > 0
+                        ? now + ThreadLocalRandom.current().nextLong(options.publishIntervalNanos) : Long.MAX_VALUE;
+                    schedule();
+                    break;
+                case MqttCodec.PUBACK:
+                case MqttCodec.PUBCOMP:
+                    complete(in.getShort() & 0xFFFF);
+                    break;
+                case MqttCodec.PUBREC:
+                    MqttCodec.putAck(reserve(4), MqttCodec.PUBREL, in.getShort() & 0xFFFF);
+                    break;
+                case MqttCodec.PINGRESP:
+                    break;
+                default:
+                    throw new MqttProtocolException("Unexpected packet type " + type);
+            }
+        }
+
+        void onTimer(long now) throws IOException {
+            if (now >= nextPublish) {
+                publish(now);
+                nextPublish = Math.max(nextPublish + options.publishIntervalNanos, now);
+            } else {
+                MqttCodec.putEmpty(reserve(2), MqttCodec.PINGREQ);
+                flush();
+                lastWrite = now;
+            }
+            schedule();
+        }
+
+        private void publish(long now) throws IOException {
+            int qos = options.qos;
+            int id = 0;
+            if (qos > 0) {
+                if (inFlight == WINDOW) {
+                    skipped.increment();
+                    return;
+                }
+                id = packetId = packetId % MqttCodec.MAX_PACKET_ID + 1;
+                int slot = 0;
+                while (inFlightIds[slot] != 0) {
+                    slot++;
+                }
+                inFlightIds[slot] = id;
+                sentAt[slot] = now;
+                inFlight++;
+            }
+            ByteBuffer buffer = reserve(MqttCodec.publishSize(topicLength, qos, payload.length));
+            MqttCodec.putPublishHeader(buffer, topic, topicLength, qos, false, false, id, payload.length);
+            buffer.put(payload);
+            flush();
+            published.increment();
+            lastWrite = now;
+        }
+
+        private void complete(int id) {
+            for (int slot = 0; slot < WINDOW; slot++) {
+                if (inFlightIds[slot] == id) {
+                    publishLatency.record(System.nanoTime() - sentAt[slot]);
+                    inFlightIds[slot] = 0;
+                    inFlight--;
+                    acked.increment();
+                    return;
+                }
+            }
+        }
+
+        private void schedule() {
+            long keepAlive = TimeUnit.SECONDS.toNanos(options.keepAliveSeconds) / 2;
+            due = keepAlive > 0 ? Math.min(nextPublish, lastWrite + keepAlive) : nextPublish;
+            if (due != Long.MAX_VALUE) {
+                loop.timers.add(this);
+            }
+        }
+
+        ByteBuffer reserve(int size) {
+            if (out.remaining() < size) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + size));
+                out.flip();
+                out = larger.put(out);
+            }
+            return out;
+        }
+
+        void flush() throws IOException {
+            if (key == null || !key.isValid() || (key.interestOps() & SelectionKey.OP_CONNECT) != 0) {
+                return;
+            }
+            out.flip();
+            if (tls == null) {
+                channel.write(out);
+            } else {
+                tls.write(channel, out);
+            }
+            out.compact();
+            boolean pending = out.position() > 0 || tls != null && tls.pending();
+            key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (key != null) {
+                key.cancel();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("Close channel error", e);
+                }
+            }
+            loop.devices.remove(this);
+            if (online) {
+                lost.increment();
+            } else if (!MqttDeviceSimulator.this.closed) {
+                failed.increment();
+                settled.countDown();
+            }
+        }
+    }
+
+    public static class Builder {
+
+        final String host;
+        final InetSocketAddress address;
+        int devices = 1000;
+        int eventLoops = 2;
+        int connectRate = 1000;
+        String productKey = "pk";
+        IntFunction<String> deviceNames = i -> "dn-" + i;
+        BiFunction<String, String, String> deviceSecrets = (pk, dn) -> "secret";
+        DeviceSigner signer = DeviceSigner.HMAC_MD5;
+        SSLContext sslContext;
+        long publishIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+        int qos = 1;
+        int payloadSize = 64;
+        int keepAliveSeconds = 60;
+
+        /**
+         * @param serverUri {@code tcp://host:port} or {@code ssl://host:port}, set {@link #tls} for the latter
+         */
+        private Builder(String serverUri) {
+            URI uri = URI.create(serverUri);
+            boolean ssl = "ssl".equals(uri.getScheme());
+            if (!ssl && !"tcp".equals(uri.getScheme())) {
+                throw new IllegalArgumentException("Unsupported scheme: " + serverUri);
+            }
+            this.host = uri.getHost();
+            this.address = new InetSocketAddress(host, uri.getPort() > 0 ? uri.getPort() : ssl ? 8883 : 1883);
+        }
+
+        public Builder devices(int devices) {
+            this.devices = devices;
+            return this;
+        }
+
+        public Builder eventLoops(int eventLoops) {
+            this.eventLoops = eventLoops;
+            return this;
+        }
+
+        /**
+         * @param connectRate new connections per second, 0 to open them all at once
+         */
+        public Builder connectRate(int connectRate) {
+            this.connectRate = connectRate;
+            return this;
+        }
+
+        public Builder productKey(String productKey) {
+            this.productKey = productKey;
+            return this;
+        }
+
+        /**
+         * @param deviceNames by index of the device, {@code dn-<i>} by default
+         */
+        public Builder deviceNames(IntFunction<String> deviceNames) {
+            this.deviceNames = deviceNames;
+            return this;
+        }
+
+        /**
+         * @param deviceSecrets by product key and device name
+         */
+        public Builder deviceSecrets(BiFunction<String, String, String> deviceSecrets) {
+            this.deviceSecrets = deviceSecrets;
+            return this;
+        }
+
+        public Builder signer(DeviceSigner signer) {
+            this.signer = signer;
+            return this;
+        }
+
+        public Builder tls(SSLContext sslContext) {
+            this.sslContext = sslContext;
+            return this;
+        }
+
+        /**
+         * @param interval per device, 0 to only connect and keep alive
+         */
+        public Builder publishInterval(long interval, TimeUnit unit) {
+            this.publishIntervalNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        public Builder qos(int qos) {
+            if (qos < 0 || qos > 2) {
+                throw new IllegalArgumentException("qos: " + qos);
+            }
+            this.qos = qos;
+            return this;
+        }
+
+        public Builder payloadSize(int payloadSize) {
+            this.payloadSize = payloadSize;
+            return this;
+        }
+
+        public Builder keepAlive(int seconds) {
+            this.keepAliveSeconds = seconds;
+            return this;
+        }
+
+        public MqttDeviceSimulator build() {
+            return new MqttDeviceSimulator(this);
+        }
+    }
+}
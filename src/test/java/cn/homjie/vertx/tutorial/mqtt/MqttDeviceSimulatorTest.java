@@ -0,0 +1,112 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class MqttDeviceSimulatorTest {
+
+    private EmbeddedMqttBroker broker;
+    private MqttDeviceSimulator simulator;
+
+    @After
+    public void tearDown() throws IOException {
+        if (simulator != null) {
+            simulator.close();
+        }
+        broker.close();
+    }
+
+    @Test
+    public void manyDevicesExample() throws Exception {
+        // dn-7 在 broker 侧的密钥不同，连接被拒绝
+        broker = EmbeddedMqttBroker.builder()
+            .authenticator(new HmacAuthenticator((pk, dn) -> "dn-7".equals(dn) ? "other" : "secret"))
+            .build()
+            .start();
+        int devices = 2000;
+        simulator = MqttDeviceSimulator.builder(broker.uri())
+            .devices(devices)
+            .connectRate(10_000)
+            .publishInterval(100, TimeUnit.MILLISECONDS)
+            .build()
+            .start();
+        assertTrue(simulator.awaitConnected(30, TimeUnit.SECONDS));
+        assertEquals(devices - 1, simulator.connected());
+        assertEquals(1, simulator.failed());
+        assertEquals(devices - 1, broker.connections());
+        // 每个设备每 100ms 发布一次，等待至少一轮
+        sleep(500);
+        log.info("{}", simulator.report());
+        assertTrue(simulator.acked() >= devices - 1);
+        assertTrue(simulator.publishLatency().count() > 0);
+
+        simulator.close();
+        simulator = null;
+        while (broker.connections() > 0) {
+            sleep(10);
+        }
+        assertTrue(broker.published() >= devices - 1);
+    }
+
+    @Test
+    public void tlsExample() throws Exception {
+        broker = EmbeddedMqttBroker.builder()
+            .tls(TestCertificates.serverContext())
+            .authenticator(new HmacAuthenticator((pk, dn) -> "secret"))
+            .build()
+            .start();
+        simulator = MqttDeviceSimulator.builder(broker.uri())
+            .devices(200)
+            .connectRate(0)
+            .signer(DeviceSigner.HMAC_SHA256)
+            .tls(TestCertificates.clientContext())
+            .qos(2)
+            .publishInterval(50, TimeUnit.MILLISECONDS)
+            .build()
+            .start();
+        assertTrue(simulator.awaitConnected(30, TimeUnit.SECONDS));
+        assertEquals(200, simulator.connected());
+        sleep(500);
+        log.info("{}", simulator.report());
+        assertEquals(0, simulator.lost());
+        assertTrue(simulator.acked() >= 200);
+    }
+
+    @Test
+    public void keepAliveExample() throws Exception {
+        broker = EmbeddedMqttBroker.builder().build().start();
+        simulator = MqttDeviceSimulator.builder(broker.uri())
+            .devices(10)
+            .publishInterval(0, TimeUnit.MILLISECONDS)
+            .keepAlive(1)
+            .build()
+            .start();
+        assertTrue(simulator.awaitConnected(10, TimeUnit.SECONDS));
+        // 不发布时每半个 keepAlive 发送一次 PINGREQ，broker 每次回复一次读取
+        long reads = broker.reads();
+        sleep(1200);
+        log.info("{}, broker reads: {}", simulator.report(), broker.reads() - reads);
+        assertTrue(broker.reads() - reads >= 10);
+        assertEquals(0, simulator.published());
+    }
+
+    private void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+import io.vertx.core.buffer.Buffer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class MqttPublisherTest {
+
+    private final Map<String, AtomicInteger> publishes = new ConcurrentHashMap<>();
+    private final AtomicInteger corrupted = new AtomicInteger();
+    private EmbeddedMqttBroker broker;
+    private MqttPublisher publisher;
+
+    @Before
+    public void setUp() throws IOException {
+        broker = broker(null);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (publisher != null) {
+            publisher.close();
+        }
+        broker.close();
+    }
+
+    @Test
+    public void pipelineExample() throws Exception {
+        publisher = publisher(4, 128);
+        publisher.start();
+        int count = 20_000;
+        List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            byte[] payload = ("uplink-" + i).getBytes(StandardCharsets.UTF_8);
+            futures.add(publisher.publish("/lora/gwmp/uplink/pk/dn", payload, i % 2 + 1));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("{} messages in {}ms, {} socket reads at the broker, per client: {}", count, millis,
+            broker.reads(), publishes);
+        assertEquals(count, broker.published());
+        // 四个连接都分到了消息
+        assertEquals(4, publishes.size());
+        for (AtomicInteger n : publishes.values()) {
+            assertTrue(n.get() > 0);
+        }
+        // 多条消息合并在一次写出中，broker 读取次数远少于消息数
+        assertTrue(broker.reads() < count);
+    }
+
+    @Test
+    public void windowExample() throws Exception {
+        broker.pauseAcks();
+        publisher = publisher(1, 8);
+        publisher.start();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(publisher.publish("/t", new byte[] {(byte)i}, 1));
+        }
+        assertEquals(8, publisher.inFlight());
+        CountDownLatch ninth = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                futures.add(publisher.publish("/t", new byte[] {8}, 1));
+                ninth.countDown();
+            } catch (InterruptedException e) {
+                log.error("Publish interrupt", e);
+            }
+        });
+        producer.start();
+        // 窗口已满，第 9 条阻塞在 publish
+        assertFalse(ninth.await(200, TimeUnit.MILLISECONDS));
+        assertFalse(futures.get(0).isDone());
+        broker.resumeAcks();
+        assertTrue(ninth.await(5, TimeUnit.SECONDS));
+        producer.join();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(9, broker.published());
+    }
+
+    @Test
+    public void connectionLostExample() throws Exception {
+        broker.pauseAcks();
+        publisher = publisher(1, 16);
+        publisher.start();
+        CompletableFuture<Void> future = publisher.publish("/t", new byte[] {1}, 2);
+        while (broker.published() < 1) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        broker.disconnectAll();
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Unreachable");
+        } catch (ExecutionException e) {
+            log.info("in-flight message failed: {}", e.getCause().toString());
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(0, publisher.liveConnections());
+        assertTrue(publisher.publish("/t", new byte[] {2}, 1).isCompletedExceptionally());
+    }
+
+    @Test
+    public void pooledBufferExample() throws Exception {
+        for (String mode : new String[] {"direct", "heap", "tls"}) {
+            if ("tls".equals(mode)) {
+                broker.close();
+                broker = broker(TestCertificates.serverContext());
+            }
+            MqttPublisher.Builder builder = MqttPublisher.builder(broker.uri())
+                .credentials(i -> new MqttCredentials("client-" + i, "dn&pk", "secret"))
+                .connections(2)
+                .window(64);
+            if ("tls".equals(mode)) {
+                builder.socketFactory(TestCertificates.clientContext().getSocketFactory());
+            }
+            publisher = builder.build();
+            publisher.start();
+            // 小帧拷进批量缓冲区，大帧直接写出，超过批量缓冲区的帧单独写出
+            int[] sizes = {48, 300, 100_000};
+            BufferPool pool = new BufferPool(100_000, 256, !"heap".equals(mode));
+            long published = broker.published();
+            int count = 3000;
+            List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ByteBuffer payload = pool.acquire();
+                payload.putInt(i);
+                for (int j = 4; j < sizes[i % sizes.length]; j++) {
+                    payload.put((byte)i);
+                }
+                payload.flip();
+                futures.add(publisher.publish("/pooled", payload, i % 3, pool));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+            publisher.close();
+            publisher = null;
+            log.info("{}: {} buffers allocated for {} messages", mode, pool.allocated(), count);
+            // QoS 0 的消息写出即完成，broker 不一定已经读到
+            while (broker.published() - published < count) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            assertEquals(0, corrupted.get());
+            // 每条消息完成后缓冲区都回到了池中，窗口限制了同时占用的数量
+            assertEquals(pool.allocated(), pool.available());
+            assertTrue(pool.allocated() <= 256);
+        }
+    }
+
+    @Test
+    public void vertxBufferExample() throws Exception {
+        publisher = publisher(2, 64);
+        publisher.start();
+        int count = 1000;
+        List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Buffer payload = Buffer.buffer().appendInt(i);
+            for (int j = 4; j < (i % 2 == 0 ? 48 : 100_000); j++) {
+                payload.appendByte((byte)i);
+            }
+            // 只写出可读部分
+            futures.add(publisher.publish("/pooled", payload.slice(0, payload.length()), 1));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        assertEquals(count, broker.published());
+        assertEquals(0, corrupted.get());
+    }
+
+    @Test
+    public void pooledConnectionLostExample() throws Exception {
+        publisher = publisher(1, 128);
+        publisher.start();
+        BufferPool pool = new BufferPool(64, 1024, true);
+        int count = 20_000;
+        List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (i == count / 2) {
+                // PUBREC 之后 QoS 2 的消息同时在在途表和发送队列中，读写线程都会让它失败
+                broker.disconnectAll();
+            }
+            ByteBuffer payload = pool.acquire();
+            payload.putInt(i).flip();
+            futures.add(publisher.publish("/pooled", payload, 2, pool));
+        }
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                log.debug("Expected: {}", e.getCause().toString());
+            }
+        }
+        log.info("{} buffers allocated, {} back in the pool", pool.allocated(), pool.available());
+        // 每个缓冲区只归还一次
+        assertEquals(pool.allocated(), pool.available());
+    }
+
+    @Test
+    public void refusedExample() {
+        publisher = MqttPublisher.builder(broker.uri())
+            .credentials(i -> new MqttCredentials("client-" + i, "dn&pk", "wrong"))
+            .build();
+        try {
+            publisher.start();
+            fail("Unreachable");
+        } catch (IOException e) {
+            assertTrue(e instanceof MqttProtocolException);
+            // 4: bad user name or password
+            assertEquals(4, ((MqttProtocolException)e).getReturnCode());
+        }
+        publisher = null;
+    }
+
+    private EmbeddedMqttBroker broker(SSLContext tls) throws IOException {
+        return EmbeddedMqttBroker.builder()
+            .tls(tls)
+            .authenticator((clientId, username, password) ->
+                "secret".equals(new String(password, StandardCharsets.UTF_8)) ? 0 : 4)
+            .listener((clientId, topic, qos, payload) -> {
+                publishes.computeIfAbsent(clientId, k -> new AtomicInteger()).incrementAndGet();
+                if ("/pooled".equals(topic) && !intact(payload)) {
+                    corrupted.incrementAndGet();
+                }
+            })
+            .build()
+            .start();
+    }
+
+    /**
+     * A sequence number followed by its low byte repeated.
+     */
+    private static boolean intact(ByteBuffer payload) {
+        byte fill = (byte)payload.getInt(payload.position());
+        for (int i = payload.position() + 4; i < payload.limit(); i++) {
+            if (payload.get(i) != fill) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MqttPublisher publisher(int connections, int window) {
+        return MqttPublisher.builder(broker.uri())
+            .credentials(i -> new MqttCredentials("client-" + i, "dn&pk", "secret"))
+            .connections(connections)
+            .window(window)
+            .build();
+    }
+}
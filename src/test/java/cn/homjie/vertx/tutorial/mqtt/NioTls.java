@@ -0,0 +1,203 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLSession;
+
+/**
+ * TLS over a non-blocking channel, for the broker and the device simulator. Records are unwrapped and wrapped in
+ * {@link Scratch} buffers shared by all connections of one event loop thread; a connection only keeps the bytes left
+ * over, an incomplete record read or wrapped bytes the socket did not take, so that an idle connection costs the
+ * {@link SSLEngine} and nothing more. Handshake messages are answered on the way.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+final class NioTls {
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    final SSLEngine engine;
+    private final Scratch scratch;
+    /**
+     * The start of a record not yet complete, in write mode.
+     */
+    private ByteBuffer partial;
+    /**
+     * Wrapped bytes waiting for the socket, in write mode.
+     */
+    private ByteBuffer backlog;
+
+    NioTls(SSLEngine engine, Scratch scratch) {
+        this.engine = engine;
+        this.scratch = scratch;
+    }
+
+    /**
+     * Starts the handshake of a client, once the channel is connected.
+     */
+    void begin(SocketChannel channel) throws IOException {
+        engine.beginHandshake();
+        unwrap(channel, EMPTY, null);
+    }
+
+    /**
+     * Reads from the channel and unwraps whatever is complete.
+     *
+     * @param app in write mode
+     * @return {@code app}, or a larger copy if it had no room for the data
+     * @throws EOFException at the end of the stream
+     */
+    ByteBuffer read(SocketChannel channel, ByteBuffer app) throws IOException {
+        ByteBuffer netIn = scratch.netIn;
+        netIn.clear();
+        if (partial != null) {
+            partial.flip();
+            netIn.put(partial);
+            partial = null;
+        }
+        if (channel.read(netIn) < 0) {
+            throw new EOFException("Connection closed");
+        }
+        netIn.flip();
+        app = unwrap(channel, netIn, app);
+        if (netIn.hasRemaining()) {
+            partial = append(null, netIn);
+        }
+        return app;
+    }
+
+    /**
+     * Wraps and writes as much of {@code app} as the socket takes; nothing during the handshake.
+     */
+    void write(SocketChannel channel, ByteBuffer app) throws IOException {
+        flushBacklog(channel);
+        while (app.hasRemaining() && backlog == null) {
+            int before = app.remaining();
+            wrap(channel, app);
+            if (app.remaining() == before) {
+                return;
+            }
+        }
+    }
+
+    boolean pending() {
+        return backlog != null;
+    }
+
+    private ByteBuffer unwrap(SocketChannel channel, ByteBuffer netIn, ByteBuffer app) throws IOException {
+        while (true) {
+            HandshakeStatus status = engine.getHandshakeStatus();
+            if (status == HandshakeStatus.NEED_TASK) {
+                Runnable task;
+                while ((task = engine.getDelegatedTask()) != null) {
+                    task.run();
+                }
+                continue;
+            }
+            if (status == HandshakeStatus.NEED_WRAP) {
+                wrap(channel, EMPTY);
+                continue;
+            }
+            ByteBuffer plain = scratch.app;
+            plain.clear();
+            SSLEngineResult result = engine.unwrap(netIn, plain);
+            plain.flip();
+            if (plain.hasRemaining()) {
+                app = append(app, plain);
+            }
+            switch (result.getStatus()) {
+                case OK:
+                    if (result.bytesConsumed() == 0 && result.bytesProduced() == 0
+                        && engine.getHandshakeStatus() == status) {
+                        return app;
+                    }
+                    break;
+                case BUFFER_UNDERFLOW:
+                    return app;
+                case BUFFER_OVERFLOW:
+                    // 握手后会话协商出更大的记录，扩大共享缓冲区后重试
+                    scratch.app = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+                    break;
+                default:
+                    throw new EOFException("TLS closed");
+            }
+        }
+    }
+
+    private void wrap(SocketChannel channel, ByteBuffer src) throws IOException {
+        ByteBuffer netOut = scratch.netOut;
+        netOut.clear();
+        SSLEngineResult result = engine.wrap(src, netOut);
+        if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+            throw new EOFException("TLS closed");
+        }
+        if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+            scratch.netOut = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+            wrap(channel, src);
+            return;
+        }
+        netOut.flip();
+        flushBacklog(channel);
+        if (backlog == null) {
+            channel.write(netOut);
+        }
+        if (netOut.hasRemaining()) {
+            backlog = append(backlog, netOut);
+        }
+    }
+
+    private void flushBacklog(SocketChannel channel) throws IOException {
+        if (backlog == null) {
+            return;
+        }
+        backlog.flip();
+        channel.write(backlog);
+        if (backlog.hasRemaining()) {
+            backlog.compact();
+        } else {
+            backlog = null;
+        }
+    }
+
+    /**
+     * Copies {@code src} to the end of {@code dst}, growing it if needed.
+     *
+     * @param dst in write mode, null for a new buffer
+     */
+    static ByteBuffer append(ByteBuffer dst, ByteBuffer src) {
+        if (dst == null) {
+            return ByteBuffer.allocate(src.remaining()).put(src);
+        }
+        if (dst.remaining() < src.remaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(dst.capacity() * 2, dst.position() + src.remaining()));
+            dst.flip();
+            dst = larger.put(dst);
+        }
+        return dst.put(src);
+    }
+
+    /**
+     * The buffers of one event loop thread.
+     */
+    static final class Scratch {
+
+        ByteBuffer netIn;
+        ByteBuffer netOut;
+        ByteBuffer app;
+
+        Scratch(SSLContext context) {
+            SSLSession session = context.createSSLEngine().getSession();
+            netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+            netOut = ByteBuffer.allocate(session.getPacketBufferSize());
+            app = ByteBuffer.allocate(session.getApplicationBufferSize());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * The self-signed {@code CN=localhost} certificate in {@code src/test/resources}: {@code broker.p12} holds the key
+ * for the broker, {@code broker.crt} is the certificate clients trust, as {@code ca.crt} in
+ * {@link cn.homjie.vertx.tutorial.juc.MqttPublishSample}.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public final class TestCertificates {
+
+    public static final String KEYSTORE = "/broker.p12";
+    public static final String CERTIFICATE = "/broker.crt";
+    public static final char[] PASSWORD = "changeit".toCharArray();
+
+    private TestCertificates() {
+    }
+
+    public static SSLContext serverContext() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = TestCertificates.class.getResourceAsStream(KEYSTORE)) {
+            keyStore.load(in, PASSWORD);
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(kmf.getKeyManagers(), null, null);
+        return context;
+    }
+
+    public static SSLContext clientContext() throws Exception {
+        X509Certificate certificate;
+        try (InputStream in = TestCertificates.class.getResourceAsStream(CERTIFICATE)) {
+            certificate = (X509Certificate)CertificateFactory.getInstance("X509").generateCertificate(in);
+        }
+        KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("ca-certificate", certificate);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, tmf.getTrustManagers(), null);
+        return context;
+    }
+}
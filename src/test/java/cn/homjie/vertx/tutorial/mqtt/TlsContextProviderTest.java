@@ -0,0 +1,134 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class TlsContextProviderTest {
+
+    private EmbeddedMqttBroker broker;
+    private Path directory;
+    private Path caFile;
+    private TlsContextProvider provider;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = EmbeddedMqttBroker.builder().tls(TestCertificates.serverContext()).build().start();
+        directory = Files.createTempDirectory("tls");
+        caFile = directory.resolve("ca.crt");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (provider != null) {
+            provider.close();
+        }
+        broker.close();
+        Files.deleteIfExists(caFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void sessionReuseExample() throws Exception {
+        copy(TestCertificates.CERTIFICATE);
+        // TLS 1.2 的恢复会话沿用原来的 session id，便于观察
+        provider = TlsContextProvider.builder().trustCertificates(caFile).protocol("TLSv1.2").build();
+        SSLSession first = handshake(provider.socketFactory());
+        SSLSession second = handshake(provider.socketFactory());
+        log.info("first: {}, second: {}", first, second);
+        assertTrue(Arrays.equals(first.getId(), second.getId()));
+
+        // 每次新建 SSLContext，会话缓存是空的，只能完整握手
+        SSLSession fresh = handshake(TestCertificates.clientContext().getSocketFactory());
+        assertFalse(Arrays.equals(first.getId(), fresh.getId()));
+
+        try (MqttPublisher publisher = MqttPublisher.builder(broker.uri())
+            .credentials(i -> new MqttCredentials("tls-" + i, null, null))
+            .socketFactory(provider.socketFactory())
+            .connections(2)
+            .build()) {
+            publisher.start();
+            publisher.publish("/t", new byte[] {1}, 1).get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(1, broker.published());
+    }
+
+    @Test
+    public void reloadExample() throws Exception {
+        copy("/other.crt");
+        provider = TlsContextProvider.builder()
+            .trustCertificates(caFile)
+            .watch(true)
+            .settle(20, TimeUnit.MILLISECONDS)
+            .build();
+        SSLSocketFactory factory = provider.socketFactory();
+        try {
+            handshake(factory);
+            fail("Unreachable");
+        } catch (SSLHandshakeException e) {
+            log.info("untrusted: {}", e.getMessage());
+        }
+        // 内容不变的写入不会重建
+        copy("/other.crt");
+        // 证书轮转：监听到文件变化后替换 SSLContext，已经交出去的 factory 随之生效
+        copy(TestCertificates.CERTIFICATE);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (provider.reloads() == 0 && System.currentTimeMillis() < deadline) {
+            sleep();
+        }
+        assertEquals(1, provider.reloads());
+        assertSame(factory, provider.socketFactory());
+        log.info("trusted: {}", handshake(factory).getProtocol());
+    }
+
+    private SSLSession handshake(SSLSocketFactory factory) throws IOException {
+        // 与 MqttConnection 一样先创建未连接的 socket
+        try (SSLSocket socket = (SSLSocket)factory.createSocket()) {
+            socket.connect(new InetSocketAddress("127.0.0.1", broker.port()), 5000);
+            socket.startHandshake();
+            return socket.getSession();
+        }
+    }
+
+    private void copy(String resource) throws IOException {
+        Path temp = directory.resolve("ca.crt.tmp");
+        try (InputStream in = getClass().getResourceAsStream(resource)) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(temp, caFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void sleep() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(20);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.sun.management.ThreadMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class TopicDispatcherTest {
+
+    private TopicDispatcher dispatcher;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+    }
+
+    @Test
+    public void wildcardExample() {
+        TopicTrie<String> trie = new TopicTrie<>();
+        for (String filter : new String[] {"sport/tennis/player1", "sport/tennis/player1/#", "sport/#", "sport/+",
+            "+/+", "/+", "#", "+/tennis/#", "$SYS/#", "sport/tennis/+/ranking"}) {
+            trie.add(filter, filter);
+        }
+        // # 也匹配父级
+        assertEquals(Arrays.asList("#", "+/tennis/#", "sport/#", "sport/tennis/player1", "sport/tennis/player1/#"),
+            match(trie, "sport/tennis/player1"));
+        assertEquals(Arrays.asList("#", "+/tennis/#", "sport/#", "sport/tennis/player1/#"),
+            match(trie, "sport/tennis/player1/ranking/2026"));
+        assertEquals(Arrays.asList("#", "+/+", "sport/#", "sport/+"), match(trie, "sport/"));
+        assertEquals(Arrays.asList("#", "sport/#"), match(trie, "sport"));
+        assertEquals(Arrays.asList("#", "+/+", "/+"), match(trie, "/finance"));
+        // 通配符开头的过滤器不匹配 $ 开头的主题
+        assertEquals(Collections.singletonList("$SYS/#"), match(trie, "$SYS/broker/clients"));
+
+        for (String invalid : new String[] {"sport/tennis#", "sport/#/ranking", "sport+", ""}) {
+            try {
+                trie.add(invalid, invalid);
+                fail("Unreachable: " + invalid);
+            } catch (IllegalArgumentException e) {
+                log.info("{}", e.getMessage());
+            }
+        }
+        assertTrue(trie.remove("sport/tennis/+/ranking", "sport/tennis/+/ranking"));
+        assertFalse(trie.remove("sport/tennis/+/ranking", "sport/tennis/+/ranking"));
+        assertTrue(trie.remove("#", "#"));
+        assertEquals(8, trie.size());
+        assertEquals(Arrays.asList("+/tennis/#", "sport/#", "sport/tennis/player1", "sport/tennis/player1/#"),
+            match(trie, "sport/tennis/player1"));
+    }
+
+    @Test
+    public void internExample() {
+        TopicTrie<Integer> trie = new TopicTrie<>();
+        // lora, gwmp, downlink, pk 和 100 个 dn
+        for (int i = 0; i < 100; i++) {
+            trie.add("/lora/gwmp/downlink/pk/dn-" + i, i);
+        }
+        trie.add("/lora/gwmp/uplink/pk/dn-0", -1);
+        assertEquals(106, trie.segments());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(trie.remove("/lora/gwmp/downlink/pk/dn-" + i, i));
+        }
+        // 最后一个节点删除时，层级也不再驻留；uplink 的 pk 和 dn-0 还在
+        assertEquals(6, trie.segments());
+        assertTrue(trie.remove("/lora/gwmp/uplink/pk/dn-0", -1));
+        assertEquals(0, trie.size());
+        assertEquals(0, trie.segments());
+    }
+
+    @Test
+    public void allocationExample() {
+        TopicTrie<Integer> trie = new TopicTrie<>();
+        int filters = 10_000;
+        for (int i = 0; i < filters; i++) {
+            trie.add("/lora/gwmp/downlink/pk-" + i % 100 + "/dn-" + i, i);
+        }
+        trie.add("/lora/gwmp/downlink/+/dn-7", -1);
+        trie.add("/lora/gwmp/#", -2);
+        String[] topics = new String[1024];
+        for (int i = 0; i < topics.length; i++) {
+            topics[i] = "/lora/gwmp/downlink/pk-" + i % 100 + "/dn-" + i * 7;
+        }
+        AtomicInteger matched = new AtomicInteger();
+        Consumer<Integer> counter = value -> matched.incrementAndGet();
+        for (int i = 0; i < 200_000; i++) {
+            trie.match(topics[i & 1023], counter);
+        }
+        ThreadMXBean threads = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        matched.set(0);
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        int count = 1_000_000;
+        for (int i = 0; i < count; i++) {
+            trie.match(topics[i & 1023], counter);
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        log.info("{} matches over {} filters in {}ms, {} values, {} bytes allocated", count, trie.size(),
+            TimeUnit.NANOSECONDS.toMillis(nanos), matched.get(), allocated);
+        assertTrue(matched.get() > count);
+        // 只有统计分配量本身的少量开销
+        assertTrue(allocated < 64 * 1024);
+    }
+
+    @Test
+    public void dispatchExample() throws Exception {
+        dispatcher = TopicDispatcher.create("downlink", 2);
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        List<String> any = new CopyOnWriteArrayList<>();
+        int devices = 100;
+        List<TopicDispatcher.Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < devices; i++) {
+            String filter = "/lora/gwmp/downlink/pk/dn-" + i;
+            List<Integer> sequences = Collections.synchronizedList(new ArrayList<>());
+            received.put(filter, sequences);
+            subscriptions.add(dispatcher.subscribe(filter,
+                (topic, payload) -> sequences.add(ByteBuffer.wrap(payload).getInt())));
+        }
+        dispatcher.subscribe("/lora/gwmp/downlink/+/dn-0", (topic, payload) -> any.add(topic));
+        dispatcher.subscribe("/lora/gwmp/downlink/#", (topic, payload) -> any.add("closed " + topic)).close();
+        dispatcher.subscribe("/lora/gwmp/downlink/pk/fail", (topic, payload) -> {
+            throw new IllegalStateException("Only logged");
+        });
+
+        int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            byte[] payload = ByteBuffer.allocate(4).putInt(i / devices).array();
+            dispatcher.dispatch("/lora/gwmp/downlink/pk/dn-" + i % devices, payload);
+        }
+        assertEquals(0, dispatcher.dispatch("/lora/gwmp/uplink/pk/dn-0", new byte[0]));
+        subscriptions.get(1).close();
+        assertEquals(0, dispatcher.dispatch("/lora/gwmp/downlink/pk/dn-1", new byte[4]));
+        assertEquals(1, dispatcher.dispatch("/lora/gwmp/downlink/pk/fail", new byte[4]));
+        dispatcher.close();
+        assertEquals(1, dispatcher.failed());
+        dispatcher = null;
+
+        log.info("{} subscriptions, {} to the wildcard one", received.size(), any.size());
+        assertEquals(count / devices, any.size());
+        // 同一个订阅按分发的顺序依次处理
+        for (List<Integer> sequences : received.values()) {
+            assertEquals(count / devices, sequences.size());
+            for (int i = 0; i < sequences.size(); i++) {
+                assertEquals(i, (int)sequences.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void closeExample() throws Exception {
+        dispatcher = TopicDispatcher.create("downlink", 2);
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        dispatcher.subscribe("/lora/gwmp/downlink/pk/dn", (topic, payload) -> {
+            blocked.await();
+            handled.add((int)payload[0]);
+        });
+        for (int i = 0; i < 100; i++) {
+            dispatcher.dispatch("/lora/gwmp/downlink/pk/dn", new byte[] {(byte)i});
+        }
+        TopicDispatcher closing = dispatcher;
+        Thread closer = new Thread(() -> {
+            try {
+                closing.close();
+            } catch (InterruptedException e) {
+                log.error("Close interrupt", e);
+            }
+        });
+        closer.start();
+        while (closer.getState() != Thread.State.TIMED_WAITING) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        // close 等待期间到达的消息直接拒绝，不再排队
+        assertEquals(0, dispatcher.dispatch("/lora/gwmp/downlink/pk/dn", new byte[] {-1}));
+        assertEquals(1, dispatcher.rejected());
+        blocked.countDown();
+        closer.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(closer.isAlive());
+        dispatcher = null;
+        assertEquals(100, handled.size());
+        assertFalse(handled.contains(-1));
+    }
+
+    private static List<String> match(TopicTrie<String> trie, String topic) {
+        List<String> matched = new ArrayList<>();
+        trie.match(topic, matched::add);
+        Collections.sort(matched);
+        return matched;
+    }
+}
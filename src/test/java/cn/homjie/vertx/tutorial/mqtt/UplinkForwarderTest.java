@@ -0,0 +1,254 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class UplinkForwarderTest {
+
+    /**
+     * Product key and sequence number of each publish, in the order the broker received them.
+     */
+    private final List<String> received = new ArrayList<>();
+    private Path directory;
+    private EmbeddedMqttBroker broker;
+    private UplinkForwarder forwarder;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("uplink-spill");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (forwarder != null) {
+            forwarder.close();
+        }
+        if (broker != null) {
+            broker.close();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void offlineReplayExample() throws Exception {
+        // 先占一个端口再关掉，forwarder 启动时 broker 还不可达
+        broker = broker(0);
+        int port = broker.port();
+        broker.close();
+        forwarder = forwarder(port)
+            .capacity(64 * 1024)
+            .spillThreshold(16 * 1024)
+            .spillDirectory(directory)
+            .segmentBytes(128 * 1024)
+            .build()
+            .start();
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            assertTrue(forwarder.offer("/lora/gwmp/uplink/pk/dn", payload(i, 100)));
+        }
+        sleep(300);
+        log.info("offline: {} buffered, {} spilled, {} segments", forwarder.buffered(), forwarder.spilled(),
+            segments());
+        assertFalse(forwarder.isConnected());
+        assertEquals(count, forwarder.buffered());
+        assertTrue(forwarder.spilled() > count / 2);
+        assertTrue(segments() > 1);
+
+        broker = broker(port);
+        await(() -> forwarder.forwarded() == count);
+        log.info("forwarded {} once the broker was up", forwarder.forwarded());
+        assertEquals(0, forwarder.spilled());
+        assertEquals(0, segments());
+        // 先进内存的和溢出到磁盘的，按 offer 的顺序到达
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            expected.add("pk:" + i);
+        }
+        assertEquals(expected, received());
+    }
+
+    @Test
+    public void restartExample() throws Exception {
+        broker = broker(0);
+        int port = broker.port();
+        broker.close();
+        forwarder = forwarder(port)
+            .capacity(64 * 1024)
+            .spillThreshold(16 * 1024)
+            .spillDirectory(directory)
+            .closeTimeout(100, TimeUnit.MILLISECONDS)
+            .build()
+            .start();
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            assertTrue(forwarder.offer("/lora/gwmp/uplink/pk/dn", payload(i, 100)));
+        }
+        assertTrue(forwarder.spilled() < count);
+        // 内存里的消息关闭时也写到磁盘
+        forwarder.close();
+        forwarder = null;
+        // 崩溃时没写完的尾部：全零的记录没有匹配的 CRC
+        Path last;
+        try (Stream<Path> files = Files.list(directory)) {
+            last = files.max(Comparator.naturalOrder()).get();
+        }
+        Files.write(last, new byte[64], StandardOpenOption.APPEND);
+
+        broker = broker(port);
+        forwarder = forwarder(port).spillDirectory(directory).build().start();
+        await(() -> forwarder.forwarded() == count);
+        assertEquals(count, forwarder.forwarded());
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            expected.add("pk:" + i);
+        }
+        assertEquals(expected, received());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void qosExample() {
+        // QoS 0 没有确认，写出就算转发了
+        forwarder(0).qos(0);
+    }
+
+    @Test
+    public void reconnectExample() throws Exception {
+        broker = broker(0);
+        forwarder = forwarder(broker.port()).build().start();
+        int count = 20_000;
+        for (int i = 0; i < count; i++) {
+            forwarder.offer("/lora/gwmp/uplink/pk/dn", payload(i, 64));
+            if (i == 5000 || i == 12_000) {
+                sleep(20);
+                broker.disconnectAll();
+            }
+        }
+        await(() -> forwarder.forwarded() == count);
+        List<String> received = received();
+        log.info("{} reconnects, broker received {} publishes for {} messages", forwarder.reconnects(),
+            received.size(), count);
+        assertTrue(forwarder.reconnects() >= 1);
+        // 确认丢失的消息会重复，但每条消息第一次到达的顺序不变
+        BitSet seen = new BitSet(count);
+        int last = -1;
+        for (String publish : received) {
+            int sequence = Integer.parseInt(publish.substring(3));
+            if (!seen.get(sequence)) {
+                assertEquals(last + 1, sequence);
+                seen.set(sequence);
+                last = sequence;
+            }
+        }
+        assertEquals(count, seen.cardinality());
+    }
+
+    @Test
+    public void shapingExample() throws Exception {
+        broker = broker(0);
+        forwarder = forwarder(broker.port())
+            .rate("slow", 20, 2)
+            .build()
+            .start();
+        await(forwarder::isConnected);
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            forwarder.offer("/lora/gwmp/uplink/slow/dn", payload(i, 16));
+        }
+        for (int i = 0; i < 100; i++) {
+            forwarder.offer("/lora/gwmp/uplink/fast/dn-" + i % 4, payload(i, 16));
+        }
+        await(() -> forwarder.forwarded() == 110);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        List<String> received = received();
+        log.info("110 messages in {}ms, last fast one at {}", millis, received.lastIndexOf("fast:99"));
+        // slow 先用掉 2 个令牌，其余 8 条每 50ms 一条
+        assertTrue(millis >= 350);
+        // fast 不受 slow 限速的影响，早于 slow 发完
+        assertTrue(received.lastIndexOf("fast:99") < received.indexOf("slow:9"));
+        List<String> slow = received.stream().filter(s -> s.startsWith("slow")).collect(Collectors.toList());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("slow:" + i, slow.get(i));
+        }
+    }
+
+    private EmbeddedMqttBroker broker(int port) throws IOException {
+        return EmbeddedMqttBroker.builder()
+            .port(port)
+            .listener((clientId, topic, qos, payload) -> {
+                synchronized (received) {
+                    received.add(UplinkForwarder.productKeyOf(topic) + ":" + payload.getInt(payload.position()));
+                }
+            })
+            .build()
+            .start();
+    }
+
+    private UplinkForwarder.Builder forwarder(int port) {
+        return UplinkForwarder.builder(MqttPublisher.builder("tcp://127.0.0.1:" + port)
+                .credentials(i -> new MqttCredentials("forwarder-" + i, null, null))
+                .closeTimeout(1, TimeUnit.SECONDS))
+            .backoff(50, 200, TimeUnit.MILLISECONDS);
+    }
+
+    private List<String> received() {
+        synchronized (received) {
+            return new ArrayList<>(received);
+        }
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static ByteBuffer payload(int sequence, int size) {
+        ByteBuffer payload = ByteBuffer.allocate(size);
+        payload.putInt(0, sequence);
+        return payload;
+    }
+
+    private void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            sleep(10);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@Slf4j
+public class VirtualThreadsTest {
+
+    @Test
+    public void thenApplyAsyncExample() {
+        String threadNamePrefix = "virtual-executor";
+        try (ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor(threadNamePrefix)) {
+            CompletableFuture<String> cf = CompletableFuture
+                .supplyAsync(() -> {
+                    assertTrue(Thread.currentThread().isVirtual());
+                    assertTrue(Thread.currentThread().getName().startsWith(threadNamePrefix));
+                    sleep(100);
+                    return "message";
+                }, executor)
+                .thenApplyAsync(s -> {
+                    assertTrue(Thread.currentThread().isVirtual());
+                    log.info("to upper case");
+                    sleep(100);
+                    return s.toUpperCase();
+                }, executor);
+            assertEquals("MESSAGE", cf.join());
+        }
+    }
+
+    @Test
+    public void blockingStagesExample() {
+        int stages = 10_000;
+        long start = System.nanoTime();
+        // 固定 3 个线程需要 10000 * 100 / 3 ms，虚拟线程阻塞时只是 park
+        try (ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("virtual-executor")) {
+            CompletableFuture<?>[] futures = new CompletableFuture[stages];
+            for (int i = 0; i < stages; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> sleep(100), executor);
+            }
+            CompletableFuture.allOf(futures).join();
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("{} blocking stages in {} ms", stages, millis);
+        assertTrue(millis < 10_000);
+    }
+
+    private void sleep(long time) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(time);
+        } catch (InterruptedException e) {
+            log.error("Sleep interrupt", e);
+        }
+    }
+}
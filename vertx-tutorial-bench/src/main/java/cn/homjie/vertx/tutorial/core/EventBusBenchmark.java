@@ -0,0 +1,160 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Uplinks from one verticle to another on the same Vert.x, 1000 per invocation, the score per uplink: as a
+ * {@code JsonObject}, copied for every delivery by its default codec, as a {@code Buffer}, copied as well, as an
+ * {@link Uplink} handed over by reference, and as {@link UplinkBatch}es of 64 from an {@link UplinkBatcher}. The
+ * {@code wire} benchmarks encode one uplink for a clustered event bus, as JSON and with {@link UplinkCodec}.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EventBusBenchmark {
+
+    private static final int UPLINKS = 1000;
+    private static final String TOPIC = "/lora/gwmp/uplink/pk/dn";
+
+    private Vertx vertx;
+    private Context sender;
+    private UplinkBatcher batcher;
+    private UplinkCodec codec;
+    private byte[] frame;
+    private Uplink uplink;
+    /**
+     * Only touched by the receiving verticle.
+     */
+    private int received;
+    private volatile CompletableFuture<Void> done;
+
+    @Setup
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        UplinkCodec.register(vertx.eventBus());
+        codec = new UplinkCodec();
+        frame = new byte[64];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte)i;
+        }
+        uplink = Uplink.of(TOPIC, frame);
+        CompletableFuture<Void> registered = new CompletableFuture<>();
+        vertx.getOrCreateContext().runOnContext(v -> {
+            vertx.eventBus().consumer("json", message -> count(1));
+            vertx.eventBus().consumer("buffer", message -> count(1));
+            vertx.eventBus().consumer("uplink", message -> count(1));
+            vertx.eventBus().<UplinkBatch>consumer("batch", message -> count(message.body().size()))
+                .completionHandler(ar -> registered.complete(null));
+        });
+        registered.join();
+        sender = vertx.getOrCreateContext();
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        sender.runOnContext(v -> {
+            batcher = new UplinkBatcher(vertx, "batch", 64, 0);
+            created.complete(null);
+        });
+        created.join();
+    }
+
+    @TearDown
+    public void tearDown() {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        vertx.close(ar -> closed.complete(null));
+        closed.join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPLINKS)
+    public void json() {
+        send(i -> vertx.eventBus().send("json", new JsonObject()
+            .put("topic", TOPIC)
+            .put("timestamp", i)
+            .put("payload", frame)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPLINKS)
+    public void buffer() {
+        send(i -> vertx.eventBus().send("buffer", Buffer.buffer(frame)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPLINKS)
+    public void uplink() {
+        send(i -> vertx.eventBus().send("uplink", uplink));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPLINKS)
+    public void batch() {
+        send(i -> batcher.send(uplink));
+    }
+
+    @Benchmark
+    public Buffer wireJson() {
+        return new JsonObject()
+            .put("topic", uplink.topic())
+            .put("timestamp", uplink.timestamp())
+            .put("payload", frame)
+            .toBuffer();
+    }
+
+    @Benchmark
+    public Buffer wireBinary() {
+        Buffer buffer = Buffer.buffer(128);
+        codec.encodeToWire(buffer, uplink);
+        return buffer;
+    }
+
+    @Benchmark
+    public String decodeBinary() {
+        Buffer buffer = Buffer.buffer(128);
+        codec.encodeToWire(buffer, uplink);
+        return codec.decodeFromWire(0, buffer).topic();
+    }
+
+    private void send(Consumer<Integer> sendOne) {
+        CompletableFuture<Void> all = new CompletableFuture<>();
+        done = all;
+        sender.runOnContext(v -> {
+            for (int i = 0; i < UPLINKS; i++) {
+                sendOne.accept(i);
+            }
+        });
+        all.join();
+    }
+
+    private void count(int uplinks) {
+        received += uplinks;
+        if (received == UPLINKS) {
+            received = 0;
+            done.complete(null);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package cn.homjie.vertx.tutorial.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A request handled on an event loop through four small asynchronous steps, then answered on the event loop:
+ * {@code commonPool} chains {@code thenApplyAsync(fn)} and comes back with {@code runOnContext}, as the examples
+ * did, {@code contextExecutor} passes {@link VertxStages#executor}, {@code thenApply} runs the steps where the previous
+ * one completed. The {@code hops} counter is the number of times a step ran on another thread than the one before,
+ * {@code requests} the number of requests: both are totals, their ratio is the hops per request.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VertxStagesBenchmark {
+
+    private static final int STEPS = 4;
+
+    private Vertx vertx;
+    private Context context;
+    private Executor loop;
+
+    @Setup
+    public void setUp() {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+        loop = VertxStages.executor(context);
+    }
+
+    @TearDown
+    public void tearDown() {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        vertx.close(ar -> closed.complete(null));
+        closed.join();
+    }
+
+    @Benchmark
+    public String commonPool(Hops hops) {
+        return handle(hops, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public String contextExecutor(Hops hops) {
+        return handle(hops, loop);
+    }
+
+    @Benchmark
+    public String thenApply(Hops hops) {
+        return handle(hops, null);
+    }
+
+    private String handle(Hops hops, Executor executor) {
+        CompletableFuture<String> reply = new CompletableFuture<>();
+        context.runOnContext(v -> {
+            hops.requests++;
+            hops.last = Thread.currentThread();
+            Function<String, String> step = s -> hops.step(s.length() > 8 ? s.toLowerCase() : s + "!");
+            CompletableFuture<String> stage = CompletableFuture.completedFuture("message");
+            for (int i = 0; i < STEPS; i++) {
+                stage = executor == null ? stage.thenApply(step) : stage.thenApplyAsync(step, executor);
+            }
+            // 回到 event loop 应答，已经在上面时直接执行
+            stage.thenAcceptAsync(s -> reply.complete(hops.step(s)), loop);
+        });
+        return reply.join();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Hops {
+
+        public long hops;
+        public long requests;
+        /**
+         * The steps of one request run one after the other, each sees the thread of the previous.
+         */
+        private Thread last;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hops = 0;
+            requests = 0;
+        }
+
+        String step(String value) {
+            Thread current = Thread.currentThread();
+            if (current != last) {
+                hops++;
+                last = current;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 1M items through two async steps: unlimited {@code thenApplyAsync} submissions into an unbounded executor queue
+ * versus {@link AsyncPipeline}. Each step burns {@code work} tokens so that the producer outruns the executor. The
+ * score is the time for the whole input; the peak old generation of each iteration is printed after it, and
+ * {@code -prof gc} gives the allocation.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class AsyncPipelineBenchmark {
+
+    @Param({"1000000"})
+    private int items;
+
+    @Param({"64"})
+    private int maxInFlight;
+
+    @Param({"500"})
+    private long work;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4, new SimpleThreadFactory("bench-executor"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    /**
+     * Eden always fills up before a collection, so only the old generation tells how much was retained.
+     */
+    @TearDown(Level.Iteration)
+    public void printPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            String name = pool.getName();
+            if (pool.getType() == MemoryType.HEAP && (name.contains("Old") || name.contains("Tenured"))) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.println("peak old gen: " + (peak >> 20) + " MB");
+    }
+
+    @Benchmark
+    public long unbounded() throws InterruptedException {
+        LongAdder sum = new LongAdder();
+        CountDownLatch latch = new CountDownLatch(items);
+        for (int i = 0; i < items; i++) {
+            int value = i;
+            CompletableFuture
+                .supplyAsync(() -> step(value), executor)
+                .thenApplyAsync(x -> step(x) * 2L, executor)
+                .thenAccept(x -> {
+                    sum.add(x);
+                    latch.countDown();
+                });
+        }
+        latch.await();
+        return sum.sum();
+    }
+
+    @Benchmark
+    public long pipeline() throws InterruptedException {
+        return run(false);
+    }
+
+    @Benchmark
+    public long pipelineOrdered() throws InterruptedException {
+        return run(true);
+    }
+
+    private long run(boolean ordered) throws InterruptedException {
+        LongAdder sum = new LongAdder();
+        AsyncPipeline<Integer, Long> pipeline = AsyncPipeline.<Integer>builder()
+            .thenApplyAsync(this::step, executor, maxInFlight)
+            .thenApplyAsync(x -> step(x) * 2L, executor, maxInFlight)
+            .ordered(ordered)
+            .build(sum::add);
+        for (int i = 0; i < items; i++) {
+            pipeline.submit(i);
+        }
+        pipeline.complete().join();
+        return sum.sum();
+    }
+
+    private int step(int x) {
+        Blackhole.consumeCPU(work);
+        return x;
+    }
+}
@@ -0,0 +1,43 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks twice: throughput in ops/sec, then sampled latency (p99 etc.) in microseconds. Both
+ * passes attach the GC profiler, see {@code gc.alloc.rate.norm} for the bytes allocated per op.
+ * <pre>
+ * java -cp target/benchmarks.jar cn.homjie.vertx.tutorial.juc.BenchmarkRunner CompletionStageBenchmark
+ * </pre>
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : CompletionStageBenchmark.class.getSimpleName();
+
+        Options throughput = new OptionsBuilder()
+            .include(include)
+            .mode(Mode.Throughput)
+            .timeUnit(TimeUnit.SECONDS)
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(throughput).run();
+
+        Options latency = new OptionsBuilder()
+            .include(include)
+            .mode(Mode.SampleTime)
+            .timeUnit(TimeUnit.MICROSECONDS)
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(latency).run();
+    }
+}
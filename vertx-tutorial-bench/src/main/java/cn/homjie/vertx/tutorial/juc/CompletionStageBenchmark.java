@@ -0,0 +1,124 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The composition patterns of {@code CompletionStageTest}, without the {@code sleep(...)}, so that only the cost of
+ * the composition style itself is measured.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CompletionStageBenchmark {
+
+    private static final String ORIGINAL = "Message";
+
+    @Param({"COMMON", "FIXED", "SAME_THREAD"})
+    private ExecutorKind executorKind;
+
+    private Executor executor;
+
+    @Setup
+    public void setUp() {
+        executor = executorKind.create();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ExecutorKind.shutdown(executor);
+    }
+
+    @Benchmark
+    public String thenApply() {
+        return CompletableFuture
+            .supplyAsync(() -> ORIGINAL, executor)
+            .thenApply(String::toUpperCase)
+            .join();
+    }
+
+    @Benchmark
+    public String thenApplyAsync() {
+        return CompletableFuture
+            .supplyAsync(() -> ORIGINAL, executor)
+            .thenApplyAsync(String::toUpperCase, executor)
+            .join();
+    }
+
+    @Benchmark
+    public String thenCombine() {
+        return CompletableFuture
+            .supplyAsync(ORIGINAL::toUpperCase, executor)
+            .thenCombine(
+                CompletableFuture.supplyAsync(ORIGINAL::toLowerCase, executor),
+                (s1, s2) -> s1 + s2)
+            .join();
+    }
+
+    @Benchmark
+    public String thenCompose() {
+        return CompletableFuture
+            .supplyAsync(ORIGINAL::toUpperCase, executor)
+            .thenCompose(upper -> CompletableFuture
+                .supplyAsync(ORIGINAL::toLowerCase, executor)
+                .thenApply(s -> upper + s))
+            .join();
+    }
+
+    @Benchmark
+    public Object anyOf(Messages messages) {
+        return CompletableFuture
+            .anyOf(messages.list.stream()
+                .map(msg -> CompletableFuture.supplyAsync(msg::toUpperCase, executor))
+                .toArray(CompletableFuture[]::new))
+            .join();
+    }
+
+    @Benchmark
+    public List<String> allOf(Messages messages) {
+        CompletableFuture<String>[] futures = messages.list.stream()
+            .map(msg -> CompletableFuture.supplyAsync(msg::toUpperCase, executor))
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+        // allOf 只返回 Void，结果需要逐个 join 收集
+        List<String> result = new ArrayList<>(futures.length);
+        for (CompletableFuture<String> future : futures) {
+            result.add(future.join());
+        }
+        return result;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Messages {
+
+        @Param({"3", "64"})
+        private int width;
+
+        private List<String> list;
+
+        @Setup
+        public void setUp() {
+            list = new ArrayList<>(width);
+            for (int i = 0; i < width; i++) {
+                list.add("m" + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Executor variants shared by the benchmarks.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+public enum ExecutorKind {
+
+    /**
+     * ForkJoinPool.commonPool()，即不指定 executor 时的默认行为
+     */
+    COMMON,
+    /**
+     * 与 CompletionStageTest 相同的 newFixedThreadPool(3, SimpleThreadFactory)
+     */
+    FIXED,
+    /**
+     * 在调用线程上直接执行
+     */
+    SAME_THREAD;
+
+    public Executor create() {
+        switch (this) {
+            case COMMON:
+                return ForkJoinPool.commonPool();
+            case FIXED:
+                return Executors.newFixedThreadPool(3, new SimpleThreadFactory("bench-executor"));
+            default:
+                return Runnable::run;
+        }
+    }
+
+    public static void shutdown(Executor executor) {
+        if (executor instanceof ExecutorService && executor != ForkJoinPool.commonPool()) {
+            ((ExecutorService)executor).shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code allOf}/{@code anyOf} over a stream, as in {@code CompletionStageTest}, versus {@link FanOut}. Compare
+ * {@code gc.alloc.rate.norm} with {@code -prof gc}.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FanOutBenchmark {
+
+    @Param({"FIXED", "SAME_THREAD"})
+    private ExecutorKind executorKind;
+
+    @Param({"3", "64", "512"})
+    private int width;
+
+    private Executor executor;
+    private List<String> messages;
+
+    @Setup
+    public void setUp() {
+        executor = executorKind.create();
+        messages = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            messages.add("m" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ExecutorKind.shutdown(executor);
+    }
+
+    @Benchmark
+    public List<String> allOfStream() {
+        CompletableFuture<String>[] futures = messages.stream()
+            .map(msg -> CompletableFuture.supplyAsync(msg::toUpperCase, executor))
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+        List<String> result = new ArrayList<>(futures.length);
+        for (CompletableFuture<String> future : futures) {
+            result.add(future.join());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<String> fanOutAll() {
+        return FanOut.all(messages, msg -> CompletableFuture.supplyAsync(msg::toUpperCase, executor)).join();
+    }
+
+    @Benchmark
+    public Object anyOfStream() {
+        return CompletableFuture
+            .anyOf(messages.stream()
+                .map(msg -> CompletableFuture.supplyAsync(msg::toUpperCase, executor))
+                .toArray(CompletableFuture[]::new))
+            .join();
+    }
+
+    @Benchmark
+    public String fanOutFirst() {
+        return FanOut.first(messages, msg -> CompletableFuture.supplyAsync(msg::toUpperCase, executor)).join();
+    }
+}
@@ -0,0 +1,126 @@
+package cn.homjie.vertx.tutorial.log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Logging throughput from 32 threads into a file with the tutorial's pattern: logback's synchronous
+ * {@link FileAppender}, logback's {@link AsyncAppender} in front of it, and {@link RingBufferAppender} with both
+ * overflow policies. Under {@code RING_DROP} the score includes dropped events, their count is printed at the end.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoggingBenchmark {
+
+    private static final String PATTERN = "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n";
+
+    @Param({"SYNC_FILE", "LOGBACK_ASYNC", "RING_BLOCK", "RING_DROP"})
+    private String appender;
+
+    private LoggerContext context;
+    private Logger logger;
+    private Path file;
+    private RingBufferAppender ring;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("logging-benchmark", ".log");
+        context = new LoggerContext();
+        logger = context.getLogger(LoggingBenchmark.class);
+        logger.setAdditive(false);
+        logger.addAppender(create());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.stop();
+        if (ring != null) {
+            System.out.println("dropped: " + ring.getDroppedCount() + ", blocked: " + ring.getBlockedCount());
+        }
+        System.out.println("written: " + (Files.size(file) >> 20) + " MB");
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void info() {
+        logger.info("device {} published {} bytes", "sensor-1", 128);
+    }
+
+    private Appender<ILoggingEvent> create() {
+        switch (appender) {
+            case "SYNC_FILE":
+                return fileAppender();
+            case "LOGBACK_ASYNC":
+                AsyncAppender async = new AsyncAppender();
+                async.setContext(context);
+                async.setQueueSize(8192);
+                // 默认队列剩余 20% 时丢弃 INFO，关掉以便与 BLOCK 对比
+                async.setDiscardingThreshold(0);
+                async.addAppender(fileAppender());
+                async.start();
+                return async;
+            case "RING_BLOCK":
+            case "RING_DROP":
+                ring = new RingBufferAppender();
+                ring.setContext(context);
+                ring.setName(appender);
+                ring.setFile(file.toString());
+                ring.setBufferSize(8192);
+                ring.setPolicy(appender.equals("RING_BLOCK") ? OverflowPolicy.BLOCK : OverflowPolicy.DROP);
+                ring.setEncoder(encoder());
+                ring.start();
+                return ring;
+            default:
+                throw new IllegalArgumentException(appender);
+        }
+    }
+
+    private FileAppender<ILoggingEvent> fileAppender() {
+        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setName("file");
+        fileAppender.setFile(file.toString());
+        fileAppender.setEncoder(encoder());
+        fileAppender.start();
+        return fileAppender;
+    }
+
+    private PatternLayoutEncoder encoder() {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        return encoder;
+    }
+}
@@ -0,0 +1,64 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.KeyGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generating one key of each kind {@code KeyStoreMain} creates, plus EC P-256 as the alternative to RSA for device
+ * key pairs, with each {@link SecureRandom} variant of {@link SecureRandomBenchmark}. RSA spends its time searching
+ * for primes, the random source only matters for the cheap keys. DSA uses the JDK's precomputed 2048-bit parameters.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KeyGenerationBenchmark {
+
+    @Param({"RSA-2048", "DSA-2048", "EC-256", "AES-256", "DES-56"})
+    private String key;
+    @Param({"default", "NativePRNGNonBlocking", "SHA1PRNG"})
+    private String random;
+
+    private KeyPairGenerator keyPairGenerator;
+    private KeyGenerator keyGenerator;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        String algorithm = key.substring(0, key.indexOf('-'));
+        int keySize = Integer.parseInt(key.substring(key.indexOf('-') + 1));
+        SecureRandom secureRandom = SecureRandomBenchmark.secureRandom(random);
+        if ("AES".equals(algorithm) || "DES".equals(algorithm)) {
+            keyGenerator = KeyGenerator.getInstance(algorithm);
+            keyGenerator.init(keySize, secureRandom);
+        } else {
+            keyPairGenerator = KeyPairGenerator.getInstance(algorithm);
+            keyPairGenerator.initialize(keySize, secureRandom);
+        }
+    }
+
+    @Benchmark
+    public Object generate() {
+        return keyGenerator != null ? keyGenerator.generateKey() : keyPairGenerator.generateKeyPair();
+    }
+}
@@ -0,0 +1,78 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading a key back from its encoding: {@code decodePrivate} a PKCS#8 private key and {@code decodePublic} an
+ * X.509 public key through a {@link KeyFactory} kept aside, {@code keyPairSave} the way {@code KeyStoreMain} reads
+ * {@code mqtt.key}, a new {@link KeyFactory} and the base64 text decoded on every call.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KeySpecBenchmark {
+
+    @Param({"RSA-2048", "DSA-2048", "EC-256"})
+    private String key;
+
+    private String algorithm;
+    private KeyFactory keyFactory;
+    private byte[] pkcs8;
+    private byte[] x509;
+    private String base64;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        algorithm = key.substring(0, key.indexOf('-'));
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+        generator.initialize(Integer.parseInt(key.substring(key.indexOf('-') + 1)));
+        KeyPair keyPair = generator.generateKeyPair();
+        keyFactory = KeyFactory.getInstance(algorithm);
+        pkcs8 = keyPair.getPrivate().getEncoded();
+        x509 = keyPair.getPublic().getEncoded();
+        base64 = Base64.getEncoder().encodeToString(pkcs8);
+    }
+
+    @Benchmark
+    public PrivateKey decodePrivate() throws GeneralSecurityException {
+        return keyFactory.generatePrivate(new PKCS8EncodedKeySpec(pkcs8));
+    }
+
+    @Benchmark
+    public PublicKey decodePublic() throws GeneralSecurityException {
+        return keyFactory.generatePublic(new X509EncodedKeySpec(x509));
+    }
+
+    @Benchmark
+    public PrivateKey keyPairSave() throws GeneralSecurityException {
+        KeyFactory factory = KeyFactory.getInstance(algorithm);
+        return factory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(base64)));
+    }
+}
@@ -0,0 +1,161 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.crypto.Cipher;
+import javax.crypto.EncryptedPrivateKeyInfo;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.PBEParameterSpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A keystore of {@code entries} RSA-2048 private keys with their certificate: {@code load} parses it from memory,
+ * {@code store} writes it out, {@code getKey} decrypts one entry, which {@link KeyStoreCache} does once per key. JKS
+ * protects a key with a few SHA-1 rounds, PKCS12 with PBKDF2 over 10000 rounds of HMAC-SHA256.
+ * <p>
+ * One device is provisioned with {@link KeyProvisioner} and its key repeated under every alias; PKCS12 is handed the
+ * key encrypted once, as encrypting it per entry would take minutes at 100k entries.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class KeyStoreBenchmark {
+
+    private static final char[] PASSWORD = "pwd123!".toCharArray();
+
+    @Param({"JKS", "PKCS12"})
+    private String type;
+    @Param({"1000", "10000", "100000"})
+    private int entries;
+
+    private Path directory;
+    private KeyStore keyStore;
+    private byte[] image;
+    private int next;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException, IOException {
+        directory = Files.createTempDirectory("keystore-benchmark");
+        List<Path> provisioned = KeyProvisioner.keyPairs("RSA", 2048)
+            .directory(directory)
+            .password(PASSWORD)
+            .build()
+            .provision(Collections.singletonList("device"));
+        KeyStore device = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(provisioned.get(0))) {
+            device.load(in, PASSWORD);
+        }
+        PrivateKey privateKey = (PrivateKey)device.getKey("device", PASSWORD);
+        Certificate[] chain = device.getCertificateChain("device");
+
+        keyStore = KeyStore.getInstance(type);
+        keyStore.load(null, null);
+        byte[] protectedKey = "PKCS12".equals(type) ? protect(privateKey) : null;
+        for (int i = 0; i < entries; i++) {
+            if (protectedKey != null) {
+                keyStore.setKeyEntry("device-" + i, protectedKey, chain);
+            } else {
+                keyStore.setKeyEntry("device-" + i, privateKey, PASSWORD, chain);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        keyStore.store(out, PASSWORD);
+        image = out.toByteArray();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public KeyStore load() throws GeneralSecurityException, IOException {
+        KeyStore loaded = KeyStore.getInstance(type);
+        loaded.load(new ByteArrayInputStream(image), PASSWORD);
+        return loaded;
+    }
+
+    @Benchmark
+    public void store() throws GeneralSecurityException, IOException {
+        keyStore.store(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }, PASSWORD);
+    }
+
+    @Benchmark
+    public Key getKey() throws GeneralSecurityException {
+        if (++next == entries) {
+            next = 0;
+        }
+        return keyStore.getKey("device-" + next, PASSWORD);
+    }
+
+    /**
+     * The {@code EncryptedPrivateKeyInfo} PKCS12 makes of a key by default.
+     */
+    private static byte[] protect(PrivateKey privateKey) throws GeneralSecurityException, IOException {
+        String algorithm = "PBEWithHmacSHA256AndAES_256";
+        SecureRandom random = new SecureRandom();
+        byte[] salt = new byte[20];
+        byte[] iv = new byte[16];
+        random.nextBytes(salt);
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance(algorithm);
+        cipher.init(Cipher.ENCRYPT_MODE,
+            SecretKeyFactory.getInstance(algorithm).generateSecret(new PBEKeySpec(PASSWORD)),
+            new PBEParameterSpec(salt, 10_000, new IvParameterSpec(iv)));
+        byte[] encrypted = cipher.doFinal(privateKey.getEncoded());
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("PBES2");
+        parameters.init(cipher.getParameters().getEncoded());
+        return new EncryptedPrivateKeyInfo(parameters, encrypted).getEncoded();
+    }
+}
@@ -0,0 +1,135 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * What Paho does to persistence per QoS 1 message: {@code put} before sending, {@code remove} on the PUBACK, with 16
+ * messages in flight. {@code MAPPED} is {@link MappedLogPersistence} with its default 10 ms group commit,
+ * {@code MAPPED_SYNC} forces on every call, {@code FILE} is Paho's file per message.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersistenceBenchmark {
+
+    private static final int IN_FLIGHT = 16;
+
+    @Param({"MEMORY", "FILE", "MAPPED", "MAPPED_SYNC"})
+    private String kind;
+
+    private Path directory;
+    private MqttClientPersistence persistence;
+    private final Message message = new Message(new byte[4], new byte[256]);
+    private int sequence;
+
+    @Setup
+    public void setUp() throws IOException, MqttPersistenceException {
+        directory = Files.createTempDirectory("persistence-benchmark");
+        switch (kind) {
+            case "MEMORY":
+                persistence = new MemoryPersistence();
+                break;
+            case "FILE":
+                persistence = new MqttDefaultFilePersistence(directory.toString());
+                break;
+            case "MAPPED":
+                persistence = new MappedLogPersistence(directory);
+                break;
+            default:
+                persistence = new MappedLogPersistence(directory, 8 * 1024 * 1024, 0);
+        }
+        persistence.open("benchmark", "tcp://localhost:1883");
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            persistence.put("s-" + i, message);
+        }
+        sequence = IN_FLIGHT;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, MqttPersistenceException {
+        persistence.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void putRemove() throws MqttPersistenceException {
+        int id = sequence++ % 65535;
+        persistence.put("s-" + id, message);
+        persistence.remove("s-" + (id + 65535 - IN_FLIGHT) % 65535);
+    }
+
+    private static final class Message implements MqttPersistable {
+
+        private final byte[] header;
+        private final byte[] payload;
+
+        Message(byte[] header, byte[] payload) {
+            this.header = header;
+            this.payload = payload;
+        }
+
+        @Override
+        public byte[] getHeaderBytes() {
+            return header;
+        }
+
+        @Override
+        public int getHeaderLength() {
+            return header.length;
+        }
+
+        @Override
+        public int getHeaderOffset() {
+            return 0;
+        }
+
+        @Override
+        public byte[] getPayloadBytes() {
+            return payload;
+        }
+
+        @Override
+        public int getPayloadLength() {
+            return payload.length;
+        }
+
+        @Override
+        public int getPayloadOffset() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 32 random bytes, the size of an AES-256 key or a salt, from four threads: {@code shared} draws from one
+ * {@link SecureRandom} as a static field would, {@code perThread} from one per thread as {@link KeyProvisioner} does.
+ * {@code default} is {@code new SecureRandom()}, {@code NativePRNG} on Linux, which mixes {@code /dev/urandom} with a
+ * SHA1PRNG under one process-wide lock whatever the instance.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SecureRandomBenchmark {
+
+    @Param({"default", "NativePRNGNonBlocking", "SHA1PRNG"})
+    private String variant;
+
+    private SecureRandom shared;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        shared = secureRandom(variant);
+    }
+
+    @Benchmark
+    public byte[] shared() {
+        byte[] bytes = new byte[32];
+        shared.nextBytes(bytes);
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] perThread(PerThread state) {
+        byte[] bytes = new byte[32];
+        state.random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * A seeded instance of a variant: SHA1PRNG is seeded from {@code /dev/urandom} rather than left to seed itself
+     * from {@code /dev/random}, which may block.
+     */
+    static SecureRandom secureRandom(String variant) throws GeneralSecurityException {
+        if ("default".equals(variant)) {
+            return new SecureRandom();
+        }
+        SecureRandom random = SecureRandom.getInstance(variant);
+        if ("SHA1PRNG".equals(variant)) {
+            byte[] seed = new byte[32];
+            new SecureRandom().nextBytes(seed);
+            random.setSeed(seed);
+        }
+        return random;
+    }
+
+    @State(Scope.Thread)
+    public static class PerThread {
+
+        private SecureRandom random;
+
+        @Setup
+        public void setUp(SecureRandomBenchmark benchmark) throws GeneralSecurityException {
+            random = secureRandom(benchmark.variant);
+        }
+    }
+}
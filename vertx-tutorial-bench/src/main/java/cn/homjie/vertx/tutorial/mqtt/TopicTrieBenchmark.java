@@ -0,0 +1,84 @@
+package cn.homjie.vertx.tutorial.mqtt;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.eclipse.paho.client.mqttv3.MqttTopic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finding the subscriptions of one downlink topic among {@code filters} filters: {@code linearScan} tests every
+ * filter with Paho's {@link MqttTopic#isMatched}, {@code trie} walks a {@link TopicTrie}. One filter in 100 has a
+ * {@code +} level and there is one {@code #} filter, so every topic matches two or three of them. Run with
+ * {@code -prof gc} to see that the trie allocates nothing.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TopicTrieBenchmark {
+
+    @Param({"100", "10000"})
+    private int filters;
+
+    private String[] filterArray;
+    private String[] topics;
+    private TopicTrie<String> trie;
+    private int next;
+    private int matched;
+    private final Consumer<String> counter = filter -> matched++;
+
+    @Setup
+    public void setUp() {
+        trie = new TopicTrie<>();
+        filterArray = new String[filters + 1];
+        for (int i = 0; i < filters; i++) {
+            String filter = i % 100 == 0
+                ? "/lora/gwmp/downlink/+/dn-" + i
+                : "/lora/gwmp/downlink/pk-" + i % 50 + "/dn-" + i;
+            filterArray[i] = filter;
+            trie.add(filter, filter);
+        }
+        filterArray[filters] = "/lora/gwmp/#";
+        trie.add("/lora/gwmp/#", "/lora/gwmp/#");
+        topics = new String[1024];
+        for (int i = 0; i < topics.length; i++) {
+            int device = i * 31 % filters;
+            topics[i] = "/lora/gwmp/downlink/pk-" + device % 50 + "/dn-" + device;
+        }
+    }
+
+    @Benchmark
+    public int linearScan() {
+        String topic = topics[next++ & 1023];
+        int matched = 0;
+        for (String filter : filterArray) {
+            if (MqttTopic.isMatched(filter, topic)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int trie() {
+        matched = 0;
+        trie.match(topics[next++ & 1023], counter);
+        return matched;
+    }
+}
@@ -0,0 +1,112 @@
+package cn.homjie.vertx.tutorial.juc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to complete {@code stages} concurrent stages that each block like the {@code sleep(...)} in
+ * {@code CompletionStageTest}: platform pools versus a virtual thread per task. Only compiled by the {@code jdk21}
+ * profile.
+ *
+ * @author jiehong.jh
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class BlockingStageBenchmark {
+
+    public enum ExecutorMode {
+        /**
+         * newFixedThreadPool(3, ...) as in CompletionStageTest
+         */
+        FIXED_3,
+        /**
+         * a pool sized for blocking work, ThreadPoolBuilder.ioBound(0.99)
+         */
+        IO_BOUND,
+        /**
+         * a platform thread per task
+         */
+        PLATFORM_PER_TASK,
+        VIRTUAL
+    }
+
+    @Param({"FIXED_3", "IO_BOUND", "PLATFORM_PER_TASK", "VIRTUAL"})
+    private ExecutorMode mode;
+
+    @Param({"10000"})
+    private int stages;
+
+    @Param({"1"})
+    private long blockMillis;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        switch (mode) {
+            case FIXED_3:
+                executor = ThreadPoolBuilder.newBuilder("fixed-executor")
+                    .fixed(3)
+                    .queueCapacity(2 * stages)
+                    .build();
+                break;
+            case IO_BOUND:
+                executor = ThreadPoolBuilder.newBuilder("io-executor")
+                    .ioBound(0.99)
+                    .queueCapacity(2 * stages)
+                    .build();
+                break;
+            case PLATFORM_PER_TASK:
+                executor = Executors.newThreadPerTaskExecutor(new SimpleThreadFactory("platform-executor"));
+                break;
+            default:
+                executor = VirtualThreads.newThreadPerTaskExecutor("virtual-executor");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public String blockingStages() {
+        CompletableFuture<?>[] futures = new CompletableFuture[stages];
+        for (int i = 0; i < stages; i++) {
+            futures[i] = CompletableFuture
+                .supplyAsync(() -> block("message"), executor)
+                .thenApplyAsync(s -> block(s.toUpperCase()), executor);
+        }
+        CompletableFuture.allOf(futures).join();
+        return (String)futures[stages - 1].join();
+    }
+
+    private String block(String value) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(blockMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}